@@ -0,0 +1,62 @@
+package SWDModelBenchmarks;
+
+import java.util.Collection;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+/**
+ * Command-line check that the step loop doesn't allocate: runs the benchmarks of a step (PopulationStepBenchmark)
+ * and of a season on a reused simulator (SeasonRunBenchmark.runReused) with the GC profiler, for every model
+ * (with and without fruit and diapause), and checks that their allocation per operation (gc.alloc.rate.norm) is 0,
+ * up to the bookkeeping of JMH itself (at most MAX_BYTES_PER_STEP per step: a season is 7300 steps, so JMH's own
+ * allocations, spread over fewer operations, weigh more per season than per step).
+ * Prints the allocation of each benchmark; exits with status 1 if any of them allocates.
+ * Run with java -cp target/benchmarks.jar SWDModelBenchmarks.AllocationCheck (after mvn -Pbenchmarks package).
+ */
+public class AllocationCheck {
+
+	private static final double MAX_BYTES_PER_STEP = 0.01;
+
+	public static void main(String[] args) throws RunnerException {
+		Options options = new OptionsBuilder()
+				.include(PopulationStepBenchmark.class.getSimpleName())
+				.include(SeasonRunBenchmark.class.getSimpleName() + ".runReused")
+				.param("series", TemperatureSeries.CLARK_2003)
+				.addProfiler(GCProfiler.class)
+				.warmupIterations(3)
+				.warmupTime(TimeValue.seconds(1))
+				.measurementIterations(3)
+				.measurementTime(TimeValue.seconds(1))
+				.forks(1)
+				.build();
+		Collection<RunResult> results = new Runner(options).run();
+
+		boolean allocates = false;
+		System.out.println();
+		for (RunResult result : results) {
+			String name = result.getParams().getBenchmark() + " (model " + result.getParams().getParam("model") + ")";
+			Result<?> allocation = result.getSecondaryResults().get("gc.alloc.rate.norm");
+			if (allocation == null) {
+				System.out.println("Error - no allocation rate for " + name);
+				allocates = true;
+			} else {
+				int steps = result.getParams().getBenchmark().endsWith(".runReused") ? SeasonRunBenchmark.STEPS : 1; // steps per operation
+				boolean ok = allocation.getScore() <= MAX_BYTES_PER_STEP * steps;
+				System.out.println((ok ? "OK    " : "ALLOCATES ") + name + ": " + allocation.getScore() + " " + allocation.getScoreUnit());
+				allocates |= !ok;
+			}
+		}
+		if (allocates) {
+			System.out.println("Error - the step loop allocates");
+			System.exit(1);
+		}
+		System.out.println("No allocation in the step loop");
+	}
+}
@@ -0,0 +1,27 @@
+package SWDModelBenchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Entry point of the benchmarks jar: runs JMH (org.openjdk.jmh.Main) with the command-line arguments, with the
+ * GC profiler (-prof gc) added, so every result comes with its allocation rate and garbage collections.
+ * Arguments are as for JMH (e.g. a regular expression of the benchmarks to run, -p series=clark2003, -l to list
+ * them); to run without the profiler, run org.openjdk.jmh.Main from the jar instead.
+ */
+public class BenchmarkMain {
+
+	public static void main(String[] args) throws Exception {
+		ArrayList<String> arguments = new ArrayList<String>(Arrays.asList(args));
+		boolean hasGCProfiler = false;
+		for (int i = 0; i + 1 < arguments.size(); i ++) {
+			if (arguments.get(i).equals("-prof") && arguments.get(i + 1).startsWith("gc"))
+				hasGCProfiler = true;
+		}
+		if (!hasGCProfiler) {
+			arguments.add(0, "-prof");
+			arguments.add(1, "gc");
+		}
+		org.openjdk.jmh.Main.main(arguments.toArray(new String[arguments.size()]));
+	}
+}
@@ -0,0 +1,75 @@
+package SWDModelBenchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import SWDModelBaseObjects.CompiledParameters;
+import SWDModelSimulators.EnsembleKernel;
+import SWDModelSimulators.EnsembleKernels;
+
+/**
+ * JMH comparison of the ensemble kernels (see EnsembleKernels): one Euler update of all the members, with
+ * rates and populations of the same magnitude as in a simulation.  The forked JVMs are started with the
+ * jdk.incubator.vector module, so both kernels are available.
+ * Results are per update of the whole ensemble (divide by members for the time per member).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class EnsembleKernelBenchmark {
+
+	@Param({"scalar", "vector"})
+	public String kernelName;
+
+	@Param({"256", "2920"})
+	public int members;
+
+	private EnsembleKernel kernel;
+	private double[][] pop, next, devRate, loss, fertViability;
+	private double[] maleProportion, eggsIn;
+
+	@Setup
+	public void setup() {
+		kernel = EnsembleKernels.get(kernelName);
+		Random random = new Random(42);
+		pop = randomArrays(CompiledParameters.NUM_STAGES, 1000, random);
+		next = new double[CompiledParameters.NUM_STAGES][members];
+		devRate = randomArrays(CompiledParameters.NUM_DEV_STAGES, 0.2, random);
+		loss = randomArrays(CompiledParameters.NUM_STAGES, 0.3, random);
+		fertViability = randomArrays(CompiledParameters.NUM_FEMALE_STAGES, 5, random);
+		maleProportion = new double[members];
+		for (int m = 0; m < members; m ++)
+			maleProportion[m] = 0.5;
+		eggsIn = new double[members];
+	}
+
+	@Benchmark
+	public double[][] updatePopulations() {
+		kernel.updatePopulations(pop, next, devRate, loss, fertViability, maleProportion, eggsIn, 0.05, 0, members);
+		return next;
+	}
+
+	private double[][] randomArrays(int numStages, double scale, Random random) {
+		double[][] arrays = new double[numStages][members];
+		for (int i = 0; i < numStages; i ++) {
+			for (int m = 0; m < members; m ++)
+				arrays[i][m] = random.nextDouble() * scale;
+		}
+		return arrays;
+	}
+}
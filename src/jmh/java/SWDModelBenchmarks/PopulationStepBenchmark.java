@@ -0,0 +1,100 @@
+package SWDModelBenchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import SWDModelBaseObjects.CompiledParameters;
+import SWDModelBaseObjects.Parameters;
+import SWDModelBaseObjects.SWDCellSingle;
+import SWDModelBaseObjects.SWDPopulation;
+import SWDModelBaseObjects.TemperatureRates;
+
+/**
+ * JMH benchmarks of one integration step (dt = 0.05): SWDPopulation.computePopulation (the populations only,
+ * with the rates of the day already computed, as read from a RateCache, and a fixed fruit quality of 0.5), and
+ * SWDCellSingle.stepFoward (the whole cell: fruit quality, rates, populations and summary).
+ * Each invocation is the next step of a season on a temperature series, starting with 100 females1; at the end
+ * of the season, the population is reset and the season starts again, so the populations stay realistic.
+ * Results are per step.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PopulationStepBenchmark {
+
+	private static final double DT = 0.05;
+	private static final int STEPS = 365 * 20; // steps in a season
+
+	@Param({TemperatureSeries.TORONTO_2012, TemperatureSeries.CLARK_2003, "Sudbury"})
+	public String series;
+
+	@Param({"none", "fruit", "diapause", "fruit+diapause"})
+	public String model; // the effects that are not ignored
+
+	private double[] temps;
+	private boolean ignoreFruit, ignoreDiapause;
+	private CompiledParameters params;
+	private TemperatureRates[] dayRates;
+	private SWDPopulation population;
+	private SWDCellSingle cell;
+	private int populationStep, cellStep;
+
+	@Setup
+	public void setup() {
+		temps = TemperatureSeries.get(series);
+		ignoreFruit = !model.contains("fruit");
+		ignoreDiapause = !model.contains("diapause");
+
+		Parameters parameters = new Parameters();
+		parameters.setParameter("initial females1", 100);
+		params = parameters.compile();
+		dayRates = new TemperatureRates[temps.length];
+		for (int day = 0; day < temps.length; day ++)
+			dayRates[day] = new TemperatureRates(temps[day], params);
+
+		population = new SWDPopulation(parameters);
+		population.readPopulation(params);
+		cell = new SWDCellSingle(parameters);
+		cell.readInitFlies();
+	}
+
+	@Benchmark
+	public SWDPopulation computePopulation() {
+		if (populationStep == STEPS) {
+			population.resetPopulation();
+			population.readPopulation(params);
+			populationStep = 0;
+		}
+		double timeStep = populationStep * DT;
+		population.computePopulation(dayRates[((int) timeStep) % temps.length], 0.5, params, ignoreFruit, ignoreDiapause, DT, timeStep);
+		populationStep ++;
+		return population;
+	}
+
+	@Benchmark
+	public SWDCellSingle stepFoward() {
+		if (cellStep == STEPS) {
+			cell.resetTime();
+			cell.readInitFlies();
+			cellStep = 0;
+		}
+		double timeStep = cellStep * DT;
+		cell.stepFoward(temps[((int) timeStep) % temps.length], ignoreFruit, ignoreDiapause, DT, timeStep);
+		cellStep ++;
+		return cell;
+	}
+}
@@ -0,0 +1,83 @@
+package SWDModelBenchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import SWDModelBaseObjects.CompiledParameters;
+import SWDModelBaseObjects.Parameters;
+import SWDModelReferenceClasses.SolveParameters;
+
+/**
+ * JMH benchmarks of the temperature-dependent rate functions of SolveParameters (fecundity, mortality and
+ * juvenile development), with the default parameters, over every day of a temperature series.
+ * Results are per call (each invocation evaluates the function for all the days of the series, and for all
+ * the stages it applies to).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RateFunctionsBenchmark {
+
+	private static final int DAYS = 365;
+	private static final int JUVENILE_STAGES = 5; // eggs to pupae
+
+	@Param({TemperatureSeries.TORONTO_2012, TemperatureSeries.CLARK_2003, TemperatureSeries.HILLSBOROUGH, "Sudbury", "Vancouver"})
+	public String series;
+
+	private double[] temps;
+	private CompiledParameters params;
+
+	@Setup
+	public void setup() {
+		temps = TemperatureSeries.get(series);
+		params = new Parameters().compile();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(DAYS)
+	public double solveSpecificFertility() {
+		double sum = 0;
+		for (int day = 0; day < DAYS; day ++)
+			sum += SolveParameters.solveSpecificFertility(temps[day % temps.length], params);
+		return sum;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(DAYS * CompiledParameters.NUM_STAGES)
+	public double solveMortality() {
+		double sum = 0;
+		for (int day = 0; day < DAYS; day ++) {
+			double temperature = temps[day % temps.length];
+			for (int stage = 0; stage < CompiledParameters.NUM_STAGES; stage ++)
+				sum += SolveParameters.solveMortality(temperature, params, stage);
+		}
+		return sum;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(DAYS * JUVENILE_STAGES)
+	public double solveDevBriereJuvenile() {
+		double sum = 0;
+		for (int day = 0; day < DAYS; day ++) {
+			double temperature = temps[day % temps.length];
+			for (int stage = 0; stage < JUVENILE_STAGES; stage ++)
+				sum += SolveParameters.solveDev_Briere_Juvenile(temperature, params.getDevelopmentMax(stage));
+		}
+		return sum;
+	}
+}
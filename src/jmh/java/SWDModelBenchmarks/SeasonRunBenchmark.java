@@ -0,0 +1,76 @@
+package SWDModelBenchmarks;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import SWDModelBaseObjects.Parameters;
+import SWDModelBaseObjects.RunSummary;
+import SWDModelSimulators.SWDSimulatorSingle;
+
+/**
+ * JMH benchmarks of a full season: an SWDSimulatorSingle (dt = 0.05) running 365 days on a temperature series,
+ * from 100 females1 injected on day 0, with and without the fruit and diapause models.  run is a new simulator
+ * for every season (as one run of a sweep of ThreadedBatchRunner, without the shared caches); runReused resets
+ * the same simulator between seasons, so it only measures the step loop (it allocates nothing, see
+ * AllocationCheck; the summary is not built).
+ * Results are per run.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SeasonRunBenchmark {
+
+	private static final double DT = 0.05;
+	private static final double RUN_TIME = 365;
+	static final int STEPS = 365 * 20; // steps in a season
+
+	@Param({TemperatureSeries.TORONTO_2012, TemperatureSeries.CLARK_2003, "Sudbury"})
+	public String series;
+
+	@Param({"none", "fruit", "diapause", "fruit+diapause"})
+	public String model; // the effects that are not ignored
+
+	private ArrayList<Double> temps;
+	private boolean ignoreFruit, ignoreDiapause;
+	private Parameters params;
+	private SWDSimulatorSingle reused;
+
+	@Setup
+	public void setup() {
+		temps = TemperatureSeries.getList(series);
+		ignoreFruit = !model.contains("fruit");
+		ignoreDiapause = !model.contains("diapause");
+		params = new Parameters();
+		params.setParameter("initial females1", 100);
+		reused = new SWDSimulatorSingle(DT, params);
+	}
+
+	@Benchmark
+	public RunSummary run() {
+		SWDSimulatorSingle sim = new SWDSimulatorSingle(DT, params);
+		sim.run(temps, RUN_TIME, ignoreFruit, ignoreDiapause, 0);
+		return sim.getRunSummary();
+	}
+
+	@Benchmark
+	public SWDSimulatorSingle runReused() {
+		reused.resetTime();
+		reused.run(temps, RUN_TIME, ignoreFruit, ignoreDiapause, 0);
+		return reused; // not getRunSummary, which builds a new summary
+	}
+}
@@ -0,0 +1,51 @@
+package SWDModelBenchmarks;
+
+import java.util.ArrayList;
+
+import ConsoleRunners.temperatures;
+import SWDModelReferenceClasses.TemperatureData;
+import SWDModelReferenceClasses.UtilityMethods;
+
+/**
+ * The daily temperature series the benchmarks run on, by name: the yearly series of the command-line runners
+ * (toronto2012, clark2003 and hillsboroughFL, see temperatures) and the averaged series of the applet (Sudbury,
+ * Toronto and Vancouver, see TemperatureData), so the benchmarks see the same temperatures as real runs.
+ */
+final class TemperatureSeries {
+
+	/**
+	 * Names of the series (for the Param annotations of the benchmarks)
+	 */
+	static final String TORONTO_2012 = "toronto2012", CLARK_2003 = "clark2003", HILLSBOROUGH = "hillsboroughFL";
+
+	private TemperatureSeries() {}
+
+	/**
+	 * Method to return a temperature series by name
+	 * @param name - the name of the series (the name of its array in temperatures, or a location of TemperatureData)
+	 * @return the temperature of each day
+	 * @throws IllegalArgumentException if there is no series with this name
+	 */
+	static double[] get(String name) {
+		if (name.equals(TORONTO_2012))
+			return temperatures.toronto2012;
+		if (name.equals(CLARK_2003))
+			return temperatures.clark2003;
+		if (name.equals(HILLSBOROUGH))
+			return temperatures.hillsboroughFL;
+		for (int i = 0; i < TemperatureData.availableData.length; i ++) {
+			if (TemperatureData.availableData[i].equals(name))
+				return TemperatureData.temperatures[i];
+		}
+		throw new IllegalArgumentException(name + " - not a valid temperature series!");
+	}
+
+	/**
+	 * Method to return a temperature series by name, as the simulators take it
+	 * @param name - the name of the series (see get)
+	 * @return the temperature of each day
+	 */
+	static ArrayList<Double> getList(String name) {
+		return UtilityMethods.convertArray_ArrayList(get(name));
+	}
+}
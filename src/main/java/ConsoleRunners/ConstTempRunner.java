@@ -6,6 +6,7 @@ import java.util.Scanner;
 
 import org.jfree.data.xy.XYSeries;
 
+import SWDModelBaseObjects.RecordingPolicy;
 import SWDModelSimulators.SWDSimulatorSingle;
  
 
@@ -144,6 +145,7 @@ public class ConstTempRunner {
 		
 
 		SWDSimulatorSingle sim = new SWDSimulatorSingle(dt, configParamsName); // initialize simulator
+		sim.setRecordingPolicy(RecordingPolicy.everyNSteps(20)); // the output only has one datapoint per day (every 20th)
 		
 		int initialPops[] = {25, 100, 500, 1000, 5000, 10000, 50000, 100000, 1000000, 10000000, 100000000};
 		double latitudes[] = {42.74611, 45.68333, 39.8144, 34.58333, 27.96667, 34.6044, 31.68333};
@@ -225,7 +227,7 @@ public class ConstTempRunner {
 								fileOut.print(names[j] + ":\t");
 						}
 						fileOut.println();
-						for (int i = 0; i < toPrint[0].getItemCount(); i +=20) { // += 20 so it prints every 20th datapoint (i.e. once per day)
+						for (int i = 0; i < toPrint[0].getItemCount(); i ++) { // only every 20th datapoint is recorded (i.e. once per day)
 							fileOut.print(toPrint[0].getX(i) + "\t"); // print the timestep (same for all series)
 							for (int j = 0; j < 7; j ++) {
 									fileOut.print(toPrint[j].getY(i) + "\t"); // print the corresponding value for the selected series
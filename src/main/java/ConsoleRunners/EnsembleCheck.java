@@ -0,0 +1,131 @@
+package ConsoleRunners;
+
+import java.util.ArrayList;
+
+import SWDModelBaseObjects.Parameters;
+import SWDModelBaseObjects.RunSummary;
+import SWDModelSimulators.SWDSimulatorEnsemble;
+import SWDModelSimulators.SWDSimulatorSingle;
+
+/**
+ * Command-line check for SWDSimulatorEnsemble.  Builds the same sweeps as ThreadedBatchRunner (population:
+ * 365 injection dates x 4 initial populations x eggs/females1; fruit: gt multipliers x harvest lags;
+ * diapause: critical temperatures x daylight hours), runs them as one ensemble, and compares the
+ * summary of every checked member with a new SWDSimulatorSingle run with the same parameters.
+ * Prints how long each took; exits with status 1 if any summary is different.
+ * Command-line arguments: the sweep (population, fruit or diapause; default population), and optionally
+ * the stride between checked members (default 1, i.e. every member is checked).
+ * The ensemble's kernel can be chosen with the swd.ensemble.kernel system property (see EnsembleKernels).
+ */
+public class EnsembleCheck {
+
+	private static final double dt = 0.05;
+	private static final double runTime = 365;
+
+	private static ArrayList<Parameters> members = new ArrayList<Parameters>();
+	private static ArrayList<Integer> startDays = new ArrayList<Integer>();
+
+	public static void main(String[] args) {
+		String type = (args.length > 0) ? args[0] : "population";
+		int stride = (args.length > 1) ? Integer.parseInt(args[1]) : 1;
+
+		Parameters params = new Parameters("configParams.txt");
+		ArrayList<Double> temps;
+		boolean ignoreFruit = true;
+		boolean ignoreDiap = true;
+
+		if (type.equals("population")) {
+			temps = temperatures.clark;
+			double[] initialPops = {10, 100, 1000, 10000};
+			for (int startDay = 0; startDay < 365; startDay ++) {
+				for (int iP = 0; iP < initialPops.length; iP ++) {
+					addMember(params, startDay, "eggs", initialPops[iP], 4, 50, 18, 10);
+					addMember(params, startDay, "females1", initialPops[iP], 4, 50, 18, 10);
+				}
+			}
+		} else if (type.equals("fruit")) {
+			temps = temperatures.clark;
+			ignoreFruit = false;
+			for (double gtMultiplier = 1; gtMultiplier <= 10; gtMultiplier += 0.25) {
+				for (int harvestLag = 0; harvestLag < 366; harvestLag += 5)
+					addMember(params, 0, "females1", 10, gtMultiplier, harvestLag, 18, 10);
+			}
+		} else if (type.equals("diapause")) {
+			temps = temperatures.hillsborough;
+			ignoreDiap = false;
+			for (int criticalT = 0; criticalT < 38; criticalT ++) {
+				for (int daylightHours = 0; daylightHours <= 24; daylightHours ++)
+					addMember(params, 75, "females1", 10, 4, 50, criticalT, daylightHours);
+			}
+		} else {
+			System.out.println(type + " - not a valid simulation type!");
+			return;
+		}
+
+		// the ensemble
+		long start = System.nanoTime();
+		SWDSimulatorEnsemble ensemble = new SWDSimulatorEnsemble(members.size(), dt);
+		for (int m = 0; m < members.size(); m ++)
+			ensemble.setMember(m, members.get(m), temps, startDays.get(m));
+		ensemble.run(runTime, ignoreFruit, ignoreDiap);
+		long ensembleTime = System.nanoTime() - start;
+
+		// the single simulator, for the checked members
+		int checked = 0;
+		int different = 0;
+		long singleTime = 0;
+		for (int m = 0; m < members.size(); m += stride) {
+			start = System.nanoTime();
+			SWDSimulatorSingle sim = new SWDSimulatorSingle(dt, members.get(m));
+			RunSummary expected = sim.runSummary(temps, runTime, ignoreFruit, ignoreDiap, startDays.get(m));
+			singleTime += System.nanoTime() - start;
+
+			checked ++;
+			if (!sameSummary(expected, ensemble.getRunSummary(m))) {
+				if (different == 0) {
+					System.out.println("Member " + m + " is different:");
+					System.out.println("  single:   " + expected);
+					System.out.println("  ensemble: " + ensemble.getRunSummary(m));
+				}
+				different ++;
+			}
+		}
+
+		System.out.println("Sweep: " + type + ", " + members.size() + " members, " + checked + " checked, kernel: " + ensemble.getKernel().getName());
+		System.out.println("Time - ensemble (all members): " + ensembleTime / 1e6 + " ms, single (checked members): " + singleTime / 1e6 + " ms");
+		System.out.println("Per member - ensemble: " + ensembleTime / 1e3 / members.size() + " us, single: " + singleTime / 1e3 / checked + " us");
+
+		if (different > 0) {
+			System.out.println(different + " members are different - FAILED");
+			System.exit(1);
+		}
+		System.out.println("OK");
+	}
+
+	/**
+	 * Method to add a member to the sweep (with the parameters ThreadSim sets for each run).
+	 */
+	private static void addMember(Parameters params, int startDay, String stage, double initPop,
+									double gtMultiplier, double harvestLag, double criticalT, double daylightHours) {
+		Parameters member = new Parameters(params);
+		member.setParameter("initial " + stage, initPop);
+		member.setParameter("fruit gt multiplier", gtMultiplier);
+		member.setParameter("fruit time lag", harvestLag);
+		member.setParameter("diapause critical temp", criticalT);
+		member.setParameter("diapause daylight hours", daylightHours);
+		members.add(member);
+		startDays.add(startDay);
+	}
+
+	/**
+	 * Method to check if two summaries have exactly the same values
+	 */
+	private static boolean sameSummary(RunSummary a, RunSummary b) {
+		for (int i = 0; i < RunSummary.NUM_STAGES; i ++) {
+			if (Double.compare(a.getMax(i), b.getMax(i)) != 0 || Double.compare(a.getDayOfMax(i), b.getDayOfMax(i)) != 0
+					|| Double.compare(a.getTotal(i), b.getTotal(i)) != 0)
+				return false;
+		}
+		return a.getCrossedDiapDay() == b.getCrossedDiapDay() && Double.compare(a.getDayCrossedMaxFruit(), b.getDayCrossedMaxFruit()) == 0;
+	}
+}
@@ -0,0 +1,71 @@
+package ConsoleRunners;
+
+import SWDModelBaseObjects.Parameters;
+import SWDModelReferenceClasses.SolveParameters;
+
+/**
+ * Command-line check for the double precision fecundity curve used by the simulator.
+ * Sweeps the valid temperature range (the curve is 0 outside of it) and compares
+ * SolveParameters.solveSpecificFertility against the original BigDecimal implementation
+ * (SolveParameters.solveFertilityCurveReference).  Prints the largest relative error found
+ * and how long each version took; exits with status 1 if the error is larger than
+ * SolveParameters.FERTILITY_TOLERANCE.  The build runs it in the test phase, with an increment
+ * of 0.01 (see pom.xml), so a change to the curve that breaks the tolerance fails the build.
+ * Optional command-line argument: the temperature increment for the sweep (default 0.001).
+ */
+public class FertilityKernelCheck {
+
+	public static void main(String[] args) {
+
+		double step = 0.001; // temperature increment
+		if (args.length > 0)
+			step = Double.parseDouble(args[0]);
+
+		Parameters params = new Parameters();
+		params.setParameter("fertility tmax", 60); // check the whole curve, not just below the default max temperature
+
+		double minT = -30; // the curve is 0 below about -29.09
+		double maxT = 53; // and above about 52.35
+
+		double maxError = 0;
+		double maxErrorT = 0;
+		int numPoints = 0;
+		long kernelTime = 0;
+		long referenceTime = 0;
+
+		for (int i = 0; minT + i * step <= maxT; i ++) {
+			double T = minT + i * step;
+
+			long start = System.nanoTime();
+			double fertility = SolveParameters.solveSpecificFertility(T, params);
+			long middle = System.nanoTime();
+			double reference = SolveParameters.solveFertilityCurveReference(T);
+			long end = System.nanoTime();
+
+			kernelTime += middle - start;
+			referenceTime += end - middle;
+			numPoints ++;
+
+			double error;
+			if (reference == 0)
+				error = (fertility == 0) ? 0 : Double.POSITIVE_INFINITY; // both must be 0 outside the curve
+			else
+				error = Math.abs(fertility - reference) / reference;
+
+			if (error > maxError) {
+				maxError = error;
+				maxErrorT = T;
+			}
+		}
+
+		System.out.println("Temperatures checked: " + numPoints + " (from " + minT + " to " + maxT + ", step " + step + ")");
+		System.out.println("Max relative error: " + maxError + " at T = " + maxErrorT + " (tolerance " + SolveParameters.FERTILITY_TOLERANCE + ")");
+		System.out.println("Time - double: " + kernelTime / 1e6 + " ms, BigDecimal reference: " + referenceTime / 1e6 + " ms");
+
+		if (maxError > SolveParameters.FERTILITY_TOLERANCE) {
+			System.out.println("FAILED");
+			System.exit(1);
+		}
+		System.out.println("OK");
+	}
+}
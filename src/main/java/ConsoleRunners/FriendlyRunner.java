@@ -6,6 +6,7 @@ import java.util.Scanner;
 
 import org.jfree.data.xy.XYSeries;
 
+import SWDModelBaseObjects.RecordingPolicy;
 import SWDModelSimulators.SWDSimulatorSingle;
  
 
@@ -183,6 +184,7 @@ public class FriendlyRunner {
 		}
 		
 		SWDSimulatorSingle sim = new SWDSimulatorSingle(dt, configParamsName); // initialize simulator
+		sim.setRecordingPolicy(RecordingPolicy.everyNSteps(20)); // the output only has one datapoint per day (every 20th)
 		
 		
 		boolean ignoreFruit = false;
@@ -239,7 +241,7 @@ public class FriendlyRunner {
 					fileOut.print(names[j] + ":\t");
 			}
 			fileOut.println();
-			for (int i = 0; i < toPrint[0].getItemCount(); i +=20) { // += 20 so it prints every 20th datapoint (i.e. once per day)
+			for (int i = 0; i < toPrint[0].getItemCount(); i ++) { // only every 20th datapoint is recorded (i.e. once per day)
 				fileOut.print(toPrint[0].getX(i) + "\t"); // print the timestep (same for all series)
 				for (int j = 0; j < 7; j ++) {
 						fileOut.print(toPrint[j].getY(i) + "\t"); // print the corresponding value for the selected series
@@ -0,0 +1,305 @@
+package ConsoleRunners;
+
+import java.util.ArrayList;
+
+import SWDModelBaseObjects.Parameters;
+import SWDModelBaseObjects.RecordingPolicy;
+import SWDModelBaseObjects.RunSummary;
+import SWDModelReferenceClasses.ExponentialIntegrator;
+import SWDModelReferenceClasses.Integrator;
+import SWDModelReferenceClasses.RK4Integrator;
+import SWDModelSimulators.SWDSimulatorSingle;
+
+/**
+ * Command-line accuracy report for the integration schemes.  Runs a sample of the sweeps of ThreadedBatchRunner
+ * (population: injection dates every 30 days, for eggs and females1; fruit: a few gt multipliers and harvest
+ * lags; diapause: a few critical temperatures and daylight hours) and compares each scheme with a reference.
+ * The reference has to be much more accurate than the schemes it grades, which Euler's method with any dt this
+ * simulator can run isn't (its error is proportional to dt, about 3% of the cumulative populations at dt = 0.005).
+ * So it is the Richardson extrapolation of Euler's method with dt = 4h, 2h and h: with E(dt) = exact + c1 * dt +
+ * c2 * dt^2 + ..., R(h) = 2 * E(h) - E(2h) cancels the first-order error, and S(h) = (4 * R(h) - R(2h)) / 3 the
+ * second-order error too.  This needs the runs to converge smoothly with dt, so h is 1/128 (REFERENCE_DT): the
+ * steps are exact in binary, so every day has exactly the same number of steps, whereas with steps like 0.05 the
+ * time the simulator accumulates drifts, and a step next to the end of a day now and then gets the temperature of
+ * the other day (part of the error of these steps, but not a smooth one).  The reference runs are stepped one step
+ * per call of SWDSimulatorSingle.run, as runSummary rounds its time to 2 decimals (and would take 2 steps per call
+ * with dt = 1/32).
+ * The same extrapolation from dt = 8h, 4h and 2h, S(2h), has an error about 8 times as large (it is third order),
+ * so the report prints (S(h) - S(2h)) / 7 as the estimate of the error of the reference: the errors of the schemes
+ * are only meaningful above it.  The peak days of the reference are those of Euler's method
+ * with dt = h.
+ * Euler's method with dt = 0.05, 0.01 and 0.005 is graded too, so the report also shows its first-order
+ * convergence to the reference (the error divided by 5, then by 2).
+ * The schemes graded are:
+ * - the exact exponential integrator (see ExponentialIntegrator)
+ * - the classical Runge-Kutta method (RK4Integrator)
+ * - the adaptive integrator (AdaptiveIntegrator), with tolerances 1e-3 and 1e-6, as set by
+ *   SWDSimulatorSingle.setTolerance
+ * For the population sweep, they are run with one step per day (and the exponential and RK4 with the default dt of
+ * 0.05 and with 4 steps per day).  The fruit quality and the diapause switches are stepped once per step, whatever
+ * the integrator, so for the fruit and diapause sweeps, they are all run with dt = 0.05 (the adaptive integrator
+ * keeps it, see SWDSimulatorSingle.setTolerance).
+ * For each scheme, the report prints how far its summaries are from the reference: the largest and mean relative
+ * error of the cumulative populations of all the stages, the largest relative error of their peaks, and the largest
+ * difference in the peak days, and how long its runs took.
+ * The peaks are only sampled once per step: with a step of one day, the peak of the injected stage (right after
+ * the injection) is the population a day later, so it can be much lower, and it can even move to a later day.
+ * Command-line argument: the sweep (population, fruit or diapause; default population).
+ */
+public class IntegratorAccuracy {
+
+	private static final double runTime = 365;
+	private static final double REFERENCE_DT = 1.0 / 128; // smallest dt of the reference (exact in binary)
+	private static final double ONE_STEP = 1e-9; // time to run for, to take exactly one step (dt >= 0.005, see runReference)
+
+	private static ArrayList<Parameters> runs = new ArrayList<Parameters>();
+	private static ArrayList<Integer> startDays = new ArrayList<Integer>();
+
+	// the reference, by run and lifestage
+	private static double[][] referenceTotals;
+	private static double[][] referencePeaks;
+	private static double[][] referenceDays;
+
+	public static void main(String[] args) {
+		String type = (args.length > 0) ? args[0] : "population";
+
+		Parameters params = new Parameters("configParams.txt");
+		ArrayList<Double> temps;
+		boolean ignoreFruit = true;
+		boolean ignoreDiap = true;
+
+		if (type.equals("population")) {
+			temps = temperatures.clark;
+			for (int startDay = 0; startDay < 365; startDay += 30) {
+				addRun(params, startDay, "eggs", 100, 4, 50, 18, 10);
+				addRun(params, startDay, "females1", 100, 4, 50, 18, 10);
+			}
+		} else if (type.equals("fruit")) {
+			temps = temperatures.clark;
+			ignoreFruit = false;
+			for (double gtMultiplier = 1; gtMultiplier <= 10; gtMultiplier += 3) {
+				for (int harvestLag = 0; harvestLag < 366; harvestLag += 90)
+					addRun(params, 0, "females1", 10, gtMultiplier, harvestLag, 18, 10);
+			}
+		} else if (type.equals("diapause")) {
+			temps = temperatures.hillsborough;
+			ignoreDiap = false;
+			for (int criticalT = 0; criticalT < 38; criticalT += 6) {
+				for (int daylightHours = 0; daylightHours <= 24; daylightHours += 6)
+					addRun(params, 75, "females1", 10, 4, 50, criticalT, daylightHours);
+			}
+		} else {
+			System.out.println(type + " - not a valid simulation type!");
+			return;
+		}
+
+		long start = System.nanoTime();
+		double[] referenceError = buildReference(temps, REFERENCE_DT, ignoreFruit, ignoreDiap);
+		System.out.println("Sweep: " + type + ", " + runs.size() + " runs, reference: Richardson extrapolation of Euler's method with dt = "
+							+ 4 * REFERENCE_DT + ", " + 2 * REFERENCE_DT + " and " + REFERENCE_DT + " (" + (System.nanoTime() - start) / 1e6 + " ms)");
+		System.out.println("Estimated error of the reference: cumulative max rel. error " + String.format("%.3e", referenceError[0])
+							+ ", peak max rel. error " + String.format("%.3e", referenceError[1]));
+		System.out.println("Scheme\t\t\tdt\tcumulative: max rel. error\tmean rel. error\tpeak: max rel. error\tmax day error\ttime per run (us)");
+
+		report("Euler's method\t", 0.05, null, temps, ignoreFruit, ignoreDiap);
+		report("Euler's method\t", 0.01, null, temps, ignoreFruit, ignoreDiap);
+		report("Euler's method\t", 0.005, null, temps, ignoreFruit, ignoreDiap);
+		if (ignoreFruit && ignoreDiap) { // the rates only change daily
+			report("Exponential\t", 1, new ExponentialIntegrator(), temps, ignoreFruit, ignoreDiap);
+			report("Exponential\t", 0.05, new ExponentialIntegrator(), temps, ignoreFruit, ignoreDiap);
+			report("Runge-Kutta 4\t", 1, new RK4Integrator(), temps, ignoreFruit, ignoreDiap);
+			report("Runge-Kutta 4\t", 0.25, new RK4Integrator(), temps, ignoreFruit, ignoreDiap);
+		} else { // the fruit quality and diapause switches are stepped with dt
+			report("Exponential\t", 0.05, new ExponentialIntegrator(), temps, ignoreFruit, ignoreDiap);
+			report("Runge-Kutta 4\t", 0.05, new RK4Integrator(), temps, ignoreFruit, ignoreDiap);
+		}
+		report("Adaptive (tol 1e-3)", 1e-3, temps, ignoreFruit, ignoreDiap);
+		report("Adaptive (tol 1e-6)", 1e-6, temps, ignoreFruit, ignoreDiap);
+	}
+
+	/**
+	 * Method to build the reference: the Richardson extrapolation of Euler's method with dt = 4h, 2h and h, and the
+	 * peak days of Euler's method with dt = h (see the class description); the runs with dt = 8h estimate its error.
+	 * @param temps - temperatures per day
+	 * @param h - the smallest dt
+	 * @param ignoreFruit - ignore the effect of fruit quality on the flies? true or false
+	 * @param ignoreDiap - ignore the effect of diapause on the flies? true or false
+	 * @return the estimated error of the reference: the largest relative difference with the extrapolation from 
+	 * dt = 8h, 4h and 2h, divided by 7, of the cumulative populations and of the peaks
+	 */
+	private static double[] buildReference(ArrayList<Double> temps, double h, boolean ignoreFruit, boolean ignoreDiap) {
+		RunSummary[] coarsest = runReference(temps, 8 * h, ignoreFruit, ignoreDiap);
+		RunSummary[] coarse = runReference(temps, 4 * h, ignoreFruit, ignoreDiap);
+		RunSummary[] medium = runReference(temps, 2 * h, ignoreFruit, ignoreDiap);
+		RunSummary[] fine = runReference(temps, h, ignoreFruit, ignoreDiap);
+		referenceTotals = new double[runs.size()][RunSummary.NUM_STAGES];
+		referencePeaks = new double[runs.size()][RunSummary.NUM_STAGES];
+		referenceDays = new double[runs.size()][RunSummary.NUM_STAGES];
+		double[] error = new double[2];
+		for (int r = 0; r < runs.size(); r ++) {
+			for (int i = 0; i < RunSummary.NUM_STAGES; i ++) {
+				double[] total = extrapolate(coarsest[r].getTotal(i), coarse[r].getTotal(i), medium[r].getTotal(i), fine[r].getTotal(i));
+				double[] peak = extrapolate(coarsest[r].getMax(i), coarse[r].getMax(i), medium[r].getMax(i), fine[r].getMax(i));
+				referenceTotals[r][i] = total[0];
+				referencePeaks[r][i] = peak[0];
+				referenceDays[r][i] = fine[r].getDayOfMax(i);
+				error[0] = Math.max(error[0], relativeError(total[1], total[0]) / 7);
+				error[1] = Math.max(error[1], relativeError(peak[1], peak[0]) / 7);
+			}
+		}
+		return error;
+	}
+
+	/**
+	 * Method to run all the runs with Euler's method for the reference, recording nothing.  SWDSimulatorSingle.run
+	 * takes steps until the rounded time run reaches the time it is given, so with ONE_STEP, it takes exactly one.
+	 * @param temps - temperatures per day
+	 * @param dt - integration step
+	 * @param ignoreFruit - ignore the effect of fruit quality on the flies? true or false
+	 * @param ignoreDiap - ignore the effect of diapause on the flies? true or false
+	 * @return the summary of each run
+	 */
+	private static RunSummary[] runReference(ArrayList<Double> temps, double dt, boolean ignoreFruit, boolean ignoreDiap) {
+		RunSummary[] summaries = new RunSummary[runs.size()];
+		for (int r = 0; r < runs.size(); r ++) {
+			SWDSimulatorSingle sim = new SWDSimulatorSingle(dt, runs.get(r));
+			sim.setRecordingPolicy(RecordingPolicy.none());
+			for (long step = Math.round(runTime / dt); step > 0; step --)
+				sim.run(temps, ONE_STEP, ignoreFruit, ignoreDiap, startDays.get(r));
+			summaries[r] = sim.getRunSummary();
+		}
+		return summaries;
+	}
+
+	/**
+	 * Method to extrapolate a value computed with a first-order method with steps 8h, 4h, 2h and h to a step of 0
+	 * @return the extrapolation from steps 4h, 2h and h (the reference), and from steps 8h, 4h and 2h
+	 */
+	private static double[] extrapolate(double coarsest, double coarse, double medium, double fine) {
+		double first = 2 * fine - medium; // R(h)
+		double firstMedium = 2 * medium - coarse; // R(2h)
+		double firstCoarse = 2 * coarse - coarsest; // R(4h)
+		return new double[] {(4 * first - firstMedium) / 3, (4 * firstMedium - firstCoarse) / 3};
+	}
+
+	/**
+	 * Method to run all the runs solved to a tolerance (see SWDSimulatorSingle.setTolerance), and print how far their
+	 * summaries are from the reference.
+	 * @param name - the name of the scheme
+	 * @param tolerance - the tolerance of the adaptive integrator
+	 * @param temps - temperatures per day
+	 * @param ignoreFruit - ignore the effect of fruit quality on the flies? true or false
+	 * @param ignoreDiap - ignore the effect of diapause on the flies? true or false
+	 */
+	private static void report(String name, double tolerance, ArrayList<Double> temps, boolean ignoreFruit, boolean ignoreDiap) {
+		report(name, (ignoreFruit && ignoreDiap) ? 1 : 0.05, tolerance, null, temps, ignoreFruit, ignoreDiap);
+	}
+
+	/**
+	 * Method to run all the runs with a scheme, and print how far their summaries are from the reference.
+	 * @param name - the name of the scheme
+	 * @param dt - integration step
+	 * @param integrator - the integration scheme (null for Euler's method)
+	 * @param temps - temperatures per day
+	 * @param ignoreFruit - ignore the effect of fruit quality on the flies? true or false
+	 * @param ignoreDiap - ignore the effect of diapause on the flies? true or false
+	 */
+	private static void report(String name, double dt, Integrator integrator, ArrayList<Double> temps, boolean ignoreFruit, boolean ignoreDiap) {
+		report(name, dt, 0, integrator, temps, ignoreFruit, ignoreDiap);
+	}
+
+	/**
+	 * Method to run all the runs with a scheme, and print how far their summaries are from the reference.
+	 * @param name - the name of the scheme
+	 * @param dt - integration step (the simulator's, with a tolerance)
+	 * @param tolerance - solve the runs to this tolerance instead (0 to use the integrator)
+	 * @param integrator - the integration scheme (null for Euler's method)
+	 * @param temps - temperatures per day
+	 * @param ignoreFruit - ignore the effect of fruit quality on the flies? true or false
+	 * @param ignoreDiap - ignore the effect of diapause on the flies? true or false
+	 */
+	private static void report(String name, double dt, double tolerance, Integrator integrator, ArrayList<Double> temps,
+								boolean ignoreFruit, boolean ignoreDiap) {
+		runAll(temps, dt, tolerance, integrator, ignoreFruit, ignoreDiap); // warm-up
+		long start = System.nanoTime();
+		RunSummary[] summaries = runAll(temps, dt, tolerance, integrator, ignoreFruit, ignoreDiap);
+		long time = System.nanoTime() - start;
+
+		double maxError = 0, sumError = 0, maxPeakError = 0, maxDayError = 0;
+		int count = 0;
+		for (int r = 0; r < summaries.length; r ++) {
+			for (int i = 0; i < RunSummary.NUM_STAGES; i ++) {
+				double error = relativeError(summaries[r].getTotal(i), referenceTotals[r][i]);
+				maxError = Math.max(maxError, error);
+				sumError += error;
+				count ++;
+				maxPeakError = Math.max(maxPeakError, relativeError(summaries[r].getMax(i), referencePeaks[r][i]));
+				maxDayError = Math.max(maxDayError, Math.abs(summaries[r].getDayOfMax(i) - referenceDays[r][i]));
+			}
+		}
+		System.out.println(name + "\t" + dt + "\t" + String.format("%.3e", maxError) + "\t\t\t" + String.format("%.3e", sumError / count)
+							+ "\t" + String.format("%.3e", maxPeakError) + "\t\t" + String.format("%.2f", maxDayError)
+							+ "\t\t" + Math.round(time / 1e3 / summaries.length));
+	}
+
+	/**
+	 * Method to run all the runs with a scheme.
+	 * @param temps - temperatures per day
+	 * @param dt - integration step
+	 * @param integrator - the integration scheme (null for Euler's method)
+	 * @param ignoreFruit - ignore the effect of fruit quality on the flies? true or false
+	 * @param ignoreDiap - ignore the effect of diapause on the flies? true or false
+	 * @return the summary of each run
+	 */
+	private static RunSummary[] runAll(ArrayList<Double> temps, double dt, Integrator integrator, boolean ignoreFruit, boolean ignoreDiap) {
+		return runAll(temps, dt, 0, integrator, ignoreFruit, ignoreDiap);
+	}
+
+	/**
+	 * Method to run all the runs with a scheme, or solved to a tolerance.
+	 * @param temps - temperatures per day
+	 * @param dt - integration step (the simulator's, with a tolerance)
+	 * @param tolerance - solve the runs to this tolerance instead (0 to use the integrator)
+	 * @param integrator - the integration scheme (null for Euler's method)
+	 * @param ignoreFruit - ignore the effect of fruit quality on the flies? true or false
+	 * @param ignoreDiap - ignore the effect of diapause on the flies? true or false
+	 * @return the summary of each run
+	 */
+	private static RunSummary[] runAll(ArrayList<Double> temps, double dt, double tolerance, Integrator integrator, 
+										boolean ignoreFruit, boolean ignoreDiap) {
+		RunSummary[] summaries = new RunSummary[runs.size()];
+		for (int r = 0; r < runs.size(); r ++) {
+			SWDSimulatorSingle sim = new SWDSimulatorSingle((tolerance > 0) ? 0.05 : dt, runs.get(r));
+			if (tolerance > 0)
+				sim.setTolerance(tolerance);
+			else
+				sim.setIntegrator(integrator);
+			summaries[r] = sim.runSummary(temps, runTime, ignoreFruit, ignoreDiap, startDays.get(r));
+		}
+		return summaries;
+	}
+
+	/**
+	 * Method to add a run to the sweep (with the parameters ThreadSim sets for each run).
+	 */
+	private static void addRun(Parameters params, int startDay, String stage, double initPop,
+								double gtMultiplier, double harvestLag, double criticalT, double daylightHours) {
+		Parameters run = new Parameters(params);
+		run.setParameter("initial " + stage, initPop);
+		run.setParameter("fruit gt multiplier", gtMultiplier);
+		run.setParameter("fruit time lag", harvestLag);
+		run.setParameter("diapause critical temp", criticalT);
+		run.setParameter("diapause daylight hours", daylightHours);
+		runs.add(run);
+		startDays.add(startDay);
+	}
+
+	/**
+	 * Method to return the relative error of a value (0 if both are 0)
+	 */
+	private static double relativeError(double value, double reference) {
+		if (value == reference)
+			return 0;
+		return Math.abs(value - reference) / Math.max(Math.abs(value), Math.abs(reference));
+	}
+}
@@ -0,0 +1,142 @@
+package ConsoleRunners;
+
+import java.util.ArrayList;
+
+import SWDModelBaseObjects.CompiledParameters;
+import SWDModelBaseObjects.Parameters;
+import SWDModelBaseObjects.RunSummary;
+import SWDModelSimulators.SWDSimulatorPropagator;
+import SWDModelSimulators.SWDSimulatorSingle;
+
+/**
+ * Command-line check for SWDSimulatorPropagator.  Builds the propagators of the population sweep of
+ * ThreadedBatchRunner (Clark 2003 temperatures, dt = 0.05, 365 days), answers the runs for all the injection
+ * days with runAll, for eggs and females1 and each initial population, and compares the summary of a sample of
+ * injection days with a new SWDSimulatorSingle run with the same parameters.
+ * The propagator's products are not done in the same order as the Euler updates, so the cumulative and peak
+ * populations may differ by rounding (up to TOLERANCE, relative); the peak days, the day diapause was crossed and
+ * the day the fruit quality reached its maximum must be exactly the same (a peak day can flip if two steps are
+ * within rounding of each other, which this check reports).
+ * Prints the largest relative difference and how long each took; exits with status 1 if any summary is different.
+ * Command-line arguments (all optional): the stride between checked injection days (default 7), and fruit and/or
+ * diapause to include their effects on the flies (both are ignored by default).
+ */
+public class PropagatorCheck {
+
+	private static final double dt = 0.05;
+	private static final double runTime = 365;
+	public static final double TOLERANCE = 1e-9; // relative difference allowed in the cumulative and peak populations
+
+	private static final double[] initialPops = {10, 100, 1000, 10000};
+	private static final String[] stages = {"eggs", "females1"};
+
+	private static double worstDifference = 0; // largest relative difference of the populations
+
+	public static void main(String[] args) {
+		int stride = 7;
+		boolean ignoreFruit = true;
+		boolean ignoreDiap = true;
+		for (int i = 0; i < args.length; i ++) {
+			if (args[i].equals("fruit"))
+				ignoreFruit = false;
+			else if (args[i].equals("diapause"))
+				ignoreDiap = false;
+			else
+				stride = Integer.parseInt(args[i]);
+		}
+		if (stride <= 0) {
+			System.out.println("Error - the stride must be positive");
+			return;
+		}
+
+		Parameters params = new Parameters("configParams.txt");
+		ArrayList<Double> temps = temperatures.clark;
+
+		// the propagators, and the runs for all the injection days
+		long start = System.nanoTime();
+		SWDSimulatorPropagator propagator = new SWDSimulatorPropagator(temps, params.compile(), dt, runTime, ignoreFruit, ignoreDiap, null);
+		int numDays = Math.min(365, propagator.getNumDays());
+		RunSummary[][] answers = new RunSummary[initialPops.length * stages.length][];
+		for (int iP = 0; iP < initialPops.length; iP ++) {
+			for (int s = 0; s < stages.length; s ++) {
+				CompiledParameters compiled = runParameters(params, stages[s], initialPops[iP]).compile();
+				double[] injection = new double[CompiledParameters.NUM_STAGES]; // the initial populations, as the simulator injects them
+				for (int j = 0; j < injection.length; j ++)
+					injection[j] = compiled.getInitialPopulation(j);
+				answers[iP * stages.length + s] = propagator.runAll(injection);
+			}
+		}
+		long propagatorTime = System.nanoTime() - start;
+
+		// the single simulator, for the checked injection days
+		int checked = 0;
+		int different = 0;
+		long singleTime = 0;
+		for (int iP = 0; iP < initialPops.length; iP ++) {
+			for (int s = 0; s < stages.length; s ++) {
+				Parameters run = runParameters(params, stages[s], initialPops[iP]);
+				for (int startDay = 0; startDay < numDays; startDay += stride) {
+					start = System.nanoTime();
+					SWDSimulatorSingle sim = new SWDSimulatorSingle(dt, run);
+					RunSummary expected = sim.runSummary(temps, runTime, ignoreFruit, ignoreDiap, startDay);
+					singleTime += System.nanoTime() - start;
+
+					checked ++;
+					RunSummary answer = answers[iP * stages.length + s][startDay];
+					if (!sameSummary(expected, answer)) {
+						if (different == 0) {
+							System.out.println(stages[s] + ", initial population " + initialPops[iP] + ", injected on day " + startDay + " is different:");
+							System.out.println("  single:     " + expected);
+							System.out.println("  propagator: " + answer);
+						}
+						different ++;
+					}
+				}
+			}
+		}
+
+		System.out.println("Population sweep: " + (initialPops.length * stages.length * numDays) + " runs, " + checked + " checked"
+							+ (ignoreFruit ? "" : ", fruit") + (ignoreDiap ? "" : ", diapause"));
+		System.out.println("Largest relative difference: " + worstDifference + " (tolerance " + TOLERANCE + ")");
+		System.out.println("Time - propagator (all runs): " + propagatorTime / 1e6 + " ms, single (checked runs): " + singleTime / 1e6 + " ms");
+
+		if (different > 0) {
+			System.out.println(different + " runs are different - FAILED");
+			System.exit(1);
+		}
+		System.out.println("OK");
+	}
+
+	/**
+	 * Method to return the parameters of a run (with the initial population of the injected stage).
+	 */
+	private static Parameters runParameters(Parameters params, String stage, double initPop) {
+		Parameters run = new Parameters(params);
+		run.setParameter("initial " + stage, initPop);
+		return run;
+	}
+
+	/**
+	 * Method to check if two summaries are the same: the populations up to TOLERANCE, the days exactly
+	 */
+	private static boolean sameSummary(RunSummary a, RunSummary b) {
+		boolean same = true;
+		for (int i = 0; i < RunSummary.NUM_STAGES; i ++) {
+			if (!close(a.getTotal(i), b.getTotal(i)) || !close(a.getMax(i), b.getMax(i))
+					|| Double.compare(a.getDayOfMax(i), b.getDayOfMax(i)) != 0)
+				same = false;
+		}
+		return same && a.getCrossedDiapDay() == b.getCrossedDiapDay() && Double.compare(a.getDayCrossedMaxFruit(), b.getDayCrossedMaxFruit()) == 0;
+	}
+
+	/**
+	 * Method to check if two populations are within TOLERANCE of each other (relative), keeping the largest difference
+	 */
+	private static boolean close(double a, double b) {
+		double scale = Math.max(Math.abs(a), Math.abs(b));
+		double difference = (scale == 0) ? 0 : Math.abs(a - b) / scale;
+		if (difference > worstDifference)
+			worstDifference = difference;
+		return difference <= TOLERANCE; // false for NaN
+	}
+}
@@ -3,9 +3,17 @@ package ConsoleRunners;
 import java.util.Map;
 import java.io.*;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.jfree.data.xy.XYSeries;
 
+import SWDModelBaseObjects.Parameters;
+import SWDModelBaseObjects.RateCache;
+import SWDModelBaseObjects.RecordingPolicy;
 import SWDModelSimulators.SWDSimulatorSingle;
 
 /**
@@ -15,17 +23,148 @@ import SWDModelSimulators.SWDSimulatorSingle;
  * output to a file (name corresponds to the input parameters).
  * Note: all output files are stored in a directory named DATA.
  * 
+ * Daemon mode ("Runner daemon [jobFile] [threads=N]"): instead of one simulation per JVM, the runs are read as
+ * job lines from a file (or from the standard input, if there is no file or it is "-"), and all of them are done
+ * in this JVM, on a pool of threads (one per processor, unless set with threads=N), so the JVM startup, class
+ * loading and JIT warm-up are only paid once.  A job line is either the three arguments of a single run
+ * (e.g. "100 1 42"), or the same values as population=100 stage=1 day=42 (in any order); empty lines and lines
+ * starting with # are skipped.  The config file is only read once, and the temperature-dependent rates are
+ * shared by all the runs (see RateCache); the output files are the same as those of single runs.
+ * 
  * @author Ellen Arteca
  *
  */
 public class Runner {
 	
+	private static final double DT = 0.05;
+	private static final String CONFIG_FILE = "configParams.txt"; // simulator parameters
+	
 	public static void main(String[] args) {
+		if (args.length > 0 && args[0].equals("daemon"))
+			runDaemon(args);
+		else
+			runJob(args, new SWDSimulatorSingle(DT, CONFIG_FILE), "arguments " + Arrays.toString(args));
+	}
+	
+	/**
+	 * Method to run the jobs of daemon mode (see the class description) and wait for them to be done.
+	 * Errors in a job line or a run are printed, and don't stop the other jobs.
+	 * @param args - the command-line arguments: daemon, then the job file and the number of threads (optional)
+	 */
+	private static void runDaemon(String[] args) {
+		String jobFile = "-";
+		int numThreads = Runtime.getRuntime().availableProcessors();
+		for (int i = 1; i < args.length; i ++) {
+			if (args[i].startsWith("threads="))
+				numThreads = Integer.parseInt(args[i].substring("threads=".length()));
+			else
+				jobFile = args[i];
+		}
+		if (numThreads <= 0) {
+			System.out.println("Error - the daemon needs at least one thread");
+			return;
+		}
 		
-		double dt = 0.05;
-		String fileName = "configParams.txt"; // simulator parameters
+		final Parameters config = new Parameters(CONFIG_FILE); // read once for all the runs
+		final RateCache rateCache = new RateCache();
+		final AtomicInteger done = new AtomicInteger(); // runs done without errors
+		ExecutorService pool = Executors.newFixedThreadPool(numThreads);
+		int submitted = 0;
+		int invalid = 0; // job lines that could not be parsed
+		int lineNumber = 0;
+		try {
+			BufferedReader in = new BufferedReader(jobFile.equals("-") ? new InputStreamReader(System.in) : new FileReader(jobFile));
+			String line;
+			while ((line = in.readLine()) != null) {
+				lineNumber ++;
+				line = line.trim();
+				if (line.isEmpty() || line.startsWith("#"))
+					continue;
+				final String[] job = parseJob(line);
+				final String jobName = "line " + lineNumber + " (" + line + ")";
+				if (job == null) {
+					System.out.println("Error - invalid job on line " + lineNumber + ": " + line);
+					invalid ++;
+					continue;
+				}
+				pool.execute(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							SWDSimulatorSingle sim = new SWDSimulatorSingle(DT, new Parameters(config));
+							sim.setRateCache(rateCache);
+							if (runJob(job, sim, jobName))
+								done.incrementAndGet();
+						} catch (RuntimeException error) {
+							System.out.println("Error - job on " + jobName + " failed (" + error + ")");
+						}
+					}
+				});
+				submitted ++;
+			}
+			in.close();
+		} catch (IOException error) {
+			System.out.println("Error - could not read the jobs: " + error.getMessage());
+		}
 		
-		SWDSimulatorSingle sim = new SWDSimulatorSingle(dt, fileName);
+		pool.shutdown();
+		try {
+			pool.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+		} catch (InterruptedException error) {
+			System.out.println("Interrupted - the jobs submitted may not all be done");
+			pool.shutdownNow();
+			Thread.currentThread().interrupt();
+			return;
+		}
+		System.out.println(done.get() + " of " + (submitted + invalid) + " jobs done");
+	}
+	
+	/**
+	 * Method to parse a job line of daemon mode: the three arguments of a single run (population, stage and
+	 * injection date), or the same values as population=, stage= and day=, in any order.
+	 * @param line - the job line (trimmed, not empty)
+	 * @return the arguments of the run (as for a single run), or null if the line is not a valid job
+	 */
+	static String[] parseJob(String line) {
+		String[] tokens = line.split("\\s+");
+		String[] job = new String[3];
+		if (tokens[0].contains("=")) {
+			for (int i = 0; i < tokens.length; i ++) {
+				int split = tokens[i].indexOf('=');
+				String key = (split < 0) ? tokens[i] : tokens[i].substring(0, split);
+				int index = key.equals("population") ? 0 : key.equals("stage") ? 1 : key.equals("day") ? 2 : -1;
+				if (split < 0 || index < 0 || job[index] != null)
+					return null;
+				job[index] = tokens[i].substring(split + 1);
+			}
+		}
+		else if (tokens.length == 3)
+			job = tokens;
+		else
+			return null;
+		try {
+			Double.parseDouble(job[0]);
+			Integer.parseInt(job[1]);
+			int day = Integer.parseInt(job[2]);
+			if (day < 0)
+				return null;
+		} catch (NumberFormatException | NullPointerException error) { // not a number, or a missing value
+			return null;
+		}
+		return job;
+	}
+	
+	/**
+	 * Method to run one simulation and print its output to a file in DATA (named after its arguments).
+	 * Errors are printed with the name of the job and the output file.
+	 * @param args - the arguments of the run: population, stage (1 is eggs, 2 is females1) and injection date
+	 * @param sim - the simulator to run, with the parameters of the config file
+	 * @param jobName - the job, for the error messages (e.g. its line in the job file)
+	 * @return was the output written? true or false
+	 */
+	private static boolean runJob(String[] args, SWDSimulatorSingle sim, String jobName) {
+		double dt = DT;
+		sim.setRecordingPolicy(RecordingPolicy.everyNSteps(20)); // the output only has one datapoint per day (every 20th)
 		
 		// i'm going with - args[0] is the population number
 		//					args[1] is the stage (1 is eggs, 2 is adults (i.e. females))
@@ -75,8 +214,8 @@ public class Runner {
 					throw new NullPointerException();
 			}
 		} catch(NullPointerException error) { // thrown if none of the series have any points yet i.e. the simulation has not been run
-			System.out.println("No data yet!  Cannot proceed.");
-			return;
+			System.out.println("Error - no data for job " + jobName + "!  Cannot proceed.");
+			return false;
 		}
 		
 		String dataFile = "DATA/Toronto_2012_" + startDay + "_" + args[0] + "_" + (args[1].equals("1") ? "eggs" : "females") + ".txt";
@@ -92,7 +231,7 @@ public class Runner {
 					fileOut.print(names[j] + ":\t");
 			}
 			fileOut.println();
-			for (int i = 0; i < toPrint[0].getItemCount(); i +=20) { // += 20 so it prints every 20th datapoint (i.e. once per day)
+			for (int i = 0; i < toPrint[0].getItemCount(); i ++) { // only every 20th datapoint is recorded (i.e. once per day)
 				fileOut.print(toPrint[0].getX(i) + "\t"); // print the timestep (same for all series)
 				for (int j = 0; j < 7; j ++) {
 						fileOut.print(toPrint[j].getY(i) + "\t"); // print the corresponding value for the selected series
@@ -116,10 +255,11 @@ public class Runner {
 		
 			fileOut.close();
 		} catch (NullPointerException error) { // if no file was chosen
-			return;
+			return false;
 		} catch(FileNotFoundException error) {
-			System.out.println("Error - file not found");
+			System.out.println("Error - job " + jobName + " could not write " + dataFile + " (is there a DATA directory?)");
+			return false;
 		}
-
+		return true;
 	}
 }
\ No newline at end of file
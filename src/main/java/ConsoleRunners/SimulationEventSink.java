@@ -0,0 +1,83 @@
+package ConsoleRunners;
+
+import SWDModelBaseObjects.Parameters;
+
+/**
+ * A SimulationEventSink receives the events of the batch runs, to profile them: each simulation run, each sweep
+ * (all the runs submitted together to a SweepEngine), each output write and, optionally, each simulated day.
+ * An event is started with its begin method, which returns a token (null if the event isn't recorded), and ended
+ * with its end method, given that token and the values of the event; end methods ignore null tokens, so when an
+ * event isn't recorded, it only costs the call to its begin method.
+ * See SimulationEventSinks for the implementations (JDK Flight Recorder events, or nothing).
+ */
+public interface SimulationEventSink {
+
+	/**
+	 * Method to start the event of a simulation run
+	 * @return the token of the event (null if it isn't recorded)
+	 */
+	Object beginRun();
+
+	/**
+	 * Method to end the event of a simulation run (its parameters are those of the simulator, before they are reset
+	 * to the config file's)
+	 * @param run - the token of the event (see beginRun)
+	 * @param runId - the id of the run in the sweep
+	 * @param type - the type of simulation (population, fruit or diapause)
+	 * @param params - the parameters of the simulator
+	 * @param stage - the stage injected
+	 * @param startDay - the injection date
+	 * @param dt - the integration step
+	 * @param runTime - the time the simulation was run for
+	 * @param steps - the number of integration steps done by the run
+	 */
+	void endRun(Object run, int runId, String type, Parameters params, String stage, int startDay, double dt, double runTime, long steps);
+
+	/**
+	 * Method to start the event of a sweep
+	 * @return the token of the event (null if it isn't recorded)
+	 */
+	Object beginSweep();
+
+	/**
+	 * Method to end the event of a sweep
+	 * @param sweep - the token of the event (see beginSweep)
+	 * @param runs - the number of runs in the sweep
+	 * @param tasks - the number of simulations submitted for them (fewer than the runs for linear sweeps)
+	 * @param done - the number of runs done without errors
+	 * @param threads - the number of worker threads
+	 * @param forked - were the runs started from snapshots of a trunk simulation? true or false
+	 */
+	void endSweep(Object sweep, int runs, int tasks, int done, int threads, boolean forked);
+
+	/**
+	 * Method to start the event of an output write
+	 * @return the token of the event (null if it isn't recorded)
+	 */
+	Object beginOutput();
+
+	/**
+	 * Method to end the event of an output write
+	 * @param output - the token of the event (see beginOutput)
+	 * @param runId - the id of the run written
+	 * @param destination - the file written to
+	 * @param rows - the number of rows of daily data written
+	 */
+	void endOutput(Object output, int runId, String destination, int rows);
+
+	/**
+	 * Method to start the event of a simulated day
+	 * @return the token of the event (null if it isn't recorded)
+	 */
+	Object beginDay();
+
+	/**
+	 * Method to end the event of a simulated day
+	 * @param day - the token of the event (see beginDay)
+	 * @param runId - the id of the run
+	 * @param dayNumber - the day simulated
+	 * @param steps - the number of integration steps of the day
+	 * @param females - the number of females at the end of the day
+	 */
+	void endDay(Object day, int runId, int dayNumber, int steps, double females);
+}
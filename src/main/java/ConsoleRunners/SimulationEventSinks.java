@@ -0,0 +1,80 @@
+package ConsoleRunners;
+
+import SWDModelBaseObjects.Parameters;
+
+/**
+ * This class chooses the SimulationEventSink of the batch runs (ThreadSim and SweepEngine), at runtime.
+ * The JDK Flight Recorder sink (FlightRecorderEventSink) uses the jdk.jfr API, so it is only compiled on JDK 11+
+ * (the "jfr" build profile, from src/main/jfr); where it isn't available, the events are not recorded at all.
+ * The events are then enabled through the JFR settings, like the JDK's own: they cost nothing unless a recording
+ * enables them.  The run, sweep and output events are enabled by default, the day events are not; e.g.
+ *   java -XX:StartFlightRecording:filename=sweep.jfr,+SWDModel.Day#enabled=true ... ThreadedBatchRunner population
+ * The sink can also be turned off with the system property swd.events=none.
+ */
+public class SimulationEventSinks {
+
+	public static final String EVENTS_PROPERTY = "swd.events";
+	private static final String FLIGHT_RECORDER_SINK_CLASS = "ConsoleRunners.FlightRecorderEventSink";
+
+	/**
+	 * The sink that records nothing
+	 */
+	public static final SimulationEventSink NONE = new SimulationEventSink() {
+		@Override
+		public Object beginRun() { return null; }
+		@Override
+		public void endRun(Object run, int runId, String type, Parameters params, String stage, int startDay, double dt, double runTime, long steps) {}
+		@Override
+		public Object beginSweep() { return null; }
+		@Override
+		public void endSweep(Object sweep, int runs, int tasks, int done, int threads, boolean forked) {}
+		@Override
+		public Object beginOutput() { return null; }
+		@Override
+		public void endOutput(Object output, int runId, String destination, int rows) {}
+		@Override
+		public Object beginDay() { return null; }
+		@Override
+		public void endDay(Object day, int runId, int dayNumber, int steps, double females) {}
+	};
+
+	private static SimulationEventSink defaultSink = null;
+
+	/**
+	 * Method to return the sink of the batch runs (chosen on the first call): the JDK Flight Recorder sink if it is
+	 * available and not turned off by the swd.events system property, otherwise NONE
+	 * @return the sink
+	 */
+	public static synchronized SimulationEventSink get() {
+		if (defaultSink == null) {
+			SimulationEventSink sink = null;
+			if (!System.getProperty(EVENTS_PROPERTY, "jfr").equals("none"))
+				sink = loadFlightRecorderSink();
+			defaultSink = (sink != null) ? sink : NONE;
+		}
+		return defaultSink;
+	}
+
+	/**
+	 * Method to check if the JDK Flight Recorder sink can be used on this JVM
+	 * @return true if the JDK Flight Recorder sink is available
+	 */
+	public static boolean isFlightRecorderAvailable() {
+		return loadFlightRecorderSink() != null;
+	}
+
+	/**
+	 * Method to load the JDK Flight Recorder sink by reflection, so this class still loads where it wasn't compiled
+	 * or the jdk.jfr module isn't present
+	 * @return the JDK Flight Recorder sink, or null if it isn't available
+	 */
+	private static SimulationEventSink loadFlightRecorderSink() {
+		try {
+			return (SimulationEventSink) Class.forName(FLIGHT_RECORDER_SINK_CLASS).getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException error) {
+			return null;
+		} catch (LinkageError error) { // the jdk.jfr module isn't present
+			return null;
+		}
+	}
+}
@@ -0,0 +1,569 @@
+package ConsoleRunners;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import SWDModelBaseObjects.DiapauseCache;
+import SWDModelBaseObjects.FruitQualityCache;
+import SWDModelBaseObjects.Parameters;
+import SWDModelBaseObjects.RateCache;
+import SWDModelBaseObjects.RunSummary;
+import SWDModelBaseObjects.SimulationMetrics;
+import SWDModelReferenceClasses.Integrator;
+import SWDModelReferenceClasses.SweepResultWriter;
+import SWDModelSimulators.SWDSimulatorSingle;
+
+/**
+ * Engine to run a sweep of simulations (e.g. the batches of ThreadedBatchRunner) on a work-stealing
+ * thread pool.
+ * All the runs of the sweep are added first (addRun), then submitted together (runAll): a worker
+ * takes the next run as soon as it is done with the previous one, so there are no rounds waiting
+ * for their slowest simulation.  Every worker thread has its own ThreadSim (i.e. its own simulator),
+ * reused for all the runs it does; all of them read their temperature-dependent rates from the
+ * same RateCache, and write to the same sweep result file (if any).
+ * The fruit quality only depends on the temperatures and the fruit parameters, so it is computed once for
+ * all the runs with the same fruit parameters, and read by the workers from the engine's FruitQualityCache;
+ * likewise, the diapause switches are computed once for all the runs with the same diapause parameters 
+ * (DiapauseCache).  A run only uses a cache if another run of the sweep has the same parameters (otherwise, 
+ * computing the trajectory in advance would only add work).
+ * Progress messages (markProgress) are printed, in order, once all the runs added before them are done.
+ * The results do not depend on which worker does a run: every run starts from timestep 0, which resets
+ * the simulator's state.
+ *
+ * Injection sweeps (see setForkInjections): when all the runs only differ by their injection (date, stage
+ * and initial population), the simulation before each injection date is the same for all of them (there
+ * are no flies yet, only the fruit quality).  So instead of running every run from day 0, one trunk
+ * simulation (on the calling thread) is advanced through the days, and each run starts from a snapshot
+ * of the trunk on its injection date (see ThreadSim.startTrunk); runs are submitted as soon as their
+ * snapshot is taken, so the workers run them while the trunk advances.  The results are exactly the same.
+ *
+ * Linear sweeps (see setLinearInjections): the model has no density dependence (every equation is linear in
+ * the populations), so a run injected with N flies is N times the same run injected with 1 fly.  The runs that
+ * only differ by their initial population are then done once, with 1 fly, and the output of each of them is
+ * the output of that run, scaled by its initial population (see ThreadSim.setScaledRuns).  This is checked
+ * before the runs: the other stages must have no initial population, and one run is done both ways to check
+ * that the results agree (up to LINEARITY_TOLERANCE); otherwise every run is done as usual.
+ * The scaled results are equal to those of the runs up to rounding (not bit for bit).
+ *
+ * The engine is the current sweep of SimulationMetrics (queue depth, workers and cache hit ratios) from its
+ * creation until it is shut down; runs that fail are counted there too.  Each call of runAll is a sweep event of
+ * the SimulationEventSink (e.g. for JDK Flight Recorder, see SimulationEventSinks).
+ */
+public class SweepEngine {
+
+	private final ForkJoinPool pool;
+	private final ThreadLocal<ThreadSim> workerSims; // each worker's own simulator
+
+	private SweepResultWriter resultWriter = null; // sweep result file for all the runs (null for text files)
+	private boolean summaryOnly = false;
+	private boolean forkInjections = false; // start the runs from snapshots of a shared trunk simulation?
+	private boolean linearInjections = false; // scale one run with 1 fly to all the initial populations?
+	private Integrator integrator = null; // integration scheme for the populations of all the runs (null for Euler's method)
+	
+	public static final double LINEARITY_TOLERANCE = 1e-9; // relative difference allowed between a run and the scaled run with 1 fly
+	private final ArrayList<Double> temps;
+	private final Parameters params;
+	private final RateCache rateCache;
+	private final FruitQualityCache fruitCache = new FruitQualityCache(); // fruit quality of the runs, shared by all the workers
+	private final DiapauseCache diapauseCache = new DiapauseCache(); // diapause switches of the runs, shared by all the workers
+
+	private final ArrayList<RunTask> runs = new ArrayList<RunTask>();
+	private final ArrayList<String> progress = new ArrayList<String>(); // message to print once each run is done (or null)
+
+	/**
+	 * Constructor to create the engine and its thread pool.
+	 * @param temps - temperatures per day (the same for all the runs)
+	 * @param params - simulation parameters (the same for all the runs, except those set by addRun)
+	 * @param rateCache - cache of temperature-dependent rates, shared by all the workers
+	 * @param numThreads - the number of worker threads
+	 * @throws IllegalArgumentException if there is no temperature data, or the number of threads is not positive
+	 */
+	public SweepEngine(final ArrayList<Double> temps, final Parameters params, final RateCache rateCache, int numThreads) {
+		if (temps.size() == 0)
+			throw new IllegalArgumentException("No temperature data!");
+		if (numThreads <= 0)
+			throw new IllegalArgumentException("The sweep needs at least one thread!");
+		this.temps = temps;
+		this.params = params;
+		this.rateCache = rateCache;
+		pool = new ForkJoinPool(numThreads);
+		SimulationMetrics.get().setSweep(pool, rateCache, fruitCache, diapauseCache);
+		workerSims = new ThreadLocal<ThreadSim>() {
+			@Override
+			protected ThreadSim initialValue() {
+				return new ThreadSim(temps, params, rateCache);
+			}
+		};
+	}
+
+	/**
+	 * Method to return the default number of worker threads: one per available processor
+	 * @return the number of available processors
+	 */
+	public static int defaultThreads() {
+		return Runtime.getRuntime().availableProcessors();
+	}
+
+	/**
+	 * Method to return the cache of fruit quality trajectories shared by the workers (e.g. to print its statistics)
+	 * @return the fruit quality cache
+	 */
+	public FruitQualityCache getFruitQualityCache() {
+		return fruitCache;
+	}
+
+	/**
+	 * Method to return the cache of diapause trajectories shared by the workers (e.g. to print its statistics)
+	 * @return the diapause cache
+	 */
+	public DiapauseCache getDiapauseCache() {
+		return diapauseCache;
+	}
+
+	/**
+	 * Method to write the output of all the runs to a sweep result file (instead of a text file each)
+	 * @param resultWriter - the sweep result file (null to write text files)
+	 */
+	public void setResultWriter(SweepResultWriter resultWriter) {
+		this.resultWriter = resultWriter;
+	}
+
+	/**
+	 * Method to only compute the summary values of the runs (see ThreadSim.setSummaryOnly); the sweep
+	 * result file must be set.
+	 * @param summaryOnly - only compute the summary values? true or false
+	 */
+	public void setSummaryOnly(boolean summaryOnly) {
+		this.summaryOnly = summaryOnly;
+	}
+
+	/**
+	 * Method to start the runs from snapshots of a shared trunk simulation on their injection date, instead
+	 * of running them from day 0 (see the class description).  This is only done if all the runs have the
+	 * same parameters apart from their injection (and inject on a day, i.e. their start day isn't
+	 * negative); otherwise, the runs are run from day 0 as usual.
+	 * @param forkInjections - start the runs from snapshots of a trunk? true or false
+	 */
+	public void setForkInjections(boolean forkInjections) {
+		this.forkInjections = forkInjections;
+	}
+
+	/**
+	 * Method to do the runs that only differ by their initial population once, with 1 fly, and scale the output to
+	 * each initial population (see the class description).  This is only done if the model is checked to be linear
+	 * for the runs (and all the initial populations are positive); otherwise, every run is done as usual.
+	 * @param linearInjections - scale one run to all the initial populations? true or false
+	 */
+	public void setLinearInjections(boolean linearInjections) {
+		this.linearInjections = linearInjections;
+	}
+
+	/**
+	 * Method to set the integration scheme for the populations of all the runs, instead of Euler's method (see
+	 * SWDSimulatorSingle.setIntegrator).  The integrator is shared by all the workers, so it must be thread-safe.
+	 * @param integrator - the integration scheme (null for Euler's method)
+	 */
+	public void setIntegrator(Integrator integrator) {
+		this.integrator = integrator;
+	}
+
+	/**
+	 * Method to add a run to the sweep (the parameters are those of ThreadSim.resetParams and
+	 * ThreadSim.resetSimulationTitle).  Its id in the sweep result file is the number of runs added before it.
+	 * @param type - the type of simulation (population, fruit or diapause; used for the text output filename)
+	 * @param ignoreFruit - ignore the effect of fruit quality on the flies? true or false
+	 * @param ignoreDiap - ignore the effect of diapause on the flies? true or false
+	 * @param dt - integration step
+	 * @param runTime - time to run the simulation for
+	 * @param startDay - injection date
+	 * @param initPop - initial population to be injected
+	 * @param stage - stage to be injected
+	 * @param gtMultiplier - multiplier for the gt function (fruit model)
+	 * @param harvestLag - time spent at full harvest (fruit model)
+	 * @param criticalT - critical temperature for the diapause model
+	 * @param daylightHours - cutoff point for daylight hours for the diapause model
+	 * @return the id of the run
+	 */
+	public int addRun(String type, boolean ignoreFruit, boolean ignoreDiap, double dt, double runTime, int startDay,
+						double initPop, String stage, double gtMultiplier, double harvestLag, double criticalT, double daylightHours) {
+		RunTask run = new RunTask();
+		run.runId = runs.size();
+		run.type = type;
+		run.ignoreFruit = ignoreFruit;
+		run.ignoreDiap = ignoreDiap;
+		run.dt = dt;
+		run.runTime = runTime;
+		run.startDay = startDay;
+		run.initPop = initPop;
+		run.stage = stage;
+		run.gtMultiplier = gtMultiplier;
+		run.harvestLag = harvestLag;
+		run.criticalT = criticalT;
+		run.daylightHours = daylightHours;
+		runs.add(run);
+		progress.add(null);
+		return run.runId;
+	}
+
+	/**
+	 * Method to print a message once all the runs added so far are done (e.g. at the end of a group of runs)
+	 * @param message - the message to print
+	 */
+	public void markProgress(String message) {
+		if (runs.isEmpty()) {
+			System.out.println(message);
+			return;
+		}
+		int last = runs.size() - 1;
+		progress.set(last, (progress.get(last) == null) ? message : progress.get(last) + "\n" + message);
+	}
+
+	/**
+	 * Method to run all the runs added (submitted together to the pool), waiting for them to be done.
+	 * Errors in a run are printed, and don't stop the other runs.
+	 * @return the number of runs that were done without errors
+	 */
+	public int runAll() {
+		Object sweep = SimulationEventSinks.get().beginSweep();
+		ArrayList<RunTask> tasks = runs; // the runs to submit
+		if (linearInjections) {
+			ArrayList<RunTask> unitRuns = groupByInitialPopulation();
+			if (unitRuns != null && checkLinearity(unitRuns))
+				tasks = unitRuns;
+		}
+		findSharedTrajectories(tasks);
+		ArrayList<Future<Integer>> taskResults;
+		boolean forked = forkInjections && canFork(tasks);
+		if (forked)
+			taskResults = submitForked(tasks);
+		else {
+			taskResults = new ArrayList<Future<Integer>>(tasks.size());
+			for (int i = 0; i < tasks.size(); i ++)
+				taskResults.add(pool.submit(tasks.get(i)));
+		}
+		
+		ArrayList<Future<Integer>> results = new ArrayList<Future<Integer>>(runs.size()); // the future of each run (scaled runs share the one of their group)
+		for (int i = 0; i < runs.size(); i ++)
+			results.add(null);
+		for (int i = 0; i < tasks.size(); i ++) {
+			RunTask task = tasks.get(i);
+			if (task.scaledRuns == null)
+				results.set(task.runId, taskResults.get(i));
+			else {
+				for (int k = 0; k < task.scaledRuns.size(); k ++)
+					results.set(task.scaledRuns.get(k).runId, taskResults.get(i));
+			}
+		}
+
+		int done = 0;
+		for (int i = 0; i < results.size(); i ++) {
+			try {
+				results.get(i).get(); // blocks until the run is done
+				done ++;
+			} catch (ExecutionException error) {
+				System.out.println("Error - run " + i + " failed (" + error.getCause() + ")");
+			} catch (InterruptedException error) {
+				System.out.println("Interrupted - " + done + " of " + runs.size() + " runs done");
+				pool.shutdownNow();
+				Thread.currentThread().interrupt();
+				return done;
+			}
+			if (progress.get(i) != null)
+				System.out.println(progress.get(i));
+		}
+		SimulationEventSinks.get().endSweep(sweep, runs.size(), tasks.size(), done, pool.getParallelism(), forked);
+		runs.clear();
+		progress.clear();
+		return done;
+	}
+
+	/**
+	 * Method to find the runs whose fruit quality (or diapause switches) are the same as those of another run, 
+	 * i.e. which have the same dt, run time and fruit (or diapause) parameters: only these read their trajectory
+	 * from the cache.
+	 * @param runs - the runs to submit
+	 */
+	private void findSharedTrajectories(ArrayList<RunTask> runs) {
+		HashMap<String, Integer> fruitRuns = new HashMap<String, Integer>(); // number of runs for each fruit trajectory
+		HashMap<String, Integer> diapauseRuns = new HashMap<String, Integer>(); // number of runs for each diapause trajectory
+		for (int i = 0; i < runs.size(); i ++) {
+			RunTask run = runs.get(i);
+			count(fruitRuns, run.fruitKey());
+			if (!run.ignoreDiap)
+				count(diapauseRuns, run.diapauseKey());
+		}
+		for (int i = 0; i < runs.size(); i ++) {
+			RunTask run = runs.get(i);
+			run.shareFruit = fruitRuns.get(run.fruitKey()) > 1;
+			run.shareDiapause = !run.ignoreDiap && diapauseRuns.get(run.diapauseKey()) > 1;
+		}
+	}
+
+	/**
+	 * Method to add one to the count of a key
+	 * @param counts - the counts
+	 * @param key - the key to count
+	 */
+	private static void count(HashMap<String, Integer> counts, String key) {
+		Integer count = counts.get(key);
+		counts.put(key, (count == null) ? 1 : count + 1);
+	}
+
+	/**
+	 * Method to group the runs that only differ by their initial population: each group is done as one run with
+	 * 1 fly, scaled to the initial population of each of its runs (a run alone in its group is done as usual).
+	 * @return the runs to submit (null if a run can't be scaled: an initial population isn't positive, or
+	 * 			another stage than the injected one has an initial population)
+	 */
+	private ArrayList<RunTask> groupByInitialPopulation() {
+		LinkedHashMap<String, ArrayList<RunTask>> groups = new LinkedHashMap<String, ArrayList<RunTask>>();
+		for (int i = 0; i < runs.size(); i ++) {
+			RunTask run = runs.get(i);
+			if (!(run.initPop > 0) || !ThreadSim.injectsOnly(params, run.stage)) {
+				System.out.println("Linear sweep - run " + i + " can't be scaled from 1 fly, every run is done");
+				return null;
+			}
+			String key = run.type + " " + run.ignoreFruit + " " + run.ignoreDiap + " " + run.stage + " " + run.startDay + " "
+							+ run.fruitKey() + " " + run.criticalT + " " + run.daylightHours;
+			ArrayList<RunTask> group = groups.get(key);
+			if (group == null) {
+				group = new ArrayList<RunTask>();
+				groups.put(key, group);
+			}
+			group.add(run);
+		}
+
+		ArrayList<RunTask> tasks = new ArrayList<RunTask>(groups.size());
+		for (ArrayList<RunTask> group : groups.values()) {
+			if (group.size() == 1) {
+				tasks.add(group.get(0));
+				continue;
+			}
+			RunTask unit = group.get(0).copy();
+			unit.initPop = 1;
+			unit.scaledRuns = group;
+			tasks.add(unit);
+		}
+		return tasks;
+	}
+
+	/**
+	 * Method to check that the model is linear for the runs of a linear sweep: the first scaled run is done directly
+	 * (with its largest initial population) and with 1 fly, and the scaled summary values must agree with the direct
+	 * ones (the populations up to LINEARITY_TOLERANCE, the days exactly).
+	 * @param tasks - the runs to submit (see groupByInitialPopulation)
+	 * @return true if the scaled run agrees with the direct one (or there is nothing to scale)
+	 */
+	private boolean checkLinearity(ArrayList<RunTask> tasks) {
+		RunTask unit = null;
+		for (int i = 0; i < tasks.size() && unit == null; i ++) {
+			if (tasks.get(i).scaledRuns != null)
+				unit = tasks.get(i);
+		}
+		if (unit == null)
+			return true;
+		double initPop = 0;
+		for (int k = 0; k < unit.scaledRuns.size(); k ++)
+			initPop = Math.max(initPop, unit.scaledRuns.get(k).initPop);
+
+		ThreadSim probe = new ThreadSim(temps, params, rateCache);
+		probe.setIntegrator(integrator);
+		probe.resetSimulationTitle(unit.type, unit.ignoreFruit, unit.ignoreDiap);
+		probe.resetParams(unit.dt, unit.runTime, unit.startDay, 1, unit.stage, unit.gtMultiplier, unit.harvestLag, unit.criticalT, unit.daylightHours);
+		RunSummary scaled = probe.simulateSummary().scale(initPop);
+		probe.resetParams(unit.dt, unit.runTime, unit.startDay, initPop, unit.stage, unit.gtMultiplier, unit.harvestLag, unit.criticalT, unit.daylightHours);
+		RunSummary direct = probe.simulateSummary();
+
+		boolean linear = scaled.getCrossedDiapDay() == direct.getCrossedDiapDay() && scaled.getDayCrossedMaxFruit() == direct.getDayCrossedMaxFruit();
+		for (int j = 0; j < RunSummary.NUM_STAGES; j ++) {
+			linear &= agree(scaled.getMax(j), direct.getMax(j)) && agree(scaled.getTotal(j), direct.getTotal(j))
+						&& scaled.getDayOfMax(j) == direct.getDayOfMax(j);
+		}
+		if (!linear)
+			System.out.println("Linear sweep - the run with " + initPop + " " + unit.stage + " isn't " + initPop + " times the run with 1, every run is done");
+		return linear;
+	}
+
+	/**
+	 * Method to check if two values are equal up to LINEARITY_TOLERANCE (relative to the largest)
+	 * @param a - a value
+	 * @param b - the value to compare with
+	 * @return do the values agree? true or false
+	 */
+	private static boolean agree(double a, double b) {
+		return Math.abs(a - b) <= LINEARITY_TOLERANCE * Math.max(Math.abs(a), Math.abs(b));
+	}
+
+	/**
+	 * Method to check if the runs can be started from snapshots of one trunk: they must all have the same
+	 * parameters, apart from their injection date, stage and initial population, and inject on a day.
+	 * @param runs - the runs to submit
+	 * @return true if the runs can share a trunk
+	 */
+	private boolean canFork(ArrayList<RunTask> runs) {
+		if (runs.isEmpty())
+			return false;
+		RunTask first = runs.get(0);
+		for (int i = 0; i < runs.size(); i ++) {
+			RunTask run = runs.get(i);
+			if (run.startDay < 0 || !run.type.equals(first.type) || run.ignoreFruit != first.ignoreFruit || run.ignoreDiap != first.ignoreDiap
+					|| run.dt != first.dt || run.runTime != first.runTime || run.gtMultiplier != first.gtMultiplier
+					|| run.harvestLag != first.harvestLag || run.criticalT != first.criticalT || run.daylightHours != first.daylightHours)
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Method to advance a trunk simulation through the injection dates of the runs, and submit every run
+	 * with the snapshot of the trunk on its injection date.
+	 * @param runs - the runs to submit
+	 * @return the future of every run (in the same order as the runs)
+	 */
+	private ArrayList<Future<Integer>> submitForked(final ArrayList<RunTask> runs) {
+		ArrayList<Integer> byDay = new ArrayList<Integer>(runs.size()); // indices of the runs, by injection date
+		for (int i = 0; i < runs.size(); i ++)
+			byDay.add(i);
+		Collections.sort(byDay, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				int dayA = runs.get(a).startDay, dayB = runs.get(b).startDay;
+				return (dayA < dayB) ? -1 : ((dayA == dayB) ? 0 : 1);
+			}
+		});
+
+		RunTask first = runs.get(0);
+		ThreadSim trunk = new ThreadSim(temps, params, rateCache);
+		trunk.setIntegrator(integrator);
+		trunk.setFruitQualityCache(first.shareFruit ? fruitCache : null); // the runs get the trajectories with their snapshot
+		trunk.setDiapauseCache(first.shareDiapause ? diapauseCache : null);
+		trunk.resetParams(first.dt, first.runTime, first.startDay, first.initPop, first.stage,
+							first.gtMultiplier, first.harvestLag, first.criticalT, first.daylightHours);
+		trunk.resetSimulationTitle(first.type, first.ignoreFruit, first.ignoreDiap);
+		trunk.setSummaryOnly(summaryOnly && resultWriter != null);
+		trunk.startTrunk();
+
+		ArrayList<Future<Integer>> submitted = new ArrayList<Future<Integer>>(runs.size());
+		for (int i = 0; i < runs.size(); i ++)
+			submitted.add(null);
+		SWDSimulatorSingle snapshot = null;
+		int snapshotDay = 0;
+		for (int i = 0; i < byDay.size(); i ++) {
+			RunTask run = runs.get(byDay.get(i));
+			if (snapshot == null || run.startDay != snapshotDay) {
+				snapshot = trunk.advanceTrunk(run.startDay);
+				snapshotDay = run.startDay;
+			}
+			run.snapshot = snapshot;
+			submitted.set(byDay.get(i), pool.submit(run));
+		}
+		return submitted;
+	}
+
+	/**
+	 * Method to shut down the thread pool once the engine is not needed anymore.
+	 */
+	public void shutdown() {
+		pool.shutdown();
+		SimulationMetrics.get().clearSweep(pool);
+	}
+
+	/**
+	 * One run of the sweep, done by whichever worker takes it, with the worker's simulator.
+	 */
+	private class RunTask implements Callable<Integer> {
+		int runId;
+		String type;
+		boolean ignoreFruit, ignoreDiap;
+		double dt, runTime;
+		int startDay;
+		double initPop;
+		String stage;
+		double gtMultiplier, harvestLag, criticalT, daylightHours;
+		SWDSimulatorSingle snapshot; // snapshot of the trunk on the injection date (null to run from day 0)
+		boolean shareFruit, shareDiapause; // read the fruit quality (diapause switches) from the cache?
+		ArrayList<RunTask> scaledRuns; // runs whose output is scaled from this one, with 1 fly (null if it is a run of the sweep)
+
+		/**
+		 * Method to return a copy of the run (with the same id)
+		 * @return the copy
+		 */
+		RunTask copy() {
+			RunTask run = new RunTask();
+			run.runId = runId;
+			run.type = type;
+			run.ignoreFruit = ignoreFruit;
+			run.ignoreDiap = ignoreDiap;
+			run.dt = dt;
+			run.runTime = runTime;
+			run.startDay = startDay;
+			run.initPop = initPop;
+			run.stage = stage;
+			run.gtMultiplier = gtMultiplier;
+			run.harvestLag = harvestLag;
+			run.criticalT = criticalT;
+			run.daylightHours = daylightHours;
+			return run;
+		}
+
+		/**
+		 * Method to return the values the run's fruit quality depends on (apart from the temperatures and the
+		 * parameters that are the same for all the runs)
+		 * @return the key of the run's fruit quality trajectory
+		 */
+		String fruitKey() {
+			return dt + " " + runTime + " " + gtMultiplier + " " + harvestLag;
+		}
+
+		/**
+		 * Method to return the values the run's diapause switches depend on (apart from the temperatures and the
+		 * parameters that are the same for all the runs)
+		 * @return the key of the run's diapause trajectory
+		 */
+		String diapauseKey() {
+			return dt + " " + runTime + " " + criticalT + " " + daylightHours;
+		}
+
+		@Override
+		public Integer call() {
+			ThreadSim sim = workerSims.get();
+			sim.resetParams(dt, runTime, startDay, initPop, stage, gtMultiplier, harvestLag, criticalT, daylightHours);
+			sim.resetSimulationTitle(type, ignoreFruit, ignoreDiap);
+			sim.setResultWriter(resultWriter, runId);
+			sim.setSummaryOnly(summaryOnly && resultWriter != null);
+			sim.setFruitQualityCache(shareFruit ? fruitCache : null);
+			sim.setDiapauseCache(shareDiapause ? diapauseCache : null);
+			sim.setIntegrator(integrator);
+			if (scaledRuns == null)
+				sim.setScaledRuns(null, null);
+			else {
+				double[] initPops = new double[scaledRuns.size()];
+				int[] runIds = new int[scaledRuns.size()];
+				for (int k = 0; k < initPops.length; k ++) {
+					initPops[k] = scaledRuns.get(k).initPop;
+					runIds[k] = scaledRuns.get(k).runId;
+				}
+				sim.setScaledRuns(initPops, runIds);
+			}
+			try {
+				if (snapshot == null)
+					sim.run(); // runs on this worker (the ThreadSim thread is never started)
+				else
+					sim.runFrom(snapshot);
+			} catch (RuntimeException error) {
+				SimulationMetrics.get().simulationFailed();
+				throw error;
+			} finally {
+				snapshot = null; // so it can be garbage collected once all the runs of the day are done
+			}
+			return runId;
+		}
+	}
+}
@@ -0,0 +1,76 @@
+package ConsoleRunners;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import SWDModelReferenceClasses.SweepResultReader;
+
+/**
+ * Command-line tool to export a sweep result file (e.g. written by ThreadedBatchRunner with the
+ * "binary" option) to CSV.
+ * Arguments: the sweep result file, the CSV file to write, and optionally what to export:
+ * - summary (default): one line per run, with the run id, its parameters and its summary values
+ * - data: one line per data point, with the run id, its parameters and the value of every variable
+ * Runs that were not written (e.g. if the sweep was interrupted) are skipped.
+ */
+public class SweepResultExport {
+
+	public static void main(String[] args) {
+		if (args.length < 2) {
+			System.out.println("Usage: SweepResultExport <sweep file> <csv file> [summary|data]");
+			return;
+		}
+		boolean data = args.length > 2 && args[2].equals("data");
+
+		try (SweepResultReader reader = new SweepResultReader(new File(args[0]));
+				PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(args[1])))) { // both closed even if the export fails
+
+			// column labels
+			out.print("run");
+			for (String name : reader.getParameterNames())
+				out.print("," + name);
+			for (String name : data ? reader.getVariableNames() : reader.getSummaryNames())
+				out.print("," + name);
+			out.println();
+
+			int numParams = reader.getParameterNames().length;
+			int numValues = data ? reader.getVariableNames().length : reader.getSummaryNames().length;
+			int written = 0;
+
+			for (int run = 0; run < reader.getNumRuns(); run ++) {
+				if (!reader.isWritten(run))
+					continue;
+				written ++;
+
+				StringBuilder prefix = new StringBuilder();
+				prefix.append(run);
+				for (int p = 0; p < numParams; p ++)
+					prefix.append(',').append(reader.getParameter(run, p));
+
+				if (data) {
+					for (int row = 0; row < reader.getNumRows(run); row ++) {
+						out.print(prefix);
+						for (int v = 0; v < numValues; v ++)
+							out.print("," + reader.getValue(run, v, row));
+						out.println();
+					}
+				} else {
+					out.print(prefix);
+					for (int s = 0; s < numValues; s ++)
+						out.print("," + reader.getSummary(run, s));
+					out.println();
+				}
+			}
+
+			out.flush();
+			if (out.checkError()) // PrintWriter doesn't throw on write errors
+				throw new IOException("could not write " + args[1]);
+			System.out.println("Exported " + written + " of " + reader.getNumRuns() + " runs to " + args[1]);
+		} catch (IOException error) {
+			System.out.println("Error - " + error.getMessage());
+		}
+	}
+}
@@ -2,12 +2,21 @@ package ConsoleRunners;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.ArrayList;
 
 import org.jfree.data.xy.XYSeries;
 
+import SWDModelBaseObjects.DiapauseCache;
+import SWDModelBaseObjects.FruitQualityCache;
 import SWDModelBaseObjects.Parameters;
+import SWDModelBaseObjects.RateCache;
+import SWDModelBaseObjects.RecordingPolicy;
+import SWDModelBaseObjects.RunSummary;
+import SWDModelBaseObjects.SimulationMetrics;
+import SWDModelReferenceClasses.Integrator;
+import SWDModelReferenceClasses.SweepResultWriter;
 import SWDModelReferenceClasses.UtilityMethods;
 import SWDModelSimulators.SWDSimulatorSingle;
 
@@ -18,6 +27,15 @@ import SWDModelSimulators.SWDSimulatorSingle;
  * Once run() has been called, the simulator runs with the specified parameters
  * and prints its data to a file corresponding to its running params.
  * This output file is created in a directory named DATA.
+ * Alternatively, the output can be written as one run of a sweep result file shared by all
+ * the threads (see setResultWriter).
+ * In summary-only mode (see setSummaryOnly), nothing is recorded during the simulation and only
+ * its summary values are written to the sweep result file.
+ * A simulation can also be run from a snapshot of a trunk simulation (see startTrunk), so that runs
+ * which only differ by their injection share the simulation up to their injection date.
+ * The simulations, their steps and the time spent writing their output are counted in SimulationMetrics; each
+ * simulation, output write and (optionally) simulated day is also an event of the SimulationEventSink (e.g. for
+ * JDK Flight Recorder, see SimulationEventSinks).
  * 
  * @author Ellen Arteca
  *
@@ -47,8 +65,9 @@ public class ThreadSim extends Thread {
 	
 	private SWDSimulatorSingle sim;
 	
-	private String[] names = {"eggs", "instar1", "instar2", "instar3", "pupae", "males", "females1", "females2", "females3", 
-								"females4", "females5", "females6", "females7"};
+	private static final String[] STAGE_NAMES = {"eggs", "instar1", "instar2", "instar3", "pupae", "males", "females1", "females2", "females3", 
+													"females4", "females5", "females6", "females7"};
+	private String[] names = STAGE_NAMES;
 	
 	private String dataFile = "DATA/output___" + initPop + stage + "_addedDay" + startDay + "_" + runTime + "daysRun.txt";
 
@@ -56,6 +75,31 @@ public class ThreadSim extends Thread {
 	private boolean ignoreFruit = true;
 	private boolean ignoreDiap = true;	
 	
+	// names of the values stored for each run in a sweep result file
+	public static final String[] RESULT_PARAMETERS = {"start day", "initial population", "stage", "gt multiplier", "harvest lag", 
+														"critical temp", "daylight hours", "dt", "run time"};
+	public static final String[] RESULT_VARIABLES = {"time", "eggs", "instar1", "instar2", "instar3", "pupae", "males", "females", "fruit quality"};
+	public static final String[] RESULT_SUMMARIES = {"total eggs", "total instar1", "total instar2", "total instar3", "total pupae", "total males", "total females",
+														"peak eggs", "peak instar1", "peak instar2", "peak instar3", "peak pupae", "peak males", "peak females",
+														"peak day eggs", "peak day instar1", "peak day instar2", "peak day instar3", "peak day pupae", "peak day males", "peak day females",
+														"day diapause crossed", "day fruit quality max"};
+	
+	private SweepResultWriter resultWriter; // sweep result file to write to (null to write a text file)
+	private int runId; // id of the run in the sweep result file
+	private boolean summaryOnly = false; // only compute (and write) the summary values?
+	private FruitQualityCache fruitCache; // cache of fruit quality trajectories (null to integrate the fruit quality in every run)
+	private DiapauseCache diapauseCache; // cache of diapause trajectories (null to solve the diapause switches in every run)
+	
+	private String type = "population"; // type of simulation (for the output filename)
+	
+	// linear runs: the output of the simulation is scaled for each of these initial populations (null to write it as it is)
+	private double[] scaledInitPops;
+	private int[] scaledRunIds; // id of each scaled run in the sweep result file
+	
+	private static final int NO_INJECTION = Integer.MAX_VALUE; // injection date of a trunk simulation (never reached)
+	
+	private static final SimulationEventSink EVENTS = SimulationEventSinks.get(); // profiling events of the runs
+	
 	/**
 	 * Constructor to set the simulation parameters and the temperatures to run with.
 	 * @param temps - temperatures per day
@@ -67,6 +111,20 @@ public class ThreadSim extends Thread {
 			throw new IllegalArgumentException("No temperature data!");
 		this.temps = UtilityMethods.copyArrayList(temps);
 		sim = new SWDSimulatorSingle(dt, params);
+		setRecordingPolicy(); // the output only has one datapoint per day
+	}
+	
+	/**
+	 * Constructor to set the simulation parameters and the temperatures to run with, reading the 
+	 * temperature-dependent rates from a cache (which can be shared with the other threads).
+	 * @param temps - temperatures per day
+	 * @param params - simulation parameters
+	 * @param rateCache - cache of temperature-dependent rates
+	 * @throws IllegalArgumentException if there is no temperature data in the arraylist passed in
+	 */
+	public ThreadSim(ArrayList<Double> temps, Parameters params, RateCache rateCache) {
+		this(temps, params);
+		sim.setRateCache(rateCache);
 	}
 	
 	/**
@@ -109,6 +167,121 @@ public class ThreadSim extends Thread {
 		
 	}
 	
+	/**
+	 * Method to create a sweep result file for runs of this class: the parameters of each run are
+	 * RESULT_PARAMETERS, its daily data are RESULT_VARIABLES, and its summary values are RESULT_SUMMARIES.
+	 * @param file - the file to create
+	 * @param numRuns - the number of runs in the sweep
+	 * @param runTime - the time each simulation is run for
+	 * @param dt - the integration step of the simulations
+	 * @return the writer for the file
+	 * @throws IOException if the file cannot be created
+	 */
+	public static SweepResultWriter createResultWriter(File file, int numRuns, double runTime, double dt) throws IOException {
+		int numRows = (int) Math.ceil(runTime / dt / stepsPerDay(dt)) + 1; // one data point per day (and room for rounding in the time loop)
+		return new SweepResultWriter(file, numRuns, RESULT_PARAMETERS, RESULT_VARIABLES, RESULT_SUMMARIES, numRows);
+	}
+	
+	/**
+	 * Method to write the output of the next simulation to a sweep result file (instead of a text file
+	 * in DATA).  The writer can be shared by all the threads; each simulation must have its own run id.
+	 * @param resultWriter - the sweep result file (null to go back to writing text files)
+	 * @param runId - the id of the run in the file
+	 */
+	public void setResultWriter(SweepResultWriter resultWriter, int runId) {
+		this.resultWriter = resultWriter;
+		this.runId = runId;
+	}
+	
+	/**
+	 * Method to create a sweep result file for summary-only runs of this class: the parameters of each
+	 * run are RESULT_PARAMETERS and its summary values are RESULT_SUMMARIES (there is no daily data).
+	 * @param file - the file to create
+	 * @param numRuns - the number of runs in the sweep
+	 * @return the writer for the file
+	 * @throws IOException if the file cannot be created
+	 */
+	public static SweepResultWriter createSummaryWriter(File file, int numRuns) throws IOException {
+		return new SweepResultWriter(file, numRuns, RESULT_PARAMETERS, RESULT_VARIABLES, RESULT_SUMMARIES, 0);
+	}
+	
+	/**
+	 * Method to only compute the summary values of the next simulations (as SWDSimulatorSingle.runSummary):
+	 * nothing is recorded, and the summary values are written to the sweep result file, which must be set.
+	 * @param summaryOnly - only compute the summary values? true or false
+	 */
+	public void setSummaryOnly(boolean summaryOnly) {
+		this.summaryOnly = summaryOnly;
+	}
+	
+	/**
+	 * Method to read the fruit quality of the next simulations from a cache of precomputed trajectories (which can
+	 * be shared with the other threads), instead of integrating it in every simulation; the output is the same.
+	 * @param fruitCache - the cache of fruit quality trajectories (null to integrate the fruit quality)
+	 */
+	public void setFruitQualityCache(FruitQualityCache fruitCache) {
+		this.fruitCache = fruitCache;
+	}
+	
+	/**
+	 * Method to read the diapause switches of the next simulations (if diapause isn't ignored) from a cache of
+	 * precomputed trajectories (which can be shared with the other threads), instead of solving them in every
+	 * simulation; the output is the same.
+	 * @param diapauseCache - the cache of diapause trajectories (null to solve the switches)
+	 */
+	public void setDiapauseCache(DiapauseCache diapauseCache) {
+		this.diapauseCache = diapauseCache;
+	}
+	
+	/**
+	 * Method to set the integration scheme for the populations of the next simulations, instead of Euler's method
+	 * (see SWDSimulatorSingle.setIntegrator).
+	 * @param integrator - the integration scheme (null for Euler's method)
+	 */
+	public void setIntegrator(Integrator integrator) {
+		sim.setIntegrator(integrator);
+	}
+	
+	/**
+	 * Method to write the output of the next simulation once for each of several initial populations, scaled from 
+	 * the simulation (which should be injected with 1 fly, see resetParams), instead of once as it is: the model is
+	 * linear in the populations, so a simulation injected with N flies is N times the one injected with 1 fly.
+	 * Each scaled output is written to the text file (or the run of the sweep result file) of its initial population.
+	 * Note: the output is only the same as the simulation with that initial population if the model is linear, and
+	 * only the injected stage has an initial population (see injectsOnly).
+	 * @param initPops - the initial populations to write the output for (null to write the output as it is)
+	 * @param runIds - the id of the run of each initial population in the sweep result file
+	 * @throws IllegalArgumentException if the arrays have different lengths or an initial population isn't positive
+	 */
+	public void setScaledRuns(double[] initPops, int[] runIds) {
+		if (initPops != null) {
+			if (runIds == null || runIds.length != initPops.length)
+				throw new IllegalArgumentException("One run id is needed for each initial population!");
+			for (int k = 0; k < initPops.length; k ++) {
+				if (!(initPops[k] > 0))
+					throw new IllegalArgumentException("The scaled initial populations must be positive!");
+			}
+		}
+		scaledInitPops = initPops;
+		scaledRunIds = runIds;
+	}
+	
+	/**
+	 * Method to check if the only flies injected in a simulation are those of the injected stage, i.e. if all the
+	 * other stages have an initial population of 0 in the parameters.  Otherwise, the injected population isn't 
+	 * proportional to the initial population of the stage, and the output can't be scaled (see setScaledRuns).
+	 * @param params - simulation parameters
+	 * @param stage - the injected stage
+	 * @return are all the other initial populations 0? true or false
+	 */
+	public static boolean injectsOnly(Parameters params, String stage) {
+		for (int j = 0; j < STAGE_NAMES.length; j ++) {
+			if (!STAGE_NAMES[j].equals(stage) && params.getParameter("initial " + STAGE_NAMES[j]) != 0)
+				return false;
+		}
+		return true;
+	}
+	
 	/**
 	 * Method to reset the filename for the output; depending on the type of simulation being run.
 	 * @param type - the type of simulation being run
@@ -118,6 +291,7 @@ public class ThreadSim extends Thread {
 		this.ignoreFruit = ignoreFruit;
 		this.ignoreDiap = ignoreDiap;
 		type = type.toLowerCase();
+		this.type = type;
 		if (type.equals("population"))
 			dataFile = "DATA/output___" + initPop + stage + "_addedDay" + startDay + "_" + runTime + "daysRun.txt";
 		else if (type.equals("fruit"))
@@ -138,48 +312,215 @@ public class ThreadSim extends Thread {
 	@Override
 	public void run() {
 		sim.resetTime(); // reset the simulator (time 0, and reset cumulative variables)
-		
-		// reset simulation parameters to specified simulation parameters
-		sim.setSingleParameter("initial " + stage,  initPop);
+		setRecordingPolicy();
+		setSimulationParams(true);
+		simulate();
+	}
+	
+	/**
+	 * Method to run the simulation from a snapshot instead of from timestep 0 (see startTrunk): the 
+	 * snapshot is restored, the parameters are set, and the simulator runs from the snapshot's timestep
+	 * to runTime.  The output is exactly the same as with run(), as long as the snapshot was taken from
+	 * a trunk with the same parameters (except for the injection), before the injection date.
+	 * @param snapshot - the snapshot to start from
+	 */
+	public void runFrom(SWDSimulatorSingle snapshot) {
+		sim.restore(snapshot);
+		setSimulationParams(true);
+		simulate();
+	}
+	
+	/**
+	 * Method to start a trunk simulation: the part of the runs of a sweep before their injection date,
+	 * which is the same for all the runs that only differ by their injection (date, stage and initial 
+	 * population).  The trunk is reset to timestep 0 with the parameters of resetParams (but the initial
+	 * populations from the config file), and never injects any flies; snapshots of it are taken with
+	 * advanceTrunk, and each run is started from the snapshot on its injection date with runFrom.
+	 */
+	public void startTrunk() {
+		sim.resetTime();
+		setRecordingPolicy();
+		setSimulationParams(false);
+	}
+	
+	/**
+	 * Method to advance the trunk simulation (see startTrunk) to the beginning of a day (or to runTime,
+	 * if it is earlier), and take a snapshot.
+	 * @param day - the day to advance to (the trunk can't go backwards)
+	 * @return the snapshot of the trunk at the beginning of the day
+	 */
+	public SWDSimulatorSingle advanceTrunk(int day) {
+		long steps = 0;
+		while ((int) sim.getTimeStep() < day && sim.getTimeStep() < runTime) {
+			sim.run(temps, dt, ignoreFruit, ignoreDiap, NO_INJECTION); // the same integration steps as in simulate()
+			steps ++;
+		}
+		SimulationMetrics.get().addSteps(steps);
+		return sim.snapshot();
+	}
+	
+	/**
+	 * Method to set the recording policy of the simulator: nothing is recorded in summary-only mode, and
+	 * one datapoint per day (every 20th step, with the default dt) otherwise.
+	 */
+	private void setRecordingPolicy() {
+		sim.setRecordingPolicy(summaryOnly ? RecordingPolicy.none() : RecordingPolicy.everyNSteps(stepsPerDay(dt)));
+	}
+	
+	/**
+	 * Method to return the number of integration steps per day (the number of steps between recorded datapoints)
+	 * @param dt - integration step
+	 * @return the number of steps per day (at least 1)
+	 */
+	public static int stepsPerDay(double dt) {
+		return Math.max(1, (int) Math.round(1 / dt));
+	}
+	
+	/**
+	 * Method to set the parameters of the run in the simulator.
+	 * @param setInitialPop - set the initial population of the injected stage? (not for a trunk)
+	 */
+	private void setSimulationParams(boolean setInitialPop) {
+		if (setInitialPop)
+			sim.setSingleParameter("initial " + stage,  initPop);
 		sim.setSingleParameter("fruit gt multiplier", gtMultiplier);
 		sim.setSingleParameter("fruit time lag", harvestLag);
 		sim.setSingleParameter("diapause critical temp", criticalT);
 		sim.setSingleParameter("diapause daylight hours", daylightHours);
 		sim.setDT(dt);
-		
-		
-		//boolean ignoreFruit = false;
-		//boolean ignoreDiapause = false;
-
-		for (double i = 0; i < runTime; i += dt) {
+		if (fruitCache != null)
+			sim.useFruitTrajectory(fruitCache, temps, runTime);
+		if (diapauseCache != null && !ignoreDiap)
+			sim.useDiapauseTrajectory(diapauseCache, temps, runTime);
+	}
+	
+	/**
+	 * Method to run the simulation from timestep 0 to runTime without writing any output, and return its summary
+	 * values (e.g. to check the output of other runs against it).  Nothing is recorded during the simulation.
+	 * @return the summary values of the simulation
+	 */
+	public RunSummary simulateSummary() {
+		Object run = EVENTS.beginRun();
+		SimulationMetrics.get().simulationStarted();
+		sim.resetTime();
+		sim.setRecordingPolicy(RecordingPolicy.none());
+		setSimulationParams(true);
+		long steps = advance();
+		RunSummary summary = sim.getRunSummary();
+		EVENTS.endRun(run, runId, type, sim.getParams(), stage, startDay, dt, runTime, steps);
+		resetConfigParams();
+		setRecordingPolicy();
+		SimulationMetrics.get().simulationCompleted();
+		return summary;
+	}
+	
+	/**
+	 * Method to run the simulator from its current timestep to runTime.
+	 * @return the number of integration steps done
+	 */
+	private long advance() {
+		long steps = 0;
+		Object day = EVENTS.beginDay(); // null unless the day events are recorded
+		int dayNumber = (int) sim.getTimeStep();
+		int dayStart = 0; // steps before the current day
+		for (double i = sim.getTimeStep(); i < runTime; i += dt) { // the time is counted from 0, as the simulator's timestep
 			sim.run(temps, dt, ignoreFruit, ignoreDiap, startDay); // run the simulator
+			steps ++;
+			if (day != null && (int) sim.getTimeStep() != dayNumber) {
+				EVENTS.endDay(day, runId, dayNumber, (int) steps - dayStart, sim.getFemales());
+				day = EVENTS.beginDay();
+				dayNumber = (int) sim.getTimeStep();
+				dayStart = (int) steps;
+			}
 		}
+		if (day != null && steps > dayStart) // the last day, if it was cut short by runTime
+			EVENTS.endDay(day, runId, dayNumber, (int) steps - dayStart, sim.getFemales());
+		SimulationMetrics.get().addSteps(steps); // once per simulation, not per step
+		return steps;
+	}
+	
+	/**
+	 * Method to run the simulator from its current timestep to runTime, write its output (once as it is, or once for
+	 * each scaled initial population, see setScaledRuns), and reset the parameters to those of the config file.
+	 */
+	private void simulate() {
+		Object run = EVENTS.beginRun();
+		SimulationMetrics metrics = SimulationMetrics.get();
+		metrics.simulationStarted();
+		long steps = advance();
 		
-		
-		XYSeries[] toPrint = new XYSeries[8]; // array of data series for all lifestages, and fruit quality, vs time
-		
-		toPrint[0] = sim.getEggSeries();
-		toPrint[1] = sim.getInst1Series();
-		toPrint[2] = sim.getInst2Series();
-		toPrint[3] = sim.getInst3Series();
-		toPrint[4] = sim.getPupaeSeries();
-		toPrint[5] = sim.getMalesSeries();
-		toPrint[6] = sim.getFemalesSeries();
-		toPrint[7] = sim.getFruitQualitySeries();
-		
-		try {
-			for (int i = 0; i < 8; i ++) {
-				if (toPrint[i] == null) // check to see if any of the series have not yet been initialized
-					throw new NullPointerException();
-				if (toPrint[i].getItemCount() == 0) // check to see if any of the series have no data points
-					throw new NullPointerException();
-			}
-		} catch(NullPointerException error) { // thrown if none of the series have any points yet i.e. the simulation has not been run
+		double[][] columns = summaryOnly ? new double[RESULT_VARIABLES.length][0] : getColumns(); // nothing was recorded in summary-only mode
+		if (columns == null) { // the simulation has not been run
 			System.out.println("No data yet!  Cannot proceed.");
+			metrics.simulationFailed();
 			return;
 		}
+		RunSummary summary = sim.getRunSummary();
 		
+		long outputStart = System.nanoTime();
+		if (scaledInitPops == null)
+			writeOutput(columns, summary);
+		else { // the output for each initial population is the output of this simulation, scaled
+			double unitPop = initPop;
+			int unitRunId = runId;
+			for (int k = 0; k < scaledInitPops.length; k ++) {
+				double factor = scaledInitPops[k] / unitPop;
+				initPop = scaledInitPops[k];
+				runId = scaledRunIds[k];
+				resetSimulationTitle(type, ignoreFruit, ignoreDiap); // the text output file of the initial population
+				writeOutput(scaleColumns(columns, factor), summary.scale(factor));
+			}
+			initPop = unitPop;
+			runId = unitRunId;
+			resetSimulationTitle(type, ignoreFruit, ignoreDiap);
+		}
+		metrics.addOutputTime(System.nanoTime() - outputStart);
 		
+		EVENTS.endRun(run, runId, type, sim.getParams(), stage, startDay, dt, runTime, steps);
+		resetConfigParams();
+		metrics.simulationCompleted();
+	}
+	
+	/**
+	 * Method to write the output of a simulation: to the sweep result file if there is one, or to a text file in DATA.
+	 * @param columns - the data of the simulation (see getColumns; no rows in summary-only mode)
+	 * @param summary - the summary values of the simulation
+	 */
+	private void writeOutput(double[][] columns, RunSummary summary) {
+		Object output = EVENTS.beginOutput();
+		if (summaryOnly) {
+			if (resultWriter != null)
+				writeResult(columns, summary);
+			else {
+				System.out.println("No sweep result file for the summary!");
+				return;
+			}
+		} 
+		else if (resultWriter != null)
+			writeResult(columns, summary);
+		else
+			writeTextOutput(columns, summary);
+		EVENTS.endOutput(output, runId, (resultWriter != null) ? resultWriter.getPath() : dataFile, columns[0].length);
+	}
+	
+	/**
+	 * Method to reset the parameters changed by run to their original values (as specified in the config file).
+	 */
+	private void resetConfigParams() {
+		sim.setSingleParameter("initial " + stage, firstInitPop); 
+		sim.setSingleParameter("fruit gt multiplier", firstGtMultiplier);
+		sim.setSingleParameter("fruit time lag", firstHarvestLag);
+		sim.setSingleParameter("diapause critical temp", firstCriticalT);
+		sim.setSingleParameter("diapause daylight hours", firstDaylightHours);
+	}
+	
+	/**
+	 * Method to print the output of the simulation to a text file in DATA (the daily data, then the 
+	 * summary data).
+	 * @param columns - the data of the simulation (see getColumns)
+	 * @param summary - the summary values of the simulation
+	 */
+	private void writeTextOutput(double[][] columns, RunSummary summary) {
 		try {
 			PrintWriter fileOut = new PrintWriter(new File(dataFile));
 			fileOut.print("Time:" + "\t");
@@ -193,29 +534,29 @@ public class ThreadSim extends Thread {
 			fileOut.print("females:\t");
 			
 			fileOut.println();
-			for (int i = 0; i < toPrint[0].getItemCount(); i +=20) { // += 20 so it prints every 20th datapoint (i.e. once per day)
-				fileOut.print(toPrint[0].getX(i) + "\t"); // print the timestep (same for all series)
+			for (int i = 0; i < columns[0].length; i ++) { // only one datapoint is recorded per day
+				fileOut.print(columns[0][i] + "\t"); // print the timestep (same for all series)
 				for (int j = 0; j < 7; j ++) {
-						fileOut.print(toPrint[j].getY(i) + "\t"); // print the corresponding value for the selected series
+						fileOut.print(columns[j + 1][i] + "\t"); // print the corresponding value for the selected series
 				}
 				fileOut.println();
 			}
 			
 			// print overall data
 			fileOut.println("\n\nTotal Cumulative Populations");
-			fileOut.print("\n\t" + sim.getTotEggs() + "\t" + sim.getTotInst1() + "\t" + sim.getTotInst2() + 
-							"\t" + sim.getTotInst3() + "\t" + sim.getTotPupae() + "\t" + sim.getTotMales() + 
-							"\t" + sim.getTotFemales());
+			fileOut.print("\n");
+			for (int j = 0; j < RunSummary.NUM_STAGES; j ++)
+				fileOut.print("\t" + summary.getTotal(j));
 			fileOut.println("\n\nPeak Populations");
-			fileOut.print("\n\t" + sim.getMaxEggs() + "\t" + sim.getMaxInst1() + "\t" + sim.getMaxInst2() + 
-					"\t" + sim.getMaxInst3() + "\t" + sim.getMaxPupae() + "\t" + sim.getMaxMales() + 
-					"\t" + sim.getMaxFemales());
+			fileOut.print("\n");
+			for (int j = 0; j < RunSummary.NUM_STAGES; j ++)
+				fileOut.print("\t" + summary.getMax(j));
 			fileOut.println("\n\nPeak Populations Day");
-			fileOut.print("\n\t" + sim.getDayMaxEggs() + "\t" + sim.getDayMaxInst1() + "\t" + sim.getDayMaxInst2() + 
-					"\t" + sim.getDayMaxInst3() + "\t" + sim.getDayMaxPupae() + "\t" + sim.getDayMaxMales() + 
-					"\t" + sim.getDayMaxFemales());
+			fileOut.print("\n");
+			for (int j = 0; j < RunSummary.NUM_STAGES; j ++)
+				fileOut.print("\t" + summary.getDayOfMax(j));
 			
-			fileOut.println("\n\nDay diapause crossed: " + sim.getCrossedDiapDay());
+			fileOut.println("\n\nDay diapause crossed: " + summary.getCrossedDiapDay());
 			
 			fileOut.close();
 		} catch (NullPointerException error) { // if no file was chosen
@@ -223,14 +564,106 @@ public class ThreadSim extends Thread {
 		} catch(FileNotFoundException error) {
 			System.out.println("Error - output file not found");
 		}
+	}
+	
+	/**
+	 * Method to return the recorded data of the simulation as columns (time, then each of RESULT_VARIABLES).
+	 * @return the columns (null if the simulation has no data yet)
+	 */
+	private double[][] getColumns() {
+		XYSeries[] toPrint = new XYSeries[8]; // array of data series for all lifestages, and fruit quality, vs time
+		
+		toPrint[0] = sim.getEggSeries();
+		toPrint[1] = sim.getInst1Series();
+		toPrint[2] = sim.getInst2Series();
+		toPrint[3] = sim.getInst3Series();
+		toPrint[4] = sim.getPupaeSeries();
+		toPrint[5] = sim.getMalesSeries();
+		toPrint[6] = sim.getFemalesSeries();
+		toPrint[7] = sim.getFruitQualitySeries();
+		
+		for (int i = 0; i < 8; i ++) {
+			if (toPrint[i] == null || toPrint[i].getItemCount() == 0) // none of the series have any points yet i.e. the simulation has not been run
+				return null;
+		}
 		
+		int rows = toPrint[0].getItemCount();
+		double[][] columns = new double[RESULT_VARIABLES.length][rows];
+		for (int i = 0; i < rows; i ++) {
+			columns[0][i] = toPrint[0].getX(i).doubleValue(); // the timestep (same for all series)
+			for (int j = 0; j < 8; j ++)
+				columns[j + 1][i] = toPrint[j].getY(i).doubleValue();
+		}
+		return columns;
+	}
+	
+	/**
+	 * Method to return a copy of the columns of a simulation with all the populations multiplied by a factor
+	 * (the time and the fruit quality are copied as they are).
+	 * @param columns - the data of the simulation (see getColumns)
+	 * @param factor - the factor to multiply the populations by
+	 * @return the scaled columns
+	 */
+	private static double[][] scaleColumns(double[][] columns, double factor) {
+		double[][] scaled = new double[columns.length][];
+		for (int j = 0; j < columns.length; j ++) {
+			scaled[j] = columns[j].clone();
+			if (j == 0 || j == columns.length - 1) // time and fruit quality
+				continue;
+			for (int i = 0; i < scaled[j].length; i ++)
+				scaled[j][i] *= factor;
+		}
+		return scaled;
+	}
+	
+	/**
+	 * Method to write the output of the simulation as one run of the sweep result file.
+	 * @param columns - the data of the run (see getColumns; no rows for summary-only runs)
+	 * @param summary - the summary values of the simulation
+	 */
+	private void writeResult(double[][] columns, RunSummary summary) {
+		writeResult(resultWriter, runId, dt, runTime, startDay, initPop, stage, gtMultiplier, harvestLag, criticalT, daylightHours, columns, summary);
+	}
+	
+	/**
+	 * Method to write the output of a simulation as one run of a sweep result file (see createResultWriter), e.g. for
+	 * runs that were not done by a ThreadSim.  The parameters are those of resetParams.
+	 * @param resultWriter - the sweep result file
+	 * @param runId - the id of the run in the file
+	 * @param dt - integration step
+	 * @param runTime - time the simulation was run for
+	 * @param startDay - injection date
+	 * @param initPop - initial population injected
+	 * @param stage - stage injected
+	 * @param gtMultiplier - multiplier for the gt function (fruit model)
+	 * @param harvestLag - time spent at full harvest (fruit model)
+	 * @param criticalT - critical temperature for the diapause model
+	 * @param daylightHours - cutoff point for daylight hours for the diapause model
+	 * @param columns - the data of the run (time, then each of RESULT_VARIABLES; no rows for summary-only runs)
+	 * @param summary - the summary values of the simulation
+	 */
+	public static void writeResult(SweepResultWriter resultWriter, int runId, double dt, double runTime, int startDay, double initPop, String stage,
+									double gtMultiplier, double harvestLag, double criticalT, double daylightHours, double[][] columns, RunSummary summary) {
+		int stageIndex = 0;
+		for (int j = 0; j < STAGE_NAMES.length; j ++) {
+			if (STAGE_NAMES[j].equals(stage))
+				stageIndex = j;
+		}
+		double[] params = {startDay, initPop, stageIndex, gtMultiplier, harvestLag, criticalT, daylightHours, dt, runTime};
 		
-		// reset parameters to their original values (as specified in the config file)
-		sim.setSingleParameter("initial " + stage, firstInitPop); 
-		sim.setSingleParameter("fruit gt multiplier", firstGtMultiplier);
-		sim.setSingleParameter("fruit time lag", firstHarvestLag);
-		sim.setSingleParameter("diapause critical temp", firstCriticalT);
-		sim.setSingleParameter("diapause daylight hours", firstDaylightHours);
+		double[] summaryValues = new double[RESULT_SUMMARIES.length];
+		for (int j = 0; j < RunSummary.NUM_STAGES; j ++) {
+			summaryValues[j] = summary.getTotal(j);
+			summaryValues[RunSummary.NUM_STAGES + j] = summary.getMax(j);
+			summaryValues[2 * RunSummary.NUM_STAGES + j] = summary.getDayOfMax(j);
+		}
+		summaryValues[3 * RunSummary.NUM_STAGES] = summary.getCrossedDiapDay();
+		summaryValues[3 * RunSummary.NUM_STAGES + 1] = summary.getDayCrossedMaxFruit();
+		try {
+			resultWriter.writeRun(runId, params, columns, summaryValues);
+		} catch (IOException error) {
+			System.out.println("Error - could not write run " + runId + ": " + error.getMessage());
+		}
 	}
 	
 	/**
@@ -1,14 +1,31 @@
 package ConsoleRunners;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
 
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import SWDModelBaseObjects.CompiledParameters;
 import SWDModelBaseObjects.Parameters;
+import SWDModelBaseObjects.RateCache;
+import SWDModelBaseObjects.RunSummary;
+import SWDModelBaseObjects.SimulationMetrics;
+import SWDModelReferenceClasses.AdaptiveIntegrator;
+import SWDModelReferenceClasses.ExponentialIntegrator;
+import SWDModelReferenceClasses.Integrator;
+import SWDModelReferenceClasses.RK4Integrator;
+import SWDModelReferenceClasses.SweepResultWriter;
 import SWDModelReferenceClasses.UtilityMethods;
+import SWDModelSimulators.SWDSimulatorPropagator;
 
 /**
- * Batch-runner that 8 uses threads!
- * This really cuts down on the time needed, since 8 simulations can run concurrently.
+ * Batch-runner that uses threads!
+ * This really cuts down on the time needed, since the simulations run concurrently: all the 
+ * simulations of a batch are given to a SweepEngine, which runs them on one thread per processor
+ * (or the number of threads set with the "threads=N" option), each thread with its own simulator.
  * The file IO (printing output) can't be done concurrently but the actual simulation
  * is the part that takes the most time. 
  * 
@@ -17,6 +34,23 @@ import SWDModelReferenceClasses.UtilityMethods;
  * and for eggs and females1 as stages.  It's hardcoded to run for 365 days, with a dt of 
  * 0.05 and reading simulation parameters from configParams.txt and temperatures for 
  * Toronto 2012 (from the temperatures.java).
+ * As these runs only differ by their injection, the simulation up to each injection date is only done
+ * once: every run starts from a snapshot of a shared trunk simulation on its injection date (see
+ * SweepEngine.setForkInjections); the "nofork" option runs each of them from day 0 instead.
+ * With the "linear" option, the runs that only differ by their initial population are done once, with 1 fly,
+ * and scaled to each initial population (see SweepEngine.setLinearInjections): a quarter of the runs, with
+ * the same results up to rounding.
+ * With the "propagator" option (and the "binary" or "summary" option), the runs are not simulated one by one:
+ * the daily propagators of the season are built once, and answer the runs for all the injection days of each
+ * stage and initial population in one pass (see SWDSimulatorPropagator), with the same results up to rounding (see PropagatorCheck).
+ * With the "exponential" option, the populations are solved exactly over each day, in one step per day (dt = 1),
+ * instead of 20 steps of Euler's method (see ExponentialIntegrator and IntegratorAccuracy); population sims only,
+ * as the fruit and diapause sims need a step of at most 0.05 (see checkModelStep).  With the "rk4" option,
+ * they are solved with the classical Runge-Kutta method, in 4 steps per day (dt = 0.25, see RK4Integrator).  With
+ * the "tolerance=X" option, they are solved to a tolerance instead of with a fixed step: one step per day, with
+ * sub-steps chosen by an embedded Runge-Kutta method (see AdaptiveIntegrator).  With these two options, the fruit
+ * and diapause sims keep dt = 0.05.  The "dt=X" option sets the integration step (e.g. to use one of these
+ * integrators with another step).
  * 
  * Fruit Simulations
  * This runs the simulation for all 365 harvest lags (jumps of 5), gt multipliers between 1 
@@ -30,6 +64,22 @@ import SWDModelReferenceClasses.UtilityMethods;
  * date 0; reads simulation parameters from configParams.txt and temperatures for Toronto 2012
  * (from temperatures.java).
  * 
+ * All the threads read their temperature-dependent rates from the same RateCache; the cache 
+ * statistics are printed at the end of each batch, with those of the batch's fruit quality and diapause
+ * trajectories (computed once for all the simulations with the same fruit, or diapause, parameters).
+ * 
+ * With the "binary" option (after the type of simulation), the output of all the simulations in a
+ * batch goes into a single sweep result file (DATA/population_sweep.swd, DATA/fruit_sweep.swd or
+ * DATA/diapause_sweep.swd) instead of one text file per simulation; see SweepResultReader and 
+ * SweepResultExport.
+ * With the "summary" option, the simulations only compute their summary values (nothing is recorded
+ * during the runs), which go into a summary-only sweep result file (DATA/population_summary.swd,
+ * DATA/fruit_summary.swd or DATA/diapause_summary.swd).
+ * 
+ * The metrics of the simulations (simulations started and completed, steps per second, time of the phases of
+ * the steps, queue depth, active workers and cache hit ratios) are registered as an MBean, so a running batch
+ * can be watched in jconsole (SWDModel:type=SimulationMetrics, see SimulationMetrics).
+ * 
  * @author Ellen Arteca
  *
  */
@@ -37,13 +87,25 @@ public class ThreadedBatchRunner {
 	
 	// general running parameters
 	
-	private static int NUM_THREADS = 8;
+	private static int numThreads = SweepEngine.defaultThreads(); // one per processor, unless set with threads=N
 	private static double[] initialPops = {10, 100, 1000, 10000};
 	
-	private static double dt = 0.05;
+	private static final double MODEL_DT = 0.05; // longest step of the fruit quality and diapause models
+	private static double dt = MODEL_DT;
 	private static double runTime = 365;
 	private static String configFileName = "configParams.txt";
 	
+	private static RateCache rateCache = new RateCache(); // shared by all the threads
+	
+	private static boolean binaryOutput = false; // write a sweep result file instead of text files?
+	private static boolean summaryOnly = false; // only compute the summary values (into a sweep result file)?
+	private static SweepResultWriter resultFile = null; // sweep result file of the current batch
+	private static boolean forkInjections = true; // start the population runs from snapshots of a shared trunk?
+	private static boolean linearInjections = false; // scale one run with 1 fly to all the initial populations?
+	private static boolean propagator = false; // answer the population runs from the daily propagators?
+	private static Integrator integrator = null; // integration scheme for the populations (null for Euler's method)
+	private static boolean dtSet = false; // was the integration step set with the dt=X option?
+	
 	/**
 	 * Method to run the simulations for population model sensitivity tests.
 	 */
@@ -60,41 +122,90 @@ public class ThreadedBatchRunner {
 
 		Parameters params = new Parameters(configFileName); // all simulations have the same general parameters
 		
-		// for threading, each injection date has 8 options (4 initial populations, for eggs and females1)
-		// each of these options is a thread
-		// these thread objects have simulators, which are reset for every new injection date
-		
-		ThreadSim[] tSims = new ThreadSim[NUM_THREADS];
-		for (int i = 0; i < NUM_THREADS; i ++) {
-			tSims[i] = new ThreadSim(temperatures.clark, params);
+		if (propagator) {
+			runPopulationPropagator(params, ignoreFruit, ignoreDiap, gtMultiplier, harvestLag, criticalT, daylightHours);
+			return;
 		}
-			
-		// run the simulations!
+		
+		// each injection date has 8 runs (4 initial populations, for eggs and females1)
+		SweepEngine engine = createEngine(temperatures.clark, params, "population", 365 * initialPops.length * 2);
+		engine.setForkInjections(forkInjections); // the runs only differ by their injection
+		engine.setLinearInjections(linearInjections);
 		for (int startDay = 0; startDay < 365; startDay ++) {
-			ExecutorService exe = Executors.newFixedThreadPool(NUM_THREADS); // can only have NUM_THREADS threads running concurrently 
-			
-			int threadNum = 0;
 			for (int iP = 0; iP < initialPops.length; iP ++) {
 				for (int s = 0; s < 2; s ++) {
 					String stage = (s == 0) ? "eggs" : "females1";
-					// reset and run the thread with the specified parameters
-					tSims[threadNum].resetParams(dt, runTime, startDay, initialPops[iP], stage,
-												gtMultiplier, harvestLag, criticalT, daylightHours);
-					tSims[threadNum].resetSimulationTitle("population", ignoreFruit, ignoreDiap);
-					exe.execute(tSims[threadNum]); // calls .run() for the thread
-					threadNum ++;
+					engine.addRun("population", ignoreFruit, ignoreDiap, dt, runTime, startDay, initialPops[iP], stage,
+									gtMultiplier, harvestLag, criticalT, daylightHours);
 				}
 			}
+			engine.markProgress("Done threading for startDay: " + startDay);
+		}
 		
-			// make sure all the threads have terminated before starting the next round of simulations
-			exe.shutdown();
-			while (!exe.isTerminated()) {}	
-			
-			System.out.println("Done threading for startDay: " + startDay);
+		runSweep(engine);
+		
+	}
+	
+	/**
+	 * Method to answer the population runs (the same as runPopulationSims) from the daily propagators of the season,
+	 * instead of simulating them: for each stage and initial population, the runs for all the injection dates are
+	 * answered in one pass.  The output goes into the sweep result file, so the output must be binary (or summary-only).
+	 * @param params - simulation parameters
+	 * @param ignoreFruit - ignore the effect of fruit quality on the flies? true or false
+	 * @param ignoreDiap - ignore the effect of diapause on the flies? true or false
+	 * @param gtMultiplier - multiplier for the gt function (fruit model)
+	 * @param harvestLag - time spent at full harvest (fruit model)
+	 * @param criticalT - critical temperature for the diapause model
+	 * @param daylightHours - cutoff point for daylight hours for the diapause model
+	 */
+	private static void runPopulationPropagator(Parameters params, boolean ignoreFruit, boolean ignoreDiap, double gtMultiplier, 
+													double harvestLag, double criticalT, double daylightHours) {
+		if (integrator != null) {
+			System.out.println("Error - the propagator only uses Euler's method, not the exponential, rk4 or tolerance options");
+			return;
 		}
+		resultFile = openResultFile("population", 365 * initialPops.length * 2);
+		if (resultFile == null) {
+			System.out.println("Error - the propagator needs the binary or summary option");
+			return;
+		}
+		long start = System.currentTimeMillis();
 		
-		System.out.println("\n\nProgram Done!!");
+		Parameters runParams = new Parameters(params);
+		runParams.setParameter("fruit gt multiplier", gtMultiplier);
+		runParams.setParameter("fruit time lag", harvestLag);
+		runParams.setParameter("diapause critical temp", criticalT);
+		runParams.setParameter("diapause daylight hours", daylightHours);
+		SWDSimulatorPropagator propagator = new SWDSimulatorPropagator(temperatures.clark, runParams.compile(), dt, runTime, 
+																		ignoreFruit, ignoreDiap, rateCache);
+		int numDays = Math.min(365, propagator.getNumDays()); // the runs are injected on the days of the run
 		
+		for (int iP = 0; iP < initialPops.length; iP ++) {
+			for (int s = 0; s < 2; s ++) {
+				String stage = (s == 0) ? "eggs" : "females1";
+				runParams.setParameter("initial " + stage, initialPops[iP]);
+				CompiledParameters compiled = runParams.compile();
+				double[] injection = new double[CompiledParameters.NUM_STAGES]; // the initial populations, as the simulator injects them
+				for (int j = 0; j < injection.length; j ++)
+					injection[j] = compiled.getInitialPopulation(j);
+				runParams.setParameter("initial " + stage, params.getParameter("initial " + stage));
+				
+				double[][][] columns = summaryOnly ? null : new double[propagator.getNumDays()][][];
+				RunSummary[] summaries = propagator.runAll(injection, ThreadSim.stepsPerDay(dt), columns); // one datapoint per day, as the runs
+				double[][] noData = new double[ThreadSim.RESULT_VARIABLES.length][0];
+				for (int startDay = 0; startDay < numDays; startDay ++) {
+					int runId = (startDay * initialPops.length + iP) * 2 + s; // the same id as in runPopulationSims
+					ThreadSim.writeResult(resultFile, runId, dt, runTime, startDay, initialPops[iP], stage, gtMultiplier, harvestLag, criticalT, 
+											daylightHours, summaryOnly ? noData : columns[startDay], summaries[startDay]);
+				}
+				System.out.println("Done propagating for " + stage + ", initial population: " + initialPops[iP]);
+			}
+		}
+		
+		closeResultFile(resultFile);
+		System.out.println(rateCache);
+		System.out.println("Time: " + (System.currentTimeMillis() - start) / 1000.0 + " s");
+		System.out.println("\n\nProgram Done!!");
 	}
 	
 	/**
@@ -112,42 +223,24 @@ public class ThreadedBatchRunner {
 		boolean ignoreFruit = false;
 		boolean ignoreDiap = true;
 
+		if (!checkModelStep("fruit"))
+			return;
 		Parameters params = new Parameters(configFileName); // all simulations have the same general parameters
 		
-		// for threading, each injection date has 8 options (4 initial populations, for eggs and females1)
-		// each of these options is a thread
-		// these thread objects have simulators, which are reset for every new injection date
-		
-		ThreadSim[] tSims = new ThreadSim[NUM_THREADS];
-		for (int i = 0; i < NUM_THREADS; i ++) {
-			tSims[i] = new ThreadSim(temperatures.clark, params);
-		}
-			
-		// run the simulations!
+		SweepEngine engine = createEngine(temperatures.clark, params, "fruit", 37 * 74); // 37 gt multipliers (1 to 10), 74 harvest lags (0 to 365)
 		for (double gtMultiplier = 1; gtMultiplier <= 10; gtMultiplier = UtilityMethods.round2Decimals(gtMultiplier + 0.25)) {
 			
 			for (int harvestLag = 0; harvestLag < 366; harvestLag += 40) {
-				ExecutorService exe = Executors.newFixedThreadPool(NUM_THREADS); // can only have NUM_THREADS threads running concurrently 
-				
-				int threadNum = 0;
 				for (int i = 0; i < 40 && harvestLag + i < 366; i += 5) {
-					// reset and run the thread with the specified parameters
-					tSims[threadNum].resetParams(dt, runTime, startDay, initPop, stage,
-												gtMultiplier, harvestLag + i, criticalT, daylightHours);
-					tSims[threadNum].resetSimulationTitle("fruit", ignoreFruit, ignoreDiap);
-					exe.execute(tSims[threadNum]); // calls .run() for the thread
-					threadNum ++;
+					engine.addRun("fruit", ignoreFruit, ignoreDiap, dt, runTime, startDay, initPop, stage,
+									gtMultiplier, harvestLag + i, criticalT, daylightHours);
 				}
-				// make sure all the threads have terminated before starting the next round of simulations
-				exe.shutdown();
-				while (!exe.isTerminated()) {}	
-				
-				System.out.println("gtMultiplier: " + gtMultiplier + "Done threading for harvestLag: " + harvestLag);
+				engine.markProgress("gtMultiplier: " + gtMultiplier + "Done threading for harvestLag: " + harvestLag);
 			}
 		
 		}
 		
-		System.out.println("\n\nProgram Done!!");
+		runSweep(engine);
 		
 	}
 	
@@ -166,47 +259,172 @@ public class ThreadedBatchRunner {
 		boolean ignoreFruit = true;
 		boolean ignoreDiap = false;
 
+		if (!checkModelStep("diapause"))
+			return;
 		Parameters params = new Parameters(configFileName); // all simulations have the same general parameters
 		
-		// for threading, each injection date has 8 options (4 initial populations, for eggs and females1)
-		// each of these options is a thread
-		// these thread objects have simulators, which are reset for every new injection date
-		
-		ThreadSim[] tSims = new ThreadSim[NUM_THREADS];
-		for (int i = 0; i < NUM_THREADS; i ++) {
-			tSims[i] = new ThreadSim(temperatures.hillsborough, params);
-		}
-			
-		// run the simulations!
+		SweepEngine engine = createEngine(temperatures.hillsborough, params, "diapause", 38 * 25); // 38 critical temperatures (0 to 37), 25 daylight hours (0 to 24)
 		for (int criticalT = 0; criticalT < 38; criticalT ++) {
 			
-			for (int daylightHours = 0; daylightHours <= 24; daylightHours += NUM_THREADS) {
-				ExecutorService exe = Executors.newFixedThreadPool(NUM_THREADS); // can only have NUM_THREADS threads running concurrently 
-				
-				int threadNum = 0;
-				for (int i = 0; i < NUM_THREADS && daylightHours + i <= 24; i ++) {
-					// reset and run the thread with the specified parameters
-					tSims[threadNum].resetParams(dt, runTime, startDay, initPop, stage,
-												gtMultiplier, harvestLag, criticalT, daylightHours + i);
-					tSims[threadNum].resetSimulationTitle("diapause", ignoreFruit, ignoreDiap);
-					exe.execute(tSims[threadNum]); // calls .run() for the thread
-					threadNum ++;
-				}
-				// make sure all the threads have terminated before starting the next round of simulations
-				exe.shutdown();
-				while (!exe.isTerminated()) {}
-				
-				System.out.println("criticalT: " + criticalT + "Done threading for daylightHours: " + daylightHours);
+			for (int daylightHours = 0; daylightHours <= 24; daylightHours ++) {
+				engine.addRun("diapause", ignoreFruit, ignoreDiap, dt, runTime, startDay, initPop, stage,
+								gtMultiplier, harvestLag, criticalT, daylightHours);
 			}
+			engine.markProgress("Done threading for criticalT: " + criticalT);
 		
 		}
 		
-		System.out.println("\n\nProgram Done!!");
+		runSweep(engine);
+		
+	}
+	
+	/**
+	 * Method to check that the integration step of a fruit or diapause batch suits its model: the fruit quality and
+	 * the diapause switches are stepped once per integration step, whatever the integrator, so with the longer steps
+	 * of the integrator options they would silently become a coarser model (daily, for exponential and tolerance=X),
+	 * which the integrator's accuracy doesn't make up for.  So these batches keep dt = MODEL_DT with the rk4 and
+	 * tolerance=X options (the integrator still solves the populations within each step), and refuse the
+	 * exponential option, or a longer step set with dt=X.
+	 * @param type - the type of simulation (fruit or diapause)
+	 * @return can the batch be run? true or false
+	 */
+	private static boolean checkModelStep(String type) {
+		if (integrator == null || dt <= MODEL_DT)
+			return true;
+		if (integrator instanceof ExponentialIntegrator || dtSet) {
+			System.out.println("Error - the " + type + " model is stepped once per integration step, so it needs dt=" + MODEL_DT 
+								+ " or less with the exponential, rk4 and tolerance options (not " + dt + ")");
+			return false;
+		}
+		dt = MODEL_DT;
+		System.out.println("The " + type + " sims are run with dt = " + dt + " (the step of the " + type + " model)");
+		return true;
+	}
+	
+	/**
+	 * Method to create the sweep engine for a batch (with its sweep result file, if the output is binary
+	 * or summary-only).
+	 * @param temps - temperatures per day
+	 * @param params - simulation parameters
+	 * @param type - the type of simulation being run (used for the filename)
+	 * @param numRuns - the number of simulations in the batch
+	 * @return the engine
+	 */
+	private static SweepEngine createEngine(ArrayList<Double> temps, Parameters params, String type, int numRuns) {
+		SweepEngine engine = new SweepEngine(temps, params, rateCache, numThreads);
+		resultFile = openResultFile(type, numRuns);
+		engine.setResultWriter(resultFile);
+		engine.setSummaryOnly(summaryOnly && resultFile != null); // otherwise the runs write text files as usual
+		engine.setIntegrator(integrator);
+		return engine;
+	}
+	
+	/**
+	 * Method to run all the simulations of a batch, then close its sweep result file and print the cache statistics.
+	 * @param engine - the sweep engine, with all the runs added
+	 */
+	private static void runSweep(SweepEngine engine) {
+		System.out.println("Running on " + numThreads + " threads");
+		long start = System.currentTimeMillis();
+		engine.runAll();
+		engine.shutdown();
 		
+		closeResultFile(resultFile);
+		System.out.println(rateCache);
+		System.out.println(engine.getFruitQualityCache());
+		System.out.println(engine.getDiapauseCache());
+		if (integrator != null)
+			System.out.println(integrator);
+		System.out.println("Time: " + (System.currentTimeMillis() - start) / 1000.0 + " s");
+		System.out.println("\n\nProgram Done!!");
+	}
+	
+	
+	/**
+	 * Method to create the sweep result file for a batch, if the output is binary (or summary-only).
+	 * @param type - the type of simulation being run (used for the filename)
+	 * @param numRuns - the number of simulations in the batch
+	 * @return the sweep result file (null if the output is text files, or the file could not be created)
+	 */
+	private static SweepResultWriter openResultFile(String type, int numRuns) {
+		if (!binaryOutput && !summaryOnly)
+			return null;
+		File file = new File("DATA/" + type + (summaryOnly ? "_summary.swd" : "_sweep.swd"));
+		try {
+			if (summaryOnly)
+				return ThreadSim.createSummaryWriter(file, numRuns);
+			return ThreadSim.createResultWriter(file, numRuns, runTime, dt);
+		} catch (IOException error) {
+			System.out.println("Error - could not create " + file + " (" + error.getMessage() + "), writing text files instead");
+			return null;
+		}
+	}
+	
+	/**
+	 * Method to close the sweep result file for a batch.
+	 * @param resultFile - the sweep result file (nothing is done if it is null)
+	 */
+	private static void closeResultFile(SweepResultWriter resultFile) {
+		if (resultFile == null)
+			return;
+		try {
+			resultFile.close();
+		} catch (IOException error) {
+			System.out.println("Error - could not close the sweep result file (" + error.getMessage() + ")");
+		}
 	}
 	
+	/**
+	 * Method to register the metrics of the simulations (SimulationMetrics) with the platform MBean server, for JMX 
+	 * clients (e.g. jconsole); the runs go on without them if they can't be registered.
+	 */
+	private static void registerMetrics() {
+		try {
+			ObjectName name = new ObjectName(SimulationMetrics.OBJECT_NAME);
+			if (!ManagementFactory.getPlatformMBeanServer().isRegistered(name))
+				ManagementFactory.getPlatformMBeanServer().registerMBean(SimulationMetrics.get(), name);
+		} catch (JMException error) {
+			System.out.println("Error - could not register the simulation metrics: " + error.getMessage());
+		}
+	}
 	
 	public static void main(String[] args) {
+		double explicitDT = 0; // set with the dt=X option (0 if not set)
+		for (int i = 1; i < args.length; i ++) { // options
+			if (args[i].equals("binary"))
+				binaryOutput = true;
+			else if (args[i].equals("summary"))
+				summaryOnly = true;
+			else if (args[i].equals("linear"))
+				linearInjections = true;
+			else if (args[i].equals("exponential")) {
+				integrator = new ExponentialIntegrator();
+				dt = 1; // one step per day
+			}
+			else if (args[i].equals("rk4")) {
+				integrator = new RK4Integrator();
+				dt = 0.25; // four steps per day
+			}
+			else if (args[i].startsWith("tolerance=")) {
+				integrator = new AdaptiveIntegrator(Double.parseDouble(args[i].substring("tolerance=".length())));
+				dt = 1; // one step per day, with the sub-steps chosen by the integrator
+			}
+			else if (args[i].startsWith("dt=")) {
+				explicitDT = Double.parseDouble(args[i].substring("dt=".length()));
+				dtSet = explicitDT > 0;
+			}
+			else if (args[i].equals("propagator"))
+				propagator = true;
+			else if (args[i].equals("nofork"))
+				forkInjections = false;
+			else if (args[i].startsWith("threads="))
+				numThreads = Integer.parseInt(args[i].substring("threads=".length()));
+			else
+				System.out.println(args[i] + " - not a valid option!");
+		}
+		if (explicitDT > 0)
+			dt = explicitDT;
+		registerMetrics();
 		if (args.length > 0) {
 			if (args[0].equals("fruit"))
 				runFruitSims();
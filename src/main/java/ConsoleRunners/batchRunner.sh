@@ -15,11 +15,11 @@ for val in $popVals; do
 	while (( $stage < 3 )); do
 		addDate=0
 		while (( $addDate < 365 )); do
-			java -cp .:jcommon-1.0.18.jar:jfreechart-1.0.14.jar Runner $val $stage $addDate
+			echo "$val $stage $addDate" # one job of the Runner daemon
 			#echo "$val : $stage : $addDate"
 			(( addDate = $addDate + 1 ))
 		done
 		(( stage = $stage + 1 ))
 	done
-done
+done | java -cp .:jcommon-1.0.18.jar:jfreechart-1.0.14.jar Runner daemon
 	
@@ -0,0 +1,307 @@
+package SWDModelBaseObjects;
+
+import java.util.Arrays;
+
+/**
+ * This class is an immutable, index-addressed snapshot of a Parameters object, for use
+ * in the integration loop.  Looking parameters up by name in the Parameters map means
+ * building and hashing String keys on every timestep; instead, a Parameters object is
+ * compiled once per run and the simulator reads the values from primitive arrays.
+ * Stage-specific values are indexed by lifestage in the same order as Parameters.getStage
+ * (0-eggs, 1-instar1, 2-instar2, 3-instar3, 4-pupae, 5-males, 6 to 12-females1 to females7).
+ * Development maxes follow the layout of Parameters.getArrayParameters("development max")
+ * (0 to 4-juvenile stages, 5 to 10-females1 to females6), and egg viabilities are indexed
+ * by female stage (0 to 6).
+ * Note: the arrays are never exposed, so the snapshot cannot be changed once it is built;
+ * if the Parameters change, a new snapshot must be compiled.
+ */
+public final class CompiledParameters {
+
+	public static final int NUM_STAGES = 13; // all the lifestages (there are 7 females)
+	public static final int NUM_DEV_STAGES = 11; // lifestages with a development rate (not males or females7)
+	public static final int NUM_FEMALE_STAGES = 7; // female lifestages
+
+	// stage-specific mortality parameters
+	private final double[] mortMax = new double[NUM_STAGES];
+	private final double[] mortMinTemp = new double[NUM_STAGES];
+	private final double[] mortMaxTemp = new double[NUM_STAGES];
+	private final double[] mortTau = new double[NUM_STAGES];
+	private final double[][] mortBetas = new double[NUM_STAGES][4];
+	private final double[] mortPredation = new double[NUM_STAGES];
+
+	private final double[] initialPops = new double[NUM_STAGES]; // initial populations per stage
+	private final double[] devMax = new double[NUM_DEV_STAGES]; // development maxes
+	private final double[] eggViabilities = new double[NUM_FEMALE_STAGES]; // egg viabilities per female stage
+
+	// fruit parameters
+	private final double fruitN, fruitM, fruitTimeLag, fruitBaseTemp, fruitGtMultiplier, fruitHarvestCutoff, fruitHarvestDrop;
+
+	// diapause parameters
+	private final double diapauseCriticalTemp, diapauseDaylightHours;
+
+	// general parameters
+	private final double maleProportion, latitude, fertilityTmax;
+	
+	// every parameter the temperature-dependent rates (TemperatureRates) are computed from, and a hash of them
+	private final double[] rateParams;
+	private final long rateFingerprint;
+
+	/**
+	 * Constructor to compile the snapshot from a Parameters object.  All the values are read
+	 * from the map once, here.
+	 * Note: use Parameters.compile() rather than calling this directly.
+	 * @param params - the parameters to compile
+	 */
+	CompiledParameters(Parameters params) {
+		for (int i = 0; i < NUM_STAGES; i ++) {
+			String stage = params.getStage(i); // current stage
+
+			mortMax[i] = params.getParameter(stage + " mortality max");
+			mortMinTemp[i] = params.getParameter(stage + " mortality min temp");
+			mortMaxTemp[i] = params.getParameter(stage + " mortality max temp");
+			mortTau[i] = params.getParameter(stage + " mortality tau");
+			mortBetas[i] = params.getMortBetas(stage);
+			mortPredation[i] = params.getParameter(stage + " mortality due to predation");
+
+			initialPops[i] = params.getParameter("initial " + stage);
+		}
+
+		double[] devMaxes = params.getArrayParameters("development max");
+		for (int i = 0; i < NUM_DEV_STAGES; i ++)
+			devMax[i] = devMaxes[i];
+
+		double[] viabilities = params.getArrayParameters("egg viability");
+		for (int i = 0; i < NUM_FEMALE_STAGES; i ++)
+			eggViabilities[i] = viabilities[i];
+
+		fruitN = params.getParameter("fruit n");
+		fruitM = params.getParameter("fruit m");
+		fruitTimeLag = params.getParameter("fruit time lag");
+		fruitBaseTemp = params.getParameter("fruit base temp");
+		fruitGtMultiplier = params.getParameter("fruit gt multiplier");
+		fruitHarvestCutoff = params.getParameter("fruit harvest cutoff");
+		fruitHarvestDrop = params.getParameter("fruit harvest drop");
+
+		diapauseCriticalTemp = params.getParameter("diapause critical temp");
+		diapauseDaylightHours = params.getParameter("diapause daylight hours");
+
+		maleProportion = params.getParameter("male proportion");
+		latitude = params.getParameter("latitude");
+		fertilityTmax = params.getParameter("fertility tmax");
+		
+		// mortality curve (5 + 4 betas per stage), development maxes, and the max temperature for reproduction
+		rateParams = new double[NUM_STAGES * 8 + NUM_DEV_STAGES + 1];
+		int k = 0;
+		for (int i = 0; i < NUM_STAGES; i ++) {
+			rateParams[k ++] = mortMax[i];
+			rateParams[k ++] = mortMinTemp[i];
+			rateParams[k ++] = mortMaxTemp[i];
+			rateParams[k ++] = mortTau[i];
+			for (int j = 0; j < 4; j ++)
+				rateParams[k ++] = mortBetas[i][j];
+		}
+		for (int i = 0; i < NUM_DEV_STAGES; i ++)
+			rateParams[k ++] = devMax[i];
+		rateParams[k] = fertilityTmax;
+		
+		long hash = 1125899906842597L; // 64-bit polynomial hash over the exact bits of the values
+		for (int i = 0; i < rateParams.length; i ++)
+			hash = 31 * hash + Double.doubleToLongBits(rateParams[i]);
+		rateFingerprint = hash;
+	}
+
+	// -----------------------------------------------------------------------------------------MORTALITY
+
+	/**
+	 * Method to return the maximum mortality rate for a lifestage
+	 * @param stage - the index of the stage
+	 * @return the maximum mortality rate
+	 */
+	public double getMortalityMax(int stage) { return mortMax[stage]; }
+
+	/**
+	 * Method to return the minimum temperature for a lifestage
+	 * @param stage - the index of the stage
+	 * @return the minimum temperature (below this, max mortality is reached)
+	 */
+	public double getMortalityMinTemp(int stage) { return mortMinTemp[stage]; }
+
+	/**
+	 * Method to return the maximum temperature for a lifestage
+	 * @param stage - the index of the stage
+	 * @return the maximum temperature (above this, max mortality is reached)
+	 */
+	public double getMortalityMaxTemp(int stage) { return mortMaxTemp[stage]; }
+
+	/**
+	 * Method to return the mortality tau for a lifestage
+	 * @param stage - the index of the stage
+	 * @return the mortality tau
+	 */
+	public double getMortalityTau(int stage) { return mortTau[stage]; }
+
+	/**
+	 * Method to return one of the mortality betas for a lifestage
+	 * @param stage - the index of the stage
+	 * @param beta - which beta (0, 1, 2 or 3)
+	 * @return the specified mortality beta
+	 */
+	public double getMortalityBeta(int stage, int beta) { return mortBetas[stage][beta]; }
+
+	/**
+	 * Method to return the mortality rate due to predation for a lifestage
+	 * @param stage - the index of the stage
+	 * @return the mortality rate due to predation
+	 */
+	public double getMortalityPredation(int stage) { return mortPredation[stage]; }
+
+	// -----------------------------------------------------------------------------------------STAGE PARAMETERS
+
+	/**
+	 * Method to return the initial population for a lifestage
+	 * @param stage - the index of the stage
+	 * @return the initial population
+	 */
+	public double getInitialPopulation(int stage) { return initialPops[stage]; }
+
+	/**
+	 * Method to return the development max for a lifestage with a development rate
+	 * @param devStage - the index of the stage, as in getArrayParameters("development max")
+	 * @return the development max
+	 */
+	public double getDevelopmentMax(int devStage) { return devMax[devStage]; }
+
+	/**
+	 * Method to return the egg viability for a female lifestage
+	 * @param femaleStage - the index of the female stage (0 for females1)
+	 * @return the egg viability
+	 */
+	public double getEggViability(int femaleStage) { return eggViabilities[femaleStage]; }
+
+	// -----------------------------------------------------------------------------------------FRUIT
+
+	/**
+	 * Method to return the n parameter for the effect of fruit quality on the flies
+	 * @return the n parameter for the effect of fruit quality on the flies
+	 */
+	public double getFruitN() { return fruitN; }
+
+	/**
+	 * Method to return the m parameter for the effect of fruit quality on the flies
+	 * @return the m parameter for the effect of fruit quality on the flies
+	 */
+	public double getFruitM() { return fruitM; }
+
+	/**
+	 * Method to return the number of timesteps above the cutoff before the fruit quality begins to decrease
+	 * @return the number of timesteps above the cutoff before the fruit quality begins to decrease
+	 */
+	public double getFruitTimeLag() { return fruitTimeLag; }
+
+	/**
+	 * Method to return the minimum temperature for the fruit
+	 * @return the minimum temperature for the fruit
+	 */
+	public double getFruitBaseTemp() { return fruitBaseTemp; }
+
+	/**
+	 * Method to return the multiplier for the g(T) result
+	 * @return the multiplier for the g(T) result
+	 */
+	public double getFruitGtMultiplier() { return fruitGtMultiplier; }
+
+	/**
+	 * Method to return the fruit quality cutoff
+	 * @return the fruit quality cutoff
+	 */
+	public double getFruitHarvestCutoff() { return fruitHarvestCutoff; }
+
+	/**
+	 * Method to return the fruit quality drop per timestep after passing the cutoff
+	 * @return the fruit quality drop per timestep after passing the cutoff
+	 */
+	public double getFruitHarvestDrop() { return fruitHarvestDrop; }
+
+	// -----------------------------------------------------------------------------------------DIAPAUSE
+
+	/**
+	 * Method to return the critical temperature for the diapause model
+	 * @return the critical temperature for the diapause model
+	 */
+	public double getDiapauseCriticalTemp() { return diapauseCriticalTemp; }
+
+	/**
+	 * Method to return the daylight hours cutoff for the diapause model
+	 * @return the daylight hours cutoff for the diapause model
+	 */
+	public double getDiapauseDaylightHours() { return diapauseDaylightHours; }
+
+	// -----------------------------------------------------------------------------------------GENERAL
+
+	/**
+	 * Method to return the proportion of adult flies which are male
+	 * @return the proportion of adult flies which are male
+	 */
+	public double getMaleProportion() { return maleProportion; }
+
+	/**
+	 * Method to return the latitude of the cell
+	 * @return the latitude of the cell
+	 */
+	public double getLatitude() { return latitude; }
+
+	/**
+	 * Method to return the maximum temperature for reproduction
+	 * @return the maximum temperature for reproduction
+	 */
+	public double getFertilityTmax() { return fertilityTmax; }
+	
+	// -----------------------------------------------------------------------------------------RATE CACHE
+	
+	/**
+	 * Method to return a hash of every parameter the temperature-dependent rates depend on
+	 * (mortality curves, development maxes and the maximum temperature for reproduction).
+	 * Two snapshots with the same rate parameters have the same fingerprint, whatever their 
+	 * fruit, diapause or initial population parameters are.
+	 * @return the fingerprint of the rate parameters
+	 */
+	public long getRateFingerprint() { return rateFingerprint; }
+	
+	/**
+	 * Method to check if this snapshot has exactly the same rate parameters as another one 
+	 * (i.e. if they produce the same TemperatureRates at every temperature).
+	 * @param other - the snapshot to compare with
+	 * @return are the rate parameters identical? true or false
+	 */
+	public boolean sameRateParameters(CompiledParameters other) {
+		return rateFingerprint == other.rateFingerprint && Arrays.equals(rateParams, other.rateParams);
+	}
+
+	// -----------------------------------------------------------------------------------------FRUIT TRAJECTORY
+
+	/**
+	 * Method to check if this snapshot has exactly the same fruit quality parameters as another one
+	 * (base temperature, gt multiplier, time lag, harvest cutoff and drop), i.e. if they produce the same
+	 * fruit quality for the same temperatures (see FruitQualityTrajectory).  The effect of the fruit on the
+	 * flies (fruit n and m) is not compared.
+	 * @param other - the snapshot to compare with
+	 * @return are the fruit quality parameters identical? true or false
+	 */
+	public boolean sameFruitQualityParameters(CompiledParameters other) {
+		return fruitBaseTemp == other.fruitBaseTemp && fruitGtMultiplier == other.fruitGtMultiplier && fruitTimeLag == other.fruitTimeLag
+				&& fruitHarvestCutoff == other.fruitHarvestCutoff && fruitHarvestDrop == other.fruitHarvestDrop;
+	}
+
+	/**
+	 * Method to check if this snapshot has exactly the same diapause parameters as another one (critical
+	 * temperature, daylight hours cutoff and latitude), i.e. if they produce the same diapause switches
+	 * for the same temperatures (see DiapauseTrajectory).
+	 * @param other - the snapshot to compare with
+	 * @return are the diapause parameters identical? true or false
+	 */
+	public boolean sameDiapauseParameters(CompiledParameters other) {
+		return diapauseCriticalTemp == other.diapauseCriticalTemp && diapauseDaylightHours == other.diapauseDaylightHours
+				&& latitude == other.latitude;
+	}
+
+}
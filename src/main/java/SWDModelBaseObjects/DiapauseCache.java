@@ -0,0 +1,44 @@
+package SWDModelBaseObjects;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * This class is a small, thread-safe cache of DiapauseTrajectory (see TrajectoryCache), keyed by the
+ * temperatures, the diapause parameters (critical temperature, daylight hours cutoff and latitude), dt and
+ * the run time.  All the runs of a sweep that only differ by their injection, or by their fruit parameters,
+ * have the same diapause switches: with one cache shared by their simulators, they are only computed once.
+ */
+public class DiapauseCache extends TrajectoryCache<DiapauseTrajectory> {
+
+	/**
+	 * Default no-argument constructor, with at most DEFAULT_MAX_ENTRIES trajectories.
+	 */
+	public DiapauseCache() {
+		this(DEFAULT_MAX_ENTRIES);
+	}
+
+	/**
+	 * Constructor to specify the size of the cache.
+	 * @param maxEntries - maximum number of trajectories kept
+	 * @throws IllegalArgumentException if the size is not positive
+	 */
+	public DiapauseCache(int maxEntries) {
+		super(maxEntries);
+	}
+
+	@Override
+	protected DiapauseTrajectory compute(ArrayList<Double> temperatures, CompiledParameters params, double dt, double runTime) {
+		return new DiapauseTrajectory(temperatures, params, dt, runTime);
+	}
+
+	@Override
+	protected boolean sameParameters(CompiledParameters a, CompiledParameters b) {
+		return a.sameDiapauseParameters(b);
+	}
+
+	@Override
+	protected int parameterHash(CompiledParameters params) {
+		return Arrays.hashCode(new double[] {params.getDiapauseCriticalTemp(), params.getDiapauseDaylightHours(), params.getLatitude()});
+	}
+}
@@ -0,0 +1,149 @@
+package SWDModelBaseObjects;
+
+import java.util.ArrayList;
+
+import SWDModelReferenceClasses.PhotoperiodTable;
+import SWDModelReferenceClasses.SolveParameters;
+
+/**
+ * This class holds the diapause switches (s1 and s2) of a whole simulation, computed once in advance.
+ * They only depend on the temperatures, the daylight hours (latitude) and the diapause parameters (critical
+ * temperature and daylight hours cutoff), not on the flies, so all the simulations of a sweep with the same
+ * values have exactly the same switches at every timestep: instead of solving them again in every simulation,
+ * the populations read them from a shared trajectory (see SWDPopulation.setDiapauseTrajectory and DiapauseCache).
+ * The trajectory is computed as SWDPopulation.computePopulation does (when diapause isn't ignored), one
+ * integration step at a time from timestep 0 (with the temperature of each day, as the runners do), starting
+ * from a population that was just reset.  The day diapause is crossed is the timestep of the first step with
+ * s1 = 1.
+ * It is never changed once computed, so it can be shared by any number of populations (and threads).
+ * Each step also keeps its time and temperature, so that a population only reads the steps it would have
+ * computed exactly the same way.
+ */
+public class DiapauseTrajectory {
+
+	private final CompiledParameters params; // the parameters the trajectory was computed with (only the diapause ones matter)
+	private final double dt;
+
+	// for every integration step
+	private final double[] times; // timestep
+	private final double[] temperatures; // temperature used
+	private final byte[] s1, s2; // diapause switches after the step
+	private final double[] fertilityDiapauseEffect; // diapause multiplier for fecundity (s1 times the photoperiod effect)
+	private final int crossedStep; // first step with s1 = 1 (-1 if never)
+
+	/**
+	 * Constructor to compute the trajectory.
+	 * @param temperatures - temperatures per day (reused from the beginning if the run is longer)
+	 * @param params - compiled parameters for the simulation
+	 * @param dt - step for numeric integration (Euler's method)
+	 * @param runTime - time to compute the trajectory for (from timestep 0)
+	 * @throws IllegalArgumentException if there is no temperature data, dt is not positive or the run time is negative
+	 */
+	public DiapauseTrajectory(ArrayList<Double> temperatures, CompiledParameters params, double dt, double runTime) {
+		if (temperatures.size() == 0)
+			throw new IllegalArgumentException("No temperature data!");
+		if (dt <= 0 || runTime < 0)
+			throw new IllegalArgumentException("Invalid dt or run time!");
+		this.params = params;
+		this.dt = dt;
+
+		int numSteps = 0;
+		for (double t = 0; t < runTime; t += dt) // the same time loop as the runners
+			numSteps ++;
+		times = new double[numSteps];
+		this.temperatures = new double[numSteps];
+		s1 = new byte[numSteps];
+		s2 = new byte[numSteps];
+		fertilityDiapauseEffect = new double[numSteps];
+
+		int currentS1 = 0, currentS2 = 0; // not in diapause at timestep 0
+		int crossed = -1;
+		PhotoperiodTable photoperiod = null;
+		double timeStep = 0;
+		for (int k = 0; k < numSteps; k ++) {
+			double temperature = temperatures.get(((int) timeStep) % temperatures.size());
+
+			// same as SWDPopulation.computePopulation
+			int year = ((int) timeStep) / 365;
+			int date = ((int) timeStep) % 365;
+			if (photoperiod == null || !photoperiod.matches(params.getLatitude(), year))
+				photoperiod = PhotoperiodTable.get(params.getLatitude(), year);
+			double hours = photoperiod.getDayLightHours(date);
+			int tempS1 = SolveParameters.solveDiapauseMultS1(hours, temperature, currentS1, currentS2, params.getDiapauseCriticalTemp(),
+																params.getDiapauseDaylightHours());
+			currentS2 = SolveParameters.solveDiapauseMultS2(hours, currentS1, currentS2, params.getDiapauseDaylightHours());
+			currentS1 = tempS1;
+
+			times[k] = timeStep;
+			this.temperatures[k] = temperature;
+			s1[k] = (byte) currentS1;
+			s2[k] = (byte) currentS2;
+			fertilityDiapauseEffect[k] = currentS1 * photoperiod.getFertilityDiapauseEffect(date);
+			if (currentS1 != 0 && crossed == -1)
+				crossed = k;
+			timeStep += dt;
+		}
+		crossedStep = crossed;
+	}
+
+	/**
+	 * Method to return the number of integration steps in the trajectory
+	 * @return the number of steps
+	 */
+	public int getNumSteps() { return s1.length; }
+
+	/**
+	 * Method to return the integration step the trajectory was computed with
+	 * @return dt
+	 */
+	public double getDT() { return dt; }
+
+	/**
+	 * Method to check if the trajectory was computed with the same diapause parameters as a snapshot
+	 * (see CompiledParameters.sameDiapauseParameters).
+	 * @param params - the compiled parameters to check
+	 * @return can the trajectory be used with these parameters? true or false
+	 */
+	public boolean appliesTo(CompiledParameters params) {
+		return this.params == params || this.params.sameDiapauseParameters(params);
+	}
+
+	/**
+	 * Method to check if a step of the trajectory is the one a population is about to compute: the trajectory
+	 * must have that step, for the same timestep and temperature.
+	 * @param step - the number of the step (from timestep 0)
+	 * @param timeStep - the timestep of the population
+	 * @param temperature - the temperature during the step
+	 * @return does the step match? true or false
+	 */
+	public boolean matches(int step, double timeStep, double temperature) {
+		return step < s1.length && times[step] == timeStep && temperatures[step] == temperature;
+	}
+
+	/**
+	 * Method to return the value of s1 (the diapause multiplier) after a step
+	 * @param step - the number of the step (from timestep 0)
+	 * @return s1 (0 or 1)
+	 */
+	public int getS1(int step) { return s1[step]; }
+
+	/**
+	 * Method to return the value of s2 after a step
+	 * @param step - the number of the step (from timestep 0)
+	 * @return s2 (0 or 1)
+	 */
+	public int getS2(int step) { return s2[step]; }
+
+	/**
+	 * Method to return the diapause multiplier for fecundity during a step
+	 * @param step - the number of the step (from timestep 0)
+	 * @return the diapause multiplier for fecundity
+	 */
+	public double getFertilityDiapauseEffect(int step) { return fertilityDiapauseEffect[step]; }
+
+	/**
+	 * Method to return the day diapause is crossed (the timestep s1 first becomes 1, as an int)
+	 * @return the day diapause is crossed (-1 if it is never crossed during the trajectory)
+	 */
+	public int getCrossedDiapDay() { return (crossedStep == -1) ? -1 : (int) times[crossedStep]; }
+}
@@ -0,0 +1,45 @@
+package SWDModelBaseObjects;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * This class is a small, thread-safe cache of FruitQualityTrajectory (see TrajectoryCache), keyed by the
+ * temperatures, the fruit quality parameters, dt and the run time.  All the runs of a sweep that only differ
+ * by their injection, or by their diapause parameters, have the same fruit quality: with one cache shared by
+ * their simulators, it is only computed once.
+ */
+public class FruitQualityCache extends TrajectoryCache<FruitQualityTrajectory> {
+
+	/**
+	 * Default no-argument constructor, with at most DEFAULT_MAX_ENTRIES trajectories.
+	 */
+	public FruitQualityCache() {
+		this(DEFAULT_MAX_ENTRIES);
+	}
+
+	/**
+	 * Constructor to specify the size of the cache.
+	 * @param maxEntries - maximum number of trajectories kept
+	 * @throws IllegalArgumentException if the size is not positive
+	 */
+	public FruitQualityCache(int maxEntries) {
+		super(maxEntries);
+	}
+
+	@Override
+	protected FruitQualityTrajectory compute(ArrayList<Double> temperatures, CompiledParameters params, double dt, double runTime) {
+		return new FruitQualityTrajectory(temperatures, params, dt, runTime);
+	}
+
+	@Override
+	protected boolean sameParameters(CompiledParameters a, CompiledParameters b) {
+		return a.sameFruitQualityParameters(b);
+	}
+
+	@Override
+	protected int parameterHash(CompiledParameters params) {
+		return Arrays.hashCode(new double[] {params.getFruitBaseTemp(), params.getFruitGtMultiplier(), params.getFruitTimeLag(),
+												params.getFruitHarvestCutoff(), params.getFruitHarvestDrop()});
+	}
+}
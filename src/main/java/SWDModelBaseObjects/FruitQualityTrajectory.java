@@ -0,0 +1,148 @@
+package SWDModelBaseObjects;
+
+import java.util.ArrayList;
+
+import SWDModelReferenceClasses.EulersMethod;
+import SWDModelReferenceClasses.SolveParameters;
+import SWDModelReferenceClasses.UtilityMethods;
+
+/**
+ * This class holds the fruit quality of a whole simulation, computed once in advance.
+ * The fruit quality only depends on the temperatures and the fruit parameters (not on the flies), so all
+ * the simulations of a sweep with the same temperatures, fruit parameters and dt have exactly the same fruit
+ * quality at every timestep: instead of integrating it again in every simulation, the cells read it from
+ * a shared trajectory (see SWDCellSingle.setFruitTrajectory and FruitQualityCache).
+ * The trajectory is computed as SWDCellSingle.stepFoward does, one integration step at a time from timestep 0
+ * (with the temperature of each day, as the runners do), starting from the state of a cell that was just reset.
+ * It is never changed once computed, so it can be shared by any number of cells (and threads).
+ * Each step also keeps its time and temperature, so that a cell only reads the steps it would have computed
+ * exactly the same way.
+ */
+public class FruitQualityTrajectory {
+
+	private final CompiledParameters params; // the parameters the trajectory was computed with (only the fruit quality ones matter)
+	private final double dt;
+
+	// for every integration step
+	private final double[] times; // timestep
+	private final double[] temperatures; // temperature used
+	private final double[] qualities; // fruit quality after the step
+	private final boolean[] killAllFruit; // had the fruit quality passed the cutoff (during the current year)?
+	private final boolean[] atMax; // is the fruit quality at its maximum (1, rounded to 2 decimals)?
+
+	/**
+	 * Constructor to compute the trajectory.
+	 * @param temperatures - temperatures per day (reused from the beginning if the run is longer)
+	 * @param params - compiled parameters for the simulation
+	 * @param dt - step for numeric integration (Euler's method)
+	 * @param runTime - time to compute the trajectory for (from timestep 0)
+	 * @throws IllegalArgumentException if there is no temperature data, dt is not positive or the run time is negative
+	 */
+	public FruitQualityTrajectory(ArrayList<Double> temperatures, CompiledParameters params, double dt, double runTime) {
+		if (temperatures.size() == 0)
+			throw new IllegalArgumentException("No temperature data!");
+		if (dt <= 0 || runTime < 0)
+			throw new IllegalArgumentException("Invalid dt or run time!");
+		this.params = params;
+		this.dt = dt;
+
+		int numSteps = 0;
+		for (double t = 0; t < runTime; t += dt) // the same time loop as the runners
+			numSteps ++;
+		times = new double[numSteps];
+		this.temperatures = new double[numSteps];
+		qualities = new double[numSteps];
+		killAllFruit = new boolean[numSteps];
+		atMax = new boolean[numSteps];
+
+		// state of a cell that was just reset
+		double[] fruitQualities = new double[365];
+		fruitQualities[0] = 0.05;
+		double currentFruitQ = 0.05;
+		boolean kill = false;
+
+		double timeStep = 0;
+		for (int k = 0; k < numSteps; k ++) {
+			double temperature = temperatures.get(((int) timeStep) % temperatures.size());
+
+			// same as SWDCellSingle.stepFruitQuality
+			double gt = SolveParameters.getGT(params.getFruitBaseTemp(), temperature);
+			int index = ((int) timeStep) % 365;
+			double fruitQLag = 0.05;
+			if (index - params.getFruitTimeLag() > 0) {
+				fruitQLag = fruitQualities[(int) (index - params.getFruitTimeLag())];
+				if (fruitQLag > params.getFruitHarvestCutoff())
+					kill = true;
+			} else
+				kill = false;
+			if (index == 0)
+				currentFruitQ = 0.05;
+			if (kill)
+				fruitQLag = 1;
+			currentFruitQ = EulersMethod.getFruitQuality(gt, currentFruitQ, fruitQLag, dt, params);
+			fruitQualities[index] = currentFruitQ;
+
+			times[k] = timeStep;
+			this.temperatures[k] = temperature;
+			qualities[k] = currentFruitQ;
+			killAllFruit[k] = kill;
+			atMax[k] = (UtilityMethods.round2Decimals(currentFruitQ) == 1);
+			timeStep += dt;
+		}
+	}
+
+	/**
+	 * Method to return the number of integration steps in the trajectory
+	 * @return the number of steps
+	 */
+	public int getNumSteps() { return qualities.length; }
+
+	/**
+	 * Method to return the integration step the trajectory was computed with
+	 * @return dt
+	 */
+	public double getDT() { return dt; }
+
+	/**
+	 * Method to check if the trajectory was computed with the same fruit quality parameters as a snapshot
+	 * (see CompiledParameters.sameFruitQualityParameters).
+	 * @param params - the compiled parameters to check
+	 * @return can the trajectory be used with these parameters? true or false
+	 */
+	public boolean appliesTo(CompiledParameters params) {
+		return this.params == params || this.params.sameFruitQualityParameters(params);
+	}
+
+	/**
+	 * Method to check if a step of the trajectory is the one a cell is about to compute: the trajectory
+	 * must have that step, for the same timestep and temperature.
+	 * @param step - the number of the step (from timestep 0)
+	 * @param timeStep - the timestep of the cell
+	 * @param temperature - the temperature of the cell during the step
+	 * @return does the step match? true or false
+	 */
+	public boolean matches(int step, double timeStep, double temperature) {
+		return step < qualities.length && times[step] == timeStep && temperatures[step] == temperature;
+	}
+
+	/**
+	 * Method to return the fruit quality after a step
+	 * @param step - the number of the step (from timestep 0)
+	 * @return the fruit quality
+	 */
+	public double getFruitQuality(int step) { return qualities[step]; }
+
+	/**
+	 * Method to check if the fruit quality had passed the cutoff (during the current year) at a step
+	 * @param step - the number of the step (from timestep 0)
+	 * @return has the fruit quality passed the cutoff? true or false
+	 */
+	public boolean isKillAllFruit(int step) { return killAllFruit[step]; }
+
+	/**
+	 * Method to check if the fruit quality is at its maximum after a step (i.e. 1, rounded to 2 decimals)
+	 * @param step - the number of the step (from timestep 0)
+	 * @return is the fruit quality at its maximum? true or false
+	 */
+	public boolean isAtMax(int step) { return atMax[step]; }
+}
@@ -0,0 +1,81 @@
+package SWDModelBaseObjects;
+
+/**
+ * This class is a small table of the TemperatureRates a cell has used, by temperature, for one set of rate
+ * parameters.  It sits in front of the RateCache (or of computing the rates): a season only has a few hundred
+ * different daily temperatures, so once each of them has been seen, reading the rates of a day takes no lock and
+ * allocates nothing (the RateCache allocates a key per lookup).
+ * It is reset when the rate parameters change (parameters that only differ in their fruit, diapause or
+ * injection values keep it, as in the RateCache), and when it is full.
+ * It is open-addressed, with linear probing on the bits of the temperature.
+ * Note: this class is not thread-safe; each cell has its own table.
+ */
+final class LocalRateTable {
+
+	private static final int CAPACITY = 2048; // slots (a power of 2)
+	private static final int MAX_ENTRIES = CAPACITY / 2; // the table is reset when it is half full
+
+	private final long[] temperatureBits = new long[CAPACITY];
+	private final TemperatureRates[] rates = new TemperatureRates[CAPACITY]; // null for empty slots
+	private int size = 0;
+	private CompiledParameters params; // parameters of the rates in the table (null if it is empty)
+
+	/**
+	 * Method to return the rates at a temperature, if they are in the table
+	 * @param temperature - the temperature
+	 * @param params - compiled parameters for the simulation
+	 * @return the rates (null if they are not in the table)
+	 */
+	TemperatureRates get(double temperature, CompiledParameters params) {
+		if (params != this.params) {
+			if (this.params == null || !params.sameRateParameters(this.params)) {
+				clear();
+				this.params = params;
+				return null;
+			}
+			this.params = params; // same rates: the next lookups with these parameters only compare references
+		}
+		long bits = Double.doubleToLongBits(temperature);
+		for (int slot = slot(bits); rates[slot] != null; slot = (slot + 1) & (CAPACITY - 1)) {
+			if (temperatureBits[slot] == bits)
+				return rates[slot];
+		}
+		return null;
+	}
+
+	/**
+	 * Method to add rates to the table (for the parameters of the last call of get)
+	 * @param temperatureRates - the rates (at a temperature that is not in the table)
+	 */
+	void put(TemperatureRates temperatureRates) {
+		if (size == MAX_ENTRIES) { // e.g. with continuously varying temperatures
+			CompiledParameters tableParams = params;
+			clear();
+			params = tableParams;
+		}
+		long bits = Double.doubleToLongBits(temperatureRates.getTemperature());
+		int slot = slot(bits);
+		while (rates[slot] != null)
+			slot = (slot + 1) & (CAPACITY - 1);
+		temperatureBits[slot] = bits;
+		rates[slot] = temperatureRates;
+		size ++;
+	}
+
+	/**
+	 * Method to remove all the rates from the table
+	 */
+	private void clear() {
+		if (size > 0) {
+			for (int i = 0; i < CAPACITY; i ++)
+				rates[i] = null;
+			size = 0;
+		}
+		params = null;
+	}
+
+	private static int slot(long bits) {
+		long h = bits * 0x9e3779b97f4a7c15L;
+		return (int) (h >>> 53) & (CAPACITY - 1); // top bits (the low bits of a double are mostly zeros)
+	}
+}
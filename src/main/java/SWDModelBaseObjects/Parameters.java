@@ -572,6 +572,17 @@ public class Parameters {
 		return UtilityMethods.copyMap(paramMap); // copy the map to avoid data leaks
 	}
 	
+	/**
+	 * Method to compile the parameters into an immutable, index-addressed snapshot for the 
+	 * integration loop (so the map does not need to be searched by name on every timestep).
+	 * Note: the snapshot does not follow later changes to this object; compile again after 
+	 * resetting any parameters.
+	 * @return a CompiledParameters snapshot of the current parameters
+	 */
+	public CompiledParameters compile() {
+		return new CompiledParameters(this);
+	}
+	
 	/**
 	 * Method to return a specific parameter from the map.
 	 * Note: if the user tries to access a parameter with a key not present in 
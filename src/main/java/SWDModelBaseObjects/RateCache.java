@@ -0,0 +1,194 @@
+package SWDModelBaseObjects;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class is a bounded, thread-safe cache of TemperatureRates, keyed by the rate parameters
+ * of a CompiledParameters snapshot (see CompiledParameters.getRateFingerprint) and the temperature.
+ * Daily temperatures repeat a lot (across days, weather stations and the simulations in a sweep),
+ * so one cache can be shared by every simulator in a batch run; simulations whose rate parameters
+ * differ (e.g. a different mortality curve) get different entries, while simulations that only
+ * differ in their fruit, diapause or injection parameters share them.
+ * The entries are split into stripes by hash, each stripe with its own lock, so that threads
+ * looking up different temperatures don't block each other.  Each stripe holds at most
+ * maxEntries / numStripes entries, and evicts its least recently used entry when it is full.
+ * Hits and misses are counted, to check that the cache pays off for a given dataset.
+ */
+public class RateCache {
+
+	public static final int DEFAULT_MAX_ENTRIES = 65536;
+	public static final int DEFAULT_NUM_STRIPES = 16;
+
+	private final Stripe[] stripes;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * Default no-argument constructor, with DEFAULT_MAX_ENTRIES entries in DEFAULT_NUM_STRIPES stripes.
+	 */
+	public RateCache() {
+		this(DEFAULT_MAX_ENTRIES, DEFAULT_NUM_STRIPES);
+	}
+
+	/**
+	 * Constructor to specify the size of the cache.
+	 * @param maxEntries - maximum number of rate vectors kept (split evenly across the stripes)
+	 * @param numStripes - number of independently locked stripes
+	 * @throws IllegalArgumentException if either argument is not positive
+	 */
+	public RateCache(int maxEntries, int numStripes) {
+		if (maxEntries <= 0 || numStripes <= 0)
+			throw new IllegalArgumentException("Cache size and number of stripes must be positive!");
+		stripes = new Stripe[numStripes];
+		int perStripe = Math.max(1, maxEntries / numStripes);
+		for (int i = 0; i < numStripes; i ++)
+			stripes[i] = new Stripe(perStripe);
+	}
+
+	/**
+	 * Method to return the rates at the specified temperature for the specified parameters,
+	 * computing them (and adding them to the cache) if they are not in the cache already.
+	 * Note: the rates are computed outside of the lock, so two threads missing on the same key at the
+	 * same time may both compute it; the results are identical, so either one can be kept.
+	 * @param temperature - the temperature
+	 * @param params - compiled parameters for the simulation
+	 * @return the temperature-dependent rates
+	 */
+	public TemperatureRates get(double temperature, CompiledParameters params) {
+		Key key = new Key(temperature, params);
+		Stripe stripe = stripes[(key.hash & 0x7fffffff) % stripes.length];
+
+		TemperatureRates rates;
+		synchronized (stripe) {
+			rates = stripe.get(key);
+		}
+		if (rates != null) {
+			hits.incrementAndGet();
+			return rates;
+		}
+
+		misses.incrementAndGet();
+		rates = new TemperatureRates(temperature, params);
+		synchronized (stripe) {
+			stripe.put(key, rates);
+		}
+		return rates;
+	}
+
+	/**
+	 * Method to return the number of lookups that were found in the cache
+	 * @return the number of cache hits
+	 */
+	public long getHits() { return hits.get(); }
+
+	/**
+	 * Method to return the number of lookups that had to compute the rates
+	 * @return the number of cache misses
+	 */
+	public long getMisses() { return misses.get(); }
+
+	/**
+	 * Method to return the proportion of lookups that were found in the cache
+	 * @return the hit rate (0 if there have been no lookups)
+	 */
+	public double getHitRate() {
+		long h = hits.get();
+		long total = h + misses.get();
+		return (total == 0) ? 0 : (double) h / total;
+	}
+
+	/**
+	 * Method to return the number of rate vectors currently in the cache
+	 * @return the number of entries
+	 */
+	public int size() {
+		int size = 0;
+		for (int i = 0; i < stripes.length; i ++) {
+			synchronized (stripes[i]) {
+				size += stripes[i].size();
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Method to remove all the entries and reset the hit and miss counters.
+	 */
+	public void clear() {
+		for (int i = 0; i < stripes.length; i ++) {
+			synchronized (stripes[i]) {
+				stripes[i].clear();
+			}
+		}
+		hits.set(0);
+		misses.set(0);
+	}
+
+	/**
+	 * Method to return a one-line summary of the cache statistics.
+	 * @return the statistics, as a String
+	 */
+	@Override
+	public String toString() {
+		return "RateCache: " + getHits() + " hits, " + getMisses() + " misses (hit rate " + getHitRate() + "), " + size() + " entries";
+	}
+
+	/**
+	 * One stripe of the cache: a LinkedHashMap in access order, which drops its least recently
+	 * used entry once it holds more than maxEntries.  Only accessed while holding its own lock.
+	 */
+	private static class Stripe extends LinkedHashMap<Key, TemperatureRates> {
+
+		private static final long serialVersionUID = 1L;
+		private final int maxEntries;
+
+		Stripe(int maxEntries) {
+			super(16, 0.75f, true); // access order, for LRU eviction
+			this.maxEntries = maxEntries;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Key, TemperatureRates> eldest) {
+			return size() > maxEntries;
+		}
+	}
+
+	/**
+	 * Cache key: the exact bits of the temperature and the rate parameters of the snapshot.
+	 * The fingerprint is only used for hashing; equality compares the parameters themselves,
+	 * so two different parameter sets can never share an entry.
+	 */
+	private static final class Key {
+
+		private final long temperatureBits;
+		private final CompiledParameters params;
+		private final int hash;
+
+		Key(double temperature, CompiledParameters params) {
+			this.temperatureBits = Double.doubleToLongBits(temperature);
+			this.params = params;
+			long h = params.getRateFingerprint() * 31 + temperatureBits;
+			h ^= (h >>> 33);
+			h *= 0xff51afd7ed558ccdL;
+			h ^= (h >>> 33);
+			this.hash = (int) h;
+		}
+
+		@Override
+		public int hashCode() { return hash; }
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o)
+				return true;
+			if (!(o instanceof Key))
+				return false;
+			Key other = (Key) o;
+			return temperatureBits == other.temperatureBits &&
+					(params == other.params || params.sameRateParameters(other.params));
+		}
+	}
+}
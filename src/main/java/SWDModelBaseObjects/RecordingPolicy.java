@@ -0,0 +1,82 @@
+package SWDModelBaseObjects;
+
+/**
+ * This class describes what a simulation records of its trajectory (the populations of each lifestage
+ * and the fruit quality over time):
+ * - every step: one data point per integration step (dt); this is the default
+ * - every N steps: one data point every N integration steps, starting with the first step
+ * - daily: the minimum, mean and maximum of each value over each day (one data point per day)
+ * - none: nothing is recorded
+ * The summary metrics (maximum populations and their days, cumulative totals, and the threshold
+ * population days) are computed on every step whatever the policy, so they are exact in every mode.
+ * Policies are immutable; use the static methods to get one.
+ */
+public final class RecordingPolicy {
+
+	/**
+	 * The recording modes
+	 */
+	public enum Mode { EVERY_STEP, EVERY_N_STEPS, DAILY, NONE }
+
+	private static final RecordingPolicy EVERY_STEP = new RecordingPolicy(Mode.EVERY_STEP, 1);
+	private static final RecordingPolicy DAILY = new RecordingPolicy(Mode.DAILY, 1);
+	private static final RecordingPolicy NONE = new RecordingPolicy(Mode.NONE, 1);
+
+	private final Mode mode;
+	private final int interval; // number of steps between data points (EVERY_N_STEPS only)
+
+	private RecordingPolicy(Mode mode, int interval) {
+		this.mode = mode;
+		this.interval = interval;
+	}
+
+	/**
+	 * Method to return the policy recording a data point on every integration step.
+	 * @return the every step policy
+	 */
+	public static RecordingPolicy everyStep() { return EVERY_STEP; }
+
+	/**
+	 * Method to return the policy recording a data point every N integration steps (the first step,
+	 * step N, step 2N, etc.)
+	 * @param n - the number of steps between data points
+	 * @return the every N steps policy
+	 * @throws IllegalArgumentException if n is not positive
+	 */
+	public static RecordingPolicy everyNSteps(int n) {
+		if (n <= 0)
+			throw new IllegalArgumentException("Recording interval must be positive!");
+		if (n == 1)
+			return EVERY_STEP;
+		return new RecordingPolicy(Mode.EVERY_N_STEPS, n);
+	}
+
+	/**
+	 * Method to return the policy recording the minimum, mean and maximum of each value per day.
+	 * @return the daily policy
+	 */
+	public static RecordingPolicy daily() { return DAILY; }
+
+	/**
+	 * Method to return the policy recording nothing (only the summary metrics are available).
+	 * @return the summary-only policy
+	 */
+	public static RecordingPolicy none() { return NONE; }
+
+	/**
+	 * Method to return the recording mode
+	 * @return the mode
+	 */
+	public Mode getMode() { return mode; }
+
+	/**
+	 * Method to return the number of integration steps between data points (1 unless the mode is EVERY_N_STEPS)
+	 * @return the interval
+	 */
+	public int getInterval() { return interval; }
+
+	@Override
+	public String toString() {
+		return (mode == Mode.EVERY_N_STEPS) ? "every " + interval + " steps" : mode.toString().toLowerCase().replace('_', ' ');
+	}
+}
@@ -0,0 +1,134 @@
+package SWDModelBaseObjects;
+
+/**
+ * This class holds the summary metrics of a simulation run: for each lifestage (eggs, instar1, instar2,
+ * instar3, pupae, males and females), its peak population, the timestep of the peak, and its cumulative
+ * total; as well as the day the diapause threshold was crossed, the day fruit quality reached its maximum,
+ * and the days the female population passed each threshold population.
+ * These are tracked on every timestep whatever the recording policy, so a sweep that only needs them
+ * can run with nothing recorded (see SWDSimulatorSingle.runSummary).
+ * RunSummary objects are immutable.
+ */
+public final class RunSummary {
+
+	// lifestage indices
+	public static final int EGGS = 0, INSTAR1 = 1, INSTAR2 = 2, INSTAR3 = 3, PUPAE = 4, MALES = 5, FEMALES = 6;
+	public static final int NUM_STAGES = 7;
+	private static final String[] STAGE_NAMES = {"eggs", "instar1", "instar2", "instar3", "pupae", "males", "females"};
+
+	private final double[] max, maxDay, total; // indexed by lifestage
+	private final int crossedDiapDay;
+	private final double dayCrossedMaxFruit;
+	private final double[] thresholdPopDay;
+
+	/**
+	 * Constructor to create a summary from the metrics of a simulation (the arrays are copied).
+	 * @param max - the peak population of each lifestage
+	 * @param maxDay - the timestep of the peak of each lifestage
+	 * @param total - the cumulative population of each lifestage
+	 * @param crossedDiapDay - the day the diapause threshold was crossed (-1 if never crossed)
+	 * @param dayCrossedMaxFruit - the day fruit quality reached 1 (-1 if never reached)
+	 * @param thresholdPopDay - the day each threshold population was passed (-1 if never passed)
+	 */
+	public RunSummary(double[] max, double[] maxDay, double[] total, int crossedDiapDay,
+				double dayCrossedMaxFruit, double[] thresholdPopDay) {
+		this.max = max.clone();
+		this.maxDay = maxDay.clone();
+		this.total = total.clone();
+		this.crossedDiapDay = crossedDiapDay;
+		this.dayCrossedMaxFruit = dayCrossedMaxFruit;
+		this.thresholdPopDay = thresholdPopDay.clone();
+	}
+
+	/**
+	 * Method to return the peak population of a lifestage
+	 * @param stage - the lifestage (EGGS to FEMALES)
+	 * @return the peak population
+	 * @throws IllegalArgumentException if the lifestage is out of range
+	 */
+	public double getMax(int stage) { return max[checkStage(stage)]; }
+
+	/**
+	 * Method to return the timestep of the peak population of a lifestage
+	 * @param stage - the lifestage (EGGS to FEMALES)
+	 * @return the timestep of the peak
+	 * @throws IllegalArgumentException if the lifestage is out of range
+	 */
+	public double getDayOfMax(int stage) { return maxDay[checkStage(stage)]; }
+
+	/**
+	 * Method to return the cumulative population of a lifestage
+	 * @param stage - the lifestage (EGGS to FEMALES)
+	 * @return the cumulative population
+	 * @throws IllegalArgumentException if the lifestage is out of range
+	 */
+	public double getTotal(int stage) { return total[checkStage(stage)]; }
+
+	/**
+	 * Method to return the day the diapause threshold was crossed
+	 * @return the day the diapause threshold was crossed (-1 if never crossed)
+	 */
+	public int getCrossedDiapDay() { return crossedDiapDay; }
+
+	/**
+	 * Method to return the day where the fruit quality reached 1
+	 * @return the first day the fruit quality reached its max (-1 if never reached)
+	 */
+	public double getDayCrossedMaxFruit() { return dayCrossedMaxFruit; }
+
+	/**
+	 * Method to return the number of threshold populations
+	 * @return the number of threshold populations
+	 */
+	public int getNumThresholds() { return thresholdPopDay.length; }
+
+	/**
+	 * Method to return the day the female population passed the threshold population at the specified index
+	 * @param index - the index of the threshold population
+	 * @return the day the threshold population was passed (-1 if never passed)
+	 * @throws IllegalArgumentException if the index is out of range
+	 */
+	public double getThresholdPopDay(int index) {
+		if (index < 0 || index >= thresholdPopDay.length)
+			throw new IllegalArgumentException("Invalid threshold index!");
+		return thresholdPopDay[index];
+	}
+
+	/**
+	 * Method to return the summary of the same run with all the populations multiplied by a factor.  The model
+	 * is linear in the populations, so this is the summary of the run injected with factor times as many flies
+	 * (up to rounding): the peak and cumulative populations are multiplied, and the days (of the peaks, diapause
+	 * and fruit quality) are the same.
+	 * Note: the threshold population days are kept as they are, which is only right for thresholds of 0 (the
+	 * default), since the thresholds themselves are not multiplied.
+	 * @param factor - the factor to multiply the populations by
+	 * @return the scaled summary
+	 * @throws IllegalArgumentException if the factor is not positive
+	 */
+	public RunSummary scale(double factor) {
+		if (!(factor > 0))
+			throw new IllegalArgumentException("The scaling factor must be positive!");
+		double[] scaledMax = new double[NUM_STAGES];
+		double[] scaledTotal = new double[NUM_STAGES];
+		for (int i = 0; i < NUM_STAGES; i ++) {
+			scaledMax[i] = max[i] * factor;
+			scaledTotal[i] = total[i] * factor;
+		}
+		return new RunSummary(scaledMax, maxDay, scaledTotal, crossedDiapDay, dayCrossedMaxFruit, thresholdPopDay);
+	}
+
+	private static int checkStage(int stage) {
+		if (stage < 0 || stage >= NUM_STAGES)
+			throw new IllegalArgumentException("Invalid lifestage index!");
+		return stage;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder out = new StringBuilder("RunSummary[");
+		for (int i = 0; i < NUM_STAGES; i ++)
+			out.append(STAGE_NAMES[i]).append(": max ").append(max[i]).append(" (day ").append(maxDay[i]).append("), total ").append(total[i]).append(", ");
+		out.append("diapause crossed ").append(crossedDiapDay).append(", fruit max ").append(dayCrossedMaxFruit).append("]");
+		return out.toString();
+	}
+}
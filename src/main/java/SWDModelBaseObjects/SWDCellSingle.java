@@ -1,10 +1,13 @@
 package SWDModelBaseObjects;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Map;
 
 import org.jfree.data.xy.XYSeries;
 
 import SWDModelReferenceClasses.EulersMethod;
+import SWDModelReferenceClasses.Integrator;
 import SWDModelReferenceClasses.SolveParameters;
 import SWDModelReferenceClasses.UtilityMethods;
 
@@ -33,15 +36,45 @@ public class SWDCellSingle {
 	
 	private double[] fruitQualities = new double[365]; // the fruit qualities for one full year
 	private boolean killAllFruit; // has fruit quality passed the cutoff (during the current year)? true or false 
+	
+	// precomputed fruit quality, possibly shared with other cells (null to integrate it on every timestep)
+	private FruitQualityTrajectory fruitTrajectory;
+	private int fruitStep; // number of timesteps since the cell was reset, if they were all read from the trajectory (-1 otherwise)
+	private CompiledParameters fruitTrajectoryParams; // snapshot the trajectory was last checked against
 	private boolean ignoreFruit = true; // on startup, the default is to ignore the fruit
 	private boolean ignoreDiapause = true;
 
-	// each series keeps all the data for its respective lifestage (or fruit quality) up to the current timestep
-	// there is one data point for every dt
-	private XYSeries eggSeries, inst1Series, inst2Series, inst3Series, pupaeSeries, maleSeries, femaleSeries, fruitQualitySeries;
-	private XYSeries[] femaleStageSeries;
+	// the trajectory keeps all the data for each lifestage (and fruit quality) up to the current timestep
+	// which rows it holds depends on the recording policy (by default, one row for every dt); the XYSeries are built from it when they are requested
+	private TrajectoryStore trajectory;
+	private RecordingPolicy recordingPolicy = RecordingPolicy.everyStep();
+	private long stepCount; // number of timesteps since the cell was reset
+	private double[] stepValues; // values to record for the current timestep (one per column)
+	
+	// daily recording: the trajectory holds the daily means, and these hold the daily minimums and maximums
+	private TrajectoryStore dailyMin, dailyMax;
+	private double[] daySum, dayMin, dayMax; // running aggregates for the current day
+	private int dayCount; // number of timesteps aggregated for the current day
+	private int currentDay; // the current day
+	private int dayRow = -1; // row of the current day in the daily stores (-1 if it hasn't been written yet)
+	
+	// columns of the trajectory
+	private static final int EGGS = 0, INST1 = 1, INST2 = 2, INST3 = 3, PUPAE = 4, MALES = 5, FEMALES = 6, FRUIT_QUALITY = 7;
+	private static final int FEMALE_STAGES = 8; // first of the 7 female stage columns
+	private static final int FIRST_FEMALE_STAGE = 6; // index of females1 in the populations of all the lifestages
+	private final double[] stagePopulations = new double[CompiledParameters.NUM_STAGES]; // scratch array for recording
+	private static final String[] COLUMN_NAMES = {"eggs", "instar1", "instar2", "instar3", "pupae", "males", "females", "fruit quality",
+												  "females1", "females2", "females3", "females4", "females5", "females6", "females7"};
 	
 	private Parameters params; // parameters for all life processes stored 
+	private CompiledParameters compiledParams; // snapshot of params read in the integration loop (recompiled whenever params change)
+	private RateCache rateCache; // cache of temperature-dependent rates, possibly shared with other cells (null if rates are not cached)
+	
+	// temperature-dependent rates for the current day (temperatures are given daily, so these are reused for every dt in the day)
+	private TemperatureRates dayRates;
+	private final LocalRateTable localRates = new LocalRateTable(); // rates of the temperatures seen by this cell
+	private int dayRatesDay = -1; // day the rates were evaluated for
+	private CompiledParameters dayRatesParams; // snapshot the rates were evaluated with
 	
 	private double maxEggs, maxInst1, maxInst2, maxInst3, maxPupae, maxMales, maxFemales; // max population of each respective lifestage
 	private double maxEggsDay, maxInst1Day, maxInst2Day, maxInst3Day, maxPupaeDay, maxMalesDay, maxFemalesDay; // timestep where the max occured
@@ -99,6 +132,7 @@ public class SWDCellSingle {
 		initializeSeries();
 		
 		params = new Parameters(); // default parameters
+		compiledParams = params.compile();
 		
 		population = new SWDPopulation(); // initialize population to default population
 		
@@ -115,7 +149,83 @@ public class SWDCellSingle {
 	 * 			or an appropriate error message if something went wrong)
 	 */
 	public String setSingleParameter(String param, double newVal) {
-		return params.setParameter(param, newVal);
+		String status = params.setParameter(param, newVal);
+		if (status.equals("Success!"))
+			compiledParams = params.compile(); // keep the snapshot in step with the parameters
+		return status;
+	}
+	
+	/**
+	 * Method to set the cache the temperature-dependent rates are read from.  The same cache can be
+	 * shared by any number of cells (including cells run on different threads).
+	 * @param rateCache - the cache to use (null to compute the rates on every timestep)
+	 */
+	public void setRateCache(RateCache rateCache) { this.rateCache = rateCache; }
+	
+	/**
+	 * Method to set the integration scheme for the populations (see SWDPopulation.setIntegrator)
+	 * @param integrator - the integration scheme (null for Euler's method, the default)
+	 */
+	public void setIntegrator(Integrator integrator) { population.setIntegrator(integrator); }
+	
+	/**
+	 * Method to return the integration scheme for the populations
+	 * @return the integrator (null for Euler's method)
+	 */
+	public Integrator getIntegrator() { return population.getIntegrator(); }
+	
+	/**
+	 * Method to return the cache the temperature-dependent rates are read from
+	 * @return the rate cache (null if the rates are not cached)
+	 */
+	public RateCache getRateCache() { return rateCache; }
+	
+	/**
+	 * Method to set the precomputed fruit quality the cell reads, instead of integrating it (see FruitQualityTrajectory).
+	 * The same trajectory can be shared by any number of cells.  The fruit quality is read from it as long as
+	 * it has the timestep the cell is at, with the same temperature and fruit quality parameters, from the time
+	 * the cell is reset; otherwise it is integrated as usual, so the results are exactly the same either way.
+	 * Note: the trajectory is only read from the first timestep after the cell is reset.
+	 * @param fruitTrajectory - the trajectory to read (null to integrate the fruit quality on every timestep)
+	 */
+	public void setFruitTrajectory(FruitQualityTrajectory fruitTrajectory) { 
+		this.fruitTrajectory = fruitTrajectory;
+		fruitTrajectoryParams = null; // check the parameters on the next timestep
+	}
+	
+	/**
+	 * Method to read the fruit quality from a trajectory in a cache, for the current parameters (see setFruitTrajectory).
+	 * @param fruitCache - the cache of fruit quality trajectories (shared with other cells)
+	 * @param temperatures - temperatures per day
+	 * @param dt - step for numeric integration (Euler's method)
+	 * @param runTime - time the simulation is run for
+	 */
+	public void useFruitTrajectory(FruitQualityCache fruitCache, ArrayList<Double> temperatures, double dt, double runTime) {
+		setFruitTrajectory(fruitCache.get(temperatures, compiledParams, dt, runTime));
+	}
+	
+	/**
+	 * Method to return the precomputed fruit quality the cell reads
+	 * @return the fruit quality trajectory (null if the fruit quality is integrated on every timestep)
+	 */
+	public FruitQualityTrajectory getFruitTrajectory() { return fruitTrajectory; }
+	
+	/**
+	 * Method to set the precomputed diapause switches the population reads, instead of solving them (see 
+	 * SWDPopulation.setDiapauseTrajectory); the results are exactly the same.
+	 * @param diapauseTrajectory - the trajectory to read (null to solve the switches on every timestep)
+	 */
+	public void setDiapauseTrajectory(DiapauseTrajectory diapauseTrajectory) { population.setDiapauseTrajectory(diapauseTrajectory); }
+	
+	/**
+	 * Method to read the diapause switches from a trajectory in a cache, for the current parameters (see setDiapauseTrajectory).
+	 * @param diapauseCache - the cache of diapause trajectories (shared with other cells)
+	 * @param temperatures - temperatures per day
+	 * @param dt - step for numeric integration (Euler's method)
+	 * @param runTime - time the simulation is run for
+	 */
+	public void useDiapauseTrajectory(DiapauseCache diapauseCache, ArrayList<Double> temperatures, double dt, double runTime) {
+		setDiapauseTrajectory(diapauseCache.get(temperatures, compiledParams, dt, runTime));
 	}
 	
 	/**
@@ -131,6 +241,7 @@ public class SWDCellSingle {
 	  * This method advances the time for the cell, by setting the temperature of the cell to the specified current
 	  * temperature of the cell and updating for the population.
 	  * Note: the time is advanced by one integration step (dt).
+	  * If phase timing is enabled, one step in SimulationMetrics.PHASE_SAMPLE_INTERVAL is timed (see SimulationMetrics).
 	  * @param temperature - the temperature of the cell during the current timestep
 	  * @param ignoreFruit - boolean to determine whether or not to ignore the effect of fruit quality on the flies
 	  * @param ignoreDiapause - boolean to determine whether or not to ignore the effect of diapause on the flies
@@ -138,65 +249,60 @@ public class SWDCellSingle {
 	  * @param timeStep - current timestep of the simulation
 	  */
 	public void stepFoward(double temperature, boolean ignoreFruit, boolean ignoreDiapause, double dt, double timeStep) {	
+		boolean timed = SimulationMetrics.samplePhases(stepCount); // time the phases of this step? (see SimulationMetrics)
+		long start = timed ? System.nanoTime() : 0;
+		
 		// reset datafields to those passed in
 		this.ignoreFruit = ignoreFruit;
 		this.ignoreDiapause = ignoreDiapause;
 		temp = temperature;
 		
-		// get fruit parameters for the calculations
-		double fruitBaseTemp = params.getParameter("fruit base temp");
-		double fruitTimeLag = params.getParameter("fruit time lag");
-		double fruitHarvestCutoff = params.getParameter("fruit harvest cutoff");
-		
-		double gt = SolveParameters.getGT(fruitBaseTemp, temperature);
-		
-		int index = ((int) timeStep) % 365;
-		double fruitQLag = 0.05;
-		if (index - fruitTimeLag > 0) { // if timelag timesteps have passed in the year
-			fruitQLag = fruitQualities[(int) (index - fruitTimeLag)]; // get the fruit quality timelag timesteps ago
-			if (fruitQLag > fruitHarvestCutoff) // if it was greater than the cutoff, fruit quality begins to decrease
-				killAllFruit = true;
-		} else // otherwise, the year has restarted and fruit quality can increase again
-			killAllFruit = false;
-		if (index == 0) { // if it's the beginning of the year, fruit quality restarts at 0.05
-			currentFruitQ = 0.05;
+		if (onFruitTrajectory(temperature, timeStep)) { // read the fruit quality from the trajectory, instead of integrating it
+			currentFruitQ = fruitTrajectory.getFruitQuality(fruitStep);
+			killAllFruit = fruitTrajectory.isKillAllFruit(fruitStep);
+			if (fruitTrajectory.isAtMax(fruitStep) && dayCrossedMaxFruit == -1)
+				dayCrossedMaxFruit = timeStep;
+			fruitQualities[((int) timeStep) % 365] = currentFruitQ; // kept up to date, in case the cell leaves the trajectory
+			fruitStep ++;
+		} else {
+			fruitStep = -1; // the fruit quality is integrated until the cell is reset
+			stepFruitQuality(temperature, dt, timeStep);
 		}
 		
-		if (killAllFruit)
-			fruitQLag = 1; // this is so that the fruit quality does not start increasing again during the year, after quality has reached the cutoff
-		
-		currentFruitQ = EulersMethod.getFruitQuality(gt, currentFruitQ, fruitQLag, dt, params); // calculate current fruit quality
-		
-		if (UtilityMethods.round2Decimals(currentFruitQ) == 1 && dayCrossedMaxFruit == -1)
-			dayCrossedMaxFruit = timeStep;
-		
-		fruitQualities[((int) timeStep) % 365] = currentFruitQ; // store the fruit quality for the current timestep in the array
-		// Note: only one fruit quality is stored per timestep (i.e. not one value per dt)
-		
-		population.computePopulation(temperature, currentFruitQ, params, ignoreFruit, ignoreDiapause, dt, timeStep); // update the population
-		
-		// update the stage-specific population data series
-		eggSeries.add(timeStep, getEggs());
-		inst1Series.add(timeStep, getInst1());
-		inst2Series.add(timeStep, getInst2());
-		inst3Series.add(timeStep, getInst3());
-		pupaeSeries.add(timeStep, getPupae());
-		maleSeries.add(timeStep, getMales());
-		femaleSeries.add(timeStep, getFemales());
+		TemperatureRates rates = getDayRates(temperature, timeStep);
+		long ratesDone = timed ? System.nanoTime() : 0;
+		population.computePopulation(rates, currentFruitQ, compiledParams, ignoreFruit, ignoreDiapause, dt, timeStep); // update the population
+		long integrated = timed ? System.nanoTime() : 0;
 		
-		double[] femStagePopulation = getFemStages();
-		for (int i = 0; i < femaleStageSeries.length; i ++)
-			femaleStageSeries[i].add(timeStep, femStagePopulation[i]);
-		
-		fruitQualitySeries.add(timeStep, currentFruitQ); // update fruit quality data series
+		// record the stage-specific populations for this timestep (according to the recording policy)
+		if (recordingPolicy.getMode() != RecordingPolicy.Mode.NONE) {
+			stepValues[EGGS] = getEggs();
+			stepValues[INST1] = getInst1();
+			stepValues[INST2] = getInst2();
+			stepValues[INST3] = getInst3();
+			stepValues[PUPAE] = getPupae();
+			stepValues[MALES] = getMales();
+			stepValues[FEMALES] = getFemales();
+			
+			population.copyPopulations(stagePopulations); // without allocating a copy of the female stages
+			for (int i = 0; i < CompiledParameters.NUM_FEMALE_STAGES; i ++)
+				stepValues[FEMALE_STAGES + i] = stagePopulations[FIRST_FEMALE_STAGE + i];
+			
+			stepValues[FRUIT_QUALITY] = currentFruitQ; // record fruit quality
+			record(timeStep);
+		}
+		stepCount ++;
 		
-		totEggs += getEggs() * dt;
-		totInst1 += getInst1() * dt;
-		totInst2 += getInst2() * dt;
-		totInst3 += getInst3() * dt;
-		totPupae += getPupae() * dt;
-		totMales += getMales() * dt;
-		totFemales += getFemales() * dt;
+		if (population.getIntegrator() == null) {
+			totEggs += getEggs() * dt;
+			totInst1 += getInst1() * dt;
+			totInst2 += getInst2() * dt;
+			totInst3 += getInst3() * dt;
+			totPupae += getPupae() * dt;
+			totMales += getMales() * dt;
+			totFemales += getFemales() * dt;
+		} else
+			addStepIntegrals();
 		
 		if (maxEggs < getEggs()) {
 			maxEggs = getEggs();
@@ -239,7 +345,111 @@ public class SWDCellSingle {
 			}
 		}
 		
+		if (timed)
+			SimulationMetrics.get().addPhaseTimes(ratesDone - start, integrated - ratesDone, System.nanoTime() - integrated);
+	}
+	
+	/**
+	 * Method to add the integrals of the populations over the timestep (computed by the population's integrator) to
+	 * the cumulative populations.
+	 */
+	private void addStepIntegrals() {
+		totEggs += population.getStepIntegral(0);
+		totInst1 += population.getStepIntegral(1);
+		totInst2 += population.getStepIntegral(2);
+		totInst3 += population.getStepIntegral(3);
+		totPupae += population.getStepIntegral(4);
+		totMales += population.getStepIntegral(5);
+		double females = 0;
+		for (int i = 6; i < CompiledParameters.NUM_STAGES; i ++)
+			females += population.getStepIntegral(i);
+		totFemales += females;
+	}
+	
+	/**
+	 * Method to advance the fruit quality by one integration step.
+	 * @param temperature - the temperature of the cell during the current timestep
+	 * @param dt - step for numeric integration (Euler's method)
+	 * @param timeStep - current timestep of the simulation
+	 */
+	private void stepFruitQuality(double temperature, double dt, double timeStep) {
+		// get fruit parameters for the calculations
+		double fruitBaseTemp = compiledParams.getFruitBaseTemp();
+		double fruitTimeLag = compiledParams.getFruitTimeLag();
+		double fruitHarvestCutoff = compiledParams.getFruitHarvestCutoff();
 		
+		double gt = SolveParameters.getGT(fruitBaseTemp, temperature);
+		
+		int index = ((int) timeStep) % 365;
+		double fruitQLag = 0.05;
+		if (index - fruitTimeLag > 0) { // if timelag timesteps have passed in the year
+			fruitQLag = fruitQualities[(int) (index - fruitTimeLag)]; // get the fruit quality timelag timesteps ago
+			if (fruitQLag > fruitHarvestCutoff) // if it was greater than the cutoff, fruit quality begins to decrease
+				killAllFruit = true;
+		} else // otherwise, the year has restarted and fruit quality can increase again
+			killAllFruit = false;
+		if (index == 0) { // if it's the beginning of the year, fruit quality restarts at 0.05
+			currentFruitQ = 0.05;
+		}
+		
+		if (killAllFruit)
+			fruitQLag = 1; // this is so that the fruit quality does not start increasing again during the year, after quality has reached the cutoff
+		
+		currentFruitQ = EulersMethod.getFruitQuality(gt, currentFruitQ, fruitQLag, dt, compiledParams); // calculate current fruit quality
+		
+		if (UtilityMethods.round2Decimals(currentFruitQ) == 1 && dayCrossedMaxFruit == -1)
+			dayCrossedMaxFruit = timeStep;
+		
+		fruitQualities[((int) timeStep) % 365] = currentFruitQ; // store the fruit quality for the current timestep in the array
+		// Note: only one fruit quality is stored per timestep (i.e. not one value per dt)
+	}
+	
+	/**
+	 * Method to check if the fruit quality for the current timestep can be read from the fruit quality trajectory:
+	 * every timestep since the cell was reset was read from it, and it has the same step (timestep and temperature),
+	 * computed with the same fruit quality parameters.
+	 * @param temperature - the temperature of the cell during the current timestep
+	 * @param timeStep - current timestep of the simulation
+	 * @return can the fruit quality be read from the trajectory? true or false
+	 */
+	private boolean onFruitTrajectory(double temperature, double timeStep) {
+		if (fruitTrajectory == null || fruitStep < 0)
+			return false;
+		if (compiledParams != fruitTrajectoryParams) { // the parameters changed since the last check
+			if (!fruitTrajectory.appliesTo(compiledParams))
+				return false;
+			fruitTrajectoryParams = compiledParams;
+		}
+		return fruitTrajectory.matches(fruitStep, timeStep, temperature);
+	}
+	
+	/**
+	 * Method to return the temperature-dependent rates for the current timestep.  These are only
+	 * evaluated (or read from the rate cache) when the day changes; for the rest of the day's 
+	 * integration steps the same rates are reused, so only the fruit-dependent terms and the 
+	 * Euler update are computed every dt.
+	 * Note: the rates are also re-evaluated if the temperature or the parameters change during
+	 * the day, so this gives exactly the same rates as evaluating them on every timestep.
+	 * The rates of each temperature are kept in a table of the cell (see LocalRateTable), so after the
+	 * first season, changing day doesn't allocate or lock the rate cache either.
+	 * @param temperature - the temperature of the cell during the current timestep
+	 * @param timeStep - current timestep of the simulation
+	 * @return the temperature-dependent rates
+	 */
+	private TemperatureRates getDayRates(double temperature, double timeStep) {
+		int day = (int) timeStep;
+		if (dayRates == null || day != dayRatesDay || dayRatesParams != compiledParams 
+				|| Double.doubleToLongBits(dayRates.getTemperature()) != Double.doubleToLongBits(temperature)) {
+			dayRates = localRates.get(temperature, compiledParams); // no lock or allocation once the temperature was seen
+			if (dayRates == null) {
+				dayRates = (rateCache == null) ? new TemperatureRates(temperature, compiledParams) 
+											   : rateCache.get(temperature, compiledParams);
+				localRates.put(dayRates);
+			}
+			dayRatesDay = day;
+			dayRatesParams = compiledParams;
+		}
+		return dayRates;
 	}
 	
 	// -----------------------------------------------------------------------------------------FRUIT
@@ -304,7 +514,7 @@ public class SWDCellSingle {
 	 * Reads the initial populations from file
 	 */
 	public void readInitFlies() {
-		population.readPopulation(params);
+		population.readPopulation(compiledParams);
 	}
 	
 	/**
@@ -324,30 +534,41 @@ public class SWDCellSingle {
 		return population.getCrossedDiapDay();
 	}
 	
+	/**
+	 * Method to return a snapshot of the summary metrics of the cell (max populations and their days, 
+	 * cumulative totals, the day diapause was crossed, the day fruit quality reached 1, and the 
+	 * threshold population days).
+	 * @return the summary metrics up to the current timestep
+	 */
+	public RunSummary getRunSummary() {
+		double[] max = {maxEggs, maxInst1, maxInst2, maxInst3, maxPupae, maxMales, maxFemales};
+		double[] maxDay = {maxEggsDay, maxInst1Day, maxInst2Day, maxInst3Day, maxPupaeDay, maxMalesDay, maxFemalesDay};
+		double[] total = {totEggs, totInst1, totInst2, totInst3, totPupae, totMales, totFemales};
+		return new RunSummary(max, maxDay, total, getCrossedDiapDay(), dayCrossedMaxFruit, thresholdPopDay);
+	}
+	
 	/**
 	 * Resets the cell to its state at timestep 0.
 	 */
 	public void resetTime() {
 		population.resetPopulation(); // reset the population
 		
+		dayRates = null; // re-evaluate the rates on the first timestep
+		dayRatesDay = -1;
+		
+		// reset the fruit quality (otherwise, its history from the previous run is read on the first day, with a time lag of 0)
+		currentFruitQ = 0.05;
+		Arrays.fill(fruitQualities, 0);
+		fruitQualities[0] = 0.05;
+		killAllFruit = false;
 		dayCrossedMaxFruit = -1;
+		fruitStep = 0; // the fruit quality can be read from the trajectory again
 		
 		for (int i = 0; i < thresholdPop.length; i ++)
 			thresholdPopDay[i] = -1;
 		
-		// reset the data series
-		eggSeries.clear();
-		inst1Series.clear();
-		inst2Series.clear();
-		inst3Series.clear();
-		pupaeSeries.clear();
-		maleSeries.clear();
-		femaleSeries.clear();
-		
-		for (int i = 0; i < femaleStageSeries.length; i ++)
-			femaleStageSeries[i].clear();
-		
-		fruitQualitySeries.clear();
+		// reset the recorded data
+		clearRecording();
 		
 		/*maxEggs = params.getParameter("initial eggs");
 		maxInst1 = params.getParameter("initial instar1");
@@ -386,6 +607,79 @@ public class SWDCellSingle {
 	
 	
 	
+	/**
+	 * Method to set the whole state of the cell to that of another cell, e.g. to restore a snapshot:
+	 * parameters, population, fruit quality history, recording policy and recorded data, summary metrics
+	 * and threshold populations.  Stepping both cells afterwards gives exactly the same results.
+	 * Note: the rate cache is not copied (it is a setting of the cell, not part of its state).
+	 * @param other - the cell to copy the state of
+	 */
+	public void copyState(SWDCellSingle other) {
+		params.setCopyParams(other.params, true);
+		compiledParams = other.compiledParams; // never changed, so it can be shared
+		
+		temp = other.temp;
+		population.copyState(other.population);
+		
+		currentFruitQ = other.currentFruitQ;
+		dayCrossedMaxFruit = other.dayCrossedMaxFruit;
+		System.arraycopy(other.fruitQualities, 0, fruitQualities, 0, fruitQualities.length);
+		killAllFruit = other.killAllFruit;
+		fruitTrajectory = other.fruitTrajectory; // never changed, so it can be shared
+		fruitStep = other.fruitStep;
+		fruitTrajectoryParams = other.fruitTrajectoryParams;
+		ignoreFruit = other.ignoreFruit;
+		ignoreDiapause = other.ignoreDiapause;
+		
+		dayRates = other.dayRates;
+		dayRatesDay = other.dayRatesDay;
+		dayRatesParams = other.dayRatesParams;
+		
+		// recording
+		recordingPolicy = other.recordingPolicy;
+		allocateDailyStores();
+		trajectory.copyFrom(other.trajectory);
+		stepCount = other.stepCount;
+		if (other.dailyMin != null && dailyMin != null) {
+			dailyMin.copyFrom(other.dailyMin);
+			dailyMax.copyFrom(other.dailyMax);
+			System.arraycopy(other.daySum, 0, daySum, 0, daySum.length);
+			System.arraycopy(other.dayMin, 0, dayMin, 0, dayMin.length);
+			System.arraycopy(other.dayMax, 0, dayMax, 0, dayMax.length);
+		}
+		dayCount = other.dayCount;
+		currentDay = other.currentDay;
+		dayRow = other.dayRow;
+		
+		// summary metrics
+		maxEggs = other.maxEggs;
+		maxInst1 = other.maxInst1;
+		maxInst2 = other.maxInst2;
+		maxInst3 = other.maxInst3;
+		maxPupae = other.maxPupae;
+		maxMales = other.maxMales;
+		maxFemales = other.maxFemales;
+		
+		maxEggsDay = other.maxEggsDay;
+		maxInst1Day = other.maxInst1Day;
+		maxInst2Day = other.maxInst2Day;
+		maxInst3Day = other.maxInst3Day;
+		maxPupaeDay = other.maxPupaeDay;
+		maxMalesDay = other.maxMalesDay;
+		maxFemalesDay = other.maxFemalesDay;
+		
+		totEggs = other.totEggs;
+		totInst1 = other.totInst1;
+		totInst2 = other.totInst2;
+		totInst3 = other.totInst3;
+		totPupae = other.totPupae;
+		totMales = other.totMales;
+		totFemales = other.totFemales;
+		
+		System.arraycopy(other.thresholdPop, 0, thresholdPop, 0, thresholdPop.length);
+		System.arraycopy(other.thresholdPopDay, 0, thresholdPopDay, 0, thresholdPopDay.length);
+	}
+	
 	// -----------------------------------------------------------------------------------------CURRENT POPULATIONS
 	
 	/**
@@ -443,6 +737,13 @@ public class SWDCellSingle {
 	 */
 	public double[] getFemStages() {return population.getFemStages(); }
 	
+	/**
+	 * Method to copy the current population of every lifestage into an array, without allocating
+	 * (in order of indices: 0-eggs, 1-instar1, 2-instar2, 3-instar3, 4-pupae, 5-males, 6 to 12-females1 to females7)
+	 * @param populations - the array to fill (at least 13 long)
+	 */
+	public void copyPopulations(double[] populations) {population.copyPopulations(populations); }
+	
 	
 	// -----------------------------------------------------------------------------------------MAXIMUM POPULATIONS
 	
@@ -596,6 +897,7 @@ public class SWDCellSingle {
 	  */
 	public void resetCellParams(Parameters params, boolean resetFruitParams) {
 		this.params.setCopyParams(params, resetFruitParams);
+		compiledParams = this.params.compile();
 	}
 	
 	/**
@@ -608,31 +910,208 @@ public class SWDCellSingle {
 	 * 			or an appropriate error message if something went wrong)
 	 */
 	public String resetFruitParams(Map<String, Double> fruitMap) {
-		return params.resetFruitParams(fruitMap);
+		String status = params.resetFruitParams(fruitMap);
+		if (status.equals("Success!"))
+			compiledParams = params.compile();
+		return status;
 	}
 	
 	/**
-	 * Method to initialize the series to keep track of lifestage-specific and fruit quality 
+	 * Method to initialize the trajectory to keep track of lifestage-specific and fruit quality 
 	 * data points.  Avoids repetition since this method is called in the various constructors.
 	 */
 	private void initializeSeries() {
-		
-		// data points for each respective lifestage, and fruit quality, over time
-		eggSeries = new XYSeries("eggs");
-		inst1Series = new XYSeries("instar1");
-		inst2Series = new XYSeries("instar2");
-		inst3Series = new XYSeries("instar3");
-		pupaeSeries = new XYSeries("pupae");
-		maleSeries = new XYSeries("males");
-		femaleSeries = new XYSeries("females");
-		fruitQualitySeries = new XYSeries("fruit quality");
-		
-		femaleStageSeries = new XYSeries[7];
-		
-		for (int i = 0; i < femaleStageSeries.length; i ++) // one series for each female stage
-			femaleStageSeries[i] = new XYSeries("females" + (i + 1));
-		
-		
+		trajectory = new TrajectoryStore(COLUMN_NAMES);
+		stepValues = new double[COLUMN_NAMES.length];
+	}
+	
+	// -----------------------------------------------------------------------------------------RECORDING
+	
+	/**
+	 * Method to set what is recorded of the trajectory (see RecordingPolicy).  The summary metrics
+	 * (max populations, cumulative totals, threshold days) are exact whatever the policy.
+	 * The series accessors (getEggSeries, etc.) return the recorded data points: every step, every N 
+	 * steps, or the daily means (the daily minimums and maximums are returned by getDailyMinSeries and 
+	 * getDailyMaxSeries).
+	 * Note: this clears all the data recorded so far, so it should be set before running.
+	 * @param recordingPolicy - the new recording policy
+	 * @throws IllegalArgumentException if the policy is null
+	 */
+	public void setRecordingPolicy(RecordingPolicy recordingPolicy) {
+		if (recordingPolicy == null)
+			throw new IllegalArgumentException("No recording policy!");
+		this.recordingPolicy = recordingPolicy;
+		allocateDailyStores();
+		clearRecording();
+	}
+	
+	/**
+	 * Method to allocate the daily stores and aggregates, if the recording policy is daily (they are only
+	 * allocated if needed).
+	 */
+	private void allocateDailyStores() {
+		if (recordingPolicy.getMode() == RecordingPolicy.Mode.DAILY && dailyMin == null) {
+			dailyMin = new TrajectoryStore(COLUMN_NAMES, 512);
+			dailyMax = new TrajectoryStore(COLUMN_NAMES, 512);
+			daySum = new double[COLUMN_NAMES.length];
+			dayMin = new double[COLUMN_NAMES.length];
+			dayMax = new double[COLUMN_NAMES.length];
+		}
+	}
+	
+	/**
+	 * Method to return what is recorded of the trajectory
+	 * @return the recording policy
+	 */
+	public RecordingPolicy getRecordingPolicy() { return recordingPolicy; }
+	
+	/**
+	 * Method to record the values in stepValues for the current timestep, according to the recording policy.
+	 * @param timeStep - current timestep of the simulation
+	 */
+	private void record(double timeStep) {
+		switch (recordingPolicy.getMode()) {
+			case EVERY_STEP:
+				addRow(trajectory, timeStep, stepValues);
+				break;
+			case EVERY_N_STEPS:
+				if (stepCount % recordingPolicy.getInterval() == 0)
+					addRow(trajectory, timeStep, stepValues);
+				break;
+			case DAILY:
+				int day = (int) timeStep;
+				if (dayCount > 0 && day != currentDay) { // a new day: write the final aggregates for the previous day
+					writeDay();
+					dayCount = 0;
+					dayRow = -1;
+				}
+				if (dayCount == 0) {
+					currentDay = day;
+					for (int c = 0; c < stepValues.length; c ++) {
+						daySum[c] = stepValues[c];
+						dayMin[c] = stepValues[c];
+						dayMax[c] = stepValues[c];
+					}
+				} else {
+					for (int c = 0; c < stepValues.length; c ++) {
+						daySum[c] += stepValues[c];
+						if (stepValues[c] < dayMin[c])
+							dayMin[c] = stepValues[c];
+						if (stepValues[c] > dayMax[c])
+							dayMax[c] = stepValues[c];
+					}
+				}
+				dayCount ++;
+				break;
+			default: // NONE
+				break;
+		}
+	}
+	
+	/**
+	 * Method to add a row to a trajectory.
+	 * @param store - the trajectory
+	 * @param time - time of the row
+	 * @param values - the value for each column
+	 */
+	private static void addRow(TrajectoryStore store, double time, double[] values) {
+		int row = store.addRow(time);
+		for (int c = 0; c < values.length; c ++)
+			store.set(c, row, values[c]);
+	}
+	
+	/**
+	 * Method to write the aggregates of the current day to the daily stores (mean to the trajectory, 
+	 * min and max to dailyMin and dailyMax).  The day's row is added the first time, and overwritten 
+	 * after that, so this can be called for a day that is not finished yet (e.g. to read the data 
+	 * in the middle of a run).
+	 */
+	private void writeDay() {
+		if (dayCount == 0)
+			return;
+		if (dayRow < 0) {
+			dayRow = trajectory.addRow(currentDay);
+			dailyMin.addRow(currentDay);
+			dailyMax.addRow(currentDay);
+		}
+		for (int c = 0; c < daySum.length; c ++) {
+			trajectory.set(c, dayRow, daySum[c] / dayCount);
+			dailyMin.set(c, dayRow, dayMin[c]);
+			dailyMax.set(c, dayRow, dayMax[c]);
+		}
+	}
+	
+	/**
+	 * Method to clear all the recorded data.
+	 */
+	private void clearRecording() {
+		trajectory.clear();
+		if (dailyMin != null) {
+			dailyMin.clear();
+			dailyMax.clear();
+		}
+		stepCount = 0;
+		dayCount = 0;
+		dayRow = -1;
+	}
+	
+	/**
+	 * Method to build the series for one column of the trajectory (writing the current day first, when
+	 * recording daily).
+	 * @param store - the trajectory to read
+	 * @param column - the column
+	 * @param name - the name of the series
+	 * @return the series
+	 */
+	private XYSeries buildSeries(TrajectoryStore store, int column, String name) {
+		if (recordingPolicy.getMode() == RecordingPolicy.Mode.DAILY)
+			writeDay();
+		return store.toXYSeries(column, name);
+	}
+	
+	/**
+	 * Method to return the index of a trajectory column from its name.
+	 * @param name - the name of the column ("eggs", "instar1", "instar2", "instar3", "pupae", "males", 
+	 * 				"females", "fruit quality", or "females1" to "females7")
+	 * @return the index of the column
+	 * @throws IllegalArgumentException if there is no column with this name
+	 */
+	private static int getColumn(String name) {
+		for (int c = 0; c < COLUMN_NAMES.length; c ++) {
+			if (COLUMN_NAMES[c].equals(name))
+				return c;
+		}
+		throw new IllegalArgumentException(name + " - not a valid series!");
+	}
+	
+	/**
+	 * Method to return the daily minimums of a lifestage population (or fruit quality); only recorded
+	 * with the daily recording policy.
+	 * @param name - the name of the series ("eggs", "instar1", "instar2", "instar3", "pupae", "males", 
+	 * 				"females", "fruit quality", or "females1" to "females7")
+	 * @return the series of daily minimums (empty if the recording policy is not daily)
+	 * @throws IllegalArgumentException if there is no series with this name
+	 */
+	public XYSeries getDailyMinSeries(String name) {
+		int column = getColumn(name);
+		if (dailyMin == null || recordingPolicy.getMode() != RecordingPolicy.Mode.DAILY)
+			return new XYSeries(name + " min");
+		return buildSeries(dailyMin, column, name + " min");
+	}
+	
+	/**
+	 * Method to return the daily maximums of a lifestage population (or fruit quality); only recorded
+	 * with the daily recording policy.
+	 * @param name - the name of the series ("eggs", "instar1", "instar2", "instar3", "pupae", "males", 
+	 * 				"females", "fruit quality", or "females1" to "females7")
+	 * @return the series of daily maximums (empty if the recording policy is not daily)
+	 * @throws IllegalArgumentException if there is no series with this name
+	 */
+	public XYSeries getDailyMaxSeries(String name) {
+		int column = getColumn(name);
+		if (dailyMax == null || recordingPolicy.getMode() != RecordingPolicy.Mode.DAILY)
+			return new XYSeries(name + " max");
+		return buildSeries(dailyMax, column, name + " max");
 	}
 	
 	/**
@@ -640,56 +1119,56 @@ public class SWDCellSingle {
 	 * timestep) for eggs.
 	 * @return the current data series for eggs
 	 */
-	public XYSeries getEggSeries() {return UtilityMethods.cloneSeries(eggSeries, "Eggs"); }
+	public XYSeries getEggSeries() {return buildSeries(trajectory, EGGS, "Eggs"); }
 	
 	/**
 	 * Method to return the series of data points (current population for each timestep up to the current
 	 * timestep) for instar1.
 	 * @return the current data series for instar1
 	 */
-	public XYSeries getInst1Series() {return UtilityMethods.cloneSeries(inst1Series, "Instar 1"); }
+	public XYSeries getInst1Series() {return buildSeries(trajectory, INST1, "Instar 1"); }
 	
 	/**
 	 * Method to return the series of data points (current population for each timestep up to the current
 	 * timestep) for instar2.
 	 * @return the current data series for instar2
 	 */
-	public XYSeries getInst2Series() {return UtilityMethods.cloneSeries(inst2Series, "Instar 2"); }
+	public XYSeries getInst2Series() {return buildSeries(trajectory, INST2, "Instar 2"); }
 	
 	/**
 	 * Method to return the series of data points (current population for each timestep up to the current
 	 * timestep) for instar3.
 	 * @return the current data series for instar3
 	 */
-	public XYSeries getInst3Series() {return UtilityMethods.cloneSeries(inst3Series, "Instar 3"); }
+	public XYSeries getInst3Series() {return buildSeries(trajectory, INST3, "Instar 3"); }
 	
 	/**
 	 * Method to return the series of data points (current population for each timestep up to the current
 	 * timestep) for pupae.
 	 * @return the current data series for pupae
 	 */
-	public XYSeries getPupaeSeries() {return UtilityMethods.cloneSeries(pupaeSeries, "Pupae"); }
+	public XYSeries getPupaeSeries() {return buildSeries(trajectory, PUPAE, "Pupae"); }
 	
 	/**
 	 * Method to return the series of data points (current population for each timestep up to the current
 	 * timestep) for adult males.
 	 * @return the current data series for adult males
 	 */
-	public XYSeries getMalesSeries() {return UtilityMethods.cloneSeries(maleSeries, "Males"); }
+	public XYSeries getMalesSeries() {return buildSeries(trajectory, MALES, "Males"); }
 	
 	/**
 	 * Method to return the series of data points (current population for each timestep up to the current
 	 * timestep) for adult females.
 	 * @return the current data series for adult females
 	 */
-	public XYSeries getFemalesSeries() {return UtilityMethods.cloneSeries(femaleSeries, "Females"); }
+	public XYSeries getFemalesSeries() {return buildSeries(trajectory, FEMALES, "Females"); }
 	
 	/**
 	 * Method to return the series of data points (current fruit quality for each timestep up to the current
 	 * timestep).
 	 * @return the current data series for fruit quality
 	 */
-	public XYSeries getFruitQualitySeries() {return UtilityMethods.cloneSeries(fruitQualitySeries, "Fruit Quality"); }
+	public XYSeries getFruitQualitySeries() {return buildSeries(trajectory, FRUIT_QUALITY, "Fruit Quality"); }
 	
 	/**
 	 * Method to return the series of data points (current population for each timestep up to the current timestep)
@@ -699,8 +1178,8 @@ public class SWDCellSingle {
 	 * @throws IllegalArgumentException if the index is out of bounds
 	 */
 	public XYSeries getFemaleStageSeries(int index) {
-		if (index < 0 || index >= femaleStageSeries.length)
+		if (index < 0 || index >= CompiledParameters.NUM_FEMALE_STAGES)
 			throw new IllegalArgumentException("index out of bounds!");
-		return UtilityMethods.cloneSeries(femaleStageSeries[index], "Females" + (index + 1));
+		return buildSeries(trajectory, FEMALE_STAGES + index, "Females" + (index + 1));
 	}
 }
\ No newline at end of file
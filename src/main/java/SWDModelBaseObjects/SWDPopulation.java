@@ -1,7 +1,12 @@
 package SWDModelBaseObjects;
 
+import java.util.Arrays;
+
 import SWDModelReferenceClasses.EulersMethod;
+import SWDModelReferenceClasses.Integrator;
+import SWDModelReferenceClasses.PhotoperiodTable;
 import SWDModelReferenceClasses.SolveParameters;
+import SWDModelReferenceClasses.StageSystem;
 import SWDModelReferenceClasses.UtilityMethods;
 
 /**
@@ -36,6 +41,25 @@ public class SWDPopulation {
 	 
 	 private int crossedDiapDay = -1;
 	 
+	 private PhotoperiodTable photoperiod; // daylight hours for the current year (shared by all the populations at the same latitude)
+	 
+	 // precomputed diapause switches, possibly shared with other populations (null to solve them on every timestep)
+	 private DiapauseTrajectory diapauseTrajectory;
+	 private int diapauseStep; // number of timesteps since the population was reset, if they were all read from the trajectory (-1 otherwise)
+	 private CompiledParameters diapauseTrajectoryParams; // snapshot the trajectory was last checked against
+	 
+	 // integration scheme for the populations (null for Euler's method, see EulersMethod)
+	 private Integrator integrator;
+	 private StageSystem stageSystem; // system of DE for the current timestep (only used with an integrator)
+	 private double[] stagePopulations; // populations passed to the integrator
+	 private double[] integratorWork; // scratch array of the integrator (see Integrator.getWorkSize)
+	 private final double[] stepIntegrals = new double[CompiledParameters.NUM_STAGES]; // integral of each population over the last timestep
+	 
+	 // scratch arrays for computePopulation, so that a timestep doesn't allocate (their values don't outlive a call)
+	 private final double[] devRate = new double[CompiledParameters.NUM_DEV_STAGES]; // development rates per stage
+	 private final double[] mortalityNat = new double[CompiledParameters.NUM_STAGES]; // mortality rates per stage, due to natural causes (food, etc.)
+	 private final double[] previousFemales = new double[CompiledParameters.NUM_FEMALE_STAGES]; // female stages at the previous timestep
+	 
 	  
 	 /**
 	  * Constructor to initialize the population object.  Parameters set to those specified
@@ -116,6 +140,22 @@ public class SWDPopulation {
 	  */
 	 public double[] getFemStages() {return UtilityMethods.copyDoubleArray(currentFemaleStages); }
 	 
+	 /**
+	  * Method to copy the current population of every lifestage into an array, without allocating
+	  * (in order of indices: 0-eggs, 1-instar1, 2-instar2, 3-instar3, 4-pupae, 5-males, 6 to 12-females1 to females7)
+	  * @param populations - the array to fill (at least 13 long)
+	  */
+	 public void copyPopulations(double[] populations) {
+		 populations[0] = currentEggs;
+		 populations[1] = currentInst1;
+		 populations[2] = currentInst2;
+		 populations[3] = currentInst3;
+		 populations[4] = currentPupae;
+		 populations[5] = currentMales;
+		 for (int i = 0; i < currentFemaleStages.length; i ++)
+			 populations[i + 6] = currentFemaleStages[i];
+	 }
+	 
 	
 	 /**
 	  * Method to return the current total number of bugs in the population
@@ -132,18 +172,26 @@ public class SWDPopulation {
 	  * @param params - parameters object, including the initial population values
 	  */
 	 public void readPopulation(Parameters params) {
+		 readPopulation(params.compile());
+	 }
+	 
+	 /**
+	  * Method to reset the populations to their initial values
+	  * @param params - compiled parameters, including the initial population values
+	  */
+	 public void readPopulation(CompiledParameters params) {
 		 
 		 addInitPop = true;
 		 
-		 currentEggs = params.getParameter("initial eggs");
-		 currentInst1 = params.getParameter("initial instar1");
-		 currentInst2 = params.getParameter("initial instar2");
-		 currentInst3 = params.getParameter("initial instar3");
-		 currentPupae = params.getParameter("initial pupae");
-		 currentMales = params.getParameter("initial males");
+		 currentEggs = params.getInitialPopulation(0);
+		 currentInst1 = params.getInitialPopulation(1);
+		 currentInst2 = params.getInitialPopulation(2);
+		 currentInst3 = params.getInitialPopulation(3);
+		 currentPupae = params.getInitialPopulation(4);
+		 currentMales = params.getInitialPopulation(5);
 		 
 		 for (int i = 0; i < currentFemaleStages.length; i ++)
-			 currentFemaleStages[i] = params.getParameter("initial females" + (i + 1));
+			 currentFemaleStages[i] = params.getInitialPopulation(i + 6);
 	 }
 	 
 	 /**
@@ -155,6 +203,57 @@ public class SWDPopulation {
 		 addInitPop = toSet;
 	 }
 	 
+	 /**
+	  * Method to set the integration scheme for the populations, instead of Euler's method: the integrator
+	  * advances all the populations over the timestep, with the rates of the timestep (see Integrator).  The same
+	  * integrator can be shared by populations if it is thread-safe (see ExponentialIntegrator).
+	  * Note: the fruit quality and the diapause switches are still computed once per timestep.
+	  * @param integrator - the integration scheme (null for Euler's method, the default)
+	  */
+	 public void setIntegrator(Integrator integrator) {
+		 this.integrator = integrator;
+		 if (integrator != null && stageSystem == null) {
+			 stageSystem = new StageSystem();
+			 stagePopulations = new double[CompiledParameters.NUM_STAGES];
+		 }
+		 if (integrator != null && (integratorWork == null || integratorWork.length < integrator.getWorkSize()))
+			 integratorWork = new double[integrator.getWorkSize()];
+	 }
+	 
+	 /**
+	  * Method to return the integration scheme for the populations
+	  * @return the integrator (null for Euler's method)
+	  */
+	 public Integrator getIntegrator() { return integrator; }
+	 
+	 /**
+	  * Method to return the integral of the population of a lifestage over the last timestep, as computed by the
+	  * integrator (see setIntegrator; with Euler's method, the cumulative populations use the populations at the end
+	  * of each timestep instead)
+	  * @param stage - the lifestage (0 to 12)
+	  * @return the integral over the last timestep
+	  */
+	 public double getStepIntegral(int stage) { return stepIntegrals[stage]; }
+	 
+	 /**
+	  * Method to set the precomputed diapause switches (s1 and s2) the population reads, instead of solving them
+	  * (see DiapauseTrajectory).  The same trajectory can be shared by any number of populations.  The switches
+	  * are read from it as long as it has the timestep the population is at, with the same temperature and
+	  * diapause parameters, and diapause was not ignored since the population was reset; otherwise they are
+	  * solved as usual, so the results are exactly the same either way.
+	  * @param diapauseTrajectory - the trajectory to read (null to solve the switches on every timestep)
+	  */
+	 public void setDiapauseTrajectory(DiapauseTrajectory diapauseTrajectory) {
+		 this.diapauseTrajectory = diapauseTrajectory;
+		 diapauseTrajectoryParams = null; // check the parameters on the next timestep
+	 }
+	 
+	 /**
+	  * Method to return the precomputed diapause switches the population reads
+	  * @return the diapause trajectory (null if the switches are solved on every timestep)
+	  */
+	 public DiapauseTrajectory getDiapauseTrajectory() { return diapauseTrajectory; }
+	 
 	 /**
 	  * Method to return the day the diapause threshold was crossed
 	  * @return the day the diapause threshold was crossed (-1 if never crossed)
@@ -163,6 +262,33 @@ public class SWDPopulation {
 		 return crossedDiapDay;
 	 }
 	 
+	 /**
+	  * Method to set the state of the population (current populations, diapause multipliers and diapause
+	  * crossing) to that of another population, e.g. to restore a snapshot.
+	  * @param other - the population to copy the state of
+	  */
+	 public void copyState(SWDPopulation other) {
+		 currentEggs = other.currentEggs;
+		 currentInst1 = other.currentInst1;
+		 currentInst2 = other.currentInst2;
+		 currentInst3 = other.currentInst3;
+		 currentPupae = other.currentPupae;
+		 currentMales = other.currentMales;
+		 System.arraycopy(other.currentFemaleStages, 0, currentFemaleStages, 0, currentFemaleStages.length);
+		 
+		 s1 = other.s1;
+		 s2 = other.s2;
+		 crossedDiapause = other.crossedDiapause;
+		 addInitPop = other.addInitPop;
+		 crossedDiapDay = other.crossedDiapDay;
+		 photoperiod = other.photoperiod; // shared, never changed
+		 diapauseTrajectory = other.diapauseTrajectory; // shared, never changed
+		 diapauseStep = other.diapauseStep;
+		 diapauseTrajectoryParams = other.diapauseTrajectoryParams;
+		 setIntegrator(other.integrator);
+		 System.arraycopy(other.stepIntegrals, 0, stepIntegrals, 0, stepIntegrals.length);
+	 }
+	 
 	 /**
 	  * Resets the population to its state at timestep 0. - all the populations are reset to their initial values.
 	  */
@@ -184,6 +310,8 @@ public class SWDPopulation {
 		 
 		 s1 = 0;
 		 s2 = 0;
+		 diapauseStep = 0; // the diapause switches can be read from the trajectory again
+		 Arrays.fill(stepIntegrals, 0);
 		 
 		 currentEggs = 0;
 		 currentInst1 = 0;
@@ -202,41 +330,45 @@ public class SWDPopulation {
 	  * This method advances the time for the population and runs all the life processes accordingly (i.e. laying 
 	  * eggs, developing to the next lifestage, dying, etc.).  Takes in the arguments needed to calculate fertility
 	  * rate, development rate for all lifestages (except for the adults) and mortality rate for all lifestages as
-	  * a Parameters object.
+	  * a CompiledParameters snapshot (so no parameters are looked up by name during the timestep).
 	  * Note: the time is advanced by one integration step.
 	  * @param temperature - current temperature during this timestep
 	  * @param fruitQuality - value between 0 and 1 inclusive representing fruit quality (affects mortality and development)
+	  * @param params - compiled parameters for the simulation
 	  * @param ignoreFruit - boolean to determine whether or not to ignore the effect of fruit quality on the flies
 	  * @param ignoreDiapause - boolean to determine whether or not to ignore the effect of diapause on the flies
 	  * @param dt - step for numeric integration (Euler's method)
 	  * @param timeStep - current step for the simulation
 	  * @throws IllegalArgumentException if the male proportion is an invalid value (i.e. not between 0 and 1 inclusive).
 	  */
-	 public void computePopulation(double temperature, double fruitQuality, Parameters params, boolean ignoreFruit, boolean ignoreDiapause, double dt, double timeStep) { 
+	 public void computePopulation(double temperature, double fruitQuality, CompiledParameters params, boolean ignoreFruit, boolean ignoreDiapause, double dt, double timeStep) { 
+		 computePopulation(new TemperatureRates(temperature, params), fruitQuality, params, ignoreFruit, ignoreDiapause, dt, timeStep);
+	 }
+	 
+	 /**
+	  * This method advances the time for the population (see computePopulation with a temperature for details), 
+	  * using temperature-dependent rates that have already been computed (e.g. taken from a RateCache).
+	  * Note: the time is advanced by one integration step.
+	  * @param rates - fecundity, development and mortality rates at the current temperature
+	  * @param fruitQuality - value between 0 and 1 inclusive representing fruit quality (affects mortality and development)
+	  * @param params - compiled parameters for the simulation
+	  * @param ignoreFruit - boolean to determine whether or not to ignore the effect of fruit quality on the flies
+	  * @param ignoreDiapause - boolean to determine whether or not to ignore the effect of diapause on the flies
+	  * @param dt - step for numeric integration (Euler's method)
+	  * @param timeStep - current step for the simulation
+	  */
+	 public void computePopulation(TemperatureRates rates, double fruitQuality, CompiledParameters params, boolean ignoreFruit, boolean ignoreDiapause, double dt, double timeStep) { 
 		 
 		 // note: in order of indices: 0-eggs, 1-instar1, 2-instar2, 3-instar3, 4-pupae, 5-males, 6-females
 		 
-		// calculate fertility rate
-		 double fertility = SolveParameters.solveSpecificFertility(temperature, params);
+		 double temperature = rates.getTemperature();
+		 
+		// fertility rate
+		 double fertility = rates.getFertility();
 		 double fertilityDiapauseEffect = 1;
 		 
 		 if (!ignoreDiapause) { 
-			 int year = ((int) timeStep) / 365;
-			 int date = ((int) timeStep) % 365;
-			 int offset = SWDModelReferenceClasses.Daylight.getOffSet(year);
-			 double latitude = params.getParameter("latitude");
-			 double hours = SWDModelReferenceClasses.Daylight.getDayLightHours(year, date + offset, latitude);
-			 
-			 double criticalT = params.getParameter("diapause critical temp");
-			 double daylightHours = params.getParameter("diapause daylight hours");
-			 
-			 // NOTE: don't set s1 here since the previous value of s1 is needed to calculate s2
-			 int tempS1 = SolveParameters.solveDiapauseMultS1(hours, temperature, s1, s2, criticalT, daylightHours); // diapause multiplier (s1)
-			 s2 = SolveParameters.solveDiapauseMultS2(hours, s1, s2, daylightHours); // s2 value for current dt
-			 s1 = tempS1; // s1 value for current dt
-			 
-			 fertilityDiapauseEffect = s1 * SolveParameters.solveFertilityDiapauseEffect(hours);
-
+			 fertilityDiapauseEffect = stepDiapause(temperature, params, timeStep); // updates s1 and s2
 			 
 			 if (s1 == 0 && !crossedDiapause && !addInitPop)
 				 return;
@@ -247,37 +379,32 @@ public class SWDPopulation {
 				 crossedDiapDay = (int) (timeStep);
 			 }
 			 
-		 }
+		 } else
+			 diapauseStep = -1; // the switches don't change while diapause is ignored, so they no longer follow the trajectory
 		 
 		 fertility *= fertilityDiapauseEffect;
 		 //fec[((int)timeStep) % 365] = fertilityDiapauseEffect;//TODO
 				 
 		 
-		 double[] devMaxes = params.getArrayParameters("development max");
-		 
-		 double[] devRate = new double[11]; // development rates per stage
-		 double[] mortalityNat = new double[13]; // mortality rates per stage, due to natural causes (food, etc.)
-		 
 		 double fruitQConstant = 0.5; // default value taken from the aphid paper
 		 
-		 double fruitEffectDevelopment = SolveParameters.solveDevelopmentPlantEffect(fruitQConstant, fruitQuality, params);
+		 // plant effect is multiplicative on development, and summative on mortality
+		 // if the user chose to ignore the effect of fruit quality on the flies, the multiplier is 1 and the added factor is 0
+		 double fruitEffectDevelopment = 1;
+		 double fruitQRatio = 0;
+		 if (!ignoreFruit) {
+			 fruitQRatio = SolveParameters.solveFruitQualityRatio(fruitQConstant, fruitQuality, params); // same for all the stages
+			 fruitEffectDevelopment = SolveParameters.solveDevelopmentPlantEffectFromRatio(fruitQRatio, params);
+		 }
 		 
-		 for (int i = 0; i < 13; i ++) { // calculate the stage-specific mortality and development rates
-			 if (i <= 4) // no development rates for adults
-				 devRate[i] = SolveParameters.solveDev_Briere_Juvenile(temperature, devMaxes[i]); 
-				 //devRate[i] = SolveParameters.solveDev_newData(temperature, devMaxes[i]);
-			 else if (i > 5 && i < 12)
-				 devRate[i - 1] = devMaxes[i - 1]; // female development is independent of temperature
-			 mortalityNat[i] = SolveParameters.solveMortality(temperature, params, params.getStage(i));
-			 
-			 double fruitEffectMortality = SolveParameters.solveMortalityPlantEffect(fruitQConstant, fruitQuality, params, params.getStage(i));
+		 for (int i = 0; i < 13; i ++) { // apply the fruit effects to the stage-specific mortality and development rates
+			 if (i < 11)
+				 devRate[i] = rates.getDevelopmentRate(i);
+			 mortalityNat[i] = rates.getMortalityRate(i);
 			 
-			 // plant effect is multiplicative on development, and summative on mortality
-			 
-			 if (ignoreFruit) { // if the user chose to ignore the effect of fruit quality on the flies
-				 fruitEffectDevelopment = 1; // since fruit is a multiplier for development, to ignore fruit the multiplier is 1
-				 fruitEffectMortality = 0; // since fruit is a sum on mortality, to ignore fruit the added factor is 0
-			 }
+			 double fruitEffectMortality = 0;
+			 if (!ignoreFruit)
+				 fruitEffectMortality = SolveParameters.solveMortalityPlantEffectFromRatio(fruitQRatio, params, i);
 			 
 			 if (i < 5) // no development rate for adults
 				 devRate[i] *= fruitEffectDevelopment; // fruit has a multiplicative effect on development rate
@@ -286,31 +413,33 @@ public class SWDPopulation {
 			 mortalityNat[i] += fruitEffectMortality; // fruit has a summative effect on mortality rate
 		 }
 		 
-		 double[] tempFemalesPopulation = UtilityMethods.copyDoubleArray(currentFemaleStages); // ensure to use populations from the timestep before
+		 if (integrator != null) {
+			 integrate(fertility, devRate, mortalityNat, params, dt);
+			 return;
+		 }
+		 
+		 double[] tempFemalesPopulation = previousFemales; // ensure to use populations from the timestep before
+		 System.arraycopy(currentFemaleStages, 0, tempFemalesPopulation, 0, tempFemalesPopulation.length);
 		
 		 // calculate the current populations of all the lifestages
 		 
-		 //double[] femStageConstantDev = params.getArrayParameters("constant dev rate");
-		 double[] eggViabilities = params.getArrayParameters("egg viability");
-		 double[] mortalitiesPred = params.getArrayParameters("mortality due to predation");
-		
-		 double maleProportion = params.getParameter("male proportion");
+		 double maleProportion = params.getMaleProportion();
 		 double maleProportion_advFemStage = 0; // no males develop from previous female lifestages
 		
 		 currentFemaleStages[0] = EulersMethod.getFemalesX(maleProportion, devRate[4], currentPupae, 
-												mortalityNat[6], mortalitiesPred[6], devRate[5], currentFemaleStages[0], dt);
+												mortalityNat[6], params.getMortalityPredation(6), devRate[5], currentFemaleStages[0], dt);
 		
 		 // here, it's ok to go in order since all the populations from the previous timestep are saved in femalesCurrentTimestep
 		
 		 for (int i = 1; i < currentFemaleStages.length; i ++) {
 			 if (i < currentFemaleStages.length - 1) {
 				 currentFemaleStages[i] = EulersMethod.getFemalesX(maleProportion_advFemStage, devRate[i + 4], tempFemalesPopulation[i - 1],
-																		mortalityNat[i + 6], mortalitiesPred[i + 6], devRate[i + 5], 
+																		mortalityNat[i + 6], params.getMortalityPredation(i + 6), devRate[i + 5], 
 																		currentFemaleStages[i], dt);
 			 }
 			 else {
 				 currentFemaleStages[i] = EulersMethod.getFemalesX(maleProportion_advFemStage, devRate[i + 4], tempFemalesPopulation[i - 1],
-						mortalityNat[i + 6], mortalitiesPred[i + 6], 0, // development rate N/A for females stage 7 
+						mortalityNat[i + 6], params.getMortalityPredation(i + 6), 0, // development rate N/A for females stage 7 
 						currentFemaleStages[i], dt);
 			 }
 				
@@ -319,14 +448,93 @@ public class SWDPopulation {
 		 // note: in order of indices: 0-eggs, 1-instar1, 2-instar2, 3-instar3, 4-pupae, 5-males, 6-females
 		
 		 // computed in reverse order to avoid excess use of temporary variables
-		 currentMales = EulersMethod.getMales(devRate[4], maleProportion, mortalityNat[5], mortalitiesPred[5], currentPupae, currentMales, dt);
-		 currentPupae = EulersMethod.getPupae(devRate[3], mortalityNat[4], mortalitiesPred[4], devRate[4], currentInst3, currentPupae, dt);
-		 currentInst3 = EulersMethod.getInstX(devRate[2], mortalityNat[3], mortalitiesPred[3], devRate[3], currentInst2, currentInst3, dt);
-		 currentInst2 = EulersMethod.getInstX(devRate[1], mortalityNat[2], mortalitiesPred[2], devRate[2], currentInst1, currentInst2, dt);
-		 currentInst1 = EulersMethod.getInstX(devRate[0], mortalityNat[1], mortalitiesPred[1], devRate[1], currentEggs, currentInst1, dt);
-		 currentEggs = EulersMethod.getEggs(fertility, eggViabilities, tempFemalesPopulation, currentEggs, mortalityNat[0], mortalitiesPred[0], devRate[0], dt);
+		 currentMales = EulersMethod.getMales(devRate[4], maleProportion, mortalityNat[5], params.getMortalityPredation(5), currentPupae, currentMales, dt);
+		 currentPupae = EulersMethod.getPupae(devRate[3], mortalityNat[4], params.getMortalityPredation(4), devRate[4], currentInst3, currentPupae, dt);
+		 currentInst3 = EulersMethod.getInstX(devRate[2], mortalityNat[3], params.getMortalityPredation(3), devRate[3], currentInst2, currentInst3, dt);
+		 currentInst2 = EulersMethod.getInstX(devRate[1], mortalityNat[2], params.getMortalityPredation(2), devRate[2], currentInst1, currentInst2, dt);
+		 currentInst1 = EulersMethod.getInstX(devRate[0], mortalityNat[1], params.getMortalityPredation(1), devRate[1], currentEggs, currentInst1, dt);
+		 currentEggs = EulersMethod.getEggs(fertility, params, tempFemalesPopulation, currentEggs, mortalityNat[0], params.getMortalityPredation(0), devRate[0], dt);
 
 		 
 	 }
 	 
+	 
+	 /**
+	  * Method to advance all the populations over the timestep with the integrator (instead of Euler's method), and
+	  * keep their integrals over the timestep.
+	  * @param fertility - fertility during the timestep (with the diapause effect)
+	  * @param devRate - development rates per stage (with the fruit effect)
+	  * @param mortalityNat - mortality rates per stage, due to natural causes (with the fruit effect)
+	  * @param params - compiled parameters for the simulation
+	  * @param dt - length of the timestep
+	  */
+	 private void integrate(double fertility, double[] devRate, double[] mortalityNat, CompiledParameters params, double dt) {
+		 stageSystem.set(fertility, devRate, mortalityNat, params);
+		 copyPopulations(stagePopulations);
+		 integrator.advance(stageSystem, stagePopulations, dt, stepIntegrals, integratorWork);
+		 currentEggs = stagePopulations[0];
+		 currentInst1 = stagePopulations[1];
+		 currentInst2 = stagePopulations[2];
+		 currentInst3 = stagePopulations[3];
+		 currentPupae = stagePopulations[4];
+		 currentMales = stagePopulations[5];
+		 for (int i = 0; i < currentFemaleStages.length; i ++)
+			 currentFemaleStages[i] = stagePopulations[i + 6];
+	 }
+	 
+	 /**
+	  * Method to advance the diapause switches (s1 and s2) by one integration step, reading them from the diapause
+	  * trajectory if possible (see setDiapauseTrajectory).
+	  * @param temperature - current temperature during this timestep
+	  * @param params - compiled parameters for the simulation
+	  * @param timeStep - current step for the simulation
+	  * @return the diapause multiplier for fecundity
+	  */
+	 private double stepDiapause(double temperature, CompiledParameters params, double timeStep) {
+		 if (onDiapauseTrajectory(temperature, params, timeStep)) { // read the switches from the trajectory, instead of solving them
+			 int step = diapauseStep ++;
+			 s1 = diapauseTrajectory.getS1(step);
+			 s2 = diapauseTrajectory.getS2(step);
+			 return diapauseTrajectory.getFertilityDiapauseEffect(step);
+		 }
+		 
+		 diapauseStep = -1; // the switches are solved until the population is reset
+		 int year = ((int) timeStep) / 365;
+		 int date = ((int) timeStep) % 365;
+		 double latitude = params.getLatitude();
+		 if (photoperiod == null || !photoperiod.matches(latitude, year)) // daylight hours are precomputed per latitude and year
+			 photoperiod = PhotoperiodTable.get(latitude, year);
+		 double hours = photoperiod.getDayLightHours(date);
+		 
+		 double criticalT = params.getDiapauseCriticalTemp();
+		 double daylightHours = params.getDiapauseDaylightHours();
+		 
+		 // NOTE: don't set s1 here since the previous value of s1 is needed to calculate s2
+		 int tempS1 = SolveParameters.solveDiapauseMultS1(hours, temperature, s1, s2, criticalT, daylightHours); // diapause multiplier (s1)
+		 s2 = SolveParameters.solveDiapauseMultS2(hours, s1, s2, daylightHours); // s2 value for current dt
+		 s1 = tempS1; // s1 value for current dt
+		 
+		 return s1 * photoperiod.getFertilityDiapauseEffect(date);
+	 }
+	 
+	 /**
+	  * Method to check if the diapause switches for the current timestep can be read from the diapause trajectory:
+	  * every timestep since the population was reset was read from it, and it has the same step (timestep and
+	  * temperature), computed with the same diapause parameters.
+	  * @param temperature - current temperature during this timestep
+	  * @param params - compiled parameters for the simulation
+	  * @param timeStep - current step for the simulation
+	  * @return can the switches be read from the trajectory? true or false
+	  */
+	 private boolean onDiapauseTrajectory(double temperature, CompiledParameters params, double timeStep) {
+		 if (diapauseTrajectory == null || diapauseStep < 0)
+			 return false;
+		 if (params != diapauseTrajectoryParams) { // the parameters changed since the last check
+			 if (!diapauseTrajectory.appliesTo(params))
+				 return false;
+			 diapauseTrajectoryParams = params;
+		 }
+		 return diapauseTrajectory.matches(diapauseStep, timeStep, temperature);
+	 }
+	 
 }
@@ -0,0 +1,229 @@
+package SWDModelBaseObjects;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class is the registry of the metrics of the simulations running in this JVM (one instance, see get),
+ * exposed as an MBean (see SimulationMetricsMBean; ThreadedBatchRunner registers it, so it can be watched in
+ * jconsole while a sweep runs).
+ * The counters are only updated once per simulation (e.g. its number of steps is added when it is done), so
+ * they cost nothing in the integration loop.  The time of the phases of the steps (rate evaluation, integration
+ * and recording) is only measured once phase timing is enabled, which is done the first time one of the phase
+ * times is read (i.e. once a JMX client looks at them), or with setPhaseTimingEnabled; even then, only one step
+ * in PHASE_SAMPLE_INTERVAL is timed, and its times are scaled up (so the phase times are estimates).
+ * The queue depth, workers and cache hit ratios are read from the current sweep (see setSweep).
+ */
+public class SimulationMetrics implements SimulationMetricsMBean {
+
+	public static final String OBJECT_NAME = "SWDModel:type=SimulationMetrics"; // name to register the MBean with
+	public static final int PHASE_SAMPLE_INTERVAL = 16; // one step in this many is timed (a power of 2)
+
+	private static final SimulationMetrics INSTANCE = new SimulationMetrics();
+	private static volatile boolean phaseTiming = false; // read on every step, so it is kept out of the instance
+
+	private final AtomicLong started = new AtomicLong();
+	private final AtomicLong completed = new AtomicLong();
+	private final AtomicLong failed = new AtomicLong();
+	private final AtomicLong steps = new AtomicLong();
+	private final AtomicLong rateNanos = new AtomicLong();
+	private final AtomicLong integrationNanos = new AtomicLong();
+	private final AtomicLong recordingNanos = new AtomicLong();
+	private final AtomicLong outputNanos = new AtomicLong();
+
+	private long lastSteps; // steps at the previous read of the steps per second
+	private long lastReadNanos = System.nanoTime(); // time of the previous read of the steps per second
+
+	// the current sweep (null if there is none)
+	private volatile ForkJoinPool pool;
+	private volatile RateCache rateCache;
+	private volatile FruitQualityCache fruitCache;
+	private volatile DiapauseCache diapauseCache;
+
+	private SimulationMetrics() {}
+
+	/**
+	 * Method to return the metrics of the simulations running in this JVM
+	 * @return the metrics
+	 */
+	public static SimulationMetrics get() { return INSTANCE; }
+
+	/**
+	 * Method to return whether the phases of a step should be timed (see the class description)
+	 * @param step - the number of the step (e.g. since the cell was reset)
+	 * @return time the phases of the step? true or false
+	 */
+	public static boolean samplePhases(long step) {
+		return phaseTiming && (step & (PHASE_SAMPLE_INTERVAL - 1)) == 0;
+	}
+
+	// -----------------------------------------------------------------------------------------UPDATES
+
+	/**
+	 * Method to count a simulation as started
+	 */
+	public void simulationStarted() { started.incrementAndGet(); }
+
+	/**
+	 * Method to count a simulation as completed
+	 */
+	public void simulationCompleted() { completed.incrementAndGet(); }
+
+	/**
+	 * Method to count a simulation as failed
+	 */
+	public void simulationFailed() { failed.incrementAndGet(); }
+
+	/**
+	 * Method to add integration steps done by a simulation
+	 * @param count - the number of steps
+	 */
+	public void addSteps(long count) { steps.addAndGet(count); }
+
+	/**
+	 * Method to add the time of the phases of a timed step (see samplePhases), scaled to the steps it stands for
+	 * @param rateNanos - time spent evaluating the rates (ns)
+	 * @param integrationNanos - time spent integrating the populations (ns)
+	 * @param recordingNanos - time spent recording the step (ns)
+	 */
+	public void addPhaseTimes(long rateNanos, long integrationNanos, long recordingNanos) {
+		this.rateNanos.addAndGet(rateNanos * PHASE_SAMPLE_INTERVAL);
+		this.integrationNanos.addAndGet(integrationNanos * PHASE_SAMPLE_INTERVAL);
+		this.recordingNanos.addAndGet(recordingNanos * PHASE_SAMPLE_INTERVAL);
+	}
+
+	/**
+	 * Method to add time spent writing the output of a simulation
+	 * @param nanos - the time (ns)
+	 */
+	public void addOutputTime(long nanos) { outputNanos.addAndGet(nanos); }
+
+	/**
+	 * Method to set the current sweep, to read its queue depth, workers and cache hit ratios from
+	 * @param pool - the thread pool of the sweep
+	 * @param rateCache - the cache of temperature-dependent rates of the sweep (null if there is none)
+	 * @param fruitCache - the cache of fruit quality trajectories of the sweep (null if there is none)
+	 * @param diapauseCache - the cache of diapause trajectories of the sweep (null if there is none)
+	 */
+	public void setSweep(ForkJoinPool pool, RateCache rateCache, FruitQualityCache fruitCache, DiapauseCache diapauseCache) {
+		this.pool = pool;
+		this.rateCache = rateCache;
+		this.fruitCache = fruitCache;
+		this.diapauseCache = diapauseCache;
+	}
+
+	/**
+	 * Method to remove the current sweep, if it is the one with the specified thread pool (e.g. once it is shut down)
+	 * @param pool - the thread pool of the sweep
+	 */
+	public void clearSweep(ForkJoinPool pool) {
+		if (this.pool == pool)
+			setSweep(null, null, null, null);
+	}
+
+	// -----------------------------------------------------------------------------------------ATTRIBUTES
+
+	@Override
+	public long getSimulationsStarted() { return started.get(); }
+
+	@Override
+	public long getSimulationsCompleted() { return completed.get(); }
+
+	@Override
+	public long getSimulationsFailed() { return failed.get(); }
+
+	@Override
+	public long getSteps() { return steps.get(); }
+
+	@Override
+	public synchronized double getStepsPerSecond() {
+		long now = System.nanoTime();
+		long total = steps.get();
+		double rate = (now == lastReadNanos) ? 0 : (total - lastSteps) * 1e9 / (now - lastReadNanos);
+		lastSteps = total;
+		lastReadNanos = now;
+		return rate;
+	}
+
+	@Override
+	public boolean isPhaseTimingEnabled() { return phaseTiming; }
+
+	@Override
+	public void setPhaseTimingEnabled(boolean enabled) { phaseTiming = enabled; }
+
+	@Override
+	public double getRateEvaluationTime() { return phaseMillis(rateNanos); }
+
+	@Override
+	public double getIntegrationTime() { return phaseMillis(integrationNanos); }
+
+	@Override
+	public double getRecordingTime() { return phaseMillis(recordingNanos); }
+
+	@Override
+	public double getOutputTime() { return outputNanos.get() / 1e6; }
+
+	/**
+	 * Method to return the time of a phase of the steps, enabling phase timing (see the class description)
+	 * @param nanos - the time of the phase (ns)
+	 * @return the time of the phase (ms)
+	 */
+	private double phaseMillis(AtomicLong nanos) {
+		phaseTiming = true;
+		return nanos.get() / 1e6;
+	}
+
+	@Override
+	public long getQueueDepth() {
+		ForkJoinPool pool = this.pool;
+		return (pool == null) ? 0 : pool.getQueuedSubmissionCount() + pool.getQueuedTaskCount();
+	}
+
+	@Override
+	public int getActiveWorkers() {
+		ForkJoinPool pool = this.pool;
+		return (pool == null) ? 0 : pool.getActiveThreadCount();
+	}
+
+	@Override
+	public int getWorkers() {
+		ForkJoinPool pool = this.pool;
+		return (pool == null) ? 0 : pool.getParallelism();
+	}
+
+	@Override
+	public double getRateCacheHitRatio() {
+		RateCache cache = rateCache;
+		return (cache == null) ? 0 : cache.getHitRate();
+	}
+
+	@Override
+	public double getFruitQualityCacheHitRatio() {
+		FruitQualityCache cache = fruitCache;
+		return (cache == null) ? 0 : hitRatio(cache.getHits(), cache.getMisses());
+	}
+
+	@Override
+	public double getDiapauseCacheHitRatio() {
+		DiapauseCache cache = diapauseCache;
+		return (cache == null) ? 0 : hitRatio(cache.getHits(), cache.getMisses());
+	}
+
+	private static double hitRatio(long hits, long misses) {
+		return (hits + misses == 0) ? 0 : (double) hits / (hits + misses);
+	}
+
+	@Override
+	public synchronized void reset() {
+		started.set(0);
+		completed.set(0);
+		failed.set(0);
+		steps.set(0);
+		rateNanos.set(0);
+		integrationNanos.set(0);
+		recordingNanos.set(0);
+		outputNanos.set(0);
+		lastSteps = 0;
+		lastReadNanos = System.nanoTime();
+	}
+}
@@ -0,0 +1,100 @@
+package SWDModelBaseObjects;
+
+/**
+ * This interface describes the metrics of the simulations running in this JVM, as exposed through JMX (e.g. in
+ * jconsole, under SWDModel:type=SimulationMetrics; see SimulationMetrics).
+ * Times are in milliseconds, summed over all the threads.
+ */
+public interface SimulationMetricsMBean {
+
+	/**
+	 * @return the number of simulations started
+	 */
+	long getSimulationsStarted();
+
+	/**
+	 * @return the number of simulations completed (with their output written)
+	 */
+	long getSimulationsCompleted();
+
+	/**
+	 * @return the number of simulations that failed with an error
+	 */
+	long getSimulationsFailed();
+
+	/**
+	 * @return the number of integration steps done by all the simulations
+	 */
+	long getSteps();
+
+	/**
+	 * @return the number of integration steps per second, since the previous read of this attribute (or since the
+	 * metrics were reset)
+	 */
+	double getStepsPerSecond();
+
+	/**
+	 * @return is the time of the phases of the integration steps measured? true or false
+	 */
+	boolean isPhaseTimingEnabled();
+
+	/**
+	 * @param enabled - measure the time of the phases of the integration steps? true or false
+	 */
+	void setPhaseTimingEnabled(boolean enabled);
+
+	/**
+	 * @return the (estimated) time spent evaluating the rates of the steps: fruit quality and temperature-dependent rates
+	 */
+	double getRateEvaluationTime();
+
+	/**
+	 * @return the (estimated) time spent integrating the populations
+	 */
+	double getIntegrationTime();
+
+	/**
+	 * @return the (estimated) time spent recording the steps: the recorded data and the summary values
+	 */
+	double getRecordingTime();
+
+	/**
+	 * @return the time spent writing the output of the simulations
+	 */
+	double getOutputTime();
+
+	/**
+	 * @return the number of runs waiting for a worker, in the current sweep (0 if there is none)
+	 */
+	long getQueueDepth();
+
+	/**
+	 * @return the number of workers running simulations, in the current sweep (0 if there is none)
+	 */
+	int getActiveWorkers();
+
+	/**
+	 * @return the number of workers of the current sweep (0 if there is none)
+	 */
+	int getWorkers();
+
+	/**
+	 * @return the proportion of the lookups of the rate cache that were hits (0 if there were none)
+	 */
+	double getRateCacheHitRatio();
+
+	/**
+	 * @return the proportion of the lookups of the fruit quality cache that were hits (0 if there were none)
+	 */
+	double getFruitQualityCacheHitRatio();
+
+	/**
+	 * @return the proportion of the lookups of the diapause cache that were hits (0 if there were none)
+	 */
+	double getDiapauseCacheHitRatio();
+
+	/**
+	 * Method to reset the counters and times to 0 (the caches and the sweep are not changed)
+	 */
+	void reset();
+}
@@ -0,0 +1,33 @@
+package SWDModelBaseObjects;
+
+/**
+ * Callback interface for following a simulation while it runs.  Observers registered on an
+ * SWDSimulatorSingle are called after every integration step and at the end of every day with
+ * the state of the cell as primitives, so results can be written, aggregated or monitored as
+ * they are produced (without recording the whole trajectory first, see RecordingPolicy).
+ * The populations array is indexed by lifestage: 0-eggs, 1-instar1, 2-instar2, 3-instar3,
+ * 4-pupae, 5-males, 6 to 12-females1 to females7.
+ * Note: the populations array is reused for every call, so it must not be modified, and it must
+ * be copied if it is kept after the call returns.  Observers are called on the thread running
+ * the simulation.
+ */
+public interface SimulationObserver {
+
+	/**
+	 * Method called after every integration step.
+	 * @param timeStep - the timestep that was just computed
+	 * @param temperature - the temperature during the timestep
+	 * @param populations - the population of each lifestage after the timestep
+	 * @param fruitQuality - the fruit quality after the timestep
+	 */
+	void stepCompleted(double timeStep, double temperature, double[] populations, double fruitQuality);
+
+	/**
+	 * Method called after the last integration step of every day (i.e. when (int) timeStep changes).
+	 * @param day - the day that was just completed
+	 * @param temperature - the temperature during the last timestep of the day
+	 * @param populations - the population of each lifestage at the end of the day
+	 * @param fruitQuality - the fruit quality at the end of the day
+	 */
+	void dayCompleted(int day, double temperature, double[] populations, double fruitQuality);
+}
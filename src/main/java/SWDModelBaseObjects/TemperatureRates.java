@@ -0,0 +1,65 @@
+package SWDModelBaseObjects;
+
+import SWDModelReferenceClasses.SolveParameters;
+
+/**
+ * This class is the immutable vector of temperature-dependent rates for all the lifestages, at
+ * one temperature: the fecundity, the development rates and the natural mortality rates.
+ * These only depend on the temperature and the rate parameters of a CompiledParameters snapshot,
+ * so they can be computed once and reused for every timestep at the same temperature (see RateCache).
+ * Note: the effect of fruit quality is not included; it changes every timestep and is applied
+ * on top of these rates in SWDPopulation.computePopulation.  The effect of diapause on fecundity
+ * is not included either.
+ * Stage indices are the same as in CompiledParameters.
+ */
+public final class TemperatureRates {
+
+	private final double temperature; // temperature the rates were computed at
+	private final double fertility; // fecundity (0 above the maximum temperature for reproduction)
+	private final double[] devRate = new double[CompiledParameters.NUM_DEV_STAGES]; // development rates per stage
+	private final double[] mortalityNat = new double[CompiledParameters.NUM_STAGES]; // natural mortality rates per stage
+
+	/**
+	 * Constructor to compute the rates for all the lifestages at the specified temperature.
+	 * @param temperature - the temperature to compute the rates at
+	 * @param params - compiled parameters for the simulation
+	 */
+	public TemperatureRates(double temperature, CompiledParameters params) {
+		this.temperature = temperature;
+		fertility = SolveParameters.solveSpecificFertility(temperature, params);
+
+		for (int i = 0; i < CompiledParameters.NUM_STAGES; i ++) {
+			if (i <= 4) // juvenile development is temperature dependent
+				devRate[i] = SolveParameters.solveDev_Briere_Juvenile(temperature, params.getDevelopmentMax(i));
+			else if (i > 5 && i < 12)
+				devRate[i - 1] = params.getDevelopmentMax(i - 1); // female development is independent of temperature
+			mortalityNat[i] = SolveParameters.solveMortality(temperature, params, i);
+		}
+	}
+
+	/**
+	 * Method to return the temperature these rates were computed at
+	 * @return the temperature
+	 */
+	public double getTemperature() { return temperature; }
+
+	/**
+	 * Method to return the fecundity at this temperature (without the effect of diapause)
+	 * @return the fecundity
+	 */
+	public double getFertility() { return fertility; }
+
+	/**
+	 * Method to return the development rate of a lifestage at this temperature (without the effect of fruit)
+	 * @param devStage - the index of the stage, as in CompiledParameters.getDevelopmentMax
+	 * @return the development rate
+	 */
+	public double getDevelopmentRate(int devStage) { return devRate[devStage]; }
+
+	/**
+	 * Method to return the natural mortality rate of a lifestage at this temperature (without the effect of fruit)
+	 * @param stage - the index of the stage
+	 * @return the natural mortality rate
+	 */
+	public double getMortalityRate(int stage) { return mortalityNat[stage]; }
+}
@@ -0,0 +1,181 @@
+package SWDModelBaseObjects;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class is a small, thread-safe cache of precomputed trajectories (e.g. FruitQualityTrajectory), keyed
+ * by the temperatures, the parameters the trajectory depends on, dt and the run time.  The trajectories only
+ * depend on these (not on the flies), so all the runs of a sweep with the same values can share them: with
+ * one cache shared by their simulators, each trajectory is only computed once.
+ * The subclasses say which parameters the trajectory depends on (sameParameters and parameterHash), and how
+ * it is computed (compute).
+ * It holds at most maxEntries trajectories, and evicts the least recently used one when it is full.
+ * Hits and misses are counted, as in RateCache.
+ * @param <T> - the type of trajectory
+ */
+public abstract class TrajectoryCache<T> {
+
+	public static final int DEFAULT_MAX_ENTRIES = 16;
+
+	private final LinkedHashMap<Key, T> entries;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * Constructor to specify the size of the cache.
+	 * @param maxEntries - maximum number of trajectories kept
+	 * @throws IllegalArgumentException if the size is not positive
+	 */
+	protected TrajectoryCache(final int maxEntries) {
+		if (maxEntries <= 0)
+			throw new IllegalArgumentException("Cache size must be positive!");
+		entries = new LinkedHashMap<Key, T>(16, 0.75f, true) { // access order, for LRU eviction
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, T> eldest) {
+				return size() > maxEntries;
+			}
+		};
+	}
+
+	/**
+	 * Method to compute a trajectory (on a cache miss).
+	 * @param temperatures - temperatures per day
+	 * @param params - compiled parameters for the simulation
+	 * @param dt - step for numeric integration (Euler's method)
+	 * @param runTime - time the simulation is run for
+	 * @return the trajectory
+	 */
+	protected abstract T compute(ArrayList<Double> temperatures, CompiledParameters params, double dt, double runTime);
+
+	/**
+	 * Method to check if two snapshots have the same values for all the parameters the trajectory depends on
+	 * @param a - a snapshot
+	 * @param b - the snapshot to compare with
+	 * @return are the parameters identical? true or false
+	 */
+	protected abstract boolean sameParameters(CompiledParameters a, CompiledParameters b);
+
+	/**
+	 * Method to return a hash of the parameters the trajectory depends on (equal for snapshots with the same parameters)
+	 * @param params - the snapshot
+	 * @return the hash
+	 */
+	protected abstract int parameterHash(CompiledParameters params);
+
+	/**
+	 * Method to return the trajectory for the specified temperatures, parameters, dt and run time,
+	 * computing it (and adding it to the cache) if it is not in the cache already.
+	 * Note: as in RateCache, the trajectory is computed outside of the lock, so two threads missing on the same key
+	 * at the same time may both compute it; the results are identical, so either one can be kept.
+	 * @param temperatures - temperatures per day
+	 * @param params - compiled parameters for the simulation
+	 * @param dt - step for numeric integration (Euler's method)
+	 * @param runTime - time the simulation is run for
+	 * @return the trajectory
+	 */
+	public T get(ArrayList<Double> temperatures, CompiledParameters params, double dt, double runTime) {
+		Key key = new Key(temperatures, params, dt, runTime);
+
+		T trajectory;
+		synchronized (entries) {
+			trajectory = entries.get(key);
+		}
+		if (trajectory != null) {
+			hits.incrementAndGet();
+			return trajectory;
+		}
+
+		misses.incrementAndGet();
+		trajectory = compute(temperatures, params, dt, runTime);
+		synchronized (entries) {
+			entries.put(key, trajectory);
+		}
+		return trajectory;
+	}
+
+	/**
+	 * Method to return the number of lookups that were found in the cache
+	 * @return the number of cache hits
+	 */
+	public long getHits() { return hits.get(); }
+
+	/**
+	 * Method to return the number of lookups that had to compute the trajectory
+	 * @return the number of cache misses
+	 */
+	public long getMisses() { return misses.get(); }
+
+	/**
+	 * Method to return the number of trajectories currently in the cache
+	 * @return the number of entries
+	 */
+	public int size() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+	/**
+	 * Method to remove all the entries and reset the hit and miss counters.
+	 */
+	public void clear() {
+		synchronized (entries) {
+			entries.clear();
+		}
+		hits.set(0);
+		misses.set(0);
+	}
+
+	/**
+	 * Method to return a one-line summary of the cache statistics.
+	 * @return the statistics, as a String
+	 */
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + ": " + getHits() + " hits, " + getMisses() + " misses, " + size() + " entries";
+	}
+
+	/**
+	 * Cache key: the exact bits of the temperatures, dt and run time, and the parameters of the snapshot
+	 * the trajectory depends on (compared with sameParameters).
+	 */
+	private final class Key {
+
+		private final double[] temperatures;
+		private final CompiledParameters params;
+		private final long dtBits, runTimeBits;
+		private final int hash;
+
+		Key(ArrayList<Double> temperatures, CompiledParameters params, double dt, double runTime) {
+			this.temperatures = new double[temperatures.size()];
+			for (int i = 0; i < this.temperatures.length; i ++)
+				this.temperatures[i] = temperatures.get(i);
+			this.params = params;
+			dtBits = Double.doubleToLongBits(dt);
+			runTimeBits = Double.doubleToLongBits(runTime);
+			hash = (parameterHash(params) * 31 + Arrays.hashCode(new long[] {dtBits, runTimeBits})) * 31 + Arrays.hashCode(this.temperatures);
+		}
+
+		@Override
+		public int hashCode() { return hash; }
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o)
+				return true;
+			if (!(o instanceof TrajectoryCache.Key))
+				return false;
+			@SuppressWarnings("unchecked")
+			Key other = (Key) o;
+			return dtBits == other.dtBits && runTimeBits == other.runTimeBits && Arrays.equals(temperatures, other.temperatures)
+					&& (params == other.params || sameParameters(params, other.params));
+		}
+	}
+}
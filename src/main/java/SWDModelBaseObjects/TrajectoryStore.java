@@ -0,0 +1,191 @@
+package SWDModelBaseObjects;
+
+import org.jfree.data.xy.XYSeries;
+
+/**
+ * This class records the trajectory of a simulation: one row per recorded timestep, with a shared
+ * time axis and one primitive double column per recorded quantity (e.g. the population of each
+ * lifestage).  Columns are growable arrays, so recording a timestep does not allocate any objects
+ * (apart from the occasional doubling of the arrays); the JFreeChart XYSeries used for charts and
+ * output files are only built on demand, with toXYSeries.
+ * clear() keeps the arrays, so a store can be reused for many runs without reallocating.
+ * Note: this class is not thread-safe; each simulator has its own store.
+ */
+public class TrajectoryStore {
+
+	private static final int DEFAULT_CAPACITY = 1024; // initial number of rows
+
+	private final String[] columnNames; // name of each column
+	private double[] times; // time axis, shared by all the columns
+	private double[][] columns; // columns[column][row]
+	private int size; // number of rows recorded
+
+	/**
+	 * Constructor to create an empty store with the specified columns.
+	 * @param columnNames - the name of each column (the number of names is the number of columns)
+	 */
+	public TrajectoryStore(String[] columnNames) {
+		this(columnNames, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Constructor to create an empty store with the specified columns and initial capacity.
+	 * @param columnNames - the name of each column (the number of names is the number of columns)
+	 * @param capacity - number of rows to allocate space for initially
+	 * @throws IllegalArgumentException if the capacity is not positive
+	 */
+	public TrajectoryStore(String[] columnNames, int capacity) {
+		if (capacity <= 0)
+			throw new IllegalArgumentException("Capacity must be positive!");
+		this.columnNames = columnNames.clone();
+		times = new double[capacity];
+		columns = new double[columnNames.length][capacity];
+	}
+
+	/**
+	 * Method to replace the rows of this store with a copy of those of another store (with the same
+	 * columns), e.g. to restore a snapshot.  The allocated space is reused if it is big enough.
+	 * @param other - the store to copy
+	 * @throws IllegalArgumentException if the stores don't have the same number of columns
+	 */
+	public void copyFrom(TrajectoryStore other) {
+		if (other.columns.length != columns.length)
+			throw new IllegalArgumentException("The stores don't have the same columns!");
+		if (times.length < other.size) {
+			times = new double[other.times.length];
+			for (int c = 0; c < columns.length; c ++)
+				columns[c] = new double[other.times.length];
+		}
+		System.arraycopy(other.times, 0, times, 0, other.size);
+		for (int c = 0; c < columns.length; c ++)
+			System.arraycopy(other.columns[c], 0, columns[c], 0, other.size);
+		size = other.size;
+	}
+
+	/**
+	 * Method to add a row at the specified time.  The values in the row start at 0, and are set with set().
+	 * @param time - the time of the row
+	 * @return the index of the new row
+	 */
+	public int addRow(double time) {
+		if (size == times.length)
+			grow();
+		times[size] = time;
+		for (int c = 0; c < columns.length; c ++)
+			columns[c][size] = 0;
+		return size ++;
+	}
+
+	/**
+	 * Method to set the value of a column in a row.
+	 * @param column - the index of the column
+	 * @param row - the index of the row
+	 * @param value - the value to set
+	 */
+	public void set(int column, int row, double value) {
+		columns[column][row] = value;
+	}
+
+	/**
+	 * Method to return the number of rows recorded
+	 * @return the number of rows
+	 */
+	public int size() { return size; }
+
+	/**
+	 * Method to return the number of columns
+	 * @return the number of columns
+	 */
+	public int getNumColumns() { return columns.length; }
+
+	/**
+	 * Method to return the name of a column
+	 * @param column - the index of the column
+	 * @return the name of the column
+	 */
+	public String getColumnName(int column) { return columnNames[column]; }
+
+	/**
+	 * Method to return the time of a row
+	 * @param row - the index of the row
+	 * @return the time of the row
+	 * @throws IndexOutOfBoundsException if the row has not been recorded
+	 */
+	public double getTime(int row) {
+		if (row < 0 || row >= size)
+			throw new IndexOutOfBoundsException("No row " + row + " (" + size + " rows recorded)");
+		return times[row];
+	}
+
+	/**
+	 * Method to return the value of a column in a row
+	 * @param column - the index of the column
+	 * @param row - the index of the row
+	 * @return the value
+	 * @throws IndexOutOfBoundsException if the row has not been recorded
+	 */
+	public double getValue(int column, int row) {
+		if (row < 0 || row >= size)
+			throw new IndexOutOfBoundsException("No row " + row + " (" + size + " rows recorded)");
+		return columns[column][row];
+	}
+
+	/**
+	 * Method to return a copy of the time axis
+	 * @return the time of every recorded row
+	 */
+	public double[] getTimes() {
+		double[] copy = new double[size];
+		System.arraycopy(times, 0, copy, 0, size);
+		return copy;
+	}
+
+	/**
+	 * Method to return a copy of a column
+	 * @param column - the index of the column
+	 * @return the value of the column in every recorded row
+	 */
+	public double[] getColumn(int column) {
+		double[] copy = new double[size];
+		System.arraycopy(columns[column], 0, copy, 0, size);
+		return copy;
+	}
+
+	/**
+	 * Method to remove all the rows (the allocated space is kept, to be reused).
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * Method to build an XYSeries (time vs value) from a column.  The series is a new object every time,
+	 * so changing it does not affect the store.
+	 * @param column - the index of the column
+	 * @param name - the name (key) of the series
+	 * @return the series for the column
+	 */
+	public XYSeries toXYSeries(int column, String name) {
+		XYSeries series = new XYSeries(name);
+		double[] values = columns[column];
+		for (int i = 0; i < size; i ++)
+			series.add(times[i], values[i], false); // no listeners yet, so no need to notify on every point
+		series.fireSeriesChanged();
+		return series;
+	}
+
+	/**
+	 * Method to double the number of rows that can be stored.
+	 */
+	private void grow() {
+		int capacity = times.length * 2;
+		double[] newTimes = new double[capacity];
+		System.arraycopy(times, 0, newTimes, 0, size);
+		times = newTimes;
+		for (int c = 0; c < columns.length; c ++) {
+			double[] newColumn = new double[capacity];
+			System.arraycopy(columns[c], 0, newColumn, 0, size);
+			columns[c] = newColumn;
+		}
+	}
+}
@@ -0,0 +1,139 @@
+package SWDModelReferenceClasses;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class advances the lifestage populations with an embedded Runge-Kutta method (Dormand-Prince 5(4)), which
+ * chooses its own sub-steps to keep the error under a tolerance, instead of relying on the step of the simulation:
+ * each sub-step is solved to fifth order, and the difference with the embedded fourth-order solution estimates its
+ * error.  The integral of each population over the step (for the cumulative populations) is solved with the same
+ * method, as one more equation (dI/dt = P), and its error is estimated the same way.  A sub-step is accepted if the
+ * error of every population is at most the tolerance times the population (or times 1 fly, for populations under
+ * 1 fly), and the error of every integral at most the tolerance times the integral (or times the sub-step, for
+ * integrals under 1 fly-day per day); otherwise it is retried with a shorter sub-step.  The next sub-step is
+ * lengthened or shortened from the error of the last one.
+ * So the simulation step can be a whole day (the rates only change daily), with the integrator taking as many
+ * sub-steps as the tolerance needs (see SWDSimulatorSingle.setTolerance).
+ * It only keeps counts of the sub-steps (its intermediate values are kept in the caller's scratch array), so it can
+ * be shared by any number of populations (and threads).
+ */
+public class AdaptiveIntegrator implements Integrator {
+
+	private static final int NUM_STAGES = StageSystem.NUM_STAGES;
+	private static final double SAFETY = 0.9; // of the next sub-step, from the error estimate
+	private static final double MIN_FACTOR = 0.2, MAX_FACTOR = 5; // change of the sub-step between two sub-steps
+
+	// Dormand-Prince 5(4) coefficients: the last row of A is the fifth-order solution (the first same as last stage)
+	private static final double[][] A = {
+		{},
+		{1.0 / 5},
+		{3.0 / 40, 9.0 / 40},
+		{44.0 / 45, -56.0 / 15, 32.0 / 9},
+		{19372.0 / 6561, -25360.0 / 2187, 64448.0 / 6561, -212.0 / 729},
+		{9017.0 / 3168, -355.0 / 33, 46732.0 / 5247, 49.0 / 176, -5103.0 / 18656},
+		{35.0 / 384, 0, 500.0 / 1113, 125.0 / 192, -2187.0 / 6784, 11.0 / 84}
+	};
+	private static final double[] B = A[6]; // weights of the fifth-order solution
+	private static final double[] E = {71.0 / 57600, 0, -71.0 / 16695, 71.0 / 1920, -17253.0 / 339200, 22.0 / 525, -1.0 / 40}; // fifth minus fourth order
+	private static final int NUM_STAGES_RK = A.length;
+	private static final int Y = NUM_STAGES_RK * NUM_STAGES; // offset of the populations at each stage in the scratch array (after the derivatives)
+
+	private final double tolerance;
+	private final AtomicLong steps = new AtomicLong();
+	private final AtomicLong rejected = new AtomicLong();
+
+	/**
+	 * Constructor to specify the tolerance of the integrator.
+	 * @param tolerance - largest relative error of each sub-step (e.g. 1e-6)
+	 * @throws IllegalArgumentException if the tolerance is not positive
+	 */
+	public AdaptiveIntegrator(double tolerance) {
+		if (!(tolerance > 0))
+			throw new IllegalArgumentException("The tolerance must be positive!");
+		this.tolerance = tolerance;
+	}
+
+	/**
+	 * Method to return the tolerance of the integrator
+	 * @return the largest relative error of each sub-step
+	 */
+	public double getTolerance() { return tolerance; }
+
+	/**
+	 * Method to return the number of sub-steps accepted so far
+	 * @return the number of sub-steps
+	 */
+	public long getSteps() { return steps.get(); }
+
+	/**
+	 * Method to return the number of sub-steps that had to be retried with a shorter sub-step
+	 * @return the number of rejected sub-steps
+	 */
+	public long getRejected() { return rejected.get(); }
+
+	@Override
+	public int getWorkSize() { return 2 * NUM_STAGES_RK * NUM_STAGES; }
+
+	@Override
+	public void advance(StageSystem system, double[] populations, double step, double[] integrals, double[] work) {
+		// work holds the derivative at each stage (k, from 0), then the populations at each stage (y, from Y; the last one is the solution)
+		int last = Y + (NUM_STAGES_RK - 1) * NUM_STAGES;
+		for (int i = 0; i < NUM_STAGES; i ++)
+			integrals[i] = 0;
+
+		double time = 0;
+		double h = step; // try the whole step first
+		int accepted = 0, retried = 0;
+		while (time < step) {
+			h = Math.min(h, step - time);
+			System.arraycopy(populations, 0, work, Y, NUM_STAGES);
+			system.derivative(work, Y, work, 0);
+			for (int s = 1; s < NUM_STAGES_RK; s ++) {
+				for (int i = 0; i < NUM_STAGES; i ++) {
+					double value = populations[i];
+					for (int j = 0; j < s; j ++)
+						value += h * A[s][j] * work[j * NUM_STAGES + i];
+					work[Y + s * NUM_STAGES + i] = value;
+				}
+				system.derivative(work, Y + s * NUM_STAGES, work, s * NUM_STAGES);
+			}
+
+			double error = 0; // largest error, relative to the tolerance
+			for (int i = 0; i < NUM_STAGES; i ++) {
+				double estimate = 0; // of the population (the derivatives are k)
+				double integralEstimate = 0, mean = 0; // of the integral, over h (the derivatives are y), and the mean population
+				for (int s = 0; s < NUM_STAGES_RK; s ++) {
+					estimate += E[s] * work[s * NUM_STAGES + i];
+					integralEstimate += E[s] * work[Y + s * NUM_STAGES + i];
+				}
+				for (int s = 0; s < NUM_STAGES_RK - 1; s ++)
+					mean += B[s] * work[Y + s * NUM_STAGES + i];
+				double scale = tolerance * Math.max(1, Math.max(Math.abs(populations[i]), Math.abs(work[last + i])));
+				error = Math.max(error, Math.abs(h * estimate) / scale);
+				error = Math.max(error, Math.abs(integralEstimate) / (tolerance * Math.max(1, Math.abs(mean)))); // h cancels out
+			}
+
+			if (error <= 1 || h <= step * Math.ulp(1.0)) { // accept the sub-step (it can't get any shorter)
+				for (int i = 0; i < NUM_STAGES; i ++) {
+					double integral = 0;
+					for (int s = 0; s < NUM_STAGES_RK - 1; s ++)
+						integral += B[s] * work[Y + s * NUM_STAGES + i];
+					integrals[i] += h * integral;
+					populations[i] = work[last + i];
+				}
+				time += h;
+				accepted ++;
+			} else
+				retried ++;
+			double factor = (error == 0) ? MAX_FACTOR : SAFETY * Math.pow(error, -0.2);
+			h *= Math.min(MAX_FACTOR, Math.max(MIN_FACTOR, factor));
+		}
+		steps.addAndGet(accepted);
+		rejected.addAndGet(retried);
+	}
+
+	@Override
+	public String toString() {
+		return "AdaptiveIntegrator[tolerance " + tolerance + ", " + steps.get() + " sub-steps, " + rejected.get() + " rejected]";
+	}
+}
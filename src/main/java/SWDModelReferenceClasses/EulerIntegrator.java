@@ -0,0 +1,31 @@
+package SWDModelReferenceClasses;
+
+/**
+ * This class advances the lifestage populations with one step of Euler's method: the same scheme as the methods
+ * of EulersMethod (used by the populations when they have no integrator), as an Integrator, so it can be compared
+ * with (and swapped for) the others.  The integral of each population over the step is the population at the end
+ * of the step times the step, as for the cumulative populations without an integrator.
+ * Note: the results can differ from EulersMethod by rounding, as the terms are added in a different order.
+ * It has no state (the derivative is kept in the caller's scratch array), so it can be shared by any number of
+ * populations (and threads).
+ */
+public class EulerIntegrator implements Integrator {
+
+	private static final int NUM_STAGES = StageSystem.NUM_STAGES;
+
+	@Override
+	public int getWorkSize() { return NUM_STAGES; }
+
+	@Override
+	public void advance(StageSystem system, double[] populations, double step, double[] integrals, double[] work) {
+		double[] derivative = work;
+		system.derivative(populations, derivative);
+		for (int i = 0; i < NUM_STAGES; i ++) {
+			populations[i] += derivative[i] * step;
+			integrals[i] = populations[i] * step;
+		}
+	}
+
+	@Override
+	public String toString() { return "EulerIntegrator"; }
+}
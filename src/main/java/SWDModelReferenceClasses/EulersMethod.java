@@ -1,5 +1,6 @@
 package SWDModelReferenceClasses;
 
+import SWDModelBaseObjects.CompiledParameters;
 import SWDModelBaseObjects.Parameters;
 
 /**
@@ -42,6 +43,33 @@ public class EulersMethod {
 		return eggsI + dE_dt * step;
 	}
 	
+	/**
+	 * Method to solve for the number of eggs given the values for the previous timestep, reading the 
+	 * egg viabilities of the female lifestages from the compiled parameters.
+	 * This uses Euler's method of numerical integration to solve this differential equation (part of a system 
+	 * of coupled DE).
+	 * @param fertility - fertility at this timestep
+	 * @param params - compiled parameters for the simulation
+	 * @param femStagePopulations - populations of the different female lifestages from the previous timestep
+	 * @param eggsI - number of eggs in the previous timestep
+	 * @param eggMortalityNat - egg mortality rate during this timestep, due to natural causes (food, etc.)
+	 * @param eggMortalityPred - egg mortality rate during this timestep, due to predation
+	 * @param eggDevelopment - egg development rate during this timestep
+	 * @param step - integration step
+	 * @return the number of eggs in the current timestep
+	 * @thrown IllegalArgumentException if there is an incorrect number of female lifestage populations
+	 */
+	public static double getEggs(double fertility, CompiledParameters params, double[] femStagePopulations, double eggsI, 
+												double eggMortalityNat, double eggMortalityPred, double eggDevelopment, double step) {
+		if (femStagePopulations.length != CompiledParameters.NUM_FEMALE_STAGES)
+			throw new IllegalArgumentException("Incorrect number of female stage populations"); 
+		double dE_dt = 0;
+		for (int i = 0; i < femStagePopulations.length; i ++)
+			dE_dt += fertility * params.getEggViability(i) * femStagePopulations[i];
+		dE_dt -= eggsI * (eggMortalityNat + eggMortalityPred + eggDevelopment);
+		return eggsI + dE_dt * step;
+	}
+	
 	/**
 	 * Method to solve for the number of instar x, where x = 2, 3, given the values for the previous timestep.  
 	 * This uses Euler's method of numerical integration to solve this differential equation (part of a system 
@@ -151,4 +179,35 @@ public class EulersMethod {
 		
 		return fruitDiam;
 	}
+	
+	/**
+	 * Method to solve for the fruit quality given the values for the previous timestep, reading the
+	 * fruit parameters from the compiled parameters.
+	 * This uses Euler's method of numerical integration to solve this differential equation.
+	 * @param gt - potential fruit increase (temperature-based)
+	 * @param fruitQualityI - fruit quality from the previous timestep
+	 * @param fruitQLag - fruit quality timelag timesteps ago 
+	 * @param step - integration step
+	 * @param params - compiled parameters for the simulation
+	 * @return the fruit quality in the current timestep
+	 */
+	public static double getFruitQuality(double gt, double fruitQualityI, double fruitQLag, double step, CompiledParameters params) {
+		
+		double fruitHarvest = 0;
+		if (fruitQLag > params.getFruitHarvestCutoff()) // if the fruit quality lag steps ago if above the cutoff, harvest the drop
+			fruitHarvest = params.getFruitHarvestDrop();
+		double dFr_dt = fruitQualityI * (params.getFruitGtMultiplier()/gt - fruitHarvest);
+		
+		if (Double.isNaN(gt)) // if the gt multiplier is NaN, then treat it as 0
+			dFr_dt = fruitQualityI * (-fruitHarvest);
+		
+		double fruitDiam = fruitQualityI + dFr_dt * step;
+		
+		if (fruitDiam < 0.05) // min fruit quality is 0.05
+			fruitDiam = 0.05;
+		if (fruitDiam > 1) // max fruit quality is 1
+			fruitDiam = 1;
+		
+		return fruitDiam;
+	}
 }
\ No newline at end of file
@@ -0,0 +1,260 @@
+package SWDModelReferenceClasses;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * This class solves the lifestage populations exactly over each step of the simulation: the rates are constant
+ * during the step, so the populations at the end of a step of length h are exp(h * A) * P (where A is the matrix
+ * of the StageSystem), and their integrals over the step are phi(h * A) * h * P (with phi(x) = (exp(x) - 1) / x).
+ * So the only error is that of the rates themselves being constant over the step: with daily temperatures, a
+ * step of one day (dt = 1) gives the same populations as Euler's method with dt tending to 0, in one step per day
+ * instead of 20 (with the default dt of 0.05).
+ * The matrix exponentials are computed by scaling and squaring, with Taylor series.  They only depend on the
+ * rates of the step, which are the same for all the days (and the runs) with the same temperature (when the fruit
+ * quality and diapause are ignored), so they are kept in a small, thread-safe cache: one integrator can be
+ * shared by any number of populations (and threads), like a RateCache.  A step that finds them in the cache doesn't
+ * allocate (the matrix of the step is built in the caller's scratch array, and looked up with a key per thread).
+ */
+public class ExponentialIntegrator implements Integrator {
+
+	public static final int DEFAULT_MAX_ENTRIES = 1024;
+	private static final int NUM_STAGES = StageSystem.NUM_STAGES;
+	private static final int MAX_TERMS = 30; // of the Taylor series (they are below the precision of doubles much sooner)
+	private static final int MATRIX_SIZE = NUM_STAGES * NUM_STAGES;
+
+	private final Map<Key, double[][]> cache; // exp(h * A) and phi(h * A) * h, by h * A
+	private final int maxEntries;
+	private long hits = 0, misses = 0;
+	private final ThreadLocal<Key> probes = new ThreadLocal<Key>() { // key to look up the cache with, reused by each thread
+		@Override
+		protected Key initialValue() { return new Key(); }
+	};
+
+	/**
+	 * Default no-argument constructor, with at most DEFAULT_MAX_ENTRIES matrix exponentials kept.
+	 */
+	public ExponentialIntegrator() {
+		this(DEFAULT_MAX_ENTRIES);
+	}
+
+	/**
+	 * Constructor to specify the size of the cache of matrix exponentials.
+	 * @param maxEntries - maximum number of matrix exponentials kept (0 to compute them on every step)
+	 * @throws IllegalArgumentException if the size is negative
+	 */
+	public ExponentialIntegrator(final int maxEntries) {
+		if (maxEntries < 0)
+			throw new IllegalArgumentException("The cache size can't be negative!");
+		this.maxEntries = maxEntries;
+		cache = new LinkedHashMap<Key, double[][]>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, double[][]> eldest) {
+				return size() > maxEntries;
+			}
+		};
+	}
+
+	@Override
+	public int getWorkSize() { return MATRIX_SIZE + NUM_STAGES; }
+
+	@Override
+	public void advance(StageSystem system, double[] populations, double step, double[] integrals, double[] work) {
+		// work holds h * A (row by row), then the populations at the beginning of the step
+		system.copyMatrix(step, work);
+		double[][] propagators = get(work, step);
+		double[] exponential = propagators[0], integral = propagators[1];
+		System.arraycopy(populations, 0, work, MATRIX_SIZE, NUM_STAGES);
+		for (int i = 0; i < NUM_STAGES; i ++) {
+			double value = 0, total = 0;
+			for (int j = 0, row = i * NUM_STAGES; j < NUM_STAGES; j ++) {
+				value += exponential[row + j] * work[MATRIX_SIZE + j];
+				total += integral[row + j] * work[MATRIX_SIZE + j];
+			}
+			populations[i] = value;
+			integrals[i] = total;
+		}
+	}
+
+	/**
+	 * Method to return the matrix exponential of h * A, and the integral of exp(s * A) for s from 0 to h (from the
+	 * cache, if they were already computed).
+	 * @param scaled - array starting with the matrix h * A (row by row)
+	 * @param step - h
+	 * @return the two matrices (row by row)
+	 */
+	private double[][] get(double[] scaled, double step) {
+		Key probe = probes.get();
+		probe.set(scaled, step);
+		try {
+			synchronized (cache) {
+				double[][] propagators = cache.get(probe);
+				if (propagators != null) {
+					hits ++;
+					return propagators;
+				}
+				misses ++;
+			}
+		} finally {
+			probe.set(null, 0); // don't keep the caller's array
+		}
+		double[] matrix = Arrays.copyOf(scaled, MATRIX_SIZE);
+		double[][] propagators = exponential(matrix, step); // outside the lock, another thread may compute it too
+		if (maxEntries > 0) {
+			Key key = new Key();
+			key.set(matrix, step);
+			synchronized (cache) {
+				cache.put(key, propagators);
+			}
+		}
+		return propagators;
+	}
+
+	/**
+	 * Method to compute the matrix exponential of h * A, and the integral of exp(s * A) for s from 0 to h: the matrix
+	 * is scaled by 2^-s so that its norm is at most 1/2, both are computed with their Taylor series, and then
+	 * squared back (exp(2x) = exp(x)^2, and the integral over 2h is the integral over h times (I + exp(h * A))).
+	 * @param scaled - the matrix h * A (row by row)
+	 * @param step - h
+	 * @return exp(h * A) and its integral (row by row)
+	 */
+	public static double[][] exponential(double[] scaled, double step) {
+		double norm = 0; // maximum absolute column sum
+		for (int j = 0; j < NUM_STAGES; j ++) {
+			double column = 0;
+			for (int i = 0; i < NUM_STAGES; i ++)
+				column += Math.abs(scaled[i * NUM_STAGES + j]);
+			norm = Math.max(norm, column);
+		}
+		int squarings = 0;
+		while (norm > 0.5) {
+			norm /= 2;
+			squarings ++;
+		}
+		double factor = Math.pow(2, -squarings);
+		double[] x = new double[scaled.length];
+		for (int i = 0; i < x.length; i ++)
+			x[i] = scaled[i] * factor;
+
+		// exp(x) = sum of x^k / k!, and the integral = h' * sum of x^k / (k + 1)!, with h' = h * 2^-s
+		double[] exponential = identity();
+		double[] integral = identity();
+		double[] term = identity();
+		for (int k = 1; k <= MAX_TERMS; k ++) {
+			term = multiply(term, x);
+			double termNorm = 0;
+			for (int i = 0; i < term.length; i ++) {
+				term[i] /= k;
+				exponential[i] += term[i];
+				integral[i] += term[i] / (k + 1);
+				termNorm = Math.max(termNorm, Math.abs(term[i]));
+			}
+			if (termNorm < 1e-18)
+				break;
+		}
+		for (int i = 0; i < integral.length; i ++)
+			integral[i] *= step * factor;
+
+		for (int s = 0; s < squarings; s ++) {
+			double[] onePlus = exponential.clone(); // I + exp
+			for (int i = 0; i < NUM_STAGES; i ++)
+				onePlus[i * NUM_STAGES + i] += 1;
+			integral = multiply(onePlus, integral);
+			exponential = multiply(exponential, exponential);
+		}
+		return new double[][] {exponential, integral};
+	}
+
+	/**
+	 * Method to return the number of steps whose matrix exponentials were read from the cache
+	 * @return the number of cache hits
+	 */
+	public long getHits() {
+		synchronized (cache) {
+			return hits;
+		}
+	}
+
+	/**
+	 * Method to return the number of steps whose matrix exponentials had to be computed
+	 * @return the number of cache misses
+	 */
+	public long getMisses() {
+		synchronized (cache) {
+			return misses;
+		}
+	}
+
+	@Override
+	public String toString() {
+		synchronized (cache) {
+			long lookups = hits + misses;
+			return "ExponentialIntegrator[" + cache.size() + " entries, " + hits + " hits, " + misses + " misses, hit rate "
+					+ ((lookups == 0) ? 0 : Math.round(1000.0 * hits / lookups) / 10.0) + "%]";
+		}
+	}
+
+	private static double[] identity() {
+		double[] identity = new double[NUM_STAGES * NUM_STAGES];
+		for (int i = 0; i < NUM_STAGES; i ++)
+			identity[i * NUM_STAGES + i] = 1;
+		return identity;
+	}
+
+	private static double[] multiply(double[] a, double[] b) {
+		double[] product = new double[NUM_STAGES * NUM_STAGES];
+		for (int i = 0; i < NUM_STAGES; i ++) {
+			for (int k = 0; k < NUM_STAGES; k ++) {
+				double aik = a[i * NUM_STAGES + k];
+				if (aik == 0)
+					continue;
+				for (int j = 0; j < NUM_STAGES; j ++)
+					product[i * NUM_STAGES + j] += aik * b[k * NUM_STAGES + j];
+			}
+		}
+		return product;
+	}
+
+	/**
+	 * Key of the cache: the matrix h * A (the first 13 x 13 values of its array) and h, compared exactly.  The keys in
+	 * the cache own their matrix; the key a thread looks the cache up with is set to its scratch array for the lookup.
+	 */
+	private static final class Key {
+		private double[] scaled;
+		private long step;
+		private int hash;
+
+		void set(double[] scaled, double step) {
+			this.scaled = scaled;
+			this.step = Double.doubleToLongBits(step);
+			int hash = 1;
+			if (scaled != null) {
+				for (int i = 0; i < MATRIX_SIZE; i ++) {
+					long bits = Double.doubleToLongBits(scaled[i]);
+					hash = 31 * hash + (int) (bits ^ (bits >>> 32));
+				}
+			}
+			this.hash = 31 * hash + (int) (this.step ^ (this.step >>> 32));
+		}
+
+		@Override
+		public int hashCode() { return hash; }
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Key))
+				return false;
+			Key other = (Key) o;
+			if (hash != other.hash || step != other.step)
+				return false;
+			for (int i = 0; i < MATRIX_SIZE; i ++) {
+				if (Double.doubleToLongBits(scaled[i]) != Double.doubleToLongBits(other.scaled[i]))
+					return false;
+			}
+			return true;
+		}
+	}
+}
@@ -0,0 +1,30 @@
+package SWDModelReferenceClasses;
+
+/**
+ * This interface describes a numeric integration scheme for the lifestage populations, used by the
+ * populations instead of Euler's method (see SWDPopulation.setIntegrator).  On each step of the
+ * simulation, the rates are constant, so the populations follow a linear system (see StageSystem),
+ * which the integrator solves over the whole step.
+ * Implementations: EulerIntegrator (Euler's method), RK4Integrator (classical Runge-Kutta), AdaptiveIntegrator
+ * (embedded Runge-Kutta with sub-steps chosen to meet a tolerance) and ExponentialIntegrator (exact).
+ */
+public interface Integrator {
+
+	/**
+	 * Method to return the length of the scratch array advance needs (see advance)
+	 * @return the number of values of scratch space
+	 */
+	int getWorkSize();
+
+	/**
+	 * Method to advance the populations over one step of the simulation.
+	 * The integrator keeps its intermediate values in the scratch array it is given, which belongs to the caller
+	 * (e.g. one per population), so a step doesn't allocate, and an integrator can be shared by any number of threads.
+	 * @param system - the system of DE during the step
+	 * @param populations - the populations at the beginning of the step (by lifestage), replaced by those at the end
+	 * @param step - the length of the step
+	 * @param integrals - filled with the integral of each population over the step (by lifestage), for the cumulative populations
+	 * @param work - scratch space, at least getWorkSize() long (its values don't outlive the call)
+	 */
+	void advance(StageSystem system, double[] populations, double step, double[] integrals, double[] work);
+}
@@ -0,0 +1,125 @@
+package SWDModelReferenceClasses;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * This class is a precomputed table of the daylight hours, and the resulting effect of diapause
+ * on fecundity, for every day of one simulation year at one latitude.
+ * These only depend on the latitude, the year and the day of the year, so instead of calling
+ * Daylight.getDayLightHours (trig functions) and SolveParameters.solveFertilityDiapauseEffect
+ * (BigDecimal arithmetic) on every timestep, the values are computed once per (latitude, year)
+ * and looked up by day.
+ * Tables are cached for the whole program (across simulations and threads); use get() to obtain one.
+ * Note: the values are computed exactly as in SWDPopulation.computePopulation, so the lookups
+ * return the same values as the direct calls.
+ */
+public final class PhotoperiodTable {
+
+	public static final int DAYS_PER_YEAR = 365;
+
+	// all the tables computed so far, keyed by latitude and year
+	private static final ConcurrentMap<Key, PhotoperiodTable> tables = new ConcurrentHashMap<Key, PhotoperiodTable>();
+
+	private final double latitude;
+	private final int year;
+	private final double[] hours = new double[DAYS_PER_YEAR]; // daylight hours per day
+	private final double[] diapauseEffect = new double[DAYS_PER_YEAR]; // diapause multiplier for fecundity per day
+
+	/**
+	 * Constructor to compute the table for the specified latitude and year.
+	 * @param latitude - latitude of the cell
+	 * @param year - the year of the simulation (timestep / 365)
+	 */
+	private PhotoperiodTable(double latitude, int year) {
+		this.latitude = latitude;
+		this.year = year;
+
+		int offset = Daylight.getOffSet(year);
+		for (int date = 0; date < DAYS_PER_YEAR; date ++) {
+			hours[date] = Daylight.getDayLightHours(year, date + offset, latitude);
+			diapauseEffect[date] = SolveParameters.solveFertilityDiapauseEffect(hours[date]);
+		}
+	}
+
+	/**
+	 * Method to return the table for the specified latitude and year; it is computed the first time it is
+	 * requested, and shared afterwards.
+	 * @param latitude - latitude of the cell
+	 * @param year - the year of the simulation (timestep / 365)
+	 * @return the photoperiod table
+	 */
+	public static PhotoperiodTable get(double latitude, int year) {
+		Key key = new Key(latitude, year);
+		PhotoperiodTable table = tables.get(key);
+		if (table == null) {
+			table = new PhotoperiodTable(latitude, year);
+			PhotoperiodTable existing = tables.putIfAbsent(key, table); // another thread may have computed it in the meantime
+			if (existing != null)
+				table = existing;
+		}
+		return table;
+	}
+
+	/**
+	 * Method to return the latitude the table was computed for
+	 * @return the latitude
+	 */
+	public double getLatitude() { return latitude; }
+
+	/**
+	 * Method to return the year the table was computed for
+	 * @return the year
+	 */
+	public int getYear() { return year; }
+
+	/**
+	 * Method to check if this is the table for the specified latitude and year
+	 * @param latitude - latitude of the cell
+	 * @param year - the year of the simulation
+	 * @return does the table match? true or false
+	 */
+	public boolean matches(double latitude, int year) {
+		return this.year == year && Double.doubleToLongBits(this.latitude) == Double.doubleToLongBits(latitude);
+	}
+
+	/**
+	 * Method to return the number of daylight hours on the specified day
+	 * @param date - the day of the year (timestep % 365)
+	 * @return the number of daylight hours
+	 */
+	public double getDayLightHours(int date) { return hours[date]; }
+
+	/**
+	 * Method to return the diapause multiplier for fecundity on the specified day
+	 * (see SolveParameters.solveFertilityDiapauseEffect)
+	 * @param date - the day of the year (timestep % 365)
+	 * @return the diapause multiplier for fecundity
+	 */
+	public double getFertilityDiapauseEffect(int date) { return diapauseEffect[date]; }
+
+	/**
+	 * Cache key: the exact bits of the latitude, and the year.
+	 */
+	private static final class Key {
+
+		private final long latitudeBits;
+		private final int year;
+
+		Key(double latitude, int year) {
+			this.latitudeBits = Double.doubleToLongBits(latitude);
+			this.year = year;
+		}
+
+		@Override
+		public int hashCode() { return (int) (latitudeBits ^ (latitudeBits >>> 32)) * 31 + year; }
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Key))
+				return false;
+			Key other = (Key) o;
+			return latitudeBits == other.latitudeBits && year == other.year;
+		}
+	}
+}
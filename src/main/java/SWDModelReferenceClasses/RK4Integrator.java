@@ -0,0 +1,44 @@
+package SWDModelReferenceClasses;
+
+/**
+ * This class advances the lifestage populations with one step of the classical fourth-order Runge-Kutta method.
+ * The integral of each population over the step is solved with the same method (as one more equation,
+ * dI/dt = P), so the cumulative populations are fourth-order too.
+ * The step has to be small enough for the fastest rates: the method is only stable for steps up to about 2.8
+ * times the inverse of the largest loss rate (mortality + predation + development), so with high mortalities
+ * (e.g. at extreme temperatures), a step of one day can be too long (see AdaptiveIntegrator).
+ * It has no state (its intermediate values are kept in the caller's scratch array), so it can be shared by any number
+ * of populations (and threads).
+ */
+public class RK4Integrator implements Integrator {
+
+	private static final int NUM_STAGES = StageSystem.NUM_STAGES;
+	// offsets of the derivatives (k1 to k4) and intermediate populations (y2 to y4) in the scratch array
+	private static final int K1 = 0, K2 = NUM_STAGES, K3 = 2 * NUM_STAGES, K4 = 3 * NUM_STAGES;
+	private static final int Y2 = 4 * NUM_STAGES, Y3 = 5 * NUM_STAGES, Y4 = 6 * NUM_STAGES;
+
+	@Override
+	public int getWorkSize() { return 7 * NUM_STAGES; }
+
+	@Override
+	public void advance(StageSystem system, double[] populations, double step, double[] integrals, double[] work) {
+		system.derivative(populations, 0, work, K1);
+		for (int i = 0; i < NUM_STAGES; i ++)
+			work[Y2 + i] = populations[i] + step / 2 * work[K1 + i];
+		system.derivative(work, Y2, work, K2);
+		for (int i = 0; i < NUM_STAGES; i ++)
+			work[Y3 + i] = populations[i] + step / 2 * work[K2 + i];
+		system.derivative(work, Y3, work, K3);
+		for (int i = 0; i < NUM_STAGES; i ++)
+			work[Y4 + i] = populations[i] + step * work[K3 + i];
+		system.derivative(work, Y4, work, K4);
+
+		for (int i = 0; i < NUM_STAGES; i ++) {
+			integrals[i] = step / 6 * (populations[i] + 2 * work[Y2 + i] + 2 * work[Y3 + i] + work[Y4 + i]);
+			populations[i] += step / 6 * (work[K1 + i] + 2 * work[K2 + i] + 2 * work[K3 + i] + work[K4 + i]);
+		}
+	}
+
+	@Override
+	public String toString() { return "RK4Integrator"; }
+}
@@ -1,5 +1,6 @@
 package SWDModelReferenceClasses;
 
+import SWDModelBaseObjects.CompiledParameters;
 import SWDModelBaseObjects.Parameters;
 
 import java.math.BigDecimal;
@@ -20,6 +21,17 @@ import java.math.BigDecimal;
 
 public class SolveParameters {
 	
+	// constants for the fecundity curve
+	private static final double FERTILITY_SCALE = 3.3315e-304;
+	private static final double FERTILITY_EXPONENT = 88.38;
+	private static final double FERTILITY_EXPONENT_CORRECTION = 
+			new BigDecimal("88.38").subtract(new BigDecimal(FERTILITY_EXPONENT)).doubleValue(); // 88.38 - (double) 88.38
+	
+	/**
+	 * Maximum relative difference between the double precision fecundity curve and the BigDecimal 
+	 * reference (solveFertilityCurveReference), over the valid temperature range.
+	 */
+	public static final double FERTILITY_TOLERANCE = 1e-15;
 	
 	/**
 	 * This method calculates the current fecundity value for the flies, given the various parameters and 
@@ -28,11 +40,65 @@ public class SolveParameters {
 	 */
 	public static double solveSpecificFertility(double T, Parameters params) {
 		
+		if (T > params.getParameter("fertility tmax"))
+			return 0;
+		return solveFertilityCurve(T);
+	}
+	
+	/**
+	 * This method calculates the current fecundity value for the flies, reading the maximum
+	 * temperature for reproduction from the compiled parameters (see solveSpecificFertility 
+	 * with a Parameters object for details).
+	 * @param T - current temperature of the cell/environment
+	 * @param params - compiled parameters for the simulation
+	 * @return the fecundity at this temperature
+	 */
+	public static double solveSpecificFertility(double T, CompiledParameters params) {
+		if (T > params.getFertilityTmax())
+			return 0;
+		return solveFertilityCurve(T);
+	}
+	
+	/**
+	 * Method to evaluate the fecundity curve at the specified temperature (the maximum
+	 * temperature for reproduction is checked by the caller).
+	 * The curve is 3.3315e-304 * (2740.5 - (T - 23.26)^2)^88.38, evaluated in double precision.
+	 * The power peaks at about 6e303 (at T = 23.26), which is still within the range of a double,
+	 * so it is taken directly instead of through BigDecimal logarithms.  The only loss compared to
+	 * solveFertilityCurveReference is that 88.38 cannot be stored exactly as a double; this is 
+	 * corrected for with the first-order term x^delta = 1 + delta * ln(x), where delta is the 
+	 * difference between the decimal exponent and the double exponent.
+	 * Over the whole valid temperature range this agrees with the BigDecimal reference to within 
+	 * FERTILITY_TOLERANCE (relative error), see ConsoleRunners.FertilityKernelCheck.
+	 * @param T - current temperature of the cell/environment
+	 * @return the fecundity at this temperature
+	 */
+	private static double solveFertilityCurve(double T) {
+		
 		double d = 5.88;
 		double l = 52.68;
 		
-		if (T > params.getParameter("fertility tmax"))
+		if((Math.pow(T,2) + Math.pow(d,2)) < Math.pow(l,2)){
+			double base = 2740.50-Math.pow((-23.26+T),2);
+			if (base <= 0)
+				return 0;
+			return FERTILITY_SCALE * Math.pow(base, FERTILITY_EXPONENT) * (1 + FERTILITY_EXPONENT_CORRECTION * Math.log(base));
+		}
+		else 
 			return 0;
+	}
+	
+	/**
+	 * Method to evaluate the fecundity curve with BigDecimal logarithms, at scale 20 (this is the
+	 * original implementation, kept as the reference for the double precision curve).
+	 * Note: this is far too slow to be called on every timestep.
+	 * @param T - current temperature of the cell/environment
+	 * @return the fecundity at this temperature (ignoring the maximum temperature for reproduction)
+	 */
+	public static double solveFertilityCurveReference(double T) {
+		
+		double d = 5.88;
+		double l = 52.68;
 		
 		if((Math.pow(T,2) + Math.pow(d,2)) < Math.pow(l,2)){
 			BigDecimal temp1 = new BigDecimal(3.3315e-304);
@@ -285,6 +351,32 @@ public class SolveParameters {
 		return mortality;
 	}
 	
+	/**
+	 * This method calculates the current mortality rate for a lifestage, reading the mortality 
+	 * parameters from the compiled parameters by the index of the stage (see solveMortality with
+	 * a Parameters object for details).
+	 * @param T - current temperature of the cell/environment
+	 * @param params - compiled parameters for the simulation
+	 * @param stage - the index of the lifestage
+	 * @return the mortality rate of the lifestage, given the current parameters
+	 */
+	public static double solveMortality(double T, CompiledParameters params, int stage) {
+		
+		double Tlower = params.getMortalityMinTemp(stage);
+		double Tupper = params.getMortalityMaxTemp(stage);
+		
+		if ((!(Tlower <= T && T <= Tupper))) // if temperature is not within tolerable range, max mortality is reached
+			return params.getMortalityMax(stage); 
+		
+		double tau = params.getMortalityTau(stage);
+		double mortality = 0; // mortality is a sum, initialize outside the loop
+		
+		for (int i = 0; i < 4; i ++) 
+			mortality += params.getMortalityBeta(stage, i) * Math.pow((T - tau), i);
+		
+		return mortality;
+	}
+	
 	/**
 	 * Method to return the growth time (timesteps until 100 % growth) at the specified temperature.
 	 * Note: this is a reciprocal estimation of the function produced with the sour cherry data.
@@ -344,4 +436,102 @@ public class SolveParameters {
 		return effect;
 	}
 	
+	/**
+	 * Method to return the effect of fruit quality on the development rate, reading the fruit 
+	 * parameters from the compiled parameters.
+	 * @param fruitQConstant - constant denominator for the ratio, taken from the aphid paper 
+	 * @param currentQuality - fruit quality for the current timestep
+	 * @param params - compiled parameters for the simulation
+	 * @return the effect of current fruit quality on the development rate
+	 * @throws IllegalArgumentException if the fruit quality m parameter is not between 0 and 1 inclusive
+	 */
+	public static double solveDevelopmentPlantEffect(double fruitQConstant, double currentQuality, CompiledParameters params) {
+		return solveDevelopmentPlantEffectFromRatio(solveFruitQualityRatio(fruitQConstant, currentQuality, params), params);
+	}
+	
+	/**
+	 * Method to return the effect of fruit quality on the mortality rate for the specified lifestage,
+	 * reading the fruit parameters and max mortality from the compiled parameters.
+	 * @param fruitQConstant - constant denominator for the ratio, taken from the aphid paper 
+	 * @param currentQuality - fruit quality for the current timestep
+	 * @param params - compiled parameters for the simulation
+	 * @param stage - the index of the lifestage
+	 * @return the effect of current fruit quality on the mortality rate
+	 */
+	public static double solveMortalityPlantEffect(double fruitQConstant, double currentQuality, CompiledParameters params, int stage) {
+		return solveMortalityPlantEffectFromRatio(solveFruitQualityRatio(fruitQConstant, currentQuality, params), params, stage);
+	}
+	
+	/**
+	 * Method to return the fruit quality ratio (currentQuality / fruitQConstant)^n that both plant 
+	 * effects are computed from.  It only depends on the current fruit quality, so it can be computed
+	 * once per timestep and shared by the development effect and the mortality effects of all the stages.
+	 * @param fruitQConstant - constant denominator for the ratio, taken from the aphid paper 
+	 * @param currentQuality - fruit quality for the current timestep
+	 * @param params - compiled parameters for the simulation
+	 * @return the fruit quality ratio
+	 */
+	public static double solveFruitQualityRatio(double fruitQConstant, double currentQuality, CompiledParameters params) {
+		return Math.pow((currentQuality / fruitQConstant), params.getFruitN());
+	}
+	
+	/**
+	 * Method to return the effect of fruit quality on the development rate, given the fruit quality ratio
+	 * (see solveFruitQualityRatio).
+	 * @param ratio - the fruit quality ratio for the current timestep
+	 * @param params - compiled parameters for the simulation
+	 * @return the effect of current fruit quality on the development rate
+	 * @throws IllegalArgumentException if the fruit quality m parameter is not between 0 and 1 inclusive
+	 */
+	public static double solveDevelopmentPlantEffectFromRatio(double ratio, CompiledParameters params) {
+		
+		double m = params.getFruitM();
+		
+		if (! (0 <= m && m <= 1))
+			throw new IllegalArgumentException("m is between 0 and 1 inclusive");
+		
+		double effect = m * ratio * Math.pow((1 + ratio), -1) + 1 - m;
+		
+		return effect;
+	}
+	
+	/**
+	 * Method to return the effect of fruit quality on the mortality rate for the specified lifestage, given
+	 * the fruit quality ratio (see solveFruitQualityRatio).
+	 * @param ratio - the fruit quality ratio for the current timestep
+	 * @param params - compiled parameters for the simulation
+	 * @param stage - the index of the lifestage
+	 * @return the effect of current fruit quality on the mortality rate
+	 */
+	public static double solveMortalityPlantEffectFromRatio(double ratio, CompiledParameters params, int stage) {
+		return solveMortalityPlantEffectFromInverse(solveFruitQualityInverse(ratio), params, stage);
+	}
+	
+	/**
+	 * Method to return 1 / (1 + ratio) for the fruit quality ratio (see solveFruitQualityRatio); this is the 
+	 * same for the mortality effect of all the lifestages, so it can be computed once per timestep.
+	 * @param ratio - the fruit quality ratio for the current timestep
+	 * @return the inverse of 1 + ratio
+	 */
+	public static double solveFruitQualityInverse(double ratio) {
+		return Math.pow((1 + ratio), -1);
+	}
+	
+	/**
+	 * Method to return the effect of fruit quality on the mortality rate for the specified lifestage, given
+	 * the inverse of 1 + the fruit quality ratio (see solveFruitQualityInverse).
+	 * @param inverse - 1 / (1 + the fruit quality ratio) for the current timestep
+	 * @param params - compiled parameters for the simulation
+	 * @param stage - the index of the lifestage
+	 * @return the effect of current fruit quality on the mortality rate
+	 */
+	public static double solveMortalityPlantEffectFromInverse(double inverse, CompiledParameters params, int stage) {
+		
+		double m = 0.1 * params.getMortalityMax(stage);
+		
+		double effect = m * inverse;
+		
+		return effect;
+	}
+	
 }
\ No newline at end of file
@@ -0,0 +1,95 @@
+package SWDModelReferenceClasses;
+
+import SWDModelBaseObjects.CompiledParameters;
+
+/**
+ * This class holds the system of coupled DE solved for the lifestage populations during one step of the
+ * simulation: with the rates of the step (fertility, development and mortality), it is linear in the
+ * populations, dP/dt = A * P, where A is a 13x13 matrix (the same equations as the methods of EulersMethod).
+ * A is mostly bidiagonal (each stage loses flies to mortality, predation and development, and gains those
+ * developing from the previous stage), plus the eggs laid by each female stage.
+ * Integrators advance the populations with this system (see Integrator).
+ *
+ * Lifestages are indexed: 0-eggs, 1-instar1, 2-instar2, 3-instar3, 4-pupae, 5-males, 6 to 12-females1 to females7.
+ */
+public class StageSystem {
+
+	public static final int NUM_STAGES = CompiledParameters.NUM_STAGES;
+	private static final int MALES = 5, FEMALES1 = 6; // indices of the males and first female stage
+
+	private final double[] matrix = new double[NUM_STAGES * NUM_STAGES]; // A, row by row
+
+	/**
+	 * Method to set the system for the rates of a step (as in SWDPopulation.computePopulation)
+	 * @param fertility - fertility during the step (with the diapause effect)
+	 * @param devRate - development rate of each stage that develops (0 to 4, then females1 to females6)
+	 * @param mortalityNat - mortality rate of each stage, due to natural causes (with the fruit effect)
+	 * @param params - compiled parameters (predation, egg viabilities and male proportion)
+	 */
+	public void set(double fertility, double[] devRate, double[] mortalityNat, CompiledParameters params) {
+		double maleProportion = params.getMaleProportion();
+		for (int i = 0; i < matrix.length; i ++)
+			matrix[i] = 0;
+		for (int i = 0; i < NUM_STAGES; i ++) { // losses: mortality, predation and development
+			double development = (i < MALES) ? devRate[i] : ((i == MALES || i == NUM_STAGES - 1) ? 0 : devRate[i - 1]);
+			matrix[i * NUM_STAGES + i] = -(mortalityNat[i] + params.getMortalityPredation(i) + development);
+		}
+		for (int i = 0; i < CompiledParameters.NUM_FEMALE_STAGES; i ++) // eggs laid by each female stage
+			matrix[FEMALES1 + i] = fertility * params.getEggViability(i);
+		for (int i = 1; i < MALES; i ++) // eggs to instar1, ..., instar3 to pupae
+			matrix[i * NUM_STAGES + i - 1] = devRate[i - 1];
+		matrix[MALES * NUM_STAGES + 4] = maleProportion * devRate[4]; // pupae to males
+		matrix[FEMALES1 * NUM_STAGES + 4] = (1 - maleProportion) * devRate[4]; // pupae to females1
+		for (int i = FEMALES1 + 1; i < NUM_STAGES; i ++) // females1 to females2, ..., females6 to females7
+			matrix[i * NUM_STAGES + i - 1] = devRate[i - 2];
+	}
+
+	/**
+	 * Method to return an element of the matrix of the system
+	 * @param row - the stage whose derivative it is a term of
+	 * @param column - the stage it multiplies
+	 * @return the element
+	 */
+	public double get(int row, int column) { return matrix[row * NUM_STAGES + column]; }
+
+	/**
+	 * Method to return a copy of the matrix of the system (row by row)
+	 * @return the matrix
+	 */
+	public double[] getMatrix() { return matrix.clone(); }
+
+	/**
+	 * Method to copy the matrix of the system times a factor into an array, without allocating
+	 * @param factor - the factor (e.g. the length of a step)
+	 * @param scaled - the array to fill (row by row, at least 13 x 13 long)
+	 */
+	public void copyMatrix(double factor, double[] scaled) {
+		for (int i = 0; i < matrix.length; i ++)
+			scaled[i] = matrix[i] * factor;
+	}
+
+	/**
+	 * Method to compute the derivative of the populations
+	 * @param populations - the populations (by lifestage)
+	 * @param derivative - filled with dP/dt (by lifestage)
+	 */
+	public void derivative(double[] populations, double[] derivative) {
+		derivative(populations, 0, derivative, 0);
+	}
+
+	/**
+	 * Method to compute the derivative of populations kept in a larger array (e.g. the scratch array of an integrator)
+	 * @param populations - array with the populations (by lifestage, from populationsOffset)
+	 * @param populationsOffset - index of the eggs in populations
+	 * @param derivative - array filled with dP/dt (by lifestage, from derivativeOffset)
+	 * @param derivativeOffset - index of the eggs in derivative
+	 */
+	public void derivative(double[] populations, int populationsOffset, double[] derivative, int derivativeOffset) {
+		for (int i = 0; i < NUM_STAGES; i ++) {
+			double value = 0;
+			for (int j = 0, row = i * NUM_STAGES; j < NUM_STAGES; j ++)
+				value += matrix[row + j] * populations[populationsOffset + j];
+			derivative[derivativeOffset + i] = value;
+		}
+	}
+}
@@ -0,0 +1,275 @@
+package SWDModelReferenceClasses;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * This class reads a sweep result file written by SweepResultWriter (see there for the file layout).
+ * The run index and the data are memory-mapped, so any value can be read by run id, variable and
+ * row without reading the rest of the file.
+ * Note: the data is mapped in segments of whole runs (of at most about 1GB each), so files larger
+ * than 2GB can be read as well.
+ * The reader is Closeable, so it can be closed by a try-with-resources statement.
+ */
+public class SweepResultReader implements Closeable {
+
+	private static final long MAX_SEGMENT_SIZE = 1L << 30; // maximum size of one mapped segment of data
+
+	private final RandomAccessFile file;
+
+	private final int numRuns, numParams, numVariables, numSummaries, numRows;
+	private final String[] paramNames, variableNames, summaryNames;
+
+	private final MappedByteBuffer index; // the run index
+	private final MappedByteBuffer[] segments; // the data, in segments of runsPerSegment runs
+	private final int runsPerSegment;
+
+	/**
+	 * Constructor to open a sweep result file and map it into memory.
+	 * @param fileName - the file to read
+	 * @throws IOException if the file cannot be read, or is not a sweep result file
+	 */
+	public SweepResultReader(File fileName) throws IOException {
+		file = new RandomAccessFile(fileName, "r");
+		try {
+			// read the header
+			byte[] magic = new byte[SweepResultWriter.MAGIC.length];
+			file.readFully(magic);
+			if (!Arrays.equals(magic, SweepResultWriter.MAGIC))
+				throw new IOException(fileName + " is not a sweep result file");
+			int version = file.readInt();
+			if (version != SweepResultWriter.VERSION)
+				throw new IOException(fileName + " - unsupported version " + version);
+			numRuns = file.readInt();
+			numParams = file.readInt();
+			numVariables = file.readInt();
+			numSummaries = file.readInt();
+			numRows = file.readInt();
+			
+			paramNames = new String[numParams];
+			variableNames = new String[numVariables];
+			summaryNames = new String[numSummaries];
+			for (int i = 0; i < numParams; i ++)
+				paramNames[i] = file.readUTF();
+			for (int i = 0; i < numVariables; i ++)
+				variableNames[i] = file.readUTF();
+			for (int i = 0; i < numSummaries; i ++)
+				summaryNames[i] = file.readUTF();
+		} catch (IOException error) {
+			file.close();
+			throw error;
+		}
+		long indexStart = ((file.getFilePointer() + 7) / 8) * 8; // the header is padded to whole doubles
+		long indexSize = (long) numRuns * getIndexRecordSize();
+		long runSize = getRunDataSize();
+		
+		FileChannel channel = file.getChannel();
+		if (channel.size() < indexStart + indexSize + numRuns * runSize) {
+			file.close();
+			throw new IOException(fileName + " is truncated");
+		}
+		
+		index = channel.map(FileChannel.MapMode.READ_ONLY, indexStart, indexSize);
+
+		runsPerSegment = (int) Math.max(1, Math.min(numRuns, MAX_SEGMENT_SIZE / Math.max(1, runSize)));
+		int numSegments = (numRuns == 0) ? 0 : (numRuns + runsPerSegment - 1) / runsPerSegment;
+		segments = new MappedByteBuffer[numSegments];
+		for (int s = 0; s < numSegments; s ++) {
+			int runs = Math.min(runsPerSegment, numRuns - s * runsPerSegment);
+			segments[s] = channel.map(FileChannel.MapMode.READ_ONLY, indexStart + indexSize + s * runsPerSegment * runSize, runs * runSize);
+		}
+	}
+
+	/**
+	 * Method to return the number of runs in the sweep
+	 * @return the number of runs
+	 */
+	public int getNumRuns() { return numRuns; }
+
+	/**
+	 * Method to return the maximum number of rows per run
+	 * @return the maximum number of rows
+	 */
+	public int getMaxRows() { return numRows; }
+
+	/**
+	 * Method to return the names of the parameters
+	 * @return the parameter names
+	 */
+	public String[] getParameterNames() { return paramNames.clone(); }
+
+	/**
+	 * Method to return the names of the variables
+	 * @return the variable names
+	 */
+	public String[] getVariableNames() { return variableNames.clone(); }
+
+	/**
+	 * Method to return the names of the summary values
+	 * @return the summary value names
+	 */
+	public String[] getSummaryNames() { return summaryNames.clone(); }
+
+	/**
+	 * Method to return the index of a parameter from its name
+	 * @param name - the name of the parameter
+	 * @return the index of the parameter
+	 * @throws IllegalArgumentException if there is no parameter with this name
+	 */
+	public int getParameterIndex(String name) { return find(paramNames, name); }
+
+	/**
+	 * Method to return the index of a variable from its name
+	 * @param name - the name of the variable
+	 * @return the index of the variable
+	 * @throws IllegalArgumentException if there is no variable with this name
+	 */
+	public int getVariableIndex(String name) { return find(variableNames, name); }
+
+	/**
+	 * Method to return the index of a summary value from its name
+	 * @param name - the name of the summary value
+	 * @return the index of the summary value
+	 * @throws IllegalArgumentException if there is no summary value with this name
+	 */
+	public int getSummaryIndex(String name) { return find(summaryNames, name); }
+
+	/**
+	 * Method to check if a run has been written
+	 * @param run - the id of the run
+	 * @return has the run been written? true or false
+	 */
+	public boolean isWritten(int run) { return index.getLong(indexRecord(run)) >= 0; }
+
+	/**
+	 * Method to return the number of rows written for a run
+	 * @param run - the id of the run
+	 * @return the number of rows (0 if the run has not been written)
+	 */
+	public int getNumRows(int run) { return (int) Math.max(0, index.getLong(indexRecord(run))); }
+
+	/**
+	 * Method to return the value of a parameter for a run
+	 * @param run - the id of the run
+	 * @param param - the index of the parameter
+	 * @return the value of the parameter
+	 */
+	public double getParameter(int run, int param) {
+		checkIndex(param, numParams, "parameter");
+		return index.getDouble(indexRecord(run) + 8 * (1 + param));
+	}
+
+	/**
+	 * Method to return all the parameter values for a run
+	 * @param run - the id of the run
+	 * @return the parameter values
+	 */
+	public double[] getParameters(int run) {
+		double[] params = new double[numParams];
+		for (int p = 0; p < numParams; p ++)
+			params[p] = getParameter(run, p);
+		return params;
+	}
+
+	/**
+	 * Method to return a summary value for a run
+	 * @param run - the id of the run
+	 * @param summary - the index of the summary value
+	 * @return the summary value
+	 */
+	public double getSummary(int run, int summary) {
+		checkIndex(summary, numSummaries, "summary value");
+		return index.getDouble(indexRecord(run) + 8 * (1 + numParams + summary));
+	}
+
+	/**
+	 * Method to return the value of a variable in one row of a run
+	 * @param run - the id of the run
+	 * @param variable - the index of the variable
+	 * @param row - the row
+	 * @return the value (NaN if the row was not written)
+	 */
+	public double getValue(int run, int variable, int row) {
+		checkIndex(run, numRuns, "run");
+		checkIndex(variable, numVariables, "variable");
+		checkIndex(row, numRows, "row");
+		return segments[run / runsPerSegment].getDouble(position(run, variable) + 8 * row);
+	}
+
+	/**
+	 * Method to return the values of a variable in every row written for a run
+	 * @param run - the id of the run
+	 * @param variable - the index of the variable
+	 * @return the column of values
+	 */
+	public double[] getColumn(int run, int variable) {
+		checkIndex(variable, numVariables, "variable");
+		int rows = getNumRows(run);
+		double[] column = new double[rows];
+		MappedByteBuffer segment = segments[run / runsPerSegment];
+		int start = position(run, variable);
+		for (int i = 0; i < rows; i ++)
+			column[i] = segment.getDouble(start + 8 * i);
+		return column;
+	}
+
+	/**
+	 * Method to return the id of the first run with the specified parameter values
+	 * @param params - the parameter values to look for
+	 * @return the id of the run (-1 if there is no written run with these values)
+	 */
+	public int findRun(double[] params) {
+		for (int run = 0; run < numRuns; run ++) {
+			if (isWritten(run) && Arrays.equals(getParameters(run), params))
+				return run;
+		}
+		return -1;
+	}
+
+	/**
+	 * Method to close the file.
+	 * Note: the mapped data stays valid until it is garbage collected.
+	 * @throws IOException if the file cannot be closed
+	 */
+	@Override
+	public void close() throws IOException {
+		file.close();
+	}
+
+	private int getIndexRecordSize() { return 8 * (1 + numParams + numSummaries); }
+
+	private int getRunDataSize() { return 8 * numVariables * numRows; }
+
+	/**
+	 * Method to return the position of a run's record in the run index
+	 */
+	private int indexRecord(int run) {
+		checkIndex(run, numRuns, "run");
+		return run * getIndexRecordSize();
+	}
+
+	/**
+	 * Method to return the position of a run's variable column in its segment
+	 */
+	private int position(int run, int variable) {
+		return (run % runsPerSegment) * getRunDataSize() + variable * numRows * 8;
+	}
+
+	private static void checkIndex(int i, int size, String what) {
+		if (i < 0 || i >= size)
+			throw new IllegalArgumentException(what + " " + i + " out of range (" + size + ")");
+	}
+
+	private static int find(String[] names, String name) {
+		for (int i = 0; i < names.length; i ++) {
+			if (names[i].equals(name))
+				return i;
+		}
+		throw new IllegalArgumentException(name + " - not in the file!");
+	}
+}
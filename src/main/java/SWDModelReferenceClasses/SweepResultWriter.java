@@ -0,0 +1,192 @@
+package SWDModelReferenceClasses;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * This class writes the results of a sweep (many simulation runs) into a single binary file,
+ * instead of one text file per run.  The file can be read back with SweepResultReader, and
+ * exported to CSV with ConsoleRunners.SweepResultExport.
+ *
+ * File layout (all numbers big-endian):
+ * - header: the magic bytes "SWDSWEEP", then the ints version, number of runs, number of parameters,
+ *   number of variables, number of summary values and the maximum number of rows per run, then the
+ *   names of the parameters, variables and summary values (as modified UTF-8, see DataOutput.writeUTF),
+ *   padded with zeros to a multiple of 8 bytes
+ * - run index: for every run, a long with the number of rows written (-1 if the run has not been
+ *   written), then the parameter values and the summary values of the run as doubles
+ * - data: for every run, for every variable, a column of (maximum number of rows) doubles; rows that
+ *   were not written are NaN
+ * Every record has a fixed width, so any value can be found from its run, variable and row.
+ *
+ * Runs can be written in any order, and from several threads at once (each run is written with
+ * positional writes to its own part of the file).
+ */
+public class SweepResultWriter {
+
+	static final byte[] MAGIC = {'S', 'W', 'D', 'S', 'W', 'E', 'E', 'P'};
+	static final int VERSION = 1;
+
+	private final RandomAccessFile file;
+	private final FileChannel channel;
+	private final String path; // path of the file
+
+	private final int numRuns, numParams, numVariables, numSummaries, numRows;
+	private final long indexStart; // position of the run index
+	private final long dataStart; // position of the data
+
+	/**
+	 * Constructor to create the file, write its header, and reserve space for all the runs.
+	 * Note: any existing file with the same name is replaced.
+	 * @param file - the file to write
+	 * @param numRuns - the number of runs in the sweep (run ids are 0 to numRuns - 1)
+	 * @param paramNames - the name of each parameter that identifies a run
+	 * @param variableNames - the name of each variable recorded over time
+	 * @param summaryNames - the name of each summary value (one value per run)
+	 * @param numRows - the maximum number of rows (data points over time) per run
+	 * @throws IOException if the file cannot be written
+	 * @throws IllegalArgumentException if the number of runs or rows is negative
+	 */
+	public SweepResultWriter(File file, int numRuns, String[] paramNames, String[] variableNames, String[] summaryNames, int numRows) throws IOException {
+		if (numRuns < 0 || numRows < 0)
+			throw new IllegalArgumentException("Number of runs and rows can't be negative!");
+
+		this.path = file.getPath();
+		this.numRuns = numRuns;
+		this.numParams = paramNames.length;
+		this.numVariables = variableNames.length;
+		this.numSummaries = summaryNames.length;
+		this.numRows = numRows;
+
+		// build the header
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream header = new DataOutputStream(bytes);
+		header.write(MAGIC);
+		header.writeInt(VERSION);
+		header.writeInt(numRuns);
+		header.writeInt(numParams);
+		header.writeInt(numVariables);
+		header.writeInt(numSummaries);
+		header.writeInt(numRows);
+		for (String name : paramNames)
+			header.writeUTF(name);
+		for (String name : variableNames)
+			header.writeUTF(name);
+		for (String name : summaryNames)
+			header.writeUTF(name);
+		while (header.size() % 8 != 0) // align the index and the data to whole doubles
+			header.writeByte(0);
+		header.close();
+
+		indexStart = bytes.size();
+		dataStart = indexStart + (long) numRuns * getIndexRecordSize();
+
+		if (file.exists() && !file.delete())
+			throw new IOException("Cannot replace " + file);
+		this.file = new RandomAccessFile(file, "rw");
+		channel = this.file.getChannel();
+		this.file.setLength(dataStart + (long) numRuns * getRunDataSize()); // reserve space for every run
+
+		writeFully(ByteBuffer.wrap(bytes.toByteArray()), 0);
+
+		// mark every run as not written (the data is only filled in when the run is written)
+		ByteBuffer notWritten = ByteBuffer.allocate(8);
+		for (int run = 0; run < numRuns; run ++) {
+			notWritten.clear();
+			notWritten.putLong(0, -1);
+			writeFully(notWritten, indexStart + (long) run * getIndexRecordSize());
+		}
+	}
+
+	/**
+	 * Method to write the results of one run.
+	 * @param run - the id of the run (0 to numRuns - 1)
+	 * @param params - the value of each parameter for the run
+	 * @param columns - the data for each variable (columns[variable][row]); all the columns must have
+	 * 					the same length, which can't be larger than the maximum number of rows
+	 * @param summary - the summary values of the run
+	 * @throws IOException if the file cannot be written
+	 * @throws IllegalArgumentException if the run id is out of range, or the arrays have the wrong size
+	 */
+	public void writeRun(int run, double[] params, double[][] columns, double[] summary) throws IOException {
+		if (run < 0 || run >= numRuns)
+			throw new IllegalArgumentException("Run " + run + " out of range (" + numRuns + " runs)");
+		if (params.length != numParams || columns.length != numVariables || summary.length != numSummaries)
+			throw new IllegalArgumentException("Wrong number of parameters, variables or summary values for run " + run);
+		int rows = (numVariables == 0) ? 0 : columns[0].length;
+		for (int v = 0; v < numVariables; v ++) {
+			if (columns[v].length != rows)
+				throw new IllegalArgumentException("All the variables must have the same number of rows!");
+		}
+		if (rows > numRows)
+			throw new IllegalArgumentException("Run " + run + " has " + rows + " rows (maximum " + numRows + ")");
+
+		// data first, so a run is only marked as written once all of its data is in the file
+		ByteBuffer data = ByteBuffer.allocate(getRunDataSize());
+		for (int v = 0; v < numVariables; v ++) {
+			for (int i = 0; i < numRows; i ++)
+				data.putDouble((i < rows) ? columns[v][i] : Double.NaN);
+		}
+		data.flip();
+		writeFully(data, dataStart + (long) run * getRunDataSize());
+
+		ByteBuffer record = ByteBuffer.allocate(getIndexRecordSize());
+		record.putLong(rows);
+		for (int p = 0; p < numParams; p ++)
+			record.putDouble(params[p]);
+		for (int s = 0; s < numSummaries; s ++)
+			record.putDouble(summary[s]);
+		record.flip();
+		writeFully(record, indexStart + (long) run * getIndexRecordSize());
+	}
+
+	/**
+	 * Method to close the file.
+	 * @throws IOException if the file cannot be closed
+	 */
+	public void close() throws IOException {
+		channel.force(false);
+		file.close();
+	}
+
+	/**
+	 * Method to return the number of runs in the sweep
+	 * @return the number of runs
+	 */
+	public int getNumRuns() { return numRuns; }
+
+	/**
+	 * Method to return the path of the file being written
+	 * @return the path of the file
+	 */
+	public String getPath() { return path; }
+
+	/**
+	 * Method to return the size of one run's record in the run index
+	 * @return the size in bytes
+	 */
+	private int getIndexRecordSize() { return 8 * (1 + numParams + numSummaries); }
+
+	/**
+	 * Method to return the size of one run's data
+	 * @return the size in bytes
+	 */
+	private int getRunDataSize() { return 8 * numVariables * numRows; }
+
+	/**
+	 * Method to write the whole buffer at the specified position (positional writes don't change the
+	 * channel's position, so they can be done from several threads at once).
+	 * @param buffer - the bytes to write
+	 * @param position - the position in the file
+	 * @throws IOException if the file cannot be written
+	 */
+	private void writeFully(ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining())
+			position += channel.write(buffer, position);
+	}
+}
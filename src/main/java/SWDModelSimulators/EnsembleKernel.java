@@ -0,0 +1,35 @@
+package SWDModelSimulators;
+
+/**
+ * An EnsembleKernel does the Euler update of SWDSimulatorEnsemble: it computes the populations of the
+ * next step from those of the current step and the step's rates, for a block of members.
+ * All the arrays are indexed [stage][member] (or [member]), and only members from to to-1 are read
+ * and written.  Every implementation must give exactly the same results as ScalarEnsembleKernel
+ * (i.e. do the same floating point operations in the same order, without fused multiply-adds).
+ *
+ * Lifestages are indexed: 0-eggs, 1-instar1, 2-instar2, 3-instar3, 4-pupae, 5-males, 6 to 12-females1 to females7.
+ */
+public interface EnsembleKernel {
+
+	/**
+	 * Method to compute the populations of the next step for a block of members
+	 * @param pop - the populations at the current step [stage][member]
+	 * @param next - the populations at the next step, to be written [stage][member]
+	 * @param devRate - the development rates [dev stage][member]
+	 * @param loss - the total loss rates (mortality, predation and development) [stage][member]
+	 * @param fertViability - the fertility times egg viability of each female stage [female stage][member]
+	 * @param maleProportion - the proportion of males in the new adults [member]
+	 * @param eggsIn - scratch array for the eggs laid on the step [member] (may be written)
+	 * @param dt - the integration step
+	 * @param from - the first member of the block
+	 * @param to - the member after the last member of the block
+	 */
+	void updatePopulations(double[][] pop, double[][] next, double[][] devRate, double[][] loss, double[][] fertViability,
+							double[] maleProportion, double[] eggsIn, double dt, int from, int to);
+
+	/**
+	 * Method to return the name of the kernel (e.g. to print which one was chosen)
+	 * @return the name of the kernel
+	 */
+	String getName();
+}
@@ -0,0 +1,88 @@
+package SWDModelSimulators;
+
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * This class chooses the EnsembleKernel used by SWDSimulatorEnsemble, at runtime.
+ * The SIMD kernel (VectorEnsembleKernel) uses the Java Vector API (jdk.incubator.vector), so it is only
+ * compiled on JDK 17+ (the "vector" build profile, from src/main/vector), and only usable on a JVM started
+ * with --add-modules jdk.incubator.vector.
+ * The kernel is chosen with the system property swd.ensemble.kernel:
+ * - scalar (default): the scalar kernel
+ * - auto: the vector kernel if this JVM supports it, otherwise the scalar kernel
+ * - vector: the vector kernel (an error if it isn't available)
+ * The scalar kernel is the default as, on JDK 17, the JIT vectorizes its loops well enough that the
+ * vector kernel isn't faster (compare them with EnsembleKernelBenchmark on the target machine).
+ */
+public class EnsembleKernels {
+
+	public static final String KERNEL_PROPERTY = "swd.ensemble.kernel";
+	private static final String VECTOR_KERNEL_CLASS = "SWDModelSimulators.VectorEnsembleKernel";
+
+	private static EnsembleKernel defaultKernel = null;
+
+	/**
+	 * Method to return the kernel chosen by the swd.ensemble.kernel system property (chosen on the first call)
+	 * @return the default kernel
+	 * @throws IllegalArgumentException if the property is not a valid kernel, or asks for a kernel that isn't available
+	 */
+	public static synchronized EnsembleKernel getDefault() {
+		if (defaultKernel == null)
+			defaultKernel = get(System.getProperty(KERNEL_PROPERTY, "scalar"));
+		return defaultKernel;
+	}
+
+	/**
+	 * Method to return a kernel by name
+	 * @param name - the kernel: auto, vector or scalar
+	 * @return the kernel
+	 * @throws IllegalArgumentException if the name is not a valid kernel, or the kernel isn't available
+	 */
+	public static EnsembleKernel get(String name) {
+		if (name.equals("scalar"))
+			return new ScalarEnsembleKernel();
+		if (name.equals("vector")) {
+			EnsembleKernel kernel = loadVectorKernel();
+			if (kernel == null)
+				throw new IllegalArgumentException("The vector kernel is not available (compile with JDK 17+ and run with --add-modules jdk.incubator.vector)");
+			return kernel;
+		}
+		if (name.equals("auto")) {
+			EnsembleKernel kernel = loadVectorKernel();
+			return (kernel != null) ? kernel : new ScalarEnsembleKernel();
+		}
+		throw new IllegalArgumentException(name + " - not a valid ensemble kernel!");
+	}
+
+	/**
+	 * Method to check if the vector kernel can be used on this JVM
+	 * @return true if the vector kernel is available
+	 */
+	public static boolean isVectorAvailable() {
+		return loadVectorKernel() != null;
+	}
+
+	/**
+	 * Method to load the vector kernel by reflection, so this class still loads where it wasn't compiled
+	 * or the incubator module isn't present
+	 * @return the vector kernel, or null if it isn't available
+	 */
+	private static EnsembleKernel loadVectorKernel() {
+		try {
+			return (EnsembleKernel) Class.forName(VECTOR_KERNEL_CLASS).getDeclaredConstructor().newInstance();
+		} catch (InvocationTargetException error) { // thrown by the constructor
+			Throwable cause = error.getCause();
+			if (cause instanceof UnsupportedOperationException || cause instanceof LinkageError) // no SIMD registers, or no incubator module
+				return null;
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			return null;
+		} catch (ReflectiveOperationException error) {
+			return null;
+		} catch (LinkageError error) { // the jdk.incubator.vector module isn't present
+			return null;
+		}
+	}
+}
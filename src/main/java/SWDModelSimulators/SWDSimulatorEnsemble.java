@@ -0,0 +1,644 @@
+package SWDModelSimulators;
+
+import java.util.ArrayList;
+
+import SWDModelBaseObjects.CompiledParameters;
+import SWDModelBaseObjects.Parameters;
+import SWDModelBaseObjects.RateCache;
+import SWDModelBaseObjects.RunSummary;
+import SWDModelBaseObjects.TemperatureRates;
+import SWDModelReferenceClasses.EulersMethod;
+import SWDModelReferenceClasses.PhotoperiodTable;
+import SWDModelReferenceClasses.SolveParameters;
+import SWDModelReferenceClasses.UtilityMethods;
+
+/**
+ * This class describes an SWDSimulatorEnsemble object, which is a simulator to run N scenarios
+ * (ensemble members) in lockstep.  Each member is a single-cell simulation, as run by SWDSimulatorSingle,
+ * with its own parameters, injection day and temperatures; but instead of one cell and population object
+ * per scenario, the state of all the members is held in double[stage][member] arrays, and every timestep
+ * advances all of them together.
+ *
+ * Every timestep is done in two passes:
+ * - a per-member pass for what differs between the members: injection, fruit quality, diapause, and
+ *   the temperature-dependent rates (only evaluated when the day changes, through a RateCache); this
+ *   fills the rate arrays for the step (or for the whole day, if the rates can't change during the 
+ *   day, i.e. if fruit quality or diapause are ignored)
+ * - the Euler update (the same as SWDPopulation.computePopulation) over all the members, done by an
+ *   EnsembleKernel: scalar loops the JIT can vectorize, or explicit SIMD with the Vector API where the
+ *   JVM supports it (see EnsembleKernels)
+ * Both passes are done for a block of members at a time, so that the block's arrays stay in the cache.
+ * The results are exactly those of an SWDSimulatorSingle run one integration step at a time (as the
+ * runners do) with the same parameters, temperatures and injection day, starting from a new simulator.
+ * Only the summary metrics are kept (see getRunSummary), not the trajectories.
+ *
+ * Lifestages are indexed: 0-eggs, 1-instar1, 2-instar2, 3-instar3, 4-pupae, 5-males, 6 to 12-females1 to females7.
+ */
+public class SWDSimulatorEnsemble {
+
+	private static final int NUM_STAGES = CompiledParameters.NUM_STAGES;
+	private static final int NUM_DEV_STAGES = CompiledParameters.NUM_DEV_STAGES;
+	private static final int NUM_FEMALE_STAGES = CompiledParameters.NUM_FEMALE_STAGES;
+	private static final int FEMALES1 = 6; // index of the first female stage
+	private static final int DAYS_PER_YEAR = 365;
+	private static final double FRUIT_Q_CONSTANT = 0.5; // as in SWDPopulation
+	private static final int BLOCK_SIZE = 256; // number of members advanced together through all the passes of a step
+
+	private final int size; // number of members
+	private double dt = 0.05; // integration step
+	private double timeStep; // current timestep (the same for all the members)
+	private RateCache rateCache = new RateCache(); // members with the same parameters and temperature share their rates
+	private EnsembleKernel kernel = EnsembleKernels.getDefault(); // the Euler update
+
+	// members' setup
+	private final CompiledParameters[] params;
+	private final double[][] temperatures; // daily temperatures of each member (members can share the same array)
+	private final int[] startDay; // injection day of each member (negative to inject when diapause is crossed)
+	private final double[][] initialPop; // [stage][member]
+	private final double[][] mortPredation; // [stage][member]
+	private final double[][] eggViability; // [female stage][member]
+	private final double[] maleProportion;
+	private final boolean[] sameRates; // does the member have the same rate parameters and temperatures as the previous one?
+	private boolean membersChanged = true; // has a member been set up since sameRates was computed?
+
+	// state
+	private double[][] pop, next; // populations at the current timestep, and at the next one (swapped after every step)
+	private final boolean[] injected; // have the initial populations been injected?
+	private final boolean[] addInitPop; // as in SWDPopulation
+	private final int[] s1, s2; // diapause multipliers
+	private final boolean[] crossedDiapause;
+	private final int[] crossedDiapDay;
+	private final boolean[] frozen; // population not updated on this step (diapause not crossed and not injected yet)
+	private final double[] fruitQuality;
+	private final double[][] fruitHistory; // fruit quality for each day of the year [day][member]
+	private final boolean[] killAllFruit;
+	private final double[] dayCrossedMaxFruit;
+
+	// temperature-dependent rates for the current day
+	private int ratesDay = -1;
+	private boolean ratesIgnoreFruit, ratesIgnoreDiapause; // the options the day's rates were computed for
+	private final double[] dayGT; // potential fruit increase
+	private final double[] dayFertility;
+	private final double[][] dayDevRate; // [dev stage][member]
+	private final double[][] dayMortality; // [stage][member]
+	private final double[] dayHours, dayDiapauseEffect; // daylight hours and diapause effect on fertility (diapause only)
+
+	// rates for the current step
+	private final double[] fertility;
+	private final double[] fruitDevEffect;
+	private final double[][] fruitMortEffect; // [stage][member]
+	private final double[][] devRate; // [dev stage][member]
+	private final double[][] loss; // total loss rate (mortality, predation and development) [stage][member]
+	private final double[][] fertViability; // fertility times egg viability [female stage][member]
+	private final double[] eggsIn; // eggs laid on the step
+
+	// summary metrics
+	private final double[][] max, maxDay, total; // [RunSummary stage][member]
+	private final double[] females; // total female population after the step
+
+	/**
+	 * Constructor to initialize the ensemble.  Every member starts with the default parameters (at their
+	 * constant temperature) and injection on day 0; use setMember to set them up.
+	 * @param size - the number of members
+	 * @param dt - step for numeric integration (Euler's method)
+	 * @throws IllegalArgumentException if the size is not positive
+	 */
+	public SWDSimulatorEnsemble(int size, double dt) {
+		if (size <= 0)
+			throw new IllegalArgumentException("The ensemble needs at least one member!");
+		this.size = size;
+		this.dt = dt;
+
+		params = new CompiledParameters[size];
+		temperatures = new double[size][];
+		startDay = new int[size];
+		initialPop = new double[NUM_STAGES][size];
+		mortPredation = new double[NUM_STAGES][size];
+		eggViability = new double[NUM_FEMALE_STAGES][size];
+		maleProportion = new double[size];
+		sameRates = new boolean[size];
+
+		pop = new double[NUM_STAGES][size];
+		next = new double[NUM_STAGES][size];
+		injected = new boolean[size];
+		addInitPop = new boolean[size];
+		s1 = new int[size];
+		s2 = new int[size];
+		crossedDiapause = new boolean[size];
+		crossedDiapDay = new int[size];
+		frozen = new boolean[size];
+		fruitQuality = new double[size];
+		fruitHistory = new double[DAYS_PER_YEAR][size];
+		killAllFruit = new boolean[size];
+		dayCrossedMaxFruit = new double[size];
+
+		dayFertility = new double[size];
+		dayDevRate = new double[NUM_DEV_STAGES][size];
+		dayMortality = new double[NUM_STAGES][size];
+		dayHours = new double[size];
+		dayGT = new double[size];
+		dayDiapauseEffect = new double[size];
+
+		fertility = new double[size];
+		fruitDevEffect = new double[size];
+		fruitMortEffect = new double[NUM_STAGES][size];
+		devRate = new double[NUM_DEV_STAGES][size];
+		loss = new double[NUM_STAGES][size];
+		fertViability = new double[NUM_FEMALE_STAGES][size];
+		eggsIn = new double[size];
+
+		max = new double[RunSummary.NUM_STAGES][size];
+		maxDay = new double[RunSummary.NUM_STAGES][size];
+		total = new double[RunSummary.NUM_STAGES][size];
+		females = new double[size];
+
+		Parameters defaults = new Parameters();
+		CompiledParameters defaultParams = defaults.compile();
+		double[] defaultTemps = {defaults.getParameter("constant temp")};
+		for (int m = 0; m < size; m ++)
+			setMember(m, defaultParams, defaultTemps, 0);
+		resetTime();
+	}
+
+	/**
+	 * Method to set up one member of the ensemble.
+	 * Note: this should be done before running (or after resetTime), the member's state is not reset.
+	 * @param member - the index of the member
+	 * @param params - the member's parameters (including its initial populations)
+	 * @param temperatures - the member's temperatures, one per day (reloops if the simulation runs longer)
+	 * @param startDay - day to inject the initial populations (negative to only inject them when the
+	 * 					 diapause threshold is crossed)
+	 * @throws IllegalArgumentException if the member is out of range, or there is no temperature data
+	 */
+	public void setMember(int member, Parameters params, ArrayList<Double> temperatures, int startDay) {
+		checkMember(member);
+		if (temperatures.size() == 0)
+			throw new IllegalArgumentException("No temperature data!");
+		// members usually share their temperatures, so the previous member's copy is reused if it's the same
+		double[] temps = (member > 0 && sameTemperatures(this.temperatures[member - 1], temperatures))
+							? this.temperatures[member - 1] : toArray(temperatures);
+		setMember(member, params.compile(), temps, startDay);
+	}
+
+	/**
+	 * Method to set up one member of the ensemble from compiled parameters
+	 * @param member - the index of the member
+	 * @param params - the member's compiled parameters
+	 * @param temperatures - the member's temperatures, one per day (the array is not copied)
+	 * @param startDay - day to inject the initial populations
+	 */
+	private void setMember(int member, CompiledParameters params, double[] temperatures, int startDay) {
+		this.params[member] = params;
+		this.temperatures[member] = temperatures;
+		this.startDay[member] = startDay;
+		for (int i = 0; i < NUM_STAGES; i ++) {
+			initialPop[i][member] = params.getInitialPopulation(i);
+			mortPredation[i][member] = params.getMortalityPredation(i);
+		}
+		for (int i = 0; i < NUM_FEMALE_STAGES; i ++)
+			eggViability[i][member] = params.getEggViability(i);
+		maleProportion[member] = params.getMaleProportion();
+		ratesDay = -1; // re-evaluate the rates on the next step
+		membersChanged = true;
+	}
+
+	/**
+	 * Method to return the number of members
+	 * @return the size of the ensemble
+	 */
+	public int getSize() { return size; }
+
+	/**
+	 * Method to reset the value of dt (the integration step)
+	 * @param dt - the new value to reset the integration step to
+	 */
+	public void setDT(double dt) { this.dt = dt; }
+
+	/**
+	 * Method to set the cache the temperature-dependent rates are read from (by default, the ensemble has
+	 * its own cache).  The same cache can be shared with other simulators.
+	 * @param rateCache - the cache to use
+	 * @throws IllegalArgumentException if the cache is null
+	 */
+	public void setRateCache(RateCache rateCache) {
+		if (rateCache == null)
+			throw new IllegalArgumentException("No rate cache!");
+		this.rateCache = rateCache;
+	}
+
+	/**
+	 * Method to return the cache the temperature-dependent rates are read from
+	 * @return the rate cache
+	 */
+	public RateCache getRateCache() { return rateCache; }
+
+	/**
+	 * Method to set the kernel that does the Euler update (by default, EnsembleKernels.getDefault())
+	 * @param kernel - the kernel to use
+	 * @throws IllegalArgumentException if the kernel is null
+	 */
+	public void setKernel(EnsembleKernel kernel) {
+		if (kernel == null)
+			throw new IllegalArgumentException("No kernel!");
+		this.kernel = kernel;
+	}
+
+	/**
+	 * Method to return the kernel that does the Euler update
+	 * @return the kernel
+	 */
+	public EnsembleKernel getKernel() { return kernel; }
+
+	/**
+	  * Method to return the current timestep
+	  * @return the current timestep
+	  */
+	public double getTimeStep() { return timeStep; }
+
+	/**
+	  * Reset all the members to their state at timestep 0.
+	  */
+	public void resetTime() {
+		timeStep = 0;
+		ratesDay = -1;
+		for (int m = 0; m < size; m ++) {
+			for (int i = 0; i < NUM_STAGES; i ++)
+				pop[i][m] = 0;
+			injected[m] = false;
+			addInitPop[m] = false;
+			s1[m] = 0;
+			s2[m] = 0;
+			crossedDiapause[m] = false;
+			crossedDiapDay[m] = -1;
+			fruitQuality[m] = 0.05; // fruit quality starts at 0.05, at the beginning of the year
+			killAllFruit[m] = false;
+			dayCrossedMaxFruit[m] = -1;
+			for (int d = 0; d < DAYS_PER_YEAR; d ++)
+				fruitHistory[d][m] = 0;
+			fruitHistory[0][m] = 0.05;
+			for (int i = 0; i < RunSummary.NUM_STAGES; i ++) {
+				max[i][m] = 0;
+				maxDay[i][m] = 0;
+				total[i][m] = 0;
+			}
+		}
+	}
+
+	/**
+	 * Method to run all the members for the specified number of timesteps (one integration step at a time).
+	 * @param numTimeSteps - the length of time (i.e. the number of timesteps) to run for
+	 * @param ignoreFruit - boolean to determine whether or not to ignore the effect of fruit quality on the flies
+	 * @param ignoreDiapause - boolean to determine whether or not to ignore the effect of diapause on the flies
+	 * @throws IllegalArgumentException if the time to run the simulation for is negative
+	 */
+	public void run(double numTimeSteps, boolean ignoreFruit, boolean ignoreDiapause) {
+		if (numTimeSteps < 0)
+			throw new IllegalArgumentException("no negative time.");
+		if (membersChanged) {
+			for (int m = 0; m < size; m ++)
+				sameRates[m] = (m > 0 && temperatures[m] == temperatures[m - 1] && params[m].sameRateParameters(params[m - 1]));
+			membersChanged = false;
+		}
+		for (double i = 0; i < numTimeSteps; i += dt)
+			step(ignoreFruit, ignoreDiapause);
+	}
+
+	/**
+	 * Method to advance all the members by one integration step.
+	 * @param ignoreFruit - boolean to determine whether or not to ignore the effect of fruit quality on the flies
+	 * @param ignoreDiapause - boolean to determine whether or not to ignore the effect of diapause on the flies
+	 */
+	private void step(boolean ignoreFruit, boolean ignoreDiapause) {
+		int day = (int) timeStep;
+		boolean newDay = (day != ratesDay || ignoreFruit != ratesIgnoreFruit || ignoreDiapause != ratesIgnoreDiapause);
+
+		for (int from = 0; from < size; from += BLOCK_SIZE)
+			stepBlock(from, Math.min(size, from + BLOCK_SIZE), day, newDay, ignoreFruit, ignoreDiapause);
+
+		if (newDay) {
+			ratesDay = day;
+			ratesIgnoreFruit = ignoreFruit;
+			ratesIgnoreDiapause = ignoreDiapause;
+		}
+		double[][] swap = pop;
+		pop = next;
+		next = swap;
+		timeStep += dt;
+	}
+
+	/**
+	 * Method to advance a block of members by one integration step (all the passes are done for the
+	 * block before moving on to the next one, so its arrays stay in the cache).
+	 * @param from - the first member of the block
+	 * @param to - the member after the last member of the block
+	 * @param day - the current day
+	 * @param newDay - is this the first step of the day (or of a run with different options)?
+	 * @param ignoreFruit - boolean to determine whether or not to ignore the effect of fruit quality on the flies
+	 * @param ignoreDiapause - boolean to determine whether or not to ignore the effect of diapause on the flies
+	 */
+	private void stepBlock(int from, int to, int day, boolean newDay, boolean ignoreFruit, boolean ignoreDiapause) {
+		if (newDay)
+			computeDayRates(from, to, day, ignoreFruit, ignoreDiapause);
+
+		// per-member pass: injection, fruit quality and diapause
+		boolean anyFrozen = false;
+		for (int m = from; m < to; m ++) {
+			if (startDay[m] >= 0)
+				addInitPop[m] = true; // the initial populations are only added on the injection date
+			if (day == startDay[m] && !injected[m]) {
+				injected[m] = true;
+				readPopulation(m);
+			}
+			stepFruit(m, day, ignoreFruit);
+			frozen[m] = false;
+			if (!ignoreDiapause) {
+				fertility[m] = dayFertility[m];
+				stepDiapause(m, day);
+				anyFrozen |= frozen[m];
+			}
+		}
+
+		if (newDay || !ignoreFruit) // otherwise the fruit effects are the same all day
+			computeLossRates(from, to);
+		if (newDay || !ignoreDiapause) // otherwise the fertility is the same all day
+			computeFertViability(from, to);
+		kernel.updatePopulations(pop, next, devRate, loss, fertViability, maleProportion, eggsIn, dt, from, to);
+
+		if (anyFrozen) { // these members' populations don't change on this step
+			for (int m = from; m < to; m ++) {
+				if (frozen[m]) {
+					for (int i = 0; i < NUM_STAGES; i ++)
+						next[i][m] = pop[i][m];
+				}
+			}
+		}
+
+		updateSummary(from, to);
+	}
+
+	/**
+	 * Method to evaluate the temperature-dependent rates (and daylight hours) of a block of members for the day.
+	 * @param from - the first member of the block
+	 * @param to - the member after the last member of the block
+	 * @param day - the current day
+	 * @param ignoreFruit - is the effect of fruit quality ignored? (if so, the fruit effects are set for the day)
+	 * @param ignoreDiapause - is diapause ignored? (if so, the daylight hours are not needed)
+	 */
+	private void computeDayRates(int from, int to, int day, boolean ignoreFruit, boolean ignoreDiapause) {
+		TemperatureRates rates = null;
+		PhotoperiodTable photoperiod = null;
+		for (int m = from; m < to; m ++) {
+			double temperature = temperatures[m][day % temperatures[m].length];
+			if (rates == null || !sameRates[m]) // otherwise the rates are the previous member's
+				rates = rateCache.get(temperature, params[m]);
+			dayFertility[m] = rates.getFertility();
+			for (int i = 0; i < NUM_DEV_STAGES; i ++)
+				dayDevRate[i][m] = rates.getDevelopmentRate(i);
+			for (int i = 0; i < NUM_STAGES; i ++)
+				dayMortality[i][m] = rates.getMortalityRate(i);
+			dayGT[m] = SolveParameters.getGT(params[m].getFruitBaseTemp(), temperature);
+			fertility[m] = dayFertility[m];
+			
+			if (ignoreFruit) { // no effect
+				fruitDevEffect[m] = 1;
+				for (int i = 0; i < NUM_STAGES; i ++)
+					fruitMortEffect[i][m] = 0;
+			}
+
+			if (!ignoreDiapause) {
+				double latitude = params[m].getLatitude();
+				if (photoperiod == null || !photoperiod.matches(latitude, day / DAYS_PER_YEAR))
+					photoperiod = PhotoperiodTable.get(latitude, day / DAYS_PER_YEAR);
+				dayHours[m] = photoperiod.getDayLightHours(day % DAYS_PER_YEAR);
+				dayDiapauseEffect[m] = photoperiod.getFertilityDiapauseEffect(day % DAYS_PER_YEAR);
+			}
+		}
+	}
+
+	/**
+	 * Method to inject a member's initial populations
+	 * @param m - the index of the member
+	 */
+	private void readPopulation(int m) {
+		addInitPop[m] = true;
+		for (int i = 0; i < NUM_STAGES; i ++)
+			pop[i][m] = initialPop[i][m];
+	}
+
+	/**
+	 * Method to advance a member's fruit quality by one integration step (as in SWDCellSingle.stepFoward),
+	 * and compute its effect on the flies.
+	 * @param m - the index of the member
+	 * @param day - the current day
+	 * @param ignoreFruit - is the effect of fruit quality on the flies ignored? (if so, the effect isn't computed)
+	 */
+	private void stepFruit(int m, int day, boolean ignoreFruit) {
+		CompiledParameters p = params[m];
+
+		int index = day % DAYS_PER_YEAR;
+		double fruitQLag = 0.05;
+		if (index - p.getFruitTimeLag() > 0) { // if timelag timesteps have passed in the year
+			fruitQLag = fruitHistory[(int) (index - p.getFruitTimeLag())][m];
+			if (fruitQLag > p.getFruitHarvestCutoff()) // if it was greater than the cutoff, fruit quality begins to decrease
+				killAllFruit[m] = true;
+		} else // otherwise, the year has restarted and fruit quality can increase again
+			killAllFruit[m] = false;
+		if (index == 0)
+			fruitQuality[m] = 0.05;
+		if (killAllFruit[m])
+			fruitQLag = 1;
+
+		double quality = EulersMethod.getFruitQuality(dayGT[m], fruitQuality[m], fruitQLag, dt, p);
+		fruitQuality[m] = quality;
+		if (UtilityMethods.round2Decimals(quality) == 1 && dayCrossedMaxFruit[m] == -1)
+			dayCrossedMaxFruit[m] = timeStep;
+		fruitHistory[index][m] = quality;
+
+		if (!ignoreFruit) {
+			double ratio = SolveParameters.solveFruitQualityRatio(FRUIT_Q_CONSTANT, quality, p);
+			fruitDevEffect[m] = SolveParameters.solveDevelopmentPlantEffectFromRatio(ratio, p);
+			double inverse = SolveParameters.solveFruitQualityInverse(ratio); // the same for all the stages
+			for (int i = 0; i < NUM_STAGES; i ++)
+				fruitMortEffect[i][m] = SolveParameters.solveMortalityPlantEffectFromInverse(inverse, p, i);
+		}
+	}
+
+	/**
+	 * Method to advance a member's diapause multipliers by one integration step (as in
+	 * SWDPopulation.computePopulation): sets its fertility for the step, and whether it is frozen.
+	 * @param m - the index of the member
+	 * @param day - the current day
+	 */
+	private void stepDiapause(int m, int day) {
+		double temperature = temperatures[m][day % temperatures[m].length];
+		double hours = dayHours[m];
+		double criticalT = params[m].getDiapauseCriticalTemp();
+		double daylightHours = params[m].getDiapauseDaylightHours();
+
+		int tempS1 = SolveParameters.solveDiapauseMultS1(hours, temperature, s1[m], s2[m], criticalT, daylightHours);
+		s2[m] = SolveParameters.solveDiapauseMultS2(hours, s1[m], s2[m], daylightHours);
+		s1[m] = tempS1;
+
+		fertility[m] *= s1[m] * dayDiapauseEffect[m];
+
+		if (s1[m] == 0 && !crossedDiapause[m] && !addInitPop[m])
+			frozen[m] = true;
+		else if (s1[m] != 0 && !crossedDiapause[m]) {
+			if (!addInitPop[m])
+				readPopulation(m);
+			crossedDiapause[m] = true;
+			crossedDiapDay[m] = day;
+		}
+	}
+
+	/**
+	 * Method to combine the day's rates with the fruit effects of the step, into the development
+	 * and loss rates of every stage (in the same order of operations as SWDPopulation.computePopulation).
+	 * @param from - the first member of the block
+	 * @param to - the member after the last member of the block
+	 */
+	private void computeLossRates(int from, int to) {
+		for (int i = 0; i < NUM_DEV_STAGES; i ++) {
+			double[] dev = devRate[i], dayDev = dayDevRate[i];
+			if (i < 5) { // fruit has a multiplicative effect on development rate (juveniles only)
+				for (int m = from; m < to; m ++)
+					dev[m] = dayDev[m] * fruitDevEffect[m];
+			} else
+				System.arraycopy(dayDev, from, dev, from, to - from);
+		}
+		for (int i = 0; i < NUM_STAGES; i ++) {
+			double[] l = loss[i], mort = dayMortality[i], fruitMort = fruitMortEffect[i], pred = mortPredation[i];
+			if (i == 5) { // males don't develop
+				for (int m = from; m < to; m ++)
+					l[m] = (mort[m] + fruitMort[m]) + pred[m];
+			} else if (i == NUM_STAGES - 1) { // neither do females7
+				for (int m = from; m < to; m ++)
+					l[m] = (mort[m] + fruitMort[m]) + pred[m] + 0.0;
+			} else {
+				double[] dev = devRate[(i < 5) ? i : i - 1];
+				for (int m = from; m < to; m ++)
+					l[m] = (mort[m] + fruitMort[m]) + pred[m] + dev[m];
+			}
+		}
+	}
+	
+	/**
+	 * Method to multiply the fertility of the step by the egg viability of each female stage.
+	 * @param from - the first member of the block
+	 * @param to - the member after the last member of the block
+	 */
+	private void computeFertViability(int from, int to) {
+		for (int i = 0; i < NUM_FEMALE_STAGES; i ++) {
+			double[] fv = fertViability[i], v = eggViability[i];
+			for (int m = from; m < to; m ++)
+				fv[m] = fertility[m] * v[m];
+		}
+	}
+
+	/**
+	 * Method to update the summary metrics (max populations and their days, and cumulative totals) of a
+	 * block of members after a step (from the new populations, i.e. before they are swapped in).
+	 * @param from - the first member of the block
+	 * @param to - the member after the last member of the block
+	 */
+	private void updateSummary(int from, int to) {
+		for (int m = from; m < to; m ++)
+			females[m] = 0;
+		for (int i = FEMALES1; i < NUM_STAGES; i ++) {
+			double[] fem = next[i];
+			for (int m = from; m < to; m ++)
+				females[m] += fem[m];
+		}
+		for (int i = 0; i < RunSummary.NUM_STAGES; i ++) {
+			double[] stage = (i == RunSummary.FEMALES) ? females : next[i];
+			double[] stageMax = max[i], stageMaxDay = maxDay[i], stageTotal = total[i];
+			for (int m = from; m < to; m ++) {
+				stageTotal[m] += stage[m] * dt;
+				if (stageMax[m] < stage[m]) {
+					stageMax[m] = stage[m];
+					stageMaxDay[m] = timeStep;
+				}
+			}
+		}
+	}
+
+	// -----------------------------------------------------------------------------------------RESULTS
+
+	/**
+	 * Method to return the current population of a lifestage for one member
+	 * @param stage - the lifestage (0-eggs, 1-instar1, 2-instar2, 3-instar3, 4-pupae, 5-males, 6 to 12-females1 to females7)
+	 * @param member - the index of the member
+	 * @return the current population
+	 * @throws IllegalArgumentException if the lifestage or the member is out of range
+	 */
+	public double getPopulation(int stage, int member) {
+		checkMember(member);
+		if (stage < 0 || stage >= NUM_STAGES)
+			throw new IllegalArgumentException("Invalid lifestage index!");
+		return pop[stage][member];
+	}
+
+	/**
+	 * Method to return the current number of adult females of one member (all 7 female stages)
+	 * @param member - the index of the member
+	 * @return the current female population
+	 */
+	public double getFemales(int member) {
+		checkMember(member);
+		double sum = 0;
+		for (int i = FEMALES1; i < NUM_STAGES; i ++)
+			sum += pop[i][member];
+		return sum;
+	}
+
+	/**
+	 * Method to return the current fruit quality of one member
+	 * @param member - the index of the member
+	 * @return the current fruit quality
+	 */
+	public double getFruitQuality(int member) {
+		checkMember(member);
+		return fruitQuality[member];
+	}
+
+	/**
+	 * Method to return the summary metrics of one member so far (threshold populations are not tracked
+	 * in the ensemble, so the summary has none).
+	 * @param member - the index of the member
+	 * @return the summary metrics up to the current timestep
+	 */
+	public RunSummary getRunSummary(int member) {
+		checkMember(member);
+		double[] memberMax = new double[RunSummary.NUM_STAGES];
+		double[] memberMaxDay = new double[RunSummary.NUM_STAGES];
+		double[] memberTotal = new double[RunSummary.NUM_STAGES];
+		for (int i = 0; i < RunSummary.NUM_STAGES; i ++) {
+			memberMax[i] = max[i][member];
+			memberMaxDay[i] = maxDay[i][member];
+			memberTotal[i] = total[i][member];
+		}
+		return new RunSummary(memberMax, memberMaxDay, memberTotal, crossedDiapDay[member], dayCrossedMaxFruit[member], new double[0]);
+	}
+
+	private void checkMember(int member) {
+		if (member < 0 || member >= size)
+			throw new IllegalArgumentException("Member " + member + " out of range (" + size + " members)");
+	}
+
+	private static double[] toArray(ArrayList<Double> list) {
+		double[] array = new double[list.size()];
+		for (int i = 0; i < array.length; i ++)
+			array[i] = list.get(i);
+		return array;
+	}
+
+	private static boolean sameTemperatures(double[] array, ArrayList<Double> list) {
+		if (array == null || array.length != list.size())
+			return false;
+		for (int i = 0; i < array.length; i ++) {
+			if (Double.doubleToLongBits(array[i]) != Double.doubleToLongBits(list.get(i)))
+				return false;
+		}
+		return true;
+	}
+}
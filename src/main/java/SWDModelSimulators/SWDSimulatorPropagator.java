@@ -0,0 +1,326 @@
+package SWDModelSimulators;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import SWDModelBaseObjects.CompiledParameters;
+import SWDModelBaseObjects.DiapauseTrajectory;
+import SWDModelBaseObjects.FruitQualityTrajectory;
+import SWDModelBaseObjects.RateCache;
+import SWDModelBaseObjects.RunSummary;
+import SWDModelBaseObjects.TemperatureRates;
+import SWDModelReferenceClasses.SolveParameters;
+
+/**
+ * This class describes an SWDSimulatorPropagator object, which answers "inject these flies on day d" for every
+ * injection day of a season at once, instead of running one simulation per injection day.
+ * The model has no density dependence: once the temperatures and parameters are set, every integration step of
+ * SWDPopulation.computePopulation is a linear map of the 13 stage populations (the rates only depend on the
+ * temperature, the fruit quality and the diapause switches, none of which depend on the flies).  So each day's
+ * update is a fixed 13x13 matrix (the product of the day's Euler steps): these daily propagators are built once
+ * for the temperatures and parameters, and a run injected on day d is the injection multiplied by the
+ * propagators of the days from d on.
+ * - getFinalPopulations answers the populations at the end of the run from the suffix products of the daily
+ *   propagators (one 13x13 matrix per injection day).
+ * - runAll answers the summary metrics (and the recorded data) of the runs for all the injection days in one
+ *   pass over the season: the runs injected so far are advanced together, one day at a time, and their
+ *   stage populations on each integration step are read from the products of the day's steps so far.
+ * The fruit quality and the diapause switches are those of a FruitQualityTrajectory and a DiapauseTrajectory,
+ * i.e. exactly those of an SWDSimulatorSingle run one integration step at a time (as the runners do), from a new
+ * simulator.  The populations are those of the same run up to rounding (the products are not done in the same
+ * order as the Euler updates), and the days of the summary are the same.
+ * Injection days are counted as the simulator does: the flies are injected before the first integration step of
+ * the day, and the same initial populations are injected whatever the diapause switches (as when the runners
+ * set an injection day).
+ *
+ * Lifestages are indexed: 0-eggs, 1-instar1, 2-instar2, 3-instar3, 4-pupae, 5-males, 6 to 12-females1 to females7.
+ */
+public class SWDSimulatorPropagator {
+
+	private static final int NUM_STAGES = CompiledParameters.NUM_STAGES;
+	private static final int NUM_OUTPUTS = RunSummary.NUM_STAGES; // eggs to males, and all the females together
+	private static final int FEMALES1 = 6; // index of the first female stage
+	private static final double FRUIT_Q_CONSTANT = 0.5; // as in SWDPopulation
+
+	private final double dt;
+	private final int numSteps, numDays;
+	private final double[] times; // timestep of each integration step
+	private final int[] dayStart; // first integration step of each day (and numSteps after the last day)
+	private final double[] fruitQuality; // fruit quality after each integration step
+	private final double dayCrossedMaxFruit;
+	private final int crossedDiapDay;
+
+	private final double[][] stepOutputs; // summary stages after each step, from the populations at the beginning of its day [step][output * NUM_STAGES + stage]
+	private final double[][] dayPropagators; // populations at the end of each day, from those at its beginning [day][stage * NUM_STAGES + stage]
+	private final double[][] suffixProducts; // populations at the end of the run, from those at the beginning of each day
+
+	/**
+	 * Constructor to build the daily propagators for a season.
+	 * @param temperatures - temperatures per day (reused from the beginning if the run is longer)
+	 * @param params - compiled parameters for the simulation (the initial populations are not used)
+	 * @param dt - step for numeric integration (Euler's method), at most a day
+	 * @param runTime - time to run the simulations for (from timestep 0)
+	 * @param ignoreFruit - ignore the effect of fruit quality on the flies? true or false
+	 * @param ignoreDiapause - ignore the effect of diapause on the flies? true or false
+	 * @param rateCache - cache of temperature-dependent rates (null to evaluate them)
+	 * @throws IllegalArgumentException if there is no temperature data, dt is not between 0 and 1, or the run time is not positive
+	 */
+	public SWDSimulatorPropagator(ArrayList<Double> temperatures, CompiledParameters params, double dt, double runTime,
+									boolean ignoreFruit, boolean ignoreDiapause, RateCache rateCache) {
+		if (temperatures.size() == 0)
+			throw new IllegalArgumentException("No temperature data!");
+		if (!(dt > 0 && dt <= 1) || !(runTime > 0))
+			throw new IllegalArgumentException("Invalid dt or run time!");
+		this.dt = dt;
+
+		FruitQualityTrajectory fruit = new FruitQualityTrajectory(temperatures, params, dt, runTime);
+		DiapauseTrajectory diapause = ignoreDiapause ? null : new DiapauseTrajectory(temperatures, params, dt, runTime);
+		numSteps = fruit.getNumSteps();
+		times = new double[numSteps];
+		fruitQuality = new double[numSteps];
+		double timeStep = 0;
+		double crossedMaxFruit = -1;
+		for (int k = 0; k < numSteps; k ++) { // the same time loop as the runners
+			times[k] = timeStep;
+			fruitQuality[k] = fruit.getFruitQuality(k);
+			if (fruit.isAtMax(k) && crossedMaxFruit == -1)
+				crossedMaxFruit = timeStep;
+			timeStep += dt;
+		}
+		dayCrossedMaxFruit = crossedMaxFruit;
+		crossedDiapDay = ignoreDiapause ? -1 : diapause.getCrossedDiapDay();
+
+		numDays = (int) times[numSteps - 1] + 1; // dt is at most a day, so every day has a step
+		dayStart = new int[numDays + 1];
+		for (int k = numSteps - 1; k >= 0; k --)
+			dayStart[(int) times[k]] = k;
+		dayStart[numDays] = numSteps;
+
+		// products of each day's steps so far
+		stepOutputs = new double[numSteps][];
+		dayPropagators = new double[numDays][];
+		double[] step = new double[NUM_STAGES * NUM_STAGES];
+		TemperatureRates rates = null;
+		for (int d = 0; d < numDays; d ++) {
+			double[] product = identity();
+			for (int k = dayStart[d]; k < dayStart[d + 1]; k ++) {
+				double temperature = temperatures.get(((int) times[k]) % temperatures.size());
+				if (rates == null || Double.doubleToLongBits(rates.getTemperature()) != Double.doubleToLongBits(temperature))
+					rates = (rateCache == null) ? new TemperatureRates(temperature, params) : rateCache.get(temperature, params);
+				double fertilityDiapauseEffect = ignoreDiapause ? 1 : diapause.getFertilityDiapauseEffect(k);
+				stepMatrix(rates, fertilityDiapauseEffect, fruitQuality[k], params, ignoreFruit, step);
+				product = multiply(step, product);
+				stepOutputs[k] = outputs(product);
+			}
+			dayPropagators[d] = product;
+		}
+
+		suffixProducts = new double[numDays][];
+		suffixProducts[numDays - 1] = dayPropagators[numDays - 1];
+		for (int d = numDays - 2; d >= 0; d --)
+			suffixProducts[d] = multiply(suffixProducts[d + 1], dayPropagators[d]);
+	}
+
+	/**
+	 * Method to return the number of days of the run (the injection days are 0 to getNumDays() - 1)
+	 * @return the number of days
+	 */
+	public int getNumDays() { return numDays; }
+
+	/**
+	 * Method to return the number of integration steps of the run
+	 * @return the number of steps
+	 */
+	public int getNumSteps() { return numSteps; }
+
+	/**
+	 * Method to return the populations at the end of the run, for flies injected on a day (from the suffix
+	 * product of the daily propagators).
+	 * @param startDay - day to inject the flies
+	 * @param injection - the populations injected (by lifestage, 0 to 12)
+	 * @return the populations at the end of the run (by lifestage, 0 to 12)
+	 * @throws IllegalArgumentException if the injection day is out of range, or the injection isn't one population per lifestage
+	 */
+	public double[] getFinalPopulations(int startDay, double[] injection) {
+		checkInjection(injection);
+		if (startDay < 0 || startDay >= numDays)
+			throw new IllegalArgumentException("Injection day " + startDay + " out of range (" + numDays + " days)");
+		double[] populations = new double[NUM_STAGES];
+		multiply(suffixProducts[startDay], injection, populations);
+		return populations;
+	}
+
+	/**
+	 * Method to return the summary metrics of the runs for all the injection days (threshold populations are not
+	 * tracked, so the summaries have none).
+	 * @param injection - the populations injected (by lifestage, 0 to 12)
+	 * @return the summary of each run, by injection day
+	 * @throws IllegalArgumentException if the injection isn't one population per lifestage
+	 */
+	public RunSummary[] runAll(double[] injection) {
+		return runAll(injection, 0, null);
+	}
+
+	/**
+	 * Method to return the summary metrics of the runs for all the injection days, and their recorded data: the
+	 * stage populations after every recordInterval-th integration step, as recorded by an SWDSimulatorSingle with
+	 * RecordingPolicy.everyNSteps(recordInterval).  The data of each run are columns: the timestep, then eggs,
+	 * instar1, instar2, instar3, pupae, males, females and fruit quality.
+	 * @param injection - the populations injected (by lifestage, 0 to 12)
+	 * @param recordInterval - the number of steps between the recorded data points
+	 * @param columns - the array to fill with the data of each run, by injection day (null to only return the summaries)
+	 * @return the summary of each run, by injection day
+	 * @throws IllegalArgumentException if the injection isn't one population per lifestage, or the data can't be recorded
+	 */
+	public RunSummary[] runAll(double[] injection, int recordInterval, double[][][] columns) {
+		checkInjection(injection);
+		if (columns != null && (recordInterval <= 0 || columns.length < numDays))
+			throw new IllegalArgumentException("Invalid recording interval, or not enough room for the data!");
+		int numRows = (columns == null) ? 0 : (numSteps + recordInterval - 1) / recordInterval;
+		if (columns != null) {
+			for (int d = 0; d < numDays; d ++) {
+				columns[d] = new double[2 + NUM_OUTPUTS][numRows];
+				for (int k = 0, row = 0; k < numSteps; k += recordInterval, row ++) {
+					columns[d][0][row] = times[k];
+					columns[d][1 + NUM_OUTPUTS][row] = fruitQuality[k];
+				}
+			}
+		}
+
+		double[][] populations = new double[numDays][]; // of each run, at the beginning of the current day
+		double[][] max = new double[numDays][NUM_OUTPUTS];
+		double[][] maxDay = new double[numDays][NUM_OUTPUTS];
+		double[][] total = new double[numDays][NUM_OUTPUTS];
+		double[] next = new double[NUM_STAGES];
+		for (int day = 0; day < numDays; day ++) {
+			populations[day] = injection.clone(); // injected before the first step of the day
+			for (int k = dayStart[day]; k < dayStart[day + 1]; k ++) {
+				double[] output = stepOutputs[k];
+				boolean recorded = columns != null && k % recordInterval == 0;
+				for (int d = 0; d <= day; d ++) { // the runs injected so far
+					double[] pop = populations[d];
+					for (int j = 0; j < NUM_OUTPUTS; j ++) {
+						double value = 0;
+						for (int i = 0, row = j * NUM_STAGES; i < NUM_STAGES; i ++)
+							value += output[row + i] * pop[i];
+						total[d][j] += value * dt;
+						if (max[d][j] < value) {
+							max[d][j] = value;
+							maxDay[d][j] = times[k];
+						}
+						if (recorded)
+							columns[d][1 + j][k / recordInterval] = value;
+					}
+				}
+			}
+			for (int d = 0; d <= day; d ++) {
+				multiply(dayPropagators[day], populations[d], next);
+				System.arraycopy(next, 0, populations[d], 0, NUM_STAGES);
+			}
+		}
+
+		RunSummary[] summaries = new RunSummary[numDays];
+		for (int d = 0; d < numDays; d ++)
+			summaries[d] = new RunSummary(max[d], maxDay[d], total[d], crossedDiapDay, dayCrossedMaxFruit, new double[0]);
+		return summaries;
+	}
+
+	/**
+	 * Method to fill the matrix of one integration step: the populations after the step, from those before it
+	 * (the same as SWDPopulation.computePopulation, once the flies are injected).
+	 * @param rates - the temperature-dependent rates for the step
+	 * @param fertilityDiapauseEffect - the diapause multiplier for fecundity (1 if diapause is ignored)
+	 * @param fruitQuality - the fruit quality during the step
+	 * @param params - compiled parameters for the simulation
+	 * @param ignoreFruit - ignore the effect of fruit quality on the flies? true or false
+	 * @param step - the matrix to fill
+	 */
+	private void stepMatrix(TemperatureRates rates, double fertilityDiapauseEffect, double fruitQuality, CompiledParameters params,
+								boolean ignoreFruit, double[] step) {
+		double fertility = rates.getFertility() * fertilityDiapauseEffect;
+		double fruitEffectDevelopment = 1;
+		double fruitQRatio = 0;
+		if (!ignoreFruit) {
+			fruitQRatio = SolveParameters.solveFruitQualityRatio(FRUIT_Q_CONSTANT, fruitQuality, params);
+			fruitEffectDevelopment = SolveParameters.solveDevelopmentPlantEffectFromRatio(fruitQRatio, params);
+		}
+		double[] devRate = new double[NUM_STAGES]; // 0 for males and females7
+		double[] loss = new double[NUM_STAGES]; // mortality, predation and development
+		for (int i = 0; i < NUM_STAGES; i ++) {
+			double mortality = rates.getMortalityRate(i);
+			if (!ignoreFruit)
+				mortality += SolveParameters.solveMortalityPlantEffectFromRatio(fruitQRatio, params, i);
+			int devStage = (i < 5) ? i : i - 1; // development rates skip the males
+			if (i != 5 && devStage < CompiledParameters.NUM_DEV_STAGES)
+				devRate[i] = rates.getDevelopmentRate(devStage) * ((i < 5) ? fruitEffectDevelopment : 1);
+			loss[i] = mortality + params.getMortalityPredation(i) + devRate[i];
+		}
+		double maleProportion = params.getMaleProportion();
+
+		Arrays.fill(step, 0);
+		for (int i = 0; i < NUM_STAGES; i ++) // what is left of each stage after the step
+			step[i * NUM_STAGES + i] = 1 - loss[i] * dt;
+		for (int i = 0; i < CompiledParameters.NUM_FEMALE_STAGES; i ++) // eggs laid by each female stage
+			step[FEMALES1 + i] = fertility * params.getEggViability(i) * dt;
+		for (int i = 1; i < 5; i ++) // eggs to instar1, ..., instar3 to pupae
+			step[i * NUM_STAGES + i - 1] = devRate[i - 1] * dt;
+		step[5 * NUM_STAGES + 4] = maleProportion * devRate[4] * dt; // pupae to males
+		step[FEMALES1 * NUM_STAGES + 4] = (1 - maleProportion) * devRate[4] * dt; // pupae to females1
+		for (int i = FEMALES1 + 1; i < NUM_STAGES; i ++) // females1 to females2, ..., females6 to females7
+			step[i * NUM_STAGES + i - 1] = devRate[i - 1] * dt;
+	}
+
+	/**
+	 * Method to return the identity matrix
+	 * @return the identity
+	 */
+	private static double[] identity() {
+		double[] identity = new double[NUM_STAGES * NUM_STAGES];
+		for (int i = 0; i < NUM_STAGES; i ++)
+			identity[i * NUM_STAGES + i] = 1;
+		return identity;
+	}
+
+	private static double[] multiply(double[] a, double[] b) {
+		double[] product = new double[NUM_STAGES * NUM_STAGES];
+		for (int i = 0; i < NUM_STAGES; i ++) {
+			for (int k = 0; k < NUM_STAGES; k ++) {
+				double aik = a[i * NUM_STAGES + k];
+				if (aik == 0)
+					continue;
+				for (int j = 0; j < NUM_STAGES; j ++)
+					product[i * NUM_STAGES + j] += aik * b[k * NUM_STAGES + j];
+			}
+		}
+		return product;
+	}
+
+	private static void multiply(double[] matrix, double[] vector, double[] result) {
+		for (int i = 0; i < NUM_STAGES; i ++) {
+			double value = 0;
+			for (int j = 0; j < NUM_STAGES; j ++)
+				value += matrix[i * NUM_STAGES + j] * vector[j];
+			result[i] = value;
+		}
+	}
+
+	/**
+	 * Method to return the summary stages (eggs to males, and the sum of the females) from a product of steps
+	 * @param product - the populations after the steps, from those before them
+	 * @return the summary stages after the steps, from the populations before them
+	 */
+	private static double[] outputs(double[] product) {
+		double[] outputs = new double[NUM_OUTPUTS * NUM_STAGES];
+		System.arraycopy(product, 0, outputs, 0, FEMALES1 * NUM_STAGES);
+		for (int i = FEMALES1; i < NUM_STAGES; i ++) {
+			for (int j = 0; j < NUM_STAGES; j ++)
+				outputs[FEMALES1 * NUM_STAGES + j] += product[i * NUM_STAGES + j];
+		}
+		return outputs;
+	}
+
+	private static void checkInjection(double[] injection) {
+		if (injection == null || injection.length != NUM_STAGES)
+			throw new IllegalArgumentException("The injection must have one population per lifestage!");
+	}
+}
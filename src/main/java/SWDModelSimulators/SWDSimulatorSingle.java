@@ -4,8 +4,18 @@ import java.util.*;
 
 import org.jfree.data.xy.XYSeries;
 
+import SWDModelBaseObjects.DiapauseCache;
+import SWDModelBaseObjects.DiapauseTrajectory;
+import SWDModelBaseObjects.FruitQualityCache;
+import SWDModelBaseObjects.FruitQualityTrajectory;
 import SWDModelBaseObjects.Parameters;
+import SWDModelBaseObjects.RateCache;
+import SWDModelBaseObjects.RecordingPolicy;
+import SWDModelBaseObjects.RunSummary;
 import SWDModelBaseObjects.SWDCellSingle;
+import SWDModelBaseObjects.SimulationObserver;
+import SWDModelReferenceClasses.AdaptiveIntegrator;
+import SWDModelReferenceClasses.Integrator;
 import SWDModelReferenceClasses.UtilityMethods;
 
 /**
@@ -28,9 +38,13 @@ public class SWDSimulatorSingle {
 	
 	private double timeStep; // current timestep
 	private double dt = 0.05; // integration step (defaults to 0.05)
+	private boolean dailySteps = false; // one step per day for the runs without fruit and diapause (see setTolerance)?
 	
 	private boolean injectFlies = false;
 	
+	private ArrayList<SimulationObserver> observers = new ArrayList<SimulationObserver>(); // notified after every step and every day
+	private double[] observedPopulations = new double[13]; // populations passed to the observers (reused for every call)
+	
 	/**
 	 * Constructor to initialize the simulator object.  Reads in parameters from a specified
 	 * file (if present).  If not reverts to default parameters.  
@@ -164,6 +178,155 @@ public class SWDSimulatorSingle {
 		return cell.setSingleParameter(param, newVal);
 	}
 	
+	/**
+	 * Method to set the cache the temperature-dependent rates are read from.  One cache can be
+	 * shared by all the simulators in a batch run (it is thread-safe).
+	 * @param rateCache - the cache to use (null to compute the rates on every timestep)
+	 */
+	public void setRateCache(RateCache rateCache) { cell.setRateCache(rateCache); }
+	
+	/**
+	 * Method to return the cache the temperature-dependent rates are read from
+	 * @return the rate cache (null if the rates are not cached)
+	 */
+	public RateCache getRateCache() { return cell.getRateCache(); }
+	
+	/**
+	 * Method to set the integration scheme for the populations, instead of Euler's method (see 
+	 * SWDPopulation.setIntegrator).  With an exact scheme (see ExponentialIntegrator), or an adaptive one (see
+	 * setTolerance), dt can be a whole day, as long as the fruit quality and diapause are ignored (they are stepped
+	 * once per step, whatever the integrator).
+	 * Note: this ends solving to a tolerance (see setTolerance).
+	 * @param integrator - the integration scheme (null for Euler's method, the default)
+	 */
+	public void setIntegrator(Integrator integrator) { 
+		cell.setIntegrator(integrator);
+		dailySteps = false;
+	}
+	
+	/**
+	 * Method to return the integration scheme for the populations
+	 * @return the integrator (null for Euler's method)
+	 */
+	public Integrator getIntegrator() { return cell.getIntegrator(); }
+	
+	/**
+	 * Method to solve the populations to a tolerance, instead of with a fixed integration step: the populations are
+	 * advanced by an AdaptiveIntegrator with this tolerance, which chooses its own sub-steps within each step.  The
+	 * runs that ignore the fruit quality and diapause take one step per day (the temperatures, and so the rates,
+	 * only change daily).  The others keep dt, as the fruit quality and the diapause switches are stepped once per
+	 * step (whatever the integrator): with one step per day, they would be a coarser model, whose error the
+	 * tolerance doesn't bound.
+	 * @param tolerance - largest relative error of each sub-step of the integrator (e.g. 1e-6)
+	 * @throws IllegalArgumentException if the tolerance is not positive
+	 */
+	public void setTolerance(double tolerance) {
+		setIntegrator(new AdaptiveIntegrator(tolerance));
+		dailySteps = true;
+	}
+	
+	/**
+	 * Method to return the integration step of a run: one day when solving to a tolerance without the fruit
+	 * quality and diapause (see setTolerance), dt otherwise
+	 * @param ignoreFruit - boolean to determine whether or not to ignore the effect of fruit quality on the flies
+	 * @param ignoreDiapause - boolean to determine whether or not to ignore the effect of diapause on the flies
+	 * @return the integration step
+	 */
+	private double runStep(boolean ignoreFruit, boolean ignoreDiapause) {
+		return (dailySteps && ignoreFruit && ignoreDiapause) ? 1 : dt;
+	}
+	
+	/**
+	 * Method to set the precomputed fruit quality the cell reads, instead of integrating it on every timestep
+	 * (see SWDCellSingle.setFruitTrajectory); the results are exactly the same.
+	 * @param fruitTrajectory - the trajectory to read (null to integrate the fruit quality on every timestep)
+	 */
+	public void setFruitTrajectory(FruitQualityTrajectory fruitTrajectory) { cell.setFruitTrajectory(fruitTrajectory); }
+	
+	/**
+	 * Method to read the fruit quality from a trajectory in a cache, for the current parameters and dt.  One cache
+	 * can be shared by all the simulators in a batch run (it is thread-safe), so that the simulations with the same
+	 * temperatures and fruit parameters only compute their fruit quality once.
+	 * Note: this should be called after the parameters are set, before running from timestep 0.
+	 * @param fruitCache - the cache of fruit quality trajectories
+	 * @param temperatures - temperatures per day (as passed to run)
+	 * @param runTime - time the simulation is run for
+	 */
+	public void useFruitTrajectory(FruitQualityCache fruitCache, ArrayList<Double> temperatures, double runTime) { 
+		cell.useFruitTrajectory(fruitCache, temperatures, dt, runTime); 
+	}
+	
+	/**
+	 * Method to set the precomputed diapause switches the population reads, instead of solving them on every 
+	 * timestep (see SWDPopulation.setDiapauseTrajectory); the results are exactly the same.
+	 * @param diapauseTrajectory - the trajectory to read (null to solve the switches on every timestep)
+	 */
+	public void setDiapauseTrajectory(DiapauseTrajectory diapauseTrajectory) { cell.setDiapauseTrajectory(diapauseTrajectory); }
+	
+	/**
+	 * Method to read the diapause switches from a trajectory in a cache, for the current parameters and dt (as
+	 * useFruitTrajectory).
+	 * Note: this should be called after the parameters are set, before running from timestep 0.
+	 * @param diapauseCache - the cache of diapause trajectories
+	 * @param temperatures - temperatures per day (as passed to run)
+	 * @param runTime - time the simulation is run for
+	 */
+	public void useDiapauseTrajectory(DiapauseCache diapauseCache, ArrayList<Double> temperatures, double runTime) { 
+		cell.useDiapauseTrajectory(diapauseCache, temperatures, dt, runTime); 
+	}
+	
+	/**
+	 * Method to set what is recorded of the trajectory (every step, every N steps, daily aggregates, or 
+	 * nothing; see RecordingPolicy).  The summary metrics are exact whatever the policy.
+	 * Note: this clears all the data recorded so far, so it should be set before running.
+	 * @param recordingPolicy - the new recording policy
+	 * @throws IllegalArgumentException if the policy is null
+	 */
+	public void setRecordingPolicy(RecordingPolicy recordingPolicy) { cell.setRecordingPolicy(recordingPolicy); }
+	
+	/**
+	 * Method to return what is recorded of the trajectory
+	 * @return the recording policy
+	 */
+	public RecordingPolicy getRecordingPolicy() { return cell.getRecordingPolicy(); }
+	
+	/**
+	 * Method to register an observer, to be notified after every integration step and at the end of every day.
+	 * @param observer - the observer to add
+	 * @throws IllegalArgumentException if the observer is null
+	 */
+	public void addObserver(SimulationObserver observer) {
+		if (observer == null)
+			throw new IllegalArgumentException("No observer!");
+		observers.add(observer);
+	}
+	
+	/**
+	 * Method to unregister an observer.
+	 * @param observer - the observer to remove
+	 * @return was the observer registered? true or false
+	 */
+	public boolean removeObserver(SimulationObserver observer) {
+		return observers.remove(observer);
+	}
+	
+	/**
+	 * Method to notify the observers that a timestep has been computed (and that a day has been 
+	 * completed, if the next timestep is on a new day).
+	 * @param stepTime - the timestep that was just computed
+	 */
+	private void notifyObservers(double stepTime) {
+		cell.copyPopulations(observedPopulations);
+		double temperature = cell.getTemperature();
+		double fruitQuality = cell.getFruitQuality();
+		for (int i = 0; i < observers.size(); i ++)
+			observers.get(i).stepCompleted(stepTime, temperature, observedPopulations, fruitQuality);
+		if ((int) timeStep != (int) stepTime) { // this was the last timestep of the day
+			for (int i = 0; i < observers.size(); i ++)
+				observers.get(i).dayCompleted((int) stepTime, temperature, observedPopulations, fruitQuality);
+		}
+	}
+	
 	/**
 	 * Method to get the value of a specific parameter.
 	 * @param param - the parameter to get the value of
@@ -364,9 +527,13 @@ public class SWDSimulatorSingle {
 		if (numTimeSteps < 0)
 			throw new IllegalArgumentException("no negative time.");
 		
-		for (double i = 0; UtilityMethods.round2Decimals(i) < numTimeSteps; i += this.dt) { // run from time = 0 to the specified number of timesteps
-			cell.stepFoward(temperature, ignoreFruit, ignoreDiapause, dt, timeStep); // run the cell with specified temperature!
-			timeStep += dt;
+		double step = runStep(ignoreFruit, ignoreDiapause);
+		for (double i = 0; UtilityMethods.round2Decimals(i) < numTimeSteps; i += step) { // run from time = 0 to the specified number of timesteps
+			double stepTime = timeStep;
+			cell.stepFoward(temperature, ignoreFruit, ignoreDiapause, step, timeStep); // run the cell with specified temperature!
+			timeStep += step;
+			if (!observers.isEmpty())
+				notifyObservers(stepTime);
 		}
 	}
 	
@@ -391,19 +558,60 @@ public class SWDSimulatorSingle {
 		if (startDay >= 0)
 			cell.setAddInitPop(true); // if valid startday, set variable to ensure that init pop isn't added before injection date, regardless of diapause
 		
-		for (double i = 0; UtilityMethods.round2Decimals(i) < numTimeSteps; i += dt) {
+		double step = runStep(ignoreFruit, ignoreDiapause);
+		for (double i = 0; UtilityMethods.round2Decimals(i) < numTimeSteps; i += step) {
 			if ((int) index >= temperatures.size()) // if there is not enough temperature data, it reloops to the beginning
 				index = 0;
 			if ((int) timeStep == startDay && !injectFlies) {
 				injectFlies = true;
 				cell.readInitFlies(); // read in initial populations on the chosen date
 			}
-			cell.stepFoward(temperatures.get((int) index), ignoreFruit, ignoreDiapause, dt, timeStep); // assume temperature given daily
-			index += dt;
-			timeStep += dt;
+			double stepTime = timeStep;
+			cell.stepFoward(temperatures.get((int) index), ignoreFruit, ignoreDiapause, step, timeStep); // assume temperature given daily
+			index += step;
+			timeStep += step;
+			if (!observers.isEmpty())
+				notifyObservers(stepTime);
+		}
+	}
+	
+	/**
+	 * Method to run the simulation for the specified number of timesteps and return only its summary 
+	 * metrics.  Nothing is recorded during the run (the recording policy is set to none, and put back 
+	 * afterwards), so there is no data series to build or copy; this is the fast path for sweeps that 
+	 * only need the summary of each run.
+	 * The simulation is run one integration step at a time (as the runners do), so the temperature 
+	 * used on each timestep is the one for its day.
+	 * Note: as with setRecordingPolicy, any data recorded before the call is cleared.
+	 * @param temperatures - ArrayList of temperature values, one per timestep 
+	 * @param numTimeSteps - the length of time (i.e. the number of timesteps) to run for
+	 * @param ignoreFruit - boolean to determine whether or not to ignore the effect of fruit quality on the flies
+	 * @param ignoreDiapause - boolean to determine whether or not to ignore the effect of diapause on the flies
+	 * @param startDay - day to inject the initial populations
+	 * @return the summary metrics at the end of the run
+	 * @throws IllegalArgumentException if the time to run the simulation for is negative
+	 */
+	public RunSummary runSummary(ArrayList<Double> temperatures, double numTimeSteps, boolean ignoreFruit, boolean ignoreDiapause, int startDay) {
+		if (numTimeSteps < 0)
+			throw new IllegalArgumentException("no negative time.");
+		RecordingPolicy recordingPolicy = cell.getRecordingPolicy();
+		cell.setRecordingPolicy(RecordingPolicy.none());
+		try {
+			double step = runStep(ignoreFruit, ignoreDiapause);
+			for (double i = 0; i < numTimeSteps; i += step)
+				run(temperatures, step, ignoreFruit, ignoreDiapause, startDay);
+		} finally {
+			cell.setRecordingPolicy(recordingPolicy);
 		}
+		return cell.getRunSummary();
 	}
 	
+	/**
+	 * Method to return a snapshot of the summary metrics of the simulation so far (see RunSummary)
+	 * @return the summary metrics up to the current timestep
+	 */
+	public RunSummary getRunSummary() { return cell.getRunSummary(); }
+	
 	/**
 	 * Method to reset the value of dt (the integration step)
 	 * @param dt - the new value to reset the integration step to
@@ -670,7 +878,36 @@ public class SWDSimulatorSingle {
 		cell.resetTime(); // reset the cell to timestep 0
 		injectFlies = false;
 	}
-	
+
+	/**
+	 * Method to take a snapshot of the whole state of the simulation (timestep, parameters, cell and
+	 * population, recorded data and summary metrics), to restore later into this or any other simulator.
+	 * The snapshot is itself a simulator (sharing this one's rate cache, but not its observers), which
+	 * continues exactly as this one would.
+	 * e.g. runs that only differ after some day can share the simulation up to that day: take a snapshot
+	 * on that day, and restore it in each run's simulator.
+	 * @return the snapshot
+	 */
+	public SWDSimulatorSingle snapshot() {
+		SWDSimulatorSingle snapshot = new SWDSimulatorSingle(dt, cell.getParams());
+		snapshot.cell.setRateCache(cell.getRateCache());
+		snapshot.restore(this);
+		return snapshot;
+	}
+
+	/**
+	 * Method to set the state of the simulation to a snapshot (see snapshot); the snapshot isn't changed, so
+	 * it can be restored any number of times.  The rate cache and observers of this simulator are kept.
+	 * @param snapshot - the snapshot to restore
+	 */
+	public void restore(SWDSimulatorSingle snapshot) {
+		cell.copyState(snapshot.cell);
+		timeStep = snapshot.timeStep;
+		dt = snapshot.dt;
+		dailySteps = snapshot.dailySteps;
+		injectFlies = snapshot.injectFlies;
+	}
+
 	/**
 	  * Method to return the day the diapause threshold was crossed
 	  * @return the day the diapause threshold was crossed (-1 if never crossed)
@@ -745,4 +982,24 @@ public class SWDSimulatorSingle {
 	 */
 	public XYSeries getFemaleStageSeries(int index) {return cell.getFemaleStageSeries(index); }
 	
+	/**
+	 * Method to return the daily minimums of a lifestage population (or fruit quality); only recorded
+	 * with the daily recording policy.
+	 * @param name - the name of the series ("eggs", "instar1", "instar2", "instar3", "pupae", "males", 
+	 * 				"females", "fruit quality", or "females1" to "females7")
+	 * @return the series of daily minimums (empty if the recording policy is not daily)
+	 * @throws IllegalArgumentException if there is no series with this name
+	 */
+	public XYSeries getDailyMinSeries(String name) {return cell.getDailyMinSeries(name); }
+	
+	/**
+	 * Method to return the daily maximums of a lifestage population (or fruit quality); only recorded
+	 * with the daily recording policy.
+	 * @param name - the name of the series ("eggs", "instar1", "instar2", "instar3", "pupae", "males", 
+	 * 				"females", "fruit quality", or "females1" to "females7")
+	 * @return the series of daily maximums (empty if the recording policy is not daily)
+	 * @throws IllegalArgumentException if there is no series with this name
+	 */
+	public XYSeries getDailyMaxSeries(String name) {return cell.getDailyMaxSeries(name); }
+	
 }
\ No newline at end of file
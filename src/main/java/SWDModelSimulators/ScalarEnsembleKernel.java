@@ -0,0 +1,60 @@
+package SWDModelSimulators;
+
+import SWDModelBaseObjects.CompiledParameters;
+
+/**
+ * The plain Java EnsembleKernel, used on every JVM: one lifestage at a time over the block of members,
+ * in loops that only read and write primitive arrays (so the JIT can vectorize them itself).
+ * The update is the same as EulersMethod (getEggs, getInstX, getPupae, getMales, getFemalesX), in the
+ * same order of operations.
+ */
+public class ScalarEnsembleKernel implements EnsembleKernel {
+
+	private static final int NUM_STAGES = CompiledParameters.NUM_STAGES;
+	private static final int NUM_FEMALE_STAGES = CompiledParameters.NUM_FEMALE_STAGES;
+	private static final int FEMALES1 = 6; // index of the first female stage
+
+	@Override
+	public void updatePopulations(double[][] pop, double[][] next, double[][] devRate, double[][] loss, double[][] fertViability,
+									double[] maleProportion, double[] eggsIn, double dt, int from, int to) {
+		// eggs
+		double[] eggs = pop[0], newEggs = next[0], eggLoss = loss[0];
+		for (int m = from; m < to; m ++)
+			eggsIn[m] = 0;
+		for (int i = 0; i < NUM_FEMALE_STAGES; i ++) {
+			double[] fv = fertViability[i], fem = pop[FEMALES1 + i];
+			for (int m = from; m < to; m ++)
+				eggsIn[m] += fv[m] * fem[m];
+		}
+		for (int m = from; m < to; m ++)
+			newEggs[m] = eggs[m] + (eggsIn[m] - eggs[m] * eggLoss[m]) * dt;
+
+		// instars and pupae
+		for (int i = 1; i <= 4; i ++) {
+			double[] prev = pop[i - 1], cur = pop[i], out = next[i], dev = devRate[i - 1], l = loss[i];
+			for (int m = from; m < to; m ++)
+				out[m] = cur[m] + (dev[m] * prev[m] - cur[m] * l[m]) * dt;
+		}
+
+		// males
+		double[] pupae = pop[4], pupaeDev = devRate[4];
+		double[] males = pop[5], newMales = next[5], maleLoss = loss[5];
+		for (int m = from; m < to; m ++)
+			newMales[m] = males[m] + (maleProportion[m] * pupaeDev[m] * pupae[m] - males[m] * maleLoss[m]) * dt;
+
+		// females1 (from the pupae)
+		double[] fem1 = pop[FEMALES1], newFem1 = next[FEMALES1], fem1Loss = loss[FEMALES1];
+		for (int m = from; m < to; m ++)
+			newFem1[m] = fem1[m] + ((1 - maleProportion[m]) * pupaeDev[m] * pupae[m] - fem1[m] * fem1Loss[m]) * dt;
+
+		// females2 to females7 (from the previous female stage)
+		for (int i = FEMALES1 + 1; i < NUM_STAGES; i ++) {
+			double[] prev = pop[i - 1], cur = pop[i], out = next[i], dev = devRate[i - 2], l = loss[i];
+			for (int m = from; m < to; m ++)
+				out[m] = cur[m] + (dev[m] * prev[m] - cur[m] * l[m]) * dt;
+		}
+	}
+
+	@Override
+	public String getName() { return "scalar"; }
+}
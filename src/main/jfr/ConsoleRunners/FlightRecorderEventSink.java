@@ -0,0 +1,236 @@
+package ConsoleRunners;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import SWDModelBaseObjects.Parameters;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The SimulationEventSink that emits JDK Flight Recorder events (SWDModel.Run, SWDModel.Sweep, SWDModel.OutputWrite
+ * and SWDModel.Day), so slow runs and writes can be matched with the GC and I/O events of the same recording.
+ * An event object is only created when its event type is enabled in the running recordings (the day events are
+ * disabled by default), so the events cost nothing otherwise.
+ * Only compiled on JDK 11+ (the "jfr" build profile), and only loaded through SimulationEventSinks.
+ */
+public class FlightRecorderEventSink implements SimulationEventSink {
+
+	private static final EventType RUN = EventType.getEventType(RunEvent.class);
+	private static final EventType SWEEP = EventType.getEventType(SweepEvent.class);
+	private static final EventType OUTPUT = EventType.getEventType(OutputEvent.class);
+	private static final EventType DAY = EventType.getEventType(DayEvent.class);
+
+	@Override
+	public Object beginRun() {
+		if (!RUN.isEnabled())
+			return null;
+		RunEvent event = new RunEvent();
+		event.begin();
+		return event;
+	}
+
+	@Override
+	public void endRun(Object run, int runId, String type, Parameters params, String stage, int startDay, double dt, double runTime, long steps) {
+		if (run == null)
+			return;
+		RunEvent event = (RunEvent) run;
+		event.end();
+		if (!event.shouldCommit())
+			return;
+		event.runId = runId;
+		event.type = type;
+		event.fingerprint = fingerprint(params);
+		event.stage = stage;
+		event.startDay = startDay;
+		event.initialPopulation = params.getParameter("initial " + stage);
+		event.gtMultiplier = params.getParameter("fruit gt multiplier");
+		event.harvestLag = params.getParameter("fruit time lag");
+		event.criticalTemp = params.getParameter("diapause critical temp");
+		event.daylightHours = params.getParameter("diapause daylight hours");
+		event.dt = dt;
+		event.runTime = runTime;
+		event.steps = steps;
+		event.commit();
+	}
+
+	@Override
+	public Object beginSweep() {
+		if (!SWEEP.isEnabled())
+			return null;
+		SweepEvent event = new SweepEvent();
+		event.begin();
+		return event;
+	}
+
+	@Override
+	public void endSweep(Object sweep, int runs, int tasks, int done, int threads, boolean forked) {
+		if (sweep == null)
+			return;
+		SweepEvent event = (SweepEvent) sweep;
+		event.end();
+		if (!event.shouldCommit())
+			return;
+		event.runs = runs;
+		event.tasks = tasks;
+		event.done = done;
+		event.threads = threads;
+		event.forked = forked;
+		event.commit();
+	}
+
+	@Override
+	public Object beginOutput() {
+		if (!OUTPUT.isEnabled())
+			return null;
+		OutputEvent event = new OutputEvent();
+		event.begin();
+		return event;
+	}
+
+	@Override
+	public void endOutput(Object output, int runId, String destination, int rows) {
+		if (output == null)
+			return;
+		OutputEvent event = (OutputEvent) output;
+		event.end();
+		if (!event.shouldCommit())
+			return;
+		event.runId = runId;
+		event.destination = destination;
+		event.rows = rows;
+		event.commit();
+	}
+
+	@Override
+	public Object beginDay() {
+		if (!DAY.isEnabled())
+			return null;
+		DayEvent event = new DayEvent();
+		event.begin();
+		return event;
+	}
+
+	@Override
+	public void endDay(Object day, int runId, int dayNumber, int steps, double females) {
+		if (day == null)
+			return;
+		DayEvent event = (DayEvent) day;
+		event.end();
+		if (!event.shouldCommit())
+			return;
+		event.runId = runId;
+		event.day = dayNumber;
+		event.steps = steps;
+		event.females = females;
+		event.commit();
+	}
+
+	/**
+	 * Method to return a fingerprint of all the parameters of a simulation: runs with the same fingerprint have
+	 * the same parameters (up to hash collisions), whatever order they were set in
+	 * @param params - the parameters
+	 * @return the fingerprint, in hexadecimal
+	 */
+	static String fingerprint(Parameters params) {
+		long hash = 17;
+		for (Map.Entry<String, Double> entry : new TreeMap<String, Double>(params.getMap()).entrySet()) {
+			hash = hash * 31 + entry.getKey().hashCode();
+			hash = hash * 31 + Double.doubleToLongBits(entry.getValue());
+		}
+		return Long.toHexString(hash);
+	}
+
+	@Name("SWDModel.Run")
+	@Label("Simulation Run")
+	@Description("One simulation of a batch, from its first step to its output")
+	@Category({"SWD Model", "Batch Runs"})
+	@StackTrace(false)
+	static class RunEvent extends Event {
+		@Label("Run Id")
+		int runId;
+		@Label("Type")
+		String type;
+		@Label("Parameter Fingerprint")
+		@Description("Hash of all the parameters of the simulation")
+		String fingerprint;
+		@Label("Stage")
+		String stage;
+		@Label("Injection Day")
+		int startDay;
+		@Label("Initial Population")
+		double initialPopulation;
+		@Label("GT Multiplier")
+		double gtMultiplier;
+		@Label("Harvest Lag")
+		double harvestLag;
+		@Label("Critical Temperature")
+		double criticalTemp;
+		@Label("Daylight Hours")
+		double daylightHours;
+		@Label("Integration Step")
+		double dt;
+		@Label("Run Time")
+		double runTime;
+		@Label("Steps")
+		long steps;
+	}
+
+	@Name("SWDModel.Sweep")
+	@Label("Sweep")
+	@Description("All the runs submitted together to a SweepEngine")
+	@Category({"SWD Model", "Batch Runs"})
+	@StackTrace(false)
+	static class SweepEvent extends Event {
+		@Label("Runs")
+		int runs;
+		@Label("Simulations")
+		@Description("Simulations submitted for the runs (fewer than the runs for linear sweeps)")
+		int tasks;
+		@Label("Runs Done")
+		int done;
+		@Label("Threads")
+		int threads;
+		@Label("Forked")
+		@Description("Were the runs started from snapshots of a trunk simulation?")
+		boolean forked;
+	}
+
+	@Name("SWDModel.OutputWrite")
+	@Label("Output Write")
+	@Description("The output of a run written to a text file or a sweep result file")
+	@Category({"SWD Model", "Batch Runs"})
+	@StackTrace(false)
+	static class OutputEvent extends Event {
+		@Label("Run Id")
+		int runId;
+		@Label("Destination")
+		String destination;
+		@Label("Rows")
+		@Description("Rows of daily data written (0 for summary-only runs)")
+		int rows;
+	}
+
+	@Name("SWDModel.Day")
+	@Label("Simulated Day")
+	@Description("The integration steps of one day of a run")
+	@Category({"SWD Model", "Batch Runs"})
+	@Enabled(false)
+	@StackTrace(false)
+	static class DayEvent extends Event {
+		@Label("Run Id")
+		int runId;
+		@Label("Day")
+		int day;
+		@Label("Steps")
+		int steps;
+		@Label("Females")
+		double females;
+	}
+}
@@ -0,0 +1,89 @@
+package SWDModelSimulators;
+
+import SWDModelBaseObjects.CompiledParameters;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The SIMD EnsembleKernel, using the Java Vector API (jdk.incubator.vector): the members of the block are
+ * updated a vector of members at a time (as many as fit in the widest SIMD register of the CPU), through
+ * all the lifestages, so the populations of the previous stage are still in registers.
+ * Only compiled on JDK 17+ (the "vector" build profile), and only loaded (see EnsembleKernels) on a JVM
+ * started with --add-modules jdk.incubator.vector.
+ * Multiplications and additions are kept separate (no fused multiply-adds) and done in the same order as
+ * ScalarEnsembleKernel, so the results are exactly the same.  The members left over after the last full
+ * vector are done by the scalar kernel.
+ */
+public class VectorEnsembleKernel implements EnsembleKernel {
+
+	private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+	private static final int NUM_STAGES = CompiledParameters.NUM_STAGES;
+	private static final int NUM_FEMALE_STAGES = CompiledParameters.NUM_FEMALE_STAGES;
+	private static final int FEMALES1 = 6; // index of the first female stage
+
+	private final ScalarEnsembleKernel scalar = new ScalarEnsembleKernel(); // for the members after the last full vector
+
+	/**
+	 * Constructor to create the kernel
+	 * @throws UnsupportedOperationException if the CPU has no SIMD registers for doubles (one double per vector)
+	 */
+	public VectorEnsembleKernel() {
+		if (SPECIES.length() < 2)
+			throw new UnsupportedOperationException("No SIMD registers for doubles on this platform");
+	}
+
+	@Override
+	public void updatePopulations(double[][] pop, double[][] next, double[][] devRate, double[][] loss, double[][] fertViability,
+									double[] maleProportion, double[] eggsIn, double dt, int from, int to) {
+		DoubleVector step = DoubleVector.broadcast(SPECIES, dt);
+		DoubleVector one = DoubleVector.broadcast(SPECIES, 1);
+		int upper = from + SPECIES.loopBound(to - from);
+
+		for (int m = from; m < upper; m += SPECIES.length()) {
+			// eggs
+			DoubleVector laid = DoubleVector.zero(SPECIES);
+			for (int i = 0; i < NUM_FEMALE_STAGES; i ++)
+				laid = laid.add(load(fertViability[i], m).mul(load(pop[FEMALES1 + i], m)));
+			DoubleVector prev = load(pop[0], m);
+			update(prev, laid, load(loss[0], m), step).intoArray(next[0], m);
+
+			// instars and pupae
+			for (int i = 1; i <= 4; i ++) {
+				DoubleVector cur = load(pop[i], m);
+				update(cur, load(devRate[i - 1], m).mul(prev), load(loss[i], m), step).intoArray(next[i], m);
+				prev = cur;
+			}
+
+			// males and females1 (from the pupae)
+			DoubleVector pupae = prev, pupaeDev = load(devRate[4], m);
+			DoubleVector proportion = load(maleProportion, m);
+			update(load(pop[5], m), proportion.mul(pupaeDev).mul(pupae), load(loss[5], m), step).intoArray(next[5], m);
+			prev = load(pop[FEMALES1], m);
+			update(prev, one.sub(proportion).mul(pupaeDev).mul(pupae), load(loss[FEMALES1], m), step).intoArray(next[FEMALES1], m);
+
+			// females2 to females7 (from the previous female stage)
+			for (int i = FEMALES1 + 1; i < NUM_STAGES; i ++) {
+				DoubleVector cur = load(pop[i], m);
+				update(cur, load(devRate[i - 2], m).mul(prev), load(loss[i], m), step).intoArray(next[i], m);
+				prev = cur;
+			}
+		}
+
+		if (upper < to)
+			scalar.updatePopulations(pop, next, devRate, loss, fertViability, maleProportion, eggsIn, dt, upper, to);
+	}
+
+	/**
+	 * Method to do the Euler update of one stage: cur + (in - cur * loss) * dt
+	 */
+	private static DoubleVector update(DoubleVector cur, DoubleVector in, DoubleVector loss, DoubleVector dt) {
+		return cur.add(in.sub(cur.mul(loss)).mul(dt));
+	}
+
+	private static DoubleVector load(double[] array, int offset) {
+		return DoubleVector.fromArray(SPECIES, array, offset);
+	}
+
+	@Override
+	public String getName() { return "vector (" + SPECIES.length() + " doubles)"; }
+}